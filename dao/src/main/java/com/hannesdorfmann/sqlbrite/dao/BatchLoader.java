@@ -0,0 +1,322 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.squareup.sqlbrite.BriteDatabase;
+import com.squareup.sqlbrite.BriteDatabaseBridge;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Coalesces lookups of single rows by their <code>INTEGER PRIMARY KEY</code> (see {@link
+ * Dao#batchLoader(String, String, String[], Func1)}). All lookups issued until the query {@link
+ * Scheduler} of the {@link Dao} runs the next task are collected and loaded with a single
+ * <code>SELECT ... WHERE id IN (?, ?, ...)</code> query. Each caller gets its own row. A key
+ * requested several times is loaded only once.
+ *
+ * <p>
+ * The IN list is split into chunks of {@link #MAX_HOST_PARAMETERS} keys, SQLite's default limit
+ * of host parameters per statement. More than {@link #TEMP_TABLE_THRESHOLD} keys are inserted into
+ * a temporary table instead, which is joined with the queried table. Since that's a write, such a
+ * batch is handed over to the write scheduler of the {@link Dao}, which loads it and notifies the
+ * callers, so that the query scheduler isn't blocked while waiting for the writer.
+ * </p>
+ *
+ * <p>
+ * The lookups are one-shot: the observables returned by {@link #load(long)} emit the row (or
+ * nothing if the row doesn't exist) and complete. They don't observe the table.
+ * </p>
+ *
+ * @param <T> The type of the loaded items
+ * @author Hannes Dorfmann
+ */
+public final class BatchLoader<T> {
+
+  /**
+   * The maximum number of host parameters of a SQLite statement (SQLITE_MAX_VARIABLE_NUMBER)
+   */
+  public static final int MAX_HOST_PARAMETERS = 999;
+
+  /**
+   * The number of keys of a batch from which on the keys are joined with a temporary table
+   * instead of being bound as parameters of IN lists
+   */
+  public static final int TEMP_TABLE_THRESHOLD = 5 * MAX_HOST_PARAMETERS;
+
+  private static final String TEMP_TABLE = "batch_keys";
+  private static final String TEMP_COLUMN = "batch_key";
+
+  private final Dao dao;
+  private final String table;
+  private final String keyColumn;
+  private final String projection;
+  private final int keyIndex;
+  private final Func1<Cursor, T> mapper;
+
+  private Map<Long, List<Subscriber<? super T>>> pending = new LinkedHashMap<>();
+  private long loadCount;
+  private long batchCount;
+  private long queryCount;
+
+  BatchLoader(Dao dao, String table, String keyColumn, String[] columns,
+      Func1<Cursor, T> mapper) {
+    this.dao = dao;
+    this.table = table;
+    this.keyColumn = keyColumn;
+    this.mapper = mapper;
+
+    // The key column is needed to assign the rows to the lookups, append it if not queried
+    int index = Arrays.asList(columns).indexOf(keyColumn);
+    StringBuilder builder = new StringBuilder();
+    for (String column : columns) {
+      builder.append(builder.length() == 0 ? "" : ", ").append(column);
+    }
+    if (index < 0) {
+      index = columns.length;
+      builder.append(builder.length() == 0 ? "" : ", ").append(keyColumn);
+    }
+    this.keyIndex = index;
+    this.projection = builder.toString();
+  }
+
+  /**
+   * Loads the row with the given key. The lookup is batched with all other lookups issued until
+   * the query scheduler runs the next task.
+   *
+   * @param key The value of the INTEGER PRIMARY KEY
+   * @return An observable emitting the mapped row (or nothing if there is no such row) and
+   * completing
+   */
+  public Observable<T> load(final long key) {
+    return Observable.create(new Observable.OnSubscribe<T>() {
+      @Override public void call(Subscriber<? super T> subscriber) {
+        enqueue(key, subscriber);
+      }
+    });
+  }
+
+  private void enqueue(long key, Subscriber<? super T> subscriber) {
+    boolean first;
+    synchronized (this) {
+      loadCount++;
+      first = pending.isEmpty();
+      List<Subscriber<? super T>> subscribers = pending.get(key);
+      if (subscribers == null) {
+        subscribers = new ArrayList<>(1);
+        pending.put(key, subscribers);
+      }
+      subscribers.add(subscriber);
+    }
+
+    if (first) {
+      // Collect all lookups issued until the scheduler runs the batch
+      Scheduler scheduler = dao.scheduler == null ? Schedulers.immediate() : dao.scheduler;
+      final Scheduler.Worker worker = scheduler.createWorker();
+      worker.schedule(new Action0() {
+        @Override public void call() {
+          try {
+            dispatch();
+          } finally {
+            worker.unsubscribe();
+          }
+        }
+      });
+    }
+  }
+
+  private void dispatch() {
+    final Map<Long, List<Subscriber<? super T>>> batch;
+    synchronized (this) {
+      batch = pending;
+      pending = new LinkedHashMap<>();
+      batchCount++;
+    }
+
+    // Inserting into the temporary table takes the writer lock. Unless the calling thread is
+    // running a transaction (which holds the writer lock anyway and would block the write scheduler
+    // until it's finished) the batch is loaded by the write scheduler without waiting for it.
+    Scheduler writeScheduler = dao.writeScheduler;
+    if (batch.size() > TEMP_TABLE_THRESHOLD && writeScheduler != null
+        && !BriteDatabaseBridge.getWritableDatabase(dao.db).inTransaction()) {
+      final Scheduler.Worker worker = writeScheduler.createWorker();
+      worker.schedule(new Action0() {
+        @Override public void call() {
+          try {
+            load(batch);
+          } finally {
+            worker.unsubscribe();
+          }
+        }
+      });
+      return;
+    }
+
+    load(batch);
+  }
+
+  /**
+   * Loads the rows of the batch and notifies the subscribers
+   */
+  private void load(Map<Long, List<Subscriber<? super T>>> batch) {
+    Map<Long, T> items;
+    try {
+      items = query(batch.keySet().toArray(new Long[batch.size()]));
+    } catch (Throwable e) {
+      for (List<Subscriber<? super T>> subscribers : batch.values()) {
+        for (Subscriber<? super T> subscriber : subscribers) {
+          subscriber.onError(e);
+        }
+      }
+      return;
+    }
+
+    for (Map.Entry<Long, List<Subscriber<? super T>>> entry : batch.entrySet()) {
+      T item = items.get(entry.getKey());
+      for (Subscriber<? super T> subscriber : entry.getValue()) {
+        if (subscriber.isUnsubscribed()) {
+          continue;
+        }
+        if (item != null) {
+          subscriber.onNext(item);
+        }
+        subscriber.onCompleted();
+      }
+    }
+  }
+
+  /**
+   * Queries the rows with the given keys
+   */
+  private Map<Long, T> query(Long[] keys) {
+    Map<Long, T> items = new HashMap<>(Math.max(16, (int) (keys.length / 0.75f) + 1));
+    if (keys.length > TEMP_TABLE_THRESHOLD) {
+      queryTempTable(keys, items);
+      return items;
+    }
+
+    for (int start = 0; start < keys.length; start += MAX_HOST_PARAMETERS) {
+      int end = Math.min(keys.length, start + MAX_HOST_PARAMETERS);
+      StringBuilder sql = new StringBuilder("SELECT ").append(projection)
+          .append(" FROM ")
+          .append(table)
+          .append(" WHERE ")
+          .append(keyColumn)
+          .append(" IN (");
+      for (int i = start; i < end; i++) {
+        sql.append(i == start ? "?" : ", ?");
+      }
+      sql.append(')');
+
+      // Keys are bound as INTEGER so that the primary key index is used
+      Object[] args = Arrays.copyOfRange(keys, start, end, Object[].class);
+      read(new TypedQuery(dao.db, sql.toString(), args).run(), items);
+    }
+    return items;
+  }
+
+  /**
+   * Inserts the keys into a temporary table and joins it with the table. Called on the write
+   * scheduler of the {@link Dao} or on a thread running a transaction (see {@link #dispatch()}).
+   */
+  private void queryTempTable(Long[] keys, Map<Long, T> items) {
+    // A semi join: each row of the table at most once, no ambiguous column names
+    String sql = "SELECT " + projection + " FROM " + table + " WHERE " + keyColumn
+        + " IN (SELECT " + TEMP_COLUMN + " FROM temp." + TEMP_TABLE + ")";
+    BriteDatabase db = dao.db;
+    BriteDatabaseBridge.log(db, "QUERY\n  sql: %s\n  keys: %d", sql, keys.length);
+    queryTempTable(BriteDatabaseBridge.getWritableDatabase(db), sql, keys, items);
+  }
+
+  /**
+   * Temporary tables are private to a connection, so everything is done within one transaction on
+   * the same connection. The temporary table is dropped again and the transaction is committed, so
+   * that a transaction of the caller it is nested in isn't rolled back.
+   */
+  private void queryTempTable(SQLiteDatabase database, String sql, Long[] keys,
+      Map<Long, T> items) {
+    database.beginTransactionNonExclusive();
+    try {
+      database.execSQL(
+          "CREATE TEMP TABLE " + TEMP_TABLE + " (" + TEMP_COLUMN + " INTEGER PRIMARY KEY)");
+      try {
+        SQLiteStatement insert = database.compileStatement(
+            "INSERT OR IGNORE INTO " + TEMP_TABLE + " (" + TEMP_COLUMN + ") VALUES (?)");
+        try {
+          for (Long key : keys) {
+            insert.bindLong(1, key);
+            insert.executeInsert();
+          }
+        } finally {
+          insert.close();
+        }
+
+        read(database.rawQuery(sql, null), items);
+      } finally {
+        database.execSQL("DROP TABLE temp." + TEMP_TABLE);
+      }
+      database.setTransactionSuccessful();
+    } finally {
+      database.endTransaction();
+    }
+  }
+
+  private void read(Cursor cursor, Map<Long, T> items) {
+    synchronized (this) {
+      queryCount++;
+    }
+    if (cursor == null) {
+      return;
+    }
+
+    try {
+      while (cursor.moveToNext()) {
+        items.put(cursor.getLong(keyIndex), mapper.call(cursor));
+      }
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Get the number of lookups (calls of {@link #load(long)} that have been subscribed)
+   *
+   * @return The number of lookups
+   */
+  public synchronized long loadCount() {
+    return loadCount;
+  }
+
+  /**
+   * Get the number of batches the lookups have been coalesced into
+   *
+   * @return The number of batches
+   */
+  public synchronized long batchCount() {
+    return batchCount;
+  }
+
+  /**
+   * Get the number of queries executed to load the batches
+   *
+   * @return The number of queries
+   */
+  public synchronized long queryCount() {
+    return queryCount;
+  }
+
+  @Override public synchronized String toString() {
+    return String.format("BatchLoader[table=%s,loads=%d,batches=%d,queries=%d]", table, loadCount,
+        batchCount, queryCount);
+  }
+}
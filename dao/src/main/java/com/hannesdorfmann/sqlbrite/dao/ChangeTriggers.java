@@ -0,0 +1,372 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the trigger names sent to SQLBrite when a {@link Dao} changes a table. Next to the name
+ * of the table itself a write sends a trigger for each changed row (<code>table#rowId</code>) or,
+ * if the changed rows are not known, a trigger for any row (<code>table#*</code>). Queries
+ * observing only some rows of a table (see {@link Dao.QueryBuilder#observeRows(String, long...)})
+ * observe these row triggers instead of the table name and therefore are not executed again if
+ * other rows of the table have been changed.
+ *
+ * <p>
+ * Likewise a write sends a trigger for each changed column (<code>table@column</code>) or, for
+ * inserts, deletes and unknown columns, a trigger for any column (<code>table@*</code>). Queries
+ * that know the columns they project and filter on (see {@link
+ * com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode}) and have opted in (see {@link
+ * Dao.QueryBuilder#observeColumns()}) observe these column triggers instead of the table name.
+ * </p>
+ *
+ * <p>
+ * Writes that don't go through a {@link Dao} only send the table name, so row and column
+ * observing queries must be opted in explicitly: all other queries observe the table name.
+ * </p>
+ *
+ * <p>
+ * Since row and column triggers are regular SQLBrite triggers they are collected by SQLBrite
+ * transactions and only sent once the (outermost) transaction has been committed.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+final class ChangeTriggers {
+
+  private static final char ROW_SEPARATOR = '#';
+  private static final String ANY_ROW = "#*";
+  private static final char COLUMN_SEPARATOR = '@';
+  private static final String ANY_COLUMN = "@*";
+
+  /**
+   * Matches <code>[table.]column = ?</code> or <code>[table.]column = 123</code>
+   */
+  private static final Pattern KEY_EQUALS =
+      Pattern.compile("^\\s*(?:\\w+\\.)?(\\w+)\\s*(?:=|==)\\s*(\\?|-?\\d+)\\s*$");
+
+  /**
+   * Matches <code>UPDATE [OR conflict] table SET assignments [WHERE ...]</code>
+   */
+  private static final Pattern UPDATE_SET = Pattern.compile(
+      "^\\s*UPDATE\\s+(?:OR\\s+\\w+\\s+)?\\S+\\s+SET\\s+(.+?)(?:\\s+WHERE\\s+.*)?$",
+      Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  /**
+   * Matches a single assignment <code>column = ?</code> of an UPDATE statement
+   */
+  private static final Pattern ASSIGNMENT = Pattern.compile("^\\s*(\\w+)\\s*=\\s*\\?\\s*$");
+
+  /**
+   * Matches <code>[table.]column IN (?, ?, ...)</code>
+   */
+  private static final Pattern KEY_IN = Pattern.compile(
+      "^\\s*(?:\\w+\\.)?(\\w+)\\s+IN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)\\s*$",
+      Pattern.CASE_INSENSITIVE);
+
+  private ChangeTriggers() {
+  }
+
+  /**
+   * Get the trigger name for a single row of a table
+   *
+   * @param table The table
+   * @param rowId The row id
+   * @return The trigger name
+   */
+  static String row(String table, long rowId) {
+    return table + ROW_SEPARATOR + rowId;
+  }
+
+  /**
+   * Get the trigger name sent if rows of a table have been changed, but it's not known which ones
+   *
+   * @param table The table
+   * @return The trigger name
+   */
+  static String anyRow(String table) {
+    return table + ANY_ROW;
+  }
+
+  /**
+   * Get the trigger name for a single column of a table
+   *
+   * @param table The table
+   * @param column The column
+   * @return The trigger name
+   */
+  static String column(String table, String column) {
+    return table + COLUMN_SEPARATOR + column.toLowerCase(Locale.US);
+  }
+
+  /**
+   * Get the trigger name sent if columns of a table have been changed, but it's not known which
+   * ones
+   *
+   * @param table The table
+   * @return The trigger name
+   */
+  static String anyColumn(String table) {
+    return table + ANY_COLUMN;
+  }
+
+  /**
+   * Checks whether or not the given trigger is a table name (and not a row or column trigger)
+   *
+   * @param trigger The trigger
+   * @return true if the trigger is a table name
+   */
+  static boolean isTable(String trigger) {
+    return trigger.indexOf(ROW_SEPARATOR) < 0 && trigger.indexOf(COLUMN_SEPARATOR) < 0;
+  }
+
+  /**
+   * Get the triggers observed by a query. Tables with observed rows are observed on row level,
+   * otherwise on column level if the columns of the query are known, otherwise on table level.
+   *
+   * @param tables The tables of the query
+   * @param observedRows The observed rows per table or null
+   * @param columns The columns the query projects and filters on or null if not known
+   * @return The triggers
+   */
+  static Set<String> observe(Iterable<String> tables, Map<String, long[]> observedRows,
+      Set<String> columns) {
+    Set<String> triggers = new LinkedHashSet<>();
+    Set<String> rowTables =
+        observedRows == null ? Collections.<String>emptySet() : new HashSet<>(observedRows.keySet());
+
+    for (String table : tables) {
+      long[] rowIds = observedRows == null ? null : observedRows.get(table);
+      if (rowIds != null) {
+        observeRows(table, rowIds, triggers);
+        rowTables.remove(table);
+      } else if (columns != null) {
+        observeColumns(table, columns, triggers);
+      } else {
+        triggers.add(table);
+      }
+    }
+
+    if (!rowTables.isEmpty()) {
+      throw new IllegalArgumentException(
+          "Can't observe rows of " + rowTables + " because the query doesn't observe these tables");
+    }
+
+    return triggers;
+  }
+
+  /**
+   * Get the triggers observed by a query that is interested only in the given rows of a table
+   *
+   * @param table The table
+   * @param rowIds The ids of the observed rows
+   * @param triggers The collection the triggers are added to
+   */
+  static void observeRows(String table, long[] rowIds, Collection<String> triggers) {
+    triggers.add(anyRow(table));
+    for (long rowId : rowIds) {
+      triggers.add(row(table, rowId));
+    }
+  }
+
+  /**
+   * Get the triggers observed by a query that is interested only in the given columns of a table
+   *
+   * @param table The table
+   * @param columns The (lower case) observed columns
+   * @param triggers The collection the triggers are added to
+   */
+  static void observeColumns(String table, Set<String> columns, Collection<String> triggers) {
+    triggers.add(anyColumn(table));
+    for (String column : columns) {
+      triggers.add(table + COLUMN_SEPARATOR + column);
+    }
+  }
+
+  /**
+   * Get the triggers for inserted rows
+   *
+   * @param table The table
+   * @param rowIds The ids of the inserted rows, -1 for rows that have not been inserted
+   * @param replace true if an existing row may have been replaced (or deleted) by the insert
+   * @return The triggers or null if no row has been inserted
+   */
+  static Set<String> inserted(String table, long[] rowIds, boolean replace) {
+    Set<String> triggers = null;
+    for (long rowId : rowIds) {
+      if (rowId != -1) {
+        if (triggers == null) {
+          triggers = new LinkedHashSet<>();
+          triggers.add(table);
+          triggers.add(anyColumn(table));
+        }
+        triggers.add(row(table, rowId));
+      }
+    }
+
+    if (triggers != null && replace) {
+      // A replaced row may have had another row id
+      triggers.add(anyRow(table));
+    }
+
+    return triggers;
+  }
+
+  /**
+   * Get the triggers for updated or deleted rows
+   *
+   * @param table The table
+   * @param rowIds The ids of the changed rows or null if not known
+   * @param columns The changed columns or null if not known (or rows have been deleted)
+   * @return The triggers
+   */
+  static Set<String> changed(String table, long[] rowIds, Collection<String> columns) {
+    Set<String> triggers = new LinkedHashSet<>();
+    triggers.add(table);
+    if (rowIds == null) {
+      triggers.add(anyRow(table));
+    } else {
+      for (long rowId : rowIds) {
+        triggers.add(row(table, rowId));
+      }
+    }
+
+    if (columns == null) {
+      triggers.add(anyColumn(table));
+    } else {
+      for (String column : columns) {
+        triggers.add(column(table, column));
+      }
+    }
+    return triggers;
+  }
+
+  /**
+   * Get the columns changed by an UPDATE statement like the ones generated by the ObjectMapper
+   * (<code>UPDATE table SET a = ?, b = ? WHERE ...</code>)
+   *
+   * @param sql The UPDATE statement
+   * @return The changed columns or null if the statement can't be parsed
+   */
+  static List<String> updatedColumns(String sql) {
+    Matcher matcher = UPDATE_SET.matcher(sql);
+    if (!matcher.matches()) {
+      return null;
+    }
+
+    String[] assignments = matcher.group(1).split(",");
+    List<String> columns = new ArrayList<>(assignments.length);
+    for (String assignment : assignments) {
+      Matcher column = ASSIGNMENT.matcher(assignment);
+      if (!column.matches()) {
+        return null;
+      }
+      columns.add(column.group(1));
+    }
+    return columns;
+  }
+
+  /**
+   * Checks whether or not the given INSERT sql statement may replace existing rows
+   *
+   * @param sql The INSERT statement
+   * @return true if the statement may replace existing rows
+   */
+  static boolean replaces(String sql) {
+    String insert = sql.trim().toUpperCase();
+    int into = insert.indexOf(" INTO ");
+    return insert.startsWith("REPLACE")
+        || into > 0 && insert.substring(0, into).contains("REPLACE");
+  }
+
+  /**
+   * Get the ids of the rows a where clause is restricted to. Only simple where clauses like
+   * <code>id = ?</code> or <code>id IN (?, ?)</code> on the key column are recognized.
+   *
+   * @param keyColumn The column that contains the row id (INTEGER PRIMARY KEY) or null if unknown
+   * @param whereClause The where clause
+   * @param whereArgs The where clause arguments
+   * @return the row ids or null if the rows can't be determined
+   */
+  static long[] parseRowIds(String keyColumn, String whereClause, String[] whereArgs) {
+    if (whereClause == null) {
+      return null;
+    }
+
+    Matcher matcher = KEY_EQUALS.matcher(whereClause);
+    if (matcher.matches()) {
+      if (!isKeyColumn(keyColumn, matcher.group(1))) {
+        return null;
+      }
+
+      String value = matcher.group(2);
+      if ("?".equals(value)) {
+        if (whereArgs == null || whereArgs.length != 1) {
+          return null;
+        }
+        value = whereArgs[0];
+      }
+
+      Long rowId = parseLong(value);
+      return rowId == null ? null : new long[] { rowId };
+    }
+
+    matcher = KEY_IN.matcher(whereClause);
+    if (matcher.matches()) {
+      if (!isKeyColumn(keyColumn, matcher.group(1)) || whereArgs == null) {
+        return null;
+      }
+
+      int placeholders = 0;
+      for (int i = 0; i < whereClause.length(); i++) {
+        if (whereClause.charAt(i) == '?') {
+          placeholders++;
+        }
+      }
+      if (placeholders != whereArgs.length) {
+        return null;
+      }
+
+      long[] rowIds = new long[whereArgs.length];
+      for (int i = 0; i < whereArgs.length; i++) {
+        Long rowId = parseLong(whereArgs[i]);
+        if (rowId == null) {
+          return null;
+        }
+        rowIds[i] = rowId;
+      }
+      return rowIds;
+    }
+
+    return null;
+  }
+
+  /**
+   * Checks if the given column is the key column or one of SQLite's rowid aliases
+   */
+  private static boolean isKeyColumn(String keyColumn, String column) {
+    return column.equalsIgnoreCase(keyColumn)
+        || column.equalsIgnoreCase("rowid")
+        || column.equalsIgnoreCase("_rowid_")
+        || column.equalsIgnoreCase("oid");
+  }
+
+  private static Long parseLong(String value) {
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
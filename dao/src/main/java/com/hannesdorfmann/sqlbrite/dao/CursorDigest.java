@@ -0,0 +1,83 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+
+/**
+ * Computes 64 bit FNV-1a hashes over the type and value of the columns of a {@link Cursor}
+ *
+ * @author Hannes Dorfmann
+ */
+final class CursorDigest {
+
+  static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  private CursorDigest() {
+  }
+
+  /**
+   * Computes the digest of all rows of the given cursor. Moves the cursor after the last row.
+   *
+   * @param cursor The cursor
+   * @return The digest
+   */
+  static long rows(Cursor cursor) {
+    int columns = cursor.getColumnCount();
+    long hash = hash(OFFSET_BASIS, columns);
+
+    cursor.moveToPosition(-1);
+    while (cursor.moveToNext()) {
+      hash = row(hash, cursor, columns);
+    }
+
+    return hash(hash, cursor.getCount());
+  }
+
+  /**
+   * Continues the given digest with the values of the current row of the cursor
+   *
+   * @param hash The digest so far, {@link #OFFSET_BASIS} to start a new one
+   * @param cursor The cursor positioned on a row
+   * @param columns The number of columns to digest
+   * @return The digest
+   */
+  static long row(long hash, Cursor cursor, int columns) {
+    for (int i = 0; i < columns; i++) {
+      int type = cursor.getType(i);
+      hash = hash(hash, type);
+      switch (type) {
+        case Cursor.FIELD_TYPE_NULL:
+          break;
+        case Cursor.FIELD_TYPE_INTEGER:
+          hash = hash(hash, cursor.getLong(i));
+          break;
+        case Cursor.FIELD_TYPE_FLOAT:
+          hash = hash(hash, Double.doubleToLongBits(cursor.getDouble(i)));
+          break;
+        case Cursor.FIELD_TYPE_BLOB:
+          byte[] blob = cursor.getBlob(i);
+          hash = hash(hash, blob.length);
+          for (byte b : blob) {
+            hash = (hash ^ (b & 0xff)) * PRIME;
+          }
+          break;
+        default:
+          String string = cursor.getString(i);
+          hash = hash(hash, string.length());
+          for (int c = 0; c < string.length(); c++) {
+            hash = (hash ^ string.charAt(c)) * PRIME;
+          }
+          break;
+      }
+    }
+    return hash;
+  }
+
+  private static long hash(long hash, long value) {
+    for (int i = 0; i < 8; i++) {
+      hash = (hash ^ (value & 0xff)) * PRIME;
+      value >>>= 8;
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,181 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import rx.functions.Func1;
+
+/**
+ * A read only {@link java.util.List} backed by the cursor of a query (see {@link
+ * Dao.QueryBuilder#runLazyList(Func1)}). A row is mapped only when it's accessed by {@link
+ * #get(int)}. The most recently accessed items are kept in a small LRU cache. When a row is mapped
+ * the following rows in scroll direction (the direction of the previous accesses) are mapped
+ * ahead, so that scrolling through the list mostly hits the cache.
+ *
+ * <p>
+ * The list holds an open cursor. It is closed automatically once the list emitted after this one
+ * is accessed the first time, once the second list after this one is emitted or once the
+ * subscriber unsubscribes. Accessing items of a closed list throws an {@link
+ * IllegalStateException}.
+ * </p>
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ */
+public final class CursorList<T> extends AbstractList<T> implements RandomAccess, Closeable {
+
+  /**
+   * The default number of mapped items kept in the cache
+   */
+  public static final int DEFAULT_CACHE_SIZE = 50;
+
+  /**
+   * The default number of rows mapped ahead in scroll direction
+   */
+  public static final int DEFAULT_PREFETCH = 10;
+
+  private final Cursor cursor;
+  private final Func1<Cursor, T> mapper;
+  private final int size;
+  private final int prefetch;
+  private final LinkedHashMap<Integer, T> cache;
+  private CursorList<T> previous;
+  private int lastPosition = -1;
+  private boolean closed;
+  private long mappedRowCount;
+
+  /**
+   * @param cursor The cursor or null for an empty list
+   * @param mapper Maps the current row of the cursor
+   * @param cacheSize The maximum number of cached items
+   * @param prefetch The number of rows mapped ahead in scroll direction
+   * @param previous The list replaced by this one or null, closed when this list is accessed
+   */
+  CursorList(Cursor cursor, Func1<Cursor, T> mapper, final int cacheSize, int prefetch,
+      CursorList<T> previous) {
+    this.cursor = cursor;
+    this.mapper = mapper;
+    this.size = cursor == null ? 0 : cursor.getCount();
+    this.prefetch = prefetch;
+    this.previous = previous;
+    this.cache = new LinkedHashMap<Integer, T>(16, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  @Override public T get(int location) {
+    if (location < 0 || location >= size) {
+      throw new IndexOutOfBoundsException("Requested index: " + location + ", size: " + size);
+    }
+
+    closePrevious();
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("The list has been closed");
+      }
+
+      T item = cache.get(location);
+      if (item == null) {
+        item = map(location);
+      }
+
+      // Map ahead in scroll direction
+      int direction = location >= lastPosition ? 1 : -1;
+      lastPosition = location;
+      for (int i = 1; i <= prefetch; i++) {
+        int position = location + i * direction;
+        if (position < 0 || position >= size) {
+          break;
+        }
+        if (!cache.containsKey(position)) {
+          map(position);
+        }
+      }
+
+      return item;
+    }
+  }
+
+  private T map(int position) {
+    if (!cursor.moveToPosition(position)) {
+      throw new IllegalStateException("Could not move the cursor to position " + position);
+    }
+    T item = mapper.call(cursor);
+    mappedRowCount++;
+    cache.put(position, item);
+    return item;
+  }
+
+  @Override public int size() {
+    closePrevious();
+    return size;
+  }
+
+  /**
+   * Closes the lists replaced by this one. Called on the first access to this list, which means
+   * the subscriber has switched to it, and once this list has been replaced itself.
+   */
+  void closePrevious() {
+    CursorList<T> replaced;
+    synchronized (this) {
+      replaced = previous;
+      previous = null;
+    }
+    if (replaced != null) {
+      replaced.closeAll();
+    }
+  }
+
+  /**
+   * Closes this list and all lists replaced by it
+   */
+  void closeAll() {
+    for (CursorList<T> list = this; list != null; ) {
+      CursorList<T> replaced;
+      synchronized (list) {
+        replaced = list.previous;
+        list.previous = null;
+      }
+      list.close();
+      list = replaced;
+    }
+  }
+
+  /**
+   * Closes the underlying cursor. Usually you don't need to call this method, since lists are
+   * closed automatically once they have been replaced or the subscriber has unsubscribed.
+   */
+  @Override public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      cache.clear();
+      if (cursor != null) {
+        cursor.close();
+      }
+    }
+  }
+
+  /**
+   * Checks whether or not the underlying cursor has been closed
+   *
+   * @return true if closed
+   */
+  public synchronized boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Get the number of rows that have been mapped so far (including rows mapped again after their
+   * items have been evicted from the cache)
+   *
+   * @return The number of mapped rows
+   */
+  public synchronized long mappedRowCount() {
+    return mappedRowCount;
+  }
+}
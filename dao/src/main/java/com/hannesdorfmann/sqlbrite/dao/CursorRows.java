@@ -0,0 +1,102 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import rx.Observable;
+import rx.Observer;
+import rx.functions.Func1;
+import rx.observables.SyncOnSubscribe;
+
+/**
+ * Emits the mapped rows of a query one by one (or in chunks) while iterating over the cursor. Only
+ * as many rows are read and mapped as requested by the subscriber, so a huge result is processed
+ * in constant memory. The query is executed when subscribing and the cursor is closed as soon as
+ * all rows have been emitted, an error occurred or the subscriber unsubscribes.
+ *
+ * @author Hannes Dorfmann
+ */
+final class CursorRows<T> extends SyncOnSubscribe<Cursor, List<T>> {
+
+  private final SqlBrite.Query query;
+  private final Func1<Cursor, T> mapper;
+  private final int chunkSize;
+
+  private CursorRows(SqlBrite.Query query, Func1<Cursor, T> mapper, int chunkSize) {
+    this.query = query;
+    this.mapper = mapper;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Emits the mapped rows one by one
+   *
+   * @param query The query
+   * @param mapper Maps the current row of the cursor
+   * @return The rows
+   */
+  static <T> Observable<T> rows(SqlBrite.Query query, Func1<Cursor, T> mapper) {
+    return Observable.create(new CursorRows<>(query, mapper, 1))
+        .map(new Func1<List<T>, T>() {
+          @Override public T call(List<T> chunk) {
+            return chunk.get(0);
+          }
+        });
+  }
+
+  /**
+   * Emits the mapped rows in chunks. Each chunk contains <code>chunkSize</code> rows, except the
+   * last one that may contain less.
+   *
+   * @param query The query
+   * @param mapper Maps the current row of the cursor
+   * @param chunkSize The number of rows per chunk
+   * @return The chunks
+   */
+  static <T> Observable<List<T>> chunks(SqlBrite.Query query, Func1<Cursor, T> mapper,
+      int chunkSize) {
+    return Observable.create(new CursorRows<>(query, mapper, chunkSize));
+  }
+
+  @Override protected Cursor generateState() {
+    return query.run();
+  }
+
+  @Override protected Cursor next(Cursor cursor, Observer<? super List<T>> observer) {
+    if (cursor == null) {
+      observer.onCompleted();
+      return null;
+    }
+
+    List<T> chunk = null;
+    while (cursor.moveToNext()) {
+      if (chunkSize == 1) {
+        chunk = Collections.singletonList(mapper.call(cursor));
+        break;
+      }
+
+      if (chunk == null) {
+        chunk = new ArrayList<>(chunkSize);
+      }
+      chunk.add(mapper.call(cursor));
+      if (chunk.size() == chunkSize) {
+        break;
+      }
+    }
+
+    if (chunk == null) {
+      observer.onCompleted();
+    } else {
+      observer.onNext(chunk);
+    }
+    return cursor;
+  }
+
+  @Override protected void onUnsubscribe(Cursor cursor) {
+    if (cursor != null) {
+      cursor.close();
+    }
+  }
+}
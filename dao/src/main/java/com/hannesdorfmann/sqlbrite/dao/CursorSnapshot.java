@@ -0,0 +1,175 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.AbstractCursor;
+import android.database.Cursor;
+
+/**
+ * An immutable in-memory copy of the rows of a {@link Cursor}. A snapshot is read once from the
+ * database and can be read by many {@link Cursor}s (see {@link #newCursor()}), each having its own
+ * position.
+ *
+ * @author Hannes Dorfmann
+ */
+final class CursorSnapshot {
+
+  private final String[] columnNames;
+  private final Object[] values;
+  private final int count;
+
+  /**
+   * Copies all rows of the given cursor. The cursor is not closed.
+   *
+   * @param cursor The cursor
+   */
+  CursorSnapshot(Cursor cursor) {
+    columnNames = cursor.getColumnNames();
+    count = cursor.getCount();
+    values = new Object[count * columnNames.length];
+
+    int i = 0;
+    cursor.moveToPosition(-1);
+    while (cursor.moveToNext()) {
+      for (int column = 0; column < columnNames.length; column++) {
+        values[i++] = readValue(cursor, column);
+      }
+    }
+  }
+
+  private static Object readValue(Cursor cursor, int column) {
+    switch (cursor.getType(column)) {
+      case Cursor.FIELD_TYPE_NULL:
+        return null;
+      case Cursor.FIELD_TYPE_INTEGER:
+        return cursor.getLong(column);
+      case Cursor.FIELD_TYPE_FLOAT:
+        return cursor.getDouble(column);
+      case Cursor.FIELD_TYPE_BLOB:
+        return cursor.getBlob(column);
+      default:
+        return cursor.getString(column);
+    }
+  }
+
+  /**
+   * Get the number of rows
+   *
+   * @return number of rows
+   */
+  int getCount() {
+    return count;
+  }
+
+  /**
+   * Get a rough estimation of the memory used by the copied values in bytes
+   *
+   * @return The estimated size in bytes
+   */
+  long estimateSize() {
+    long size = 16 + 4L * values.length;
+    for (Object value : values) {
+      if (value instanceof String) {
+        size += 40 + 2 * ((String) value).length();
+      } else if (value instanceof byte[]) {
+        size += 16 + ((byte[]) value).length;
+      } else if (value != null) {
+        size += 16;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Creates a new cursor reading this snapshot
+   *
+   * @return The cursor
+   */
+  Cursor newCursor() {
+    return new SnapshotCursor();
+  }
+
+  private final class SnapshotCursor extends AbstractCursor {
+
+    private Object get(int column) {
+      if (column < 0 || column >= columnNames.length) {
+        throw new IndexOutOfBoundsException(
+            "Requested column: " + column + ", # of columns: " + columnNames.length);
+      }
+      if (mPos < 0 || mPos >= count) {
+        throw new IndexOutOfBoundsException(
+            "Requested row: " + mPos + ", # of rows: " + count);
+      }
+      return values[mPos * columnNames.length + column];
+    }
+
+    @Override public int getCount() {
+      return count;
+    }
+
+    @Override public String[] getColumnNames() {
+      return columnNames;
+    }
+
+    @Override public int getType(int column) {
+      Object value = get(column);
+      if (value == null) {
+        return FIELD_TYPE_NULL;
+      } else if (value instanceof Long) {
+        return FIELD_TYPE_INTEGER;
+      } else if (value instanceof Double) {
+        return FIELD_TYPE_FLOAT;
+      } else if (value instanceof byte[]) {
+        return FIELD_TYPE_BLOB;
+      }
+      return FIELD_TYPE_STRING;
+    }
+
+    @Override public String getString(int column) {
+      Object value = get(column);
+      return value == null ? null : value.toString();
+    }
+
+    @Override public short getShort(int column) {
+      return (short) getLong(column);
+    }
+
+    @Override public int getInt(int column) {
+      return (int) getLong(column);
+    }
+
+    @Override public long getLong(int column) {
+      Object value = get(column);
+      if (value == null) {
+        return 0;
+      } else if (value instanceof Number) {
+        return ((Number) value).longValue();
+      }
+      return Long.parseLong(value.toString());
+    }
+
+    @Override public float getFloat(int column) {
+      return (float) getDouble(column);
+    }
+
+    @Override public double getDouble(int column) {
+      Object value = get(column);
+      if (value == null) {
+        return 0;
+      } else if (value instanceof Number) {
+        return ((Number) value).doubleValue();
+      }
+      return Double.parseDouble(value.toString());
+    }
+
+    @Override public byte[] getBlob(int column) {
+      Object value = get(column);
+      if (value == null || value instanceof byte[]) {
+        return (byte[]) value;
+      }
+      return value.toString().getBytes();
+    }
+
+    @Override public boolean isNull(int column) {
+      return get(column) == null;
+    }
+  }
+}
@@ -1,14 +1,20 @@
 package com.hannesdorfmann.sqlbrite.dao;
 
 import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.CheckResult;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlCompileable;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlFinishedStatement;
 import com.hannesdorfmann.sqlbrite.dao.sql.alter.ALTER_TABLE;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Column;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
+import com.hannesdorfmann.sqlbrite.dao.sql.select.SEEK;
 import com.hannesdorfmann.sqlbrite.dao.sql.select.SELECT;
 import com.hannesdorfmann.sqlbrite.dao.sql.table.CREATE_TABLE;
 import com.hannesdorfmann.sqlbrite.dao.sql.table.DROP_TABLE;
@@ -18,10 +24,26 @@ import com.hannesdorfmann.sqlbrite.dao.sql.view.CREATE_VIEW_IF_NOT_EXISTS;
 import com.hannesdorfmann.sqlbrite.dao.sql.view.DROP_VIEW;
 import com.hannesdorfmann.sqlbrite.dao.sql.view.DROP_VIEW_IF_EXISTS;
 import com.squareup.sqlbrite.BriteDatabase;
+import com.squareup.sqlbrite.BriteDatabaseBridge;
 import com.squareup.sqlbrite.QueryObservable;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action2;
 import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
 
 import static com.squareup.sqlbrite.BriteDatabase.Transaction;
 
@@ -32,6 +54,9 @@ import static com.squareup.sqlbrite.BriteDatabase.Transaction;
  */
 public abstract class Dao {
 
+  private static final String[] CONFLICT_VALUES =
+      { "", " OR ROLLBACK", " OR ABORT", " OR FAIL", " OR IGNORE", " OR REPLACE" };
+
   /**
    * Builder pattern to build a query.
    */
@@ -42,6 +67,15 @@ public abstract class Dao {
     SqlFinishedStatement statement;
     String[] args;
     boolean autoUpdate = true;
+    RequeryPolicy requeryPolicy = RequeryPolicy.IMMEDIATE;
+    Map<String, long[]> observedRows;
+    boolean observeColumns;
+    boolean shared;
+    boolean cached;
+    boolean staleWhileRevalidate;
+    boolean skipUnchangedResults;
+    Priority priority;
+    boolean cancelOnUnsubscribe = true;
 
     public QueryBuilder(@Nullable Iterable<String> rawStatementAffectedTables,
         @NonNull String rawStatement) {
@@ -64,7 +98,10 @@ public abstract class Dao {
     }
 
     /**
-     * Set the arguments used for the prepared statement
+     * Set the arguments used for the prepared statement. If the statement has been built with
+     * {@link Expression}s as well, the given arguments replace the "?" placeholders written into
+     * the statement as they are (like in <code>WHERE("id = ?")</code>) and are merged with the
+     * arguments of the expressions in the order their placeholders appear in the sql.
      *
      * @param args The strings used to replace "?" in the SELECT query statement
      * @return The QueryBuilder itself
@@ -95,6 +132,184 @@ public abstract class Dao {
       return this;
     }
 
+    /**
+     * Specifies when this query is executed again after the observed tables have been changed.
+     * Per default {@link RequeryPolicy#IMMEDIATE} is used, which executes the query again on each
+     * change.
+     *
+     * @param policy The policy
+     * @return The QueryBuilder itself
+     */
+    public QueryBuilder requery(@NonNull RequeryPolicy policy) {
+      if (policy == null) {
+        throw new NullPointerException("RequeryPolicy is null");
+      }
+      this.requeryPolicy = policy;
+      return this;
+    }
+
+    /**
+     * Restricts the automatic updates of this query to the given rows of a table. The query is
+     * executed again only if one of the given rows has been changed or if rows of the table have
+     * been changed and the {@link Dao} can't tell which ones. Changes of other rows of this table
+     * are ignored. Other tables of this query are still observed entirely.
+     *
+     * <p>
+     * Row ids are the values of the <code>INTEGER PRIMARY KEY</code> column (see {@link Dao#
+     * trackRowChanges(String, String)}). Only changes made by the insert, update and delete
+     * methods of a {@link Dao} are tracked on row level. Changes made directly on the {@link
+     * BriteDatabase} don't notify row restricted queries.
+     * </p>
+     *
+     * @param table The table (must be one of the tables of this query)
+     * @param rowIds The ids of the rows this query depends on
+     * @return The QueryBuilder itself
+     */
+    public QueryBuilder observeRows(@NonNull String table, @NonNull long... rowIds) {
+      if (table == null) {
+        throw new NullPointerException("Table is null");
+      }
+      if (rowIds == null) {
+        throw new NullPointerException("Row ids are null");
+      }
+
+      if (observedRows == null) {
+        observedRows = new HashMap<>();
+      }
+      observedRows.put(table, rowIds);
+      return this;
+    }
+
+    /**
+     * Restricts the automatic updates of this query to changes of the columns it selects, joins,
+     * filters, groups or orders on (see {@link
+     * com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode}). The query isn't executed again if only
+     * other columns of its tables have been changed.
+     * Queries whose columns aren't known (like <code>SELECT *</code>, NATURAL joins or raw queries)
+     * are still observed on table level.
+     *
+     * <p>
+     * Like {@link #observeRows(String, long...)} only changes made by the insert, update and
+     * delete methods of a {@link Dao} are tracked on column level. Changes made directly on the
+     * {@link BriteDatabase} (which only notify the table) don't notify such a query.
+     * </p>
+     *
+     * @return The QueryBuilder itself
+     */
+    public QueryBuilder observeColumns() {
+      this.observeColumns = true;
+      return this;
+    }
+
+    /**
+     * Shares the execution of this query with all identical queries (same sql, arguments, observed
+     * tables and {@link RequeryPolicy}) that are subscribed at the same time: the query is
+     * executed only once per change of the observed tables and the rows are copied into memory,
+     * so that each subscriber reads them from its own cursor. A subscriber subscribing later gets
+     * the latest result immediately. Per default queries are not shared.
+     *
+     * <p>
+     * Use this for queries observed by many components at the same time with rather small
+     * results, since the rows of the latest result are kept in memory as long as the query has
+     * subscribers. See {@link DaoManager#getSharedQueries()} for the number of subscribers.
+     * </p>
+     *
+     * @param shared true to share the query, otherwise false
+     * @return The QueryBuilder itself
+     */
+    public QueryBuilder shared(boolean shared) {
+      this.shared = shared;
+      return this;
+    }
+
+    /**
+     * Caches the result of this query in the {@link QueryCache} of the {@link DaoManager} (see
+     * {@link DaoManager.Builder#queryCacheSize(int)}). If a valid result of an identical query
+     * (same sql, arguments and observed tables) is cached, subscribing emits the cached result
+     * immediately without querying the database. The cached result is invalidated as soon as one
+     * of the observed tables (or if auto updates are disabled one of the queried tables) has been
+     * changed. Per default results are not cached.
+     *
+     * @param cached true to cache the result, otherwise false
+     * @return The QueryBuilder itself
+     */
+    public QueryBuilder cached(boolean cached) {
+      this.cached = cached;
+      return this;
+    }
+
+    /**
+     * Allows to emit an invalidated (stale) cached result immediately, followed by the result of
+     * executing the query again. Only relevant if the query is {@link #cached(boolean)}. Per
+     * default a stale result is not emitted.
+     *
+     * @param staleWhileRevalidate true to emit stale results, otherwise false
+     * @return The QueryBuilder itself
+     */
+    public QueryBuilder staleWhileRevalidate(boolean staleWhileRevalidate) {
+      this.staleWhileRevalidate = staleWhileRevalidate;
+      return this;
+    }
+
+    /**
+     * Skips results that are equal to the previously emitted result. Every time the query is
+     * executed again a digest of the rows is computed while iterating over the cursor. If the
+     * digest equals the one of the previous result (i.e. a change of the observed tables didn't
+     * change the rows of this query, like an UPDATE setting the same values) nothing is emitted
+     * and hence the rows are not mapped to objects again. The number of skipped results is
+     * counted by {@link DaoManager#getQueryStatistics()}. Per default all results are emitted.
+     *
+     * <p>
+     * Note that the query is executed on the query {@link Scheduler} before it is emitted, so that
+     * the cursor returned by the first call of {@link SqlBrite.Query#run()} is the already
+     * executed one.
+     * </p>
+     *
+     * @param skipUnchangedResults true to skip unchanged results, otherwise false
+     * @return The QueryBuilder itself
+     */
+    public QueryBuilder skipUnchangedResults(boolean skipUnchangedResults) {
+      this.skipUnchangedResults = skipUnchangedResults;
+      return this;
+    }
+
+    /**
+     * Set the {@link Priority} this query is executed with, each time it is executed. Waiting
+     * queries are executed in order of their priority, so that i.e. a query the user is waiting
+     * for doesn't wait for background queries. Only the default scheduler of the {@link
+     * DaoManager} takes priorities into account (see {@link
+     * DaoManager.Builder#scheduler(Scheduler)}). A shared query is executed with the priority of
+     * its first subscriber. Per default the priority of the subscribing {@link
+     * Dao#prioritize(Priority, Observable)} or {@link Priority#NORMAL} is used.
+     *
+     * @param priority The priority
+     * @return The QueryBuilder itself
+     */
+    public QueryBuilder priority(@NonNull Priority priority) {
+      if (priority == null) {
+        throw new NullPointerException("Priority is null");
+      }
+      this.priority = priority;
+      return this;
+    }
+
+    /**
+     * Cancels the execution of this query in progress when the subscriber unsubscribes, so that
+     * SQLite stops executing a query whose result isn't wanted anymore (i.e. the user has left
+     * the screen). A canceled execution returns <code>null</code> instead of a cursor and no
+     * result is emitted. The cursor of an emitted query that hasn't been run yet is closed on
+     * unsubscribe as well. Requires API 16, per default enabled. Disable it if the {@link
+     * SqlBrite.Query} is executed after the subscriber has unsubscribed, like a query taken with
+     * <code>take(1)</code> and executed on another thread.
+     *
+     * @param cancelOnUnsubscribe true to cancel on unsubscribe, otherwise false
+     * @return The QueryBuilder itself
+     */
+    public QueryBuilder cancelOnUnsubscribe(boolean cancelOnUnsubscribe) {
+      this.cancelOnUnsubscribe = cancelOnUnsubscribe;
+      return this;
+    }
+
     /**
      * Executes the query and returns an {@code QueryObservable}
      *
@@ -104,9 +319,174 @@ public abstract class Dao {
     public QueryObservable run() {
       return executeQuery(this);
     }
+
+    /**
+     * Executes the query and emits a {@link CursorList} backed by the cursor instead of mapping
+     * all rows up front. Rows are mapped when they are accessed, the most recently accessed
+     * {@link CursorList#DEFAULT_CACHE_SIZE} items are cached and the next {@link
+     * CursorList#DEFAULT_PREFETCH} rows in scroll direction are mapped ahead.
+     *
+     * @param mapper Maps the current row of a cursor to an item
+     * @param <T> The type of the items
+     * @return An observable emitting the lazy lists
+     * @see #runLazyList(Func1, int, int)
+     */
+    public <T> Observable<CursorList<T>> runLazyList(@NonNull Func1<Cursor, T> mapper) {
+      return runLazyList(mapper, CursorList.DEFAULT_CACHE_SIZE, CursorList.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Executes the query and emits a {@link CursorList} backed by the cursor instead of mapping
+     * all rows up front. A row is mapped when it's accessed by {@link CursorList#get(int)}, so the
+     * time to the first item and the memory usage don't depend on the size of the result. Each
+     * list keeps its cursor open: it's closed once the list emitted after it is accessed the
+     * first time (i.e. the subscriber has switched to the new list) or once the subscriber
+     * unsubscribes.
+     *
+     * <p>
+     * Don't combine this with {@link #shared(boolean)} or {@link #cached(boolean)}, since these
+     * copy all rows into memory anyway.
+     * </p>
+     *
+     * @param mapper Maps the current row of a cursor to an item
+     * @param cacheSize The maximum number of mapped items kept per list, must be greater than the
+     * prefetch
+     * @param prefetch The number of rows mapped ahead in scroll direction
+     * @param <T> The type of the items
+     * @return An observable emitting the lazy lists
+     */
+    public <T> Observable<CursorList<T>> runLazyList(@NonNull Func1<Cursor, T> mapper,
+        int cacheSize, int prefetch) {
+      if (mapper == null) {
+        throw new NullPointerException("Mapper is null");
+      }
+      if (prefetch < 0) {
+        throw new IllegalArgumentException("Prefetch must not be negative");
+      }
+      if (cacheSize <= prefetch) {
+        throw new IllegalArgumentException("Cache size must be greater than the prefetch");
+      }
+      return executeQuery(this).lift(new OperatorCursorList<T>(mapper, cacheSize, prefetch));
+    }
+
+    /**
+     * Executes the query once and emits the rows mapped with the given mapper one by one while
+     * iterating over the cursor, instead of loading the whole result into memory. Rows are only
+     * read and mapped when requested by the subscriber (backpressure), so huge results can be
+     * processed in constant memory. The cursor is read on the query {@link Scheduler} and closed
+     * once all rows have been emitted or the subscriber unsubscribes.
+     *
+     * <p>
+     * The query doesn't emit again if the observed tables change. Streamed queries can't be
+     * {@link #shared(boolean)}, {@link #cached(boolean)} or {@link
+     * #skipUnchangedResults(boolean)}, since these read the whole result.
+     * </p>
+     *
+     * @param mapper Maps the current row of a cursor to an item
+     * @param <T> The type of the items
+     * @return An observable emitting the mapped rows
+     */
+    public <T> Observable<T> runRows(@NonNull final Func1<Cursor, T> mapper) {
+      if (mapper == null) {
+        throw new NullPointerException("Mapper is null");
+      }
+      return stream(this, new Func1<SqlBrite.Query, Observable<T>>() {
+        @Override public Observable<T> call(SqlBrite.Query query) {
+          return CursorRows.rows(query, mapper);
+        }
+      });
+    }
+
+    /**
+     * Like {@link #runRows(Func1)}, but emits the mapped rows in chunks of the given size (the
+     * last chunk may be smaller). Backpressure is applied per chunk.
+     *
+     * @param mapper Maps the current row of a cursor to an item
+     * @param chunkSize The number of rows per chunk
+     * @param <T> The type of the items
+     * @return An observable emitting the chunks of mapped rows
+     */
+    public <T> Observable<List<T>> runChunks(@NonNull final Func1<Cursor, T> mapper,
+        final int chunkSize) {
+      if (mapper == null) {
+        throw new NullPointerException("Mapper is null");
+      }
+      if (chunkSize <= 0) {
+        throw new IllegalArgumentException("Chunk size must be greater than 0");
+      }
+      return stream(this, new Func1<SqlBrite.Query, Observable<List<T>>>() {
+        @Override public Observable<List<T>> call(SqlBrite.Query query) {
+          return CursorRows.chunks(query, mapper, chunkSize);
+        }
+      });
+    }
+
+    /**
+     * Executes a query ending with {@link SEEK} and maps the rows to a {@link Page}. The page
+     * carries the cursor of the next page: the values of the sort columns of its last row (see
+     * {@link Page#getNext()}), which are passed to {@link SEEK} to query the next page.
+     *
+     * @param mapper Maps the current row of a cursor to an item
+     * @param <T> The type of the items
+     * @return An observable emitting the {@link Page}
+     */
+    public <T> Observable<Page<T>> runPage(@NonNull final Func1<Cursor, T> mapper) {
+      if (mapper == null) {
+        throw new NullPointerException("Mapper is null");
+      }
+      if (!(statement instanceof SEEK)) {
+        throw new IllegalStateException("Only a statement ending with SEEK() can be run as page");
+      }
+
+      final SEEK seek = (SEEK) statement;
+      return executeQuery(this).concatMap(new Func1<SqlBrite.Query, Observable<Page<T>>>() {
+        @Override public Observable<Page<T>> call(SqlBrite.Query query) {
+          Page<T> page = readPage(query, seek, mapper);
+          // A canceled execution has no page, the next execution follows
+          return page == null ? Observable.<Page<T>>empty() : Observable.just(page);
+        }
+      });
+    }
+
+    /**
+     * Executes the query and emits the changes of the result compared to the previous result
+     * instead of a whole new list. Rows are identified by the given (integer) primary key column
+     * that must be part of the result. Only new rows and rows whose values have been changed are
+     * mapped with the given mapper, unchanged rows reuse the previously mapped item. The changes
+     * (inserted, removed, moved and changed items with their positions) are computed on the query
+     * {@link Scheduler}, so that the subscriber can apply them without diffing the lists itself.
+     *
+     * <p>
+     * The first emission contains all items as inserted. Subsequent results without any changes
+     * are not emitted.
+     * </p>
+     *
+     * @param keyColumn The name of the primary key column in the result
+     * @param mapper Maps the current row of a cursor to an item
+     * @param <T> The type of the items
+     * @return An observable emitting the {@link ListChanges}
+     */
+    public <T> Observable<ListChanges<T>> runListChanges(@NonNull String keyColumn,
+        @NonNull Func1<Cursor, T> mapper) {
+      if (keyColumn == null) {
+        throw new NullPointerException("Key column is null");
+      }
+      if (mapper == null) {
+        throw new NullPointerException("Mapper is null");
+      }
+      return executeQuery(this).lift(new OperatorListChanges<T>(keyColumn, mapper));
+    }
   }
 
   protected BriteDatabase db;
+  Scheduler scheduler;
+  Scheduler writeScheduler;
+  StatementCache statementCache;
+  SharedQueries sharedQueries = new SharedQueries();
+  QueryCache queryCache;
+  QueryStatistics queryStatistics = new QueryStatistics();
+  int insertChunkSize = DaoManager.DEFAULT_INSERT_CHUNK_SIZE;
+  private final Map<String, String> rowKeyColumns = new HashMap<>();
 
   /**
    * Create here the database table for the given dao
@@ -137,14 +517,138 @@ public abstract class Dao {
     this.db = db;
   }
 
+  /**
+   * Set the {@link Scheduler} queries are executed on. This method will be called from the
+   * {@link DaoManager}.
+   *
+   * @param scheduler The scheduler
+   */
+  void setScheduler(Scheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Set the {@link Scheduler} insert, update and delete statements are executed on. This method
+   * will be called from the {@link DaoManager}.
+   *
+   * @param writeScheduler The scheduler
+   */
+  void setWriteScheduler(Scheduler writeScheduler) {
+    this.writeScheduler = writeScheduler;
+  }
+
+  /**
+   * Set the {@link StatementCache} used to execute insert, update and delete statements. This
+   * method will be called from the {@link DaoManager}. All DAOs of the same {@link DaoManager}
+   * share the same cache.
+   *
+   * @param statementCache The cache of compiled statements
+   */
+  void setStatementCache(StatementCache statementCache) {
+    this.statementCache = statementCache;
+  }
+
+  /**
+   * Set the registry of shared queries. This method will be called from the {@link DaoManager}.
+   * All DAOs of the same {@link DaoManager} share the same instance.
+   *
+   * @param sharedQueries The shared queries
+   */
+  void setSharedQueries(SharedQueries sharedQueries) {
+    this.sharedQueries = sharedQueries;
+  }
+
+  /**
+   * Set the {@link QueryCache}. This method will be called from the {@link DaoManager}. All DAOs
+   * of the same {@link DaoManager} share the same cache.
+   *
+   * @param queryCache The cache of query results
+   */
+  void setQueryCache(QueryCache queryCache) {
+    this.queryCache = queryCache;
+  }
+
+  /**
+   * Set the {@link QueryStatistics}. This method will be called from the {@link DaoManager}. All
+   * DAOs of the same {@link DaoManager} share the same instance.
+   *
+   * @param queryStatistics The query statistics
+   */
+  void setQueryStatistics(QueryStatistics queryStatistics) {
+    this.queryStatistics = queryStatistics;
+  }
+
+  /**
+   * Set the number of rows inserted by {@link #insertAll(String, Iterable, int)} within one
+   * transaction. This method will be called from the {@link DaoManager}.
+   *
+   * @param insertChunkSize The number of rows per transaction
+   */
+  void setInsertChunkSize(int insertChunkSize) {
+    this.insertChunkSize = insertChunkSize;
+  }
+
+  /**
+   * Creates a {@link BatchLoader} that coalesces lookups of single rows by their <code>INTEGER
+   * PRIMARY KEY</code>: all lookups issued until the query {@link Scheduler} runs the next task
+   * are loaded with a single <code>WHERE id IN (?, ?, ...)</code> query. Use it for
+   * <code>getById()</code> style methods called by many components at the same time. Usually you
+   * create the loader in the constructor of your dao.
+   *
+   * @param table The table name
+   * @param keyColumn The name of the INTEGER PRIMARY KEY column
+   * @param columns The columns to query
+   * @param mapper Maps the current row of a cursor to an item
+   * @param <T> The type of the items
+   * @return The batch loader
+   */
+  protected <T> BatchLoader<T> batchLoader(@NonNull String table, @NonNull String keyColumn,
+      @NonNull String[] columns, @NonNull Func1<Cursor, T> mapper) {
+    if (table == null) {
+      throw new NullPointerException("Table is null");
+    }
+    if (keyColumn == null) {
+      throw new NullPointerException("Key column is null");
+    }
+    if (columns == null) {
+      throw new NullPointerException("Columns are null");
+    }
+    if (mapper == null) {
+      throw new NullPointerException("Mapper is null");
+    }
+    return new BatchLoader<>(this, table, keyColumn, columns, mapper);
+  }
+
+  /**
+   * Registers the <code>INTEGER PRIMARY KEY</code> column of the given table. Updates and deletes
+   * with a where clause like <code>id = ?</code> or <code>id IN (?, ?)</code> on this column then
+   * notify only the queries observing the affected rows (see {@link
+   * QueryBuilder#observeRows(String, long...)}). Usually you call this method in the constructor
+   * of your dao. Inserts always notify the inserted rows, SQLite's rowid aliases (like
+   * <code>rowid</code>) are recognized without registration.
+   *
+   * @param table The table name
+   * @param keyColumn The name of the INTEGER PRIMARY KEY column
+   */
+  protected void trackRowChanges(@NonNull String table, @NonNull String keyColumn) {
+    if (table == null) {
+      throw new NullPointerException("Table is null");
+    }
+    if (keyColumn == null) {
+      throw new NullPointerException("Key column is null");
+    }
+    rowKeyColumns.put(table, keyColumn);
+  }
+
   /**
    * Create a new Transaction. Don't forget to commit your changes by marking the transaction as
-   * successful or rollback your changes.
+   * successful or rollback your changes. Cached query results of the tables changed within the
+   * transaction are invalidated again once the transaction has ended.
    *
    * @return New transaction.
    */
   public Transaction newTransaction() {
-    return db.newTransaction();
+    return queryCache == null ? db.newTransaction() : queryCache.newTransaction();
   }
 
   /**
@@ -157,6 +661,18 @@ public abstract class Dao {
     return new QueryBuilder(statement);
   }
 
+  /**
+   * Creates a {@link PreparedQuery} that compiles the given statement only once and can be run
+   * many times with typed arguments. Usually you create a prepared query once and store it in a
+   * field of your dao.
+   *
+   * @param statement the sql statement
+   * @return The prepared query
+   */
+  protected PreparedQuery prepare(@NonNull SqlFinishedStatement statement) {
+    return new PreparedQuery(this, statement);
+  }
+
   /**
    * Creates a raw query and enables auto updates for the given tables
    *
@@ -195,13 +711,103 @@ public abstract class Dao {
   }
 
   /**
-   * Executes the a query
+   * Applies the {@link RequeryPolicy} to the given query observable. The executions canceled
+   * because they have been superseded by a change or because of unsubscribing are dropped after
+   * the policy has been applied (see {@link OperatorDropCanceledQuery}), so that only the queries
+   * the policy lets through are executed.
+   *
+   * @param cancelOnUnsubscribe false if the subscriber runs the query after unsubscribing, so that
+   * the executed cursor is kept
+   */
+  QueryObservable applyRequeryPolicy(QueryObservable queryObservable, RequeryPolicy policy,
+      boolean cancelOnUnsubscribe) {
+    Observable<SqlBrite.Query> requeries = policy == RequeryPolicy.IMMEDIATE ? queryObservable
+        : policy.apply(queryObservable, scheduler == null ? Schedulers.immediate() : scheduler);
+
+    final Observable<SqlBrite.Query> queries =
+        requeries.lift(new OperatorDropCanceledQuery(cancelOnUnsubscribe));
+    return new QueryObservable(new Observable.OnSubscribe<SqlBrite.Query>() {
+      @Override public void call(Subscriber<? super SqlBrite.Query> subscriber) {
+        queries.unsafeSubscribe(subscriber);
+      }
+    });
+  }
+
+  /**
+   * Executes the a query with the priority of the query builder
    */
   private QueryObservable executeQuery(QueryBuilder queryBuilder) {
+    return executeQuery(queryBuilder, queryBuilder.cancelOnUnsubscribe);
+  }
+
+  /**
+   * Executes the a query with the priority of the query builder
+   *
+   * @param cancelOnUnsubscribe true to cancel the execution in progress on unsubscribe
+   */
+  private QueryObservable executeQuery(QueryBuilder queryBuilder, boolean cancelOnUnsubscribe) {
+    QueryObservable query = createQueryObservable(queryBuilder, cancelOnUnsubscribe);
+    return queryBuilder.priority == null ? query : withPriority(queryBuilder.priority, query);
+  }
+
+  /**
+   * Subscribes the given query with the given priority
+   */
+  static QueryObservable withPriority(final Priority priority, final QueryObservable query) {
+    return new QueryObservable(new Observable.OnSubscribe<SqlBrite.Query>() {
+      @Override public void call(Subscriber<? super SqlBrite.Query> subscriber) {
+        PriorityScheduler.subscribe(priority, query, subscriber);
+      }
+    });
+  }
+
+  /**
+   * Executes the given observable with the given {@link Priority}: queries of the {@link
+   * DaoManager} subscribed by the given observable are executed with this priority (unless the
+   * query has its own {@link QueryBuilder#priority(Priority)}). Use it to make background work,
+   * like the queries of a synchronization, give way to what the user is waiting for:
+   *
+   * <pre>
+   * prioritize(Priority.LOW, query(SELECT("*").FROM(TABLE)).run().mapToList(mapper))
+   * </pre>
+   *
+   * <p>
+   * Writes (like {@link #insert(String, ContentValues)}) subscribed by the given observable are
+   * recorded with this priority by the {@link QueryStatistics}, but are still executed in the
+   * order they have been subscribed, so that a write never overtakes an earlier one.
+   * </p>
+   *
+   * @param priority The priority
+   * @param observable The observable
+   * @return An observable subscribing the given one with the given priority
+   */
+  @CheckResult protected <T> Observable<T> prioritize(@NonNull final Priority priority,
+      @NonNull final Observable<T> observable) {
+    if (priority == null) {
+      throw new NullPointerException("Priority is null");
+    }
+    if (observable == null) {
+      throw new NullPointerException("Observable is null");
+    }
+
+    return Observable.create(new Observable.OnSubscribe<T>() {
+      @Override public void call(Subscriber<? super T> subscriber) {
+        PriorityScheduler.subscribe(priority, observable, subscriber);
+      }
+    });
+  }
+
+  /**
+   * Creates the query observable of the query builder
+   */
+  private QueryObservable createQueryObservable(QueryBuilder queryBuilder,
+      final boolean cancelOnUnsubscribe) {
 
     // Raw query properties as default
     String sql = queryBuilder.rawStatement;
     Iterable<String> affectedTables = queryBuilder.rawStatementAffectedTables;
+    Object[] allArgs = queryBuilder.args;
+    Set<String> columns = null;
 
     // If SqlFinishedStatement is set then use that one
     if (queryBuilder.statement != null) {
@@ -211,30 +817,190 @@ public abstract class Dao {
 
       sql = compileableStatement.sql;
       affectedTables = compileableStatement.tables;
+      allArgs = compileableStatement.bindArgs(queryBuilder.args);
+      columns = queryBuilder.observeColumns ? compileableStatement.columns : null;
     }
 
+    Iterable<String> queriedTables = affectedTables;
+
     // Check for auto update
     if (!queryBuilder.autoUpdate || affectedTables == null) {
       affectedTables = Collections.emptySet();
+    } else if (queryBuilder.observedRows != null || columns != null) {
+      affectedTables = ChangeTriggers.observe(affectedTables, queryBuilder.observedRows, columns);
     }
 
-    return db.createQuery(affectedTables, sql, queryBuilder.args);
+    final RequeryPolicy policy = queryBuilder.requeryPolicy;
+    final boolean cached = queryBuilder.cached && queryCache != null;
+    final boolean skipUnchanged = queryBuilder.skipUnchangedResults;
+    if (!queryBuilder.shared && !cached) {
+      QueryObservable query = applyRequeryPolicy(
+          createQuery(affectedTables, sql, allArgs, policy, cancelOnUnsubscribe), policy,
+          cancelOnUnsubscribe);
+      return skipUnchanged ? skipUnchangedResults(query) : query;
+    }
+
+    final Set<String> tables = toSet(affectedTables);
+    final String finalSql = sql;
+    final Object[] finalArgs = allArgs;
+
+    // Cached results are invalidated by the observed tables or, without auto updates, by the
+    // queried tables. Results of queries without tables can't be invalidated and aren't cached.
+    final Set<String> cacheTriggers = tables.isEmpty() ? toSet(queriedTables) : tables;
+    final boolean staleWhileRevalidate = queryBuilder.staleWhileRevalidate;
+
+    Func0<QueryObservable> factory = new Func0<QueryObservable>() {
+      @Override public QueryObservable call() {
+        QueryObservable query =
+            createQuery(tables, finalSql, finalArgs, policy, cancelOnUnsubscribe);
+        if (cached && !cacheTriggers.isEmpty()) {
+          query = queryCache.query(new QueryKey(finalSql, finalArgs, cacheTriggers, null, false),
+              staleWhileRevalidate, query);
+        }
+        // The requery policy runs the queries of the cache when they are emitted
+        query = applyRequeryPolicy(query, policy, cancelOnUnsubscribe);
+        // Skip after the cache: an unchanged result following a cached one is skipped as well
+        return skipUnchanged ? skipUnchangedResults(query) : query;
+      }
+    };
+
+    if (!queryBuilder.shared) {
+      return factory.call();
+    }
+    return sharedQueries.query(new QueryKey(sql, allArgs, tables, policy, skipUnchanged),
+        factory);
   }
 
   /**
-   * Insert a row into the given table
+   * Skips the results equal to the previously emitted result
+   */
+  private QueryObservable skipUnchangedResults(QueryObservable queryObservable) {
+    final Observable<SqlBrite.Query> queries =
+        queryObservable.lift(new OperatorSkipUnchangedResult(queryStatistics));
+    return new QueryObservable(new Observable.OnSubscribe<SqlBrite.Query>() {
+      @Override public void call(Subscriber<? super SqlBrite.Query> subscriber) {
+        queries.unsafeSubscribe(subscriber);
+      }
+    });
+  }
+
+  /**
+   * Executes the query once and streams its rows on the query scheduler
+   */
+  private <T> Observable<T> stream(QueryBuilder queryBuilder,
+      final Func1<SqlBrite.Query, Observable<T>> rows) {
+    if (queryBuilder.shared || queryBuilder.cached || queryBuilder.skipUnchangedResults) {
+      throw new IllegalStateException(
+          "Streamed queries can't be shared, cached or skip unchanged results");
+    }
+
+    // Reading the cursor on demand (requests of the subscriber) happens on the query scheduler
+    final Scheduler rowScheduler = scheduler == null ? Schedulers.immediate() : scheduler;
+    final Priority priority = queryBuilder.priority;
+    // The query is read after take(1) has unsubscribed: don't cancel it
+    return executeQuery(queryBuilder, false).take(1)
+        .concatMap(new Func1<SqlBrite.Query, Observable<T>>() {
+          @Override public Observable<T> call(SqlBrite.Query query) {
+            Observable<T> streamed = rows.call(query).subscribeOn(rowScheduler);
+            return priority == null ? streamed : prioritize(priority, streamed);
+          }
+        });
+  }
+
+  /**
+   * Executes the query and maps the rows to a page
+   *
+   * @return The page or <code>null</code> if the execution has been canceled
+   */
+  private static <T> Page<T> readPage(SqlBrite.Query query, SEEK seek, Func1<Cursor, T> mapper) {
+    Cursor cursor = query.run();
+    if (cursor == null) {
+      return null;
+    }
+
+    try {
+      List<T> items = new ArrayList<>(cursor.getCount());
+      while (cursor.moveToNext()) {
+        items.add(mapper.call(cursor));
+      }
+
+      // A full page may be followed by more rows
+      Object[] next = null;
+      if (items.size() == seek.getPageSize() && cursor.moveToLast()) {
+        List<String> columns = seek.getKeyset().getColumns();
+        next = new Object[columns.size()];
+        for (int i = 0; i < next.length; i++) {
+          next[i] = readKey(cursor, columns.get(i));
+        }
+      }
+      return new Page<>(items, next);
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Reads the value of a sort column of a keyset pagination
+   */
+  private static Object readKey(Cursor cursor, String column) {
+    int index = cursor.getColumnIndex(column);
+    if (index < 0) {
+      // Qualified column name like "u.name"
+      index = cursor.getColumnIndexOrThrow(column.substring(column.lastIndexOf('.') + 1));
+    }
+
+    switch (cursor.getType(index)) {
+      case Cursor.FIELD_TYPE_NULL:
+        throw new IllegalStateException(
+            "Keyset pagination doesn't support NULL values, but " + column + " is NULL");
+      case Cursor.FIELD_TYPE_INTEGER:
+        return cursor.getLong(index);
+      case Cursor.FIELD_TYPE_FLOAT:
+        return cursor.getDouble(index);
+      case Cursor.FIELD_TYPE_BLOB:
+        return cursor.getBlob(index);
+      default:
+        return cursor.getString(index);
+    }
+  }
+
+  private static Set<String> toSet(Iterable<String> iterable) {
+    Set<String> set = new HashSet<>();
+    if (iterable != null) {
+      for (String item : iterable) {
+        set.add(item);
+      }
+    }
+    return set;
+  }
+
+  /**
+   * Creates the query observable on the database. Arguments of statements built with expressions
+   * are bound with their type. The execution in progress is canceled on unsubscribe and, if the
+   * policy collapses re-queries anyway, as soon as an observed table is changed again.
+   */
+  private QueryObservable createQuery(Iterable<String> tables, String sql, Object[] args,
+      RequeryPolicy policy, boolean cancelOnUnsubscribe) {
+    return TypedQuery.createQuery(db, tables, sql, args, cancelOnUnsubscribe,
+        policy != RequeryPolicy.IMMEDIATE);
+  }
+
+  /**
+   * Insert a row into the given table. The INSERT statement is compiled only once and cached (see
+   * {@link DaoManager.Builder#statementCacheSize(int)}) for subsequent inserts of the same columns.
    *
    * @param table the table name
    * @param contentValues The content values
    * @return An <b>deferred</b> observable with the row Id of the new inserted row
    */
   @CheckResult protected Observable<Long> insert(final String table, final ContentValues contentValues) {
-    return Observable.defer(new Func0<Observable<Long>>() {
+    return write(Observable.defer(new Func0<Observable<Long>>() {
       @Override
       public Observable<Long> call() {
-        return Observable.just(db.insert(table, contentValues));
+        return Observable.just(
+            executeInsert(table, contentValues, SQLiteDatabase.CONFLICT_NONE));
       }
-    });
+    }));
   }
 
   /**
@@ -247,14 +1013,523 @@ public abstract class Dao {
    */
   @CheckResult protected Observable<Long> insert(final String table, final ContentValues contentValues,
       final int conflictAlgorithm) {
-    return Observable.defer(new Func0<Observable<Long>>() {
+    return write(Observable.defer(new Func0<Observable<Long>>() {
       @Override
       public Observable<Long> call() {
-        return Observable.just(db.insert(table, contentValues, conflictAlgorithm));
+        return Observable.just(executeInsert(table, contentValues, conflictAlgorithm));
+      }
+    }));
+  }
+
+  /**
+   * Insert a row into the given table by executing a compiled {@link SQLiteStatement}. The
+   * statement is compiled only once and cached for subsequent calls with the same sql. This
+   * avoids creating {@link ContentValues} and compiling the sql statement for each insert.
+   *
+   * <p>
+   * The ObjectMapper generates the sql and the binder for <code>@ObjectMappable</code> classes:
+   * <code>insert(TABLE, CustomerMapper.insertSql(TABLE), CustomerMapper.INSERT_BINDER,
+   * customer)</code>. Since the sql is used as cache key it's recommended to store it in a
+   * constant.
+   * </p>
+   *
+   * @param table The table name
+   * @param sql The INSERT sql statement
+   * @param binder Binds the values of the item to the compiled statement
+   * @param item The item to insert
+   * @return An <b>deferred</b> observable with the row Id of the new inserted row
+   */
+  @CheckResult protected <T> Observable<Long> insert(@NonNull final String table,
+      @NonNull final String sql, @NonNull final Action2<SQLiteStatement, ? super T> binder,
+      @NonNull final T item) {
+    return write(Observable.defer(new Func0<Observable<Long>>() {
+      @Override public Observable<Long> call() {
+        return Observable.just(executeInsert(table, sql, binder, item));
+      }
+    }));
+  }
+
+  /**
+   * Update rows by executing a compiled {@link SQLiteStatement}. The statement is compiled only
+   * once and cached for subsequent calls with the same sql.
+   *
+   * <p>
+   * The ObjectMapper generates the sql and the binder for <code>@ObjectMappable</code> classes:
+   * <code>update(TABLE, CustomerMapper.updateSql(TABLE, "id = ?"),
+   * CustomerMapper.updateBinder(id), customer)</code>
+   * </p>
+   *
+   * @param table The table to update
+   * @param sql The UPDATE sql statement
+   * @param binder Binds the values of the item (and the where clause arguments) to the compiled
+   * statement
+   * @param item The item containing the new values
+   * @return An <b>deferred</b> observable containing the number of rows that have been changed by
+   * this update
+   */
+  @CheckResult protected <T> Observable<Integer> update(@NonNull final String table,
+      @NonNull final String sql, @NonNull final Action2<SQLiteStatement, ? super T> binder,
+      @NonNull final T item) {
+    return write(Observable.defer(new Func0<Observable<Integer>>() {
+      @Override public Observable<Integer> call() {
+        return Observable.just(executeUpdateDelete(table, sql, binder, item, null,
+            ChangeTriggers.updatedColumns(sql)));
+      }
+    }));
+  }
+
+  /**
+   * Insert many rows into the given table. The rows are inserted in chunks (see {@link
+   * DaoManager.Builder#insertChunkSize(int)}). Each chunk is inserted within one transaction by
+   * reusing the same compiled statement and causes only one notification of the queries observing
+   * the table, no matter how many rows a chunk contains.
+   *
+   * @param table The table name
+   * @param rows The rows to insert
+   * @param conflictAlgorithm The conflict algorithm
+   * @return An <b>deferred</b> observable emitting the row ids of all inserted rows (-1 for rows
+   * that haven't been inserted) in the same order as the given rows
+   */
+  @CheckResult protected Observable<long[]> insertAll(@NonNull final String table,
+      @NonNull final Iterable<ContentValues> rows, final int conflictAlgorithm) {
+    return write(Observable.defer(new Func0<Observable<long[]>>() {
+      @Override public Observable<long[]> call() {
+        return Observable.just(
+            executeChunked(rows, contentValuesInserter(table, conflictAlgorithm)));
+      }
+    }));
+  }
+
+  /**
+   * Insert many rows into the given table. The rows are inserted in chunks (see {@link
+   * DaoManager.Builder#insertChunkSize(int)}). Each chunk is inserted within one transaction by
+   * reusing the same compiled statement and causes only one notification of the queries observing
+   * the table, no matter how many rows a chunk contains.
+   *
+   * @param table The table name
+   * @param rows The rows to insert
+   * @param conflictAlgorithm The conflict algorithm
+   * @return An observable emitting the row ids (-1 for rows that haven't been inserted) of each
+   * inserted chunk
+   */
+  @CheckResult protected Observable<long[]> insertAll(@NonNull String table,
+      @NonNull Observable<ContentValues> rows, int conflictAlgorithm) {
+    return writeChunks(rows.buffer(insertChunkSize),
+        contentValuesInserter(table, conflictAlgorithm));
+  }
+
+  /**
+   * Insert many items into the given table by executing a compiled {@link SQLiteStatement} (see
+   * {@link #insert(String, String, Action2, Object)}). The items are inserted in chunks (see {@link
+   * DaoManager.Builder#insertChunkSize(int)}). Each chunk is inserted within one transaction and
+   * causes only one notification of the queries observing the table, no matter how many items a
+   * chunk contains.
+   *
+   * @param table The table name
+   * @param sql The INSERT sql statement
+   * @param binder Binds the values of an item to the compiled statement
+   * @param items The items to insert
+   * @return An <b>deferred</b> observable emitting the row ids of all inserted items (-1 for items
+   * that haven't been inserted) in the same order as the given items
+   */
+  @CheckResult protected <T> Observable<long[]> insertAll(@NonNull final String table,
+      @NonNull final String sql, @NonNull final Action2<SQLiteStatement, ? super T> binder,
+      @NonNull final Iterable<? extends T> items) {
+    return write(Observable.defer(new Func0<Observable<long[]>>() {
+      @Override public Observable<long[]> call() {
+        return Observable.just(
+            executeChunked(items, Dao.this.<T>statementInserter(table, sql, binder)));
+      }
+    }));
+  }
+
+  /**
+   * Insert many items into the given table by executing a compiled {@link SQLiteStatement} (see
+   * {@link #insert(String, String, Action2, Object)}). The items are inserted in chunks (see {@link
+   * DaoManager.Builder#insertChunkSize(int)}). Each chunk is inserted within one transaction and
+   * causes only one notification of the queries observing the table, no matter how many items a
+   * chunk contains.
+   *
+   * @param table The table name
+   * @param sql The INSERT sql statement
+   * @param binder Binds the values of an item to the compiled statement
+   * @param items The items to insert
+   * @return An observable emitting the row ids (-1 for items that haven't been inserted) of each
+   * inserted chunk
+   */
+  @CheckResult protected <T> Observable<long[]> insertAll(@NonNull String table,
+      @NonNull String sql, @NonNull Action2<SQLiteStatement, ? super T> binder,
+      @NonNull Observable<? extends T> items) {
+    return writeChunks(items.buffer(insertChunkSize),
+        Dao.this.<T>statementInserter(table, sql, binder));
+  }
+
+  /**
+   * Executes the given write on the write scheduler (see {@link
+   * DaoManager.Builder#writeScheduler(Scheduler)}), unless the subscribing thread is running a
+   * transaction: transactions are bound to a thread, so the write has to be executed by that
+   * thread (the writer would wait for the transaction to finish forever otherwise).
+   */
+  private <T> Observable<T> write(final Observable<T> write) {
+    if (writeScheduler == null) {
+      return write;
+    }
+
+    return Observable.defer(new Func0<Observable<T>>() {
+      @Override public Observable<T> call() {
+        if (BriteDatabaseBridge.getTransactionTables(db) != null) {
+          return write;
+        }
+        return write.subscribeOn(writeScheduler);
+      }
+    });
+  }
+
+  /**
+   * Inserts the chunks emitted by the given observable on the write scheduler
+   */
+  private <C> Observable<long[]> writeChunks(final Observable<C> chunks,
+      final Func1<? super C, long[]> chunkInserter) {
+    if (writeScheduler == null) {
+      return chunks.map(chunkInserter);
+    }
+
+    return Observable.defer(new Func0<Observable<long[]>>() {
+      @Override public Observable<long[]> call() {
+        if (BriteDatabaseBridge.getTransactionTables(db) != null) {
+          return chunks.map(chunkInserter);
+        }
+        return chunks.observeOn(writeScheduler).map(chunkInserter);
       }
     });
   }
 
+  /**
+   * Splits the rows in chunks and inserts each chunk
+   *
+   * @return the row ids of all rows
+   */
+  private <T> long[] executeChunked(Iterable<? extends T> rows,
+      Func1<? super List<T>, long[]> chunkInserter) {
+
+    long[] ids = new long[rows instanceof Collection ? ((Collection<?>) rows).size() : 16];
+    int count = 0;
+    List<T> chunk = new ArrayList<>(insertChunkSize);
+    Iterator<? extends T> iterator = rows.iterator();
+
+    while (iterator.hasNext()) {
+      chunk.add(iterator.next());
+      if (chunk.size() == insertChunkSize || !iterator.hasNext()) {
+        long[] chunkIds = chunkInserter.call(chunk);
+        if (count + chunkIds.length > ids.length) {
+          ids = Arrays.copyOf(ids, Math.max(ids.length * 2, count + chunkIds.length));
+        }
+        System.arraycopy(chunkIds, 0, ids, count, chunkIds.length);
+        count += chunkIds.length;
+        chunk.clear();
+      }
+    }
+
+    return count == ids.length ? ids : Arrays.copyOf(ids, count);
+  }
+
+  /**
+   * Creates a function that inserts a chunk of {@link ContentValues} within one transaction
+   */
+  private Func1<List<ContentValues>, long[]> contentValuesInserter(final String table,
+      final int conflictAlgorithm) {
+    return new Func1<List<ContentValues>, long[]>() {
+      @Override public long[] call(List<ContentValues> rows) {
+
+        BriteDatabaseBridge.log(db,
+            "INSERT ALL\n  table: %s\n  rows: %s\n  conflictAlgorithm: %s", table, rows.size(),
+            conflictAlgorithm);
+
+        long[] ids = new long[rows.size()];
+        boolean inserted = false;
+        String[] columns = null;
+        StatementCache.Entry entry = null;
+
+        Transaction transaction = newTransaction();
+        try {
+          for (int i = 0; i < ids.length; i++) {
+            ContentValues row = rows.get(i);
+
+            if (entry == null || !hasColumns(row, columns)) {
+              // The previous statement can't be reused
+              if (entry != null) {
+                statementCache.release(entry);
+                entry = null;
+              }
+              columns = row.keySet().toArray(new String[row.size()]);
+              entry = statementCache.acquire(insertSql(table, columns, conflictAlgorithm));
+            }
+
+            for (int j = 0; j < columns.length; j++) {
+              DatabaseUtils.bindObjectToProgram(entry.statement, j + 1, row.get(columns[j]));
+            }
+
+            ids[i] = entry.statement.executeInsert();
+            inserted |= ids[i] != -1;
+          }
+
+          if (inserted) {
+            sendTableTrigger(ChangeTriggers.inserted(table, ids,
+                conflictAlgorithm == SQLiteDatabase.CONFLICT_REPLACE));
+          }
+          transaction.markSuccessful();
+        } finally {
+          if (entry != null) {
+            statementCache.release(entry);
+          }
+          transaction.end();
+        }
+
+        return ids;
+      }
+    };
+  }
+
+  /**
+   * Creates a function that inserts a chunk of items with a compiled statement within one
+   * transaction
+   */
+  private <T> Func1<List<? extends T>, long[]> statementInserter(final String table,
+      final String sql, final Action2<SQLiteStatement, ? super T> binder) {
+    return new Func1<List<? extends T>, long[]>() {
+      @Override public long[] call(List<? extends T> items) {
+
+        BriteDatabaseBridge.log(db, "INSERT ALL\n  table: %s\n  rows: %s\n  sql: %s", table,
+            items.size(), sql);
+
+        long[] ids = new long[items.size()];
+        boolean inserted = false;
+
+        StatementCache.Entry entry = null;
+        Transaction transaction = newTransaction();
+        try {
+          entry = statementCache.acquire(sql);
+          for (int i = 0; i < ids.length; i++) {
+            binder.call(entry.statement, items.get(i));
+            ids[i] = entry.statement.executeInsert();
+            inserted |= ids[i] != -1;
+          }
+
+          if (inserted) {
+            sendTableTrigger(ChangeTriggers.inserted(table, ids, ChangeTriggers.replaces(sql)));
+          }
+          transaction.markSuccessful();
+        } finally {
+          if (entry != null) {
+            statementCache.release(entry);
+          }
+          transaction.end();
+        }
+
+        return ids;
+      }
+    };
+  }
+
+  /**
+   * Invalidates the cached query results and notifies the queries observing the changed tables
+   * (after the transaction in progress has been committed)
+   */
+  private void sendTableTrigger(Set<String> triggers) {
+    if (queryCache != null) {
+      queryCache.invalidate(triggers);
+    }
+    BriteDatabaseBridge.sendTableTrigger(db, triggers);
+  }
+
+  /**
+   * Checks if the given row contains exactly the given columns
+   */
+  private static boolean hasColumns(ContentValues row, String[] columns) {
+    if (row.size() != columns.length) {
+      return false;
+    }
+
+    for (String column : columns) {
+      if (!row.containsKey(column)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Builds an INSERT sql statement for the given columns
+   */
+  static String insertSql(String table, String[] columns, int conflictAlgorithm) {
+    StringBuilder sql = new StringBuilder(32 + columns.length * 16);
+    sql.append("INSERT").append(CONFLICT_VALUES[conflictAlgorithm]).append(" INTO ").append(table);
+
+    if (columns.length == 0) {
+      return sql.append(" DEFAULT VALUES").toString();
+    }
+
+    sql.append(" (");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(columns[i]);
+    }
+
+    sql.append(") VALUES (?");
+    for (int i = 1; i < columns.length; i++) {
+      sql.append(", ?");
+    }
+
+    return sql.append(')').toString();
+  }
+
+  /**
+   * Executes an INSERT statement on a cached compiled statement
+   *
+   * @return the row id or -1 if an error occurred
+   */
+  private <T> long executeInsert(String table, String sql,
+      Action2<SQLiteStatement, ? super T> binder, T item) {
+
+    BriteDatabaseBridge.log(db, "INSERT\n  table: %s\n  sql: %s", table, sql);
+
+    StatementCache.Entry entry = statementCache.acquire(sql);
+    try {
+      binder.call(entry.statement, item);
+      long rowId = entry.statement.executeInsert();
+      if (rowId != -1) {
+        sendTableTrigger(
+            ChangeTriggers.inserted(table, new long[] { rowId }, ChangeTriggers.replaces(sql)));
+      }
+      return rowId;
+    } finally {
+      statementCache.release(entry);
+    }
+  }
+
+  /**
+   * Executes an UPDATE or DELETE statement on a cached compiled statement
+   *
+   * @param rowIds The ids of the rows the statement is restricted to or null if not known
+   * @param columns The columns changed by the statement or null if not known
+   * @return the number of affected rows
+   */
+  private <T> int executeUpdateDelete(String table, String sql,
+      Action2<SQLiteStatement, ? super T> binder, T item, long[] rowIds,
+      Collection<String> columns) {
+
+    BriteDatabaseBridge.log(db, "EXECUTE\n  table: %s\n  sql: %s", table, sql);
+
+    StatementCache.Entry entry = statementCache.acquire(sql);
+    try {
+      binder.call(entry.statement, item);
+      int rows = entry.statement.executeUpdateDelete();
+      if (rows > 0) {
+        sendTableTrigger(ChangeTriggers.changed(table, rowIds, columns));
+      }
+      return rows;
+    } finally {
+      statementCache.release(entry);
+    }
+  }
+
+  /**
+   * Inserts the given {@link ContentValues} on a cached compiled statement
+   *
+   * @return the row id or -1 if an error occurred
+   */
+  private long executeInsert(String table, ContentValues values, int conflictAlgorithm) {
+    String[] columns = values.keySet().toArray(new String[values.size()]);
+    return executeInsert(table, insertSql(table, columns, conflictAlgorithm),
+        contentValuesBinder(columns, null), values);
+  }
+
+  /**
+   * Updates rows with the given {@link ContentValues} on a cached compiled statement
+   *
+   * @return the number of affected rows
+   */
+  private int executeUpdate(String table, ContentValues values, int conflictAlgorithm,
+      String whereClause, String[] whereArgs) {
+    if (values == null || values.size() == 0) {
+      throw new IllegalArgumentException("Empty values");
+    }
+
+    String keyColumn = rowKeyColumns.get(table);
+    long[] rowIds = null;
+    if (conflictAlgorithm != SQLiteDatabase.CONFLICT_REPLACE && (keyColumn == null
+        || !values.containsKey(keyColumn))) {
+      // Neither the row id is changed nor conflicting rows are deleted
+      rowIds = ChangeTriggers.parseRowIds(keyColumn, whereClause, whereArgs);
+    }
+
+    String[] columns = values.keySet().toArray(new String[values.size()]);
+    return executeUpdateDelete(table, updateSql(table, columns, conflictAlgorithm, whereClause),
+        contentValuesBinder(columns, whereArgs), values, rowIds, values.keySet());
+  }
+
+  /**
+   * Deletes rows on a cached compiled statement
+   *
+   * @return the number of affected rows
+   */
+  private int executeDelete(String table, String whereClause, String[] whereArgs) {
+    String sql = "DELETE FROM " + table;
+    if (whereClause != null && whereClause.length() > 0) {
+      sql += " WHERE " + whereClause;
+    }
+
+    return executeUpdateDelete(table, sql, contentValuesBinder(new String[0], whereArgs), null,
+        ChangeTriggers.parseRowIds(rowKeyColumns.get(table), whereClause, whereArgs), null);
+  }
+
+  /**
+   * Creates a binder that binds the values of the given columns followed by the where clause
+   * arguments
+   */
+  private static Action2<SQLiteStatement, ContentValues> contentValuesBinder(
+      final String[] columns, final String[] whereArgs) {
+    return new Action2<SQLiteStatement, ContentValues>() {
+      @Override public void call(SQLiteStatement statement, ContentValues values) {
+        for (int i = 0; i < columns.length; i++) {
+          DatabaseUtils.bindObjectToProgram(statement, i + 1, values.get(columns[i]));
+        }
+
+        if (whereArgs != null) {
+          for (int i = 0; i < whereArgs.length; i++) {
+            DatabaseUtils.bindObjectToProgram(statement, columns.length + i + 1, whereArgs[i]);
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Builds an UPDATE sql statement for the given columns
+   */
+  static String updateSql(String table, String[] columns, int conflictAlgorithm,
+      String whereClause) {
+    StringBuilder sql = new StringBuilder(32 + columns.length * 16);
+    sql.append("UPDATE").append(CONFLICT_VALUES[conflictAlgorithm]).append(' ').append(table);
+
+    sql.append(" SET ");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(columns[i]).append(" = ?");
+    }
+
+    if (whereClause != null && whereClause.length() > 0) {
+      sql.append(" WHERE ").append(whereClause);
+    }
+
+    return sql.toString();
+  }
+
   /**
    * Update rows
    *
@@ -267,12 +1542,13 @@ public abstract class Dao {
   @CheckResult protected Observable<Integer> update(@NonNull final String table,
       @NonNull final ContentValues values, @Nullable final String whereClause,
       @Nullable final String... whereArgs) {
-    return Observable.defer(new Func0<Observable<Integer>>() {
+    return write(Observable.defer(new Func0<Observable<Integer>>() {
       @Override
       public Observable<Integer> call() {
-        return Observable.just(db.update(table, values, whereClause, whereArgs));
+        return Observable.just(
+            executeUpdate(table, values, SQLiteDatabase.CONFLICT_NONE, whereClause, whereArgs));
       }
-    });
+    }));
   }
 
   /**
@@ -288,12 +1564,13 @@ public abstract class Dao {
   @CheckResult protected Observable<Integer> update(@NonNull final String table,
       @NonNull final ContentValues values, final int conflictAlgorithm,
       @Nullable final String whereClause, @Nullable final String... whereArgs) {
-    return Observable.defer(new Func0<Observable<Integer>>() {
+    return write(Observable.defer(new Func0<Observable<Integer>>() {
       @Override
       public Observable<Integer> call() {
-        return Observable.just(db.update(table, values, conflictAlgorithm, whereClause, whereArgs));
+        return Observable.just(
+            executeUpdate(table, values, conflictAlgorithm, whereClause, whereArgs));
       }
-    });
+    }));
   }
 
   /**
@@ -316,12 +1593,12 @@ public abstract class Dao {
    */
   @CheckResult protected Observable<Integer> delete(@NonNull final String table,
       @Nullable final String whereClause, @Nullable final String... whereArgs) {
-    return Observable.defer(new Func0<Observable<Integer>>() {
+    return write(Observable.defer(new Func0<Observable<Integer>>() {
       @Override
       public Observable<Integer> call() {
-        return Observable.just(db.delete(table, whereClause, whereArgs));
+        return Observable.just(executeDelete(table, whereClause, whereArgs));
       }
-    });
+    }));
   }
 
   /**
@@ -335,6 +1612,17 @@ public abstract class Dao {
     return new SELECT(columns);
   }
 
+  /**
+   * Creates a column to build an {@link Expression} for WHERE, HAVING or ON clauses like
+   * <code>col(ID).eq(id)</code>
+   *
+   * @param name The column name
+   * @return {@link Column}
+   */
+  protected Column col(String name) {
+    return Column.col(name);
+  }
+
   /**
    * Creates a new SQL TABLE
    *
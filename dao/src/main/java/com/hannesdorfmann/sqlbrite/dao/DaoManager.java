@@ -2,6 +2,7 @@ package com.hannesdorfmann.sqlbrite.dao;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.res.Resources;
 import android.database.DatabaseErrorHandler;
 import android.database.DefaultDatabaseErrorHandler;
 import android.database.sqlite.SQLiteDatabase;
@@ -9,11 +10,16 @@ import android.database.sqlite.SQLiteOpenHelper;
 import android.os.Build;
 import android.support.annotation.NonNull;
 import com.squareup.sqlbrite.BriteDatabase;
+import com.squareup.sqlbrite.BriteDatabaseBridge;
 import com.squareup.sqlbrite.SqlBrite;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import rx.Scheduler;
+import rx.functions.Func0;
 import rx.schedulers.Schedulers;
 
 /**
@@ -30,12 +36,52 @@ import rx.schedulers.Schedulers;
  */
 public class DaoManager {
 
+  /**
+   * The default number of rows inserted within one transaction by {@link Dao#insertAll(String,
+   * Iterable, int)}
+   */
+  public static final int DEFAULT_INSERT_CHUNK_SIZE = 500;
+
+  /**
+   * The default number of compiled statements cached by the {@link StatementCache}
+   */
+  public static final int DEFAULT_STATEMENT_CACHE_SIZE = 25;
+
+  /**
+   * The default number of query results cached by the {@link QueryCache}
+   */
+  public static final int DEFAULT_QUERY_CACHE_SIZE = 20;
+
+  /**
+   * The default number of threads executing queries if write ahead logging is enabled and the size
+   * of Android's connection pool in write ahead logging mode can't be determined. This is the
+   * default size of Android's connection pool.
+   */
+  public static final int DEFAULT_READER_POOL_SIZE = 4;
+
+  /**
+   * The default time in milliseconds after which waiting queries are treated like having the next
+   * higher {@link Priority}
+   */
+  public static final long DEFAULT_PRIORITY_AGING_MILLIS = 100;
+
   private Set<Dao> daos;
   private final String name;
   private final int version;
   private BriteDatabase db;
+  private StatementCache statementCache;
+  private QueryCache queryCache;
+  private final SharedQueries sharedQueries = new SharedQueries();
+  private final QueryStatistics queryStatistics = new QueryStatistics();
   private TablesCreatedListener createdListener;
   private TablesUpgradedListener upgradedListener;
+  private final DatabaseProfile profile;
+  private volatile DatabaseProfile effectiveProfile;
+  private final List<PriorityScheduler> ownSchedulers = new ArrayList<>(2);
+  private final PriorityScheduler readerScheduler;
+  private final boolean readerPoolSizeSet;
+  private final List<WriteBehindQueue> writeBehindQueues = new ArrayList<>();
+  private final Scheduler writeScheduler;
 
   private DaoManager(Builder builder) {
 
@@ -59,6 +105,7 @@ public class DaoManager {
     this.createdListener = builder.createdListener;
     this.upgradedListener = builder.upgradedListener;
     this.daos = builder.daos;
+    this.profile = builder.profile;
 
     OpenHelper openHelper;
     if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
@@ -76,12 +123,76 @@ public class DaoManager {
       brite = SqlBrite.create();
     }
 
-    db = brite.wrapDatabaseHelper(openHelper,
-        builder.scheduler == null ? Schedulers.io() : builder.scheduler);
+    // Without an explicit size the pool is sized by the configured profile and resized to the
+    // effective profile once the database has been opened
+    readerPoolSizeSet = builder.readerPoolSize > 0;
+    readerScheduler = builder.scheduler != null ? null : newScheduler("SqlBrite-Reader",
+        readerPoolSizeSet ? builder.readerPoolSize
+            : readerPoolSize(profile == null ? null : profile.getWriteAheadLogging()),
+        builder.priorityAgingNanos);
+    Scheduler scheduler = readerScheduler == null ? builder.scheduler : readerScheduler;
+    // No aging interval: writes are executed in the order they have been subscribed, whatever
+    // their priority, so that i.e. a low priority insert isn't overtaken by a later delete
+    writeScheduler = builder.writeScheduler == null ? newScheduler("SqlBrite-Writer", 1, 0)
+        : builder.writeScheduler;
+
+    db = brite.wrapDatabaseHelper(openHelper, scheduler);
     db.setLoggingEnabled(builder.logging);
+    statementCache = new StatementCache(db, builder.statementCacheSize);
+    queryCache = new QueryCache(db, builder.queryCacheSize);
 
     for (Dao dao : builder.daos) {
       dao.setSqlBriteDb(db);
+      dao.setStatementCache(statementCache);
+      dao.setSharedQueries(sharedQueries);
+      dao.setQueryCache(queryCache);
+      dao.setQueryStatistics(queryStatistics);
+      dao.setScheduler(scheduler);
+      dao.setWriteScheduler(writeScheduler);
+      dao.setInsertChunkSize(builder.insertChunkSize);
+    }
+  }
+
+  /**
+   * Creates a {@link PriorityScheduler} backed by a pool of the given number of threads, which
+   * gets shut down by {@link #close()}
+   */
+  private PriorityScheduler newScheduler(String name, int threads, long agingNanos) {
+    PriorityScheduler scheduler =
+        new PriorityScheduler(name, threads, agingNanos, TimeUnit.NANOSECONDS, queryStatistics);
+    ownSchedulers.add(scheduler);
+    return scheduler;
+  }
+
+  /**
+   * Get the scheduler executing the queries, if it hasn't been set with {@link
+   * Builder#scheduler(Scheduler)}
+   *
+   * @return The scheduler or null
+   */
+  PriorityScheduler getReaderScheduler() {
+    return readerScheduler;
+  }
+
+  /**
+   * Get the default number of threads executing queries: one thread without write ahead logging,
+   * otherwise one per connection of Android's connection pool
+   */
+  static int readerPoolSize(Boolean writeAheadLogging) {
+    if (writeAheadLogging == null || !writeAheadLogging) {
+      return 1;
+    }
+
+    // Read like android.database.sqlite.SQLiteGlobal#getWALConnectionPoolSize()
+    Resources resources = Resources.getSystem();
+    int id = resources.getIdentifier("db_connection_pool_size", "integer", "android");
+    if (id == 0) {
+      return DEFAULT_READER_POOL_SIZE;
+    }
+    try {
+      return Math.max(2, resources.getInteger(id));
+    } catch (Resources.NotFoundException e) {
+      return DEFAULT_READER_POOL_SIZE;
     }
   }
 
@@ -94,6 +205,130 @@ public class DaoManager {
     return db;
   }
 
+  /**
+   * Get the {@link StatementCache} shared by all registered {@link Dao}s. Useful to inspect the
+   * hit and miss counters.
+   *
+   * @return The statement cache
+   */
+  public StatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Get the {@link QueryCache} shared by all registered {@link Dao}s. Useful to inspect the hit
+   * ratio, evictions and memory usage.
+   *
+   * @return The query cache
+   */
+  public QueryCache getQueryCache() {
+    return queryCache;
+  }
+
+  /**
+   * Get the live shared queries of all registered {@link Dao}s (see {@link
+   * Dao.QueryBuilder#shared(boolean)}). Useful to monitor the number of subscribers.
+   *
+   * @return The shared queries
+   */
+  public SharedQueries getSharedQueries() {
+    return sharedQueries;
+  }
+
+  /**
+   * Get the {@link QueryStatistics} of all registered {@link Dao}s, like the number of results
+   * skipped because they were unchanged (see {@link
+   * Dao.QueryBuilder#skipUnchangedResults(boolean)}).
+   *
+   * @return The query statistics
+   */
+  public QueryStatistics getQueryStatistics() {
+    return queryStatistics;
+  }
+
+  /**
+   * Get the {@link DatabaseProfile} set with {@link Builder#profile(DatabaseProfile)}
+   *
+   * @return The configured profile or null if none has been set
+   */
+  public DatabaseProfile getProfile() {
+    return profile;
+  }
+
+  /**
+   * Get the performance settings that have been in effect after the database has been opened the
+   * last time, read back from SQLite. Compare them with {@link #getProfile()} to see which
+   * settings are not supported on this device (or, like the page size, can't be changed for an
+   * existing database). The connection specific settings (<code>synchronous</code>,
+   * <code>cache_size</code>, <code>mmap_size</code> and <code>temp_store</code>) are read from the
+   * primary connection: the read only connections used for parallel queries with write ahead
+   * logging keep the defaults of the platform.
+   *
+   * @return The effective profile or null if the database has not been opened yet
+   */
+  public DatabaseProfile getEffectiveProfile() {
+    return effectiveProfile;
+  }
+
+  /**
+   * Begins a new {@link UnitOfWork}. All changes made by the registered {@link Dao}s on the
+   * current thread until {@link UnitOfWork#end()} is called are executed in a single transaction.
+   * Queries observing the changed tables get notified only once, when the unit of work is
+   * committed.
+   *
+   * @return The unit of work
+   */
+  public UnitOfWork newUnitOfWork() {
+    return new UnitOfWork(db, queryCache);
+  }
+
+  /**
+   * Runs the given work within a {@link UnitOfWork}. The unit of work is committed if the work
+   * returns without throwing an exception, otherwise all changes are rolled back and no query gets
+   * notified.
+   *
+   * @param work The work to run on the current thread
+   * @return The result of the work
+   */
+  public <T> T runInTransaction(@NonNull Func0<T> work) {
+    if (work == null) {
+      throw new NullPointerException("work == null");
+    }
+
+    UnitOfWork unitOfWork = newUnitOfWork();
+    try {
+      T result = work.call();
+      unitOfWork.markSuccessful();
+      return result;
+    } finally {
+      unitOfWork.end();
+    }
+  }
+
+  /**
+   * Creates a new {@link WriteBehindQueue} that executes queued writes asynchronously on the write
+   * scheduler (see {@link Builder#writeScheduler(Scheduler)}) and commits them as a group within
+   * one transaction. A group is committed once <code>maxBatchSize</code> writes are queued or
+   * <code>maxDelay</code> after the first write of the group has been queued. The queue is
+   * flushed by {@link #close()}.
+   *
+   * @param capacity The maximum number of queued writes. If the queue is full, queuing a write
+   * blocks until the queued writes have been committed.
+   * @param maxBatchSize The maximum number of writes committed within one transaction
+   * @param maxDelay The maximum time a write is queued before it gets committed
+   * @param unit The time unit of maxDelay
+   * @return The queue
+   */
+  public WriteBehindQueue newWriteBehindQueue(int capacity, int maxBatchSize, long maxDelay,
+      @NonNull TimeUnit unit) {
+    WriteBehindQueue queue =
+        new WriteBehindQueue(queryCache, writeScheduler, capacity, maxBatchSize, maxDelay, unit);
+    synchronized (writeBehindQueues) {
+      writeBehindQueues.add(queue);
+    }
+    return queue;
+  }
+
   /**
    * Get the database version
    */
@@ -116,11 +351,23 @@ public class DaoManager {
   }
 
   /**
-   * Close the database
+   * Close the database and all cached compiled statements. The writes queued by {@link
+   * WriteBehindQueue}s are committed before.
    *
    * @throws IOException
    */
   public void close() throws IOException {
+    synchronized (writeBehindQueues) {
+      for (WriteBehindQueue queue : writeBehindQueues) {
+        queue.close();
+      }
+      writeBehindQueues.clear();
+    }
+    for (PriorityScheduler scheduler : ownSchedulers) {
+      scheduler.shutdown();
+    }
+    statementCache.close();
+    queryCache.close();
     db.close();
   }
 
@@ -153,6 +400,17 @@ public class DaoManager {
         if (foreignKeyConstraints) {
           db.execSQL("PRAGMA foreign_keys=ON;");
         }
+        if (profile != null) {
+          profile.apply(db);
+        }
+      }
+
+      effectiveProfile = DatabaseProfile.read(db);
+      if (readerScheduler != null && !readerPoolSizeSet) {
+        readerScheduler.setThreads(readerPoolSize(effectiveProfile.getWriteAheadLogging()));
+      }
+      if (DaoManager.this.db != null) {
+        BriteDatabaseBridge.log(DaoManager.this.db, "Database opened: %s", effectiveProfile);
       }
     }
 
@@ -192,6 +450,9 @@ public class DaoManager {
       if (foreignKeyConstraints) {
         db.setForeignKeyConstraintsEnabled(true);
       }
+      if (profile != null) {
+        profile.apply(db);
+      }
     }
   }
 
@@ -211,6 +472,13 @@ public class DaoManager {
     private SqlBrite.Logger logger = null;
     private Scheduler scheduler = null;
     private boolean foreignKeyConstraints = false;
+    private int insertChunkSize = DEFAULT_INSERT_CHUNK_SIZE;
+    private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    private int queryCacheSize = DEFAULT_QUERY_CACHE_SIZE;
+    private DatabaseProfile profile = null;
+    private Scheduler writeScheduler = null;
+    private int readerPoolSize = 0;
+    private long priorityAgingNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_PRIORITY_AGING_MILLIS);
 
     private Builder(Context context) {
       this.context = context.getApplicationContext();
@@ -239,7 +507,7 @@ public class DaoManager {
      * @return the builder
      */
     public Builder cursorFactory(SQLiteDatabase.CursorFactory factory) {
-      this.cursorFactory = cursorFactory;
+      this.cursorFactory = factory;
       return this;
     }
 
@@ -333,7 +601,10 @@ public class DaoManager {
      * thread or the thread which caused the trigger.
      *
      * <p>
-     * Per default {@link Schedulers#io()} is used.
+     * Per default a pool of {@link #readerPoolSize(int)} threads is used, that executes waiting
+     * queries in order of their {@link Priority} (see {@link
+     * Dao.QueryBuilder#priority(Priority)}). Priorities are ignored by other schedulers. Insert,
+     * update and delete statements are executed on the {@link #writeScheduler(Scheduler)}.
      * </p>
      *
      * @param scheduler The {@link Scheduler} on which items from {@link BriteDatabase#createQuery}
@@ -345,6 +616,72 @@ public class DaoManager {
       return this;
     }
 
+    /**
+     * Set the scheduler insert, update and delete statements of the {@link Dao}s are executed on.
+     * Writes are never executed in parallel by SQLite, so they should not occupy the threads
+     * executing queries while waiting for the database lock. Writes subscribed on a thread that
+     * is running a transaction are executed directly on that thread.
+     *
+     * <p>
+     * Per default a dedicated single thread is used, so that all writes are executed one after
+     * another in the order they have been subscribed. The {@link Priority} of a write (see {@link
+     * Dao#prioritize(Priority, rx.Observable)}) doesn't change this order, so that a write never
+     * overtakes an earlier one. Use {@link Schedulers#immediate()} to execute writes on the
+     * subscribing thread.
+     * </p>
+     *
+     * @param scheduler The scheduler writes are executed on
+     * @return the builder itself
+     */
+    public Builder writeScheduler(@NonNull Scheduler scheduler) {
+      if (scheduler == null) {
+        throw new NullPointerException("scheduler == null");
+      }
+      this.writeScheduler = scheduler;
+      return this;
+    }
+
+    /**
+     * Set the number of threads executing queries if no {@link #scheduler(Scheduler)} has been
+     * set. With write ahead logging (see {@link #profile(DatabaseProfile)}) queries are executed
+     * in parallel on the connections of Android's connection pool, so there is no point in having
+     * more threads than connections. Without write ahead logging queries wait for the single
+     * connection of the database anyway. Per default the number of threads is derived from the
+     * profile in effect (see {@link DaoManager#getEffectiveProfile()}): one thread without write
+     * ahead logging, otherwise the size of Android's connection pool in write ahead logging mode.
+     *
+     * @param size The number of threads
+     * @return the builder itself
+     */
+    public Builder readerPoolSize(int size) {
+      if (size < 1) {
+        throw new IllegalArgumentException("Reader pool size must be greater than 0");
+      }
+      this.readerPoolSize = size;
+      return this;
+    }
+
+    /**
+     * Set the time after which a waiting query is treated like having the next higher {@link
+     * Priority}. A query of a lower priority is executed at the latest once it has been
+     * waiting this time per priority level longer than a query of a higher priority, so that low
+     * priority work doesn't starve. Per default {@link #DEFAULT_PRIORITY_AGING_MILLIS} is used.
+     *
+     * @param time The aging interval
+     * @param unit The time unit
+     * @return the builder itself
+     */
+    public Builder priorityAging(long time, @NonNull TimeUnit unit) {
+      if (time < 0) {
+        throw new IllegalArgumentException("Priority aging must not be negative");
+      }
+      if (unit == null) {
+        throw new NullPointerException("unit == null");
+      }
+      this.priorityAgingNanos = unit.toNanos(time);
+      return this;
+    }
+
     /**
      * Enable foreign key on the underlying database. Per default foreign key support is disabled.
      *
@@ -356,6 +693,72 @@ public class DaoManager {
       return this;
     }
 
+    /**
+     * Set the number of rows {@link Dao#insertAll(String, Iterable, int)} inserts within one
+     * transaction. Queries observing the table get notified once per chunk. Per default {@link
+     * #DEFAULT_INSERT_CHUNK_SIZE} is used.
+     *
+     * @param chunkSize The number of rows per transaction
+     * @return the builder itself
+     */
+    public Builder insertChunkSize(int chunkSize) {
+      if (chunkSize < 1) {
+        throw new IllegalArgumentException("Insert chunk size must be greater than 0");
+      }
+      this.insertChunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of compiled {@link android.database.sqlite.SQLiteStatement}s that are
+     * cached for insert, update and delete statements. If the cache is full the least recently
+     * used statement gets closed. Use 0 to disable caching. Per default {@link
+     * #DEFAULT_STATEMENT_CACHE_SIZE} is used.
+     *
+     * @param size The maximum number of cached statements
+     * @return the builder itself
+     */
+    public Builder statementCacheSize(int size) {
+      if (size < 0) {
+        throw new IllegalArgumentException("Statement cache size must not be negative");
+      }
+      this.statementCacheSize = size;
+      return this;
+    }
+
+    /**
+     * Set the maximum number of query results that are cached for queries with {@link
+     * Dao.QueryBuilder#cached(boolean)}. If the cache is full the least recently used result gets
+     * evicted. Use 0 to disable caching. Per default {@link #DEFAULT_QUERY_CACHE_SIZE} is used.
+     *
+     * @param size The maximum number of cached results
+     * @return the builder itself
+     */
+    public Builder queryCacheSize(int size) {
+      if (size < 0) {
+        throw new IllegalArgumentException("Query cache size must not be negative");
+      }
+      this.queryCacheSize = size;
+      return this;
+    }
+
+    /**
+     * Set the performance settings (write ahead logging, synchronous, cache size, ...) that are
+     * applied each time the database is opened. Use one of the presets like {@link
+     * DatabaseProfile#READ_HEAVY} or build your own with {@link DatabaseProfile#builder()}. Per
+     * default the defaults of the platform are used.
+     *
+     * @param profile The profile
+     * @return the builder itself
+     */
+    public Builder profile(@NonNull DatabaseProfile profile) {
+      if (profile == null) {
+        throw new NullPointerException("profile == null");
+      }
+      this.profile = profile;
+      return this;
+    }
+
     /**
      * Builds a DaoManager with the specified config (via this builder)
      *
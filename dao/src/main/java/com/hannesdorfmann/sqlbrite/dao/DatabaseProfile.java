@@ -0,0 +1,465 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.annotation.TargetApi;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+/**
+ * Typed performance settings of the SQLite database, applied by the {@link DaoManager} each time
+ * the database is opened (see {@link DaoManager.Builder#profile(DatabaseProfile)}). Settings that
+ * are not set keep the default of the platform. Use one of the presets {@link #READ_HEAVY},
+ * {@link #WRITE_HEAVY} and {@link #LOW_MEMORY} or build your own with {@link #builder()}:
+ *
+ * <pre>
+ * DatabaseProfile profile = DatabaseProfile.READ_HEAVY.newBuilder()
+ *     .cacheSizeKib(16 * 1024)
+ *     .build();
+ * </pre>
+ *
+ * <p>
+ * Since API 16 the profile is applied in {@link
+ * android.database.sqlite.SQLiteOpenHelper#onConfigure(SQLiteDatabase)}, i.e. before tables are
+ * created, otherwise in {@link android.database.sqlite.SQLiteOpenHelper#onOpen(SQLiteDatabase)}.
+ * Please note that <code>page_size</code> only has an effect on a new database (or after
+ * <code>VACUUM</code>) and that the connection specific settings (<code>synchronous</code>,
+ * <code>cache_size</code>, <code>mmap_size</code> and <code>temp_store</code>) are applied to the
+ * primary connection only. With write ahead logging Android runs queries on additional read only
+ * connections that are opened with the defaults of the platform, so these settings mostly affect
+ * writes and transactions there. The values that are actually in effect on the primary connection
+ * after opening are reported by {@link DaoManager#getEffectiveProfile()}.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public final class DatabaseProfile {
+
+  /**
+   * The values of <code>PRAGMA synchronous</code>
+   */
+  public enum Synchronous {
+    OFF, NORMAL, FULL, EXTRA
+  }
+
+  /**
+   * The values of <code>PRAGMA temp_store</code>
+   */
+  public enum TempStore {
+    DEFAULT, FILE, MEMORY
+  }
+
+  /**
+   * For many concurrent queries and rare writes: write ahead logging (readers don't block the
+   * writer), a 8 MiB page cache, 64 MiB memory mapped I/O and temporary tables in memory. Please
+   * note that the page cache, memory mapped I/O and <code>temp_store</code> are set on the primary
+   * connection only: queries running in parallel on the read only connections of write ahead
+   * logging use the defaults of the platform.
+   */
+  public static final DatabaseProfile READ_HEAVY = builder().writeAheadLogging(true)
+      .synchronous(Synchronous.NORMAL)
+      .journalSizeLimit(4 * 1024 * 1024)
+      .mmapSize(64 * 1024 * 1024)
+      .cacheSizeKib(8 * 1024)
+      .tempStore(TempStore.MEMORY)
+      .build();
+
+  /**
+   * For frequent writes: write ahead logging with <code>synchronous=NORMAL</code> (no fsync per
+   * commit, durable after the next checkpoint), a larger journal that is not truncated after each
+   * checkpoint and a 4 MiB page cache (of the primary connection that executes the writes)
+   */
+  public static final DatabaseProfile WRITE_HEAVY = builder().writeAheadLogging(true)
+      .synchronous(Synchronous.NORMAL)
+      .journalSizeLimit(16 * 1024 * 1024)
+      .cacheSizeKib(4 * 1024)
+      .pageSize(4096)
+      .tempStore(TempStore.MEMORY)
+      .build();
+
+  /**
+   * For low memory devices: a 512 KiB page cache, no memory mapped I/O, temporary tables in files
+   * and a small journal. Without write ahead logging all queries run on the primary connection, so
+   * the page cache limit applies to all of them.
+   */
+  public static final DatabaseProfile LOW_MEMORY = builder().journalSizeLimit(512 * 1024)
+      .mmapSize(0)
+      .cacheSizeKib(512)
+      .tempStore(TempStore.FILE)
+      .build();
+
+  private final Boolean writeAheadLogging;
+  private final Synchronous synchronous;
+  private final Long journalSizeLimit;
+  private final Long mmapSize;
+  private final Integer cacheSize;
+  private final Integer pageSize;
+  private final TempStore tempStore;
+
+  private DatabaseProfile(Builder builder) {
+    this.writeAheadLogging = builder.writeAheadLogging;
+    this.synchronous = builder.synchronous;
+    this.journalSizeLimit = builder.journalSizeLimit;
+    this.mmapSize = builder.mmapSize;
+    this.cacheSize = builder.cacheSize;
+    this.pageSize = builder.pageSize;
+    this.tempStore = builder.tempStore;
+  }
+
+  /**
+   * Creates a new builder without any settings
+   *
+   * @return The builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Creates a new builder initialized with the settings of this profile
+   *
+   * @return The builder
+   */
+  public Builder newBuilder() {
+    Builder builder = new Builder();
+    builder.writeAheadLogging = writeAheadLogging;
+    builder.synchronous = synchronous;
+    builder.journalSizeLimit = journalSizeLimit;
+    builder.mmapSize = mmapSize;
+    builder.cacheSize = cacheSize;
+    builder.pageSize = pageSize;
+    builder.tempStore = tempStore;
+    return builder;
+  }
+
+  /**
+   * Get whether or not write ahead logging (<code>journal_mode=WAL</code>) is enabled
+   *
+   * @return The setting or null if not set
+   */
+  public Boolean getWriteAheadLogging() {
+    return writeAheadLogging;
+  }
+
+  /**
+   * Get the <code>synchronous</code> setting
+   *
+   * @return The setting or null if not set
+   */
+  public Synchronous getSynchronous() {
+    return synchronous;
+  }
+
+  /**
+   * Get the <code>journal_size_limit</code> in bytes, -1 for no limit
+   *
+   * @return The setting or null if not set
+   */
+  public Long getJournalSizeLimit() {
+    return journalSizeLimit;
+  }
+
+  /**
+   * Get the <code>mmap_size</code> in bytes
+   *
+   * @return The setting or null if not set (or not supported by the SQLite version)
+   */
+  public Long getMmapSize() {
+    return mmapSize;
+  }
+
+  /**
+   * Get the <code>cache_size</code> like SQLite reports it: a positive value is the number of
+   * pages, a negative value the size in KiB
+   *
+   * @return The setting or null if not set
+   */
+  public Integer getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Get the <code>page_size</code> in bytes
+   *
+   * @return The setting or null if not set
+   */
+  public Integer getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Get the <code>temp_store</code> setting
+   *
+   * @return The setting or null if not set
+   */
+  public TempStore getTempStore() {
+    return tempStore;
+  }
+
+  /**
+   * Applies this profile to the given database. Must be called outside of a transaction.
+   *
+   * @param db The database
+   */
+  void apply(SQLiteDatabase db) {
+    // page_size must be set before the journal mode is switched to WAL
+    if (pageSize != null) {
+      pragma(db, "page_size", pageSize);
+    }
+
+    if (writeAheadLogging != null) {
+      setWriteAheadLogging(db, writeAheadLogging);
+    }
+
+    if (synchronous != null) {
+      pragma(db, "synchronous", synchronous.ordinal());
+    }
+    if (journalSizeLimit != null) {
+      pragma(db, "journal_size_limit", journalSizeLimit);
+    }
+    if (mmapSize != null) {
+      pragma(db, "mmap_size", mmapSize);
+    }
+    if (cacheSize != null) {
+      pragma(db, "cache_size", cacheSize);
+    }
+    if (tempStore != null) {
+      pragma(db, "temp_store", tempStore.ordinal());
+    }
+  }
+
+  private static void setWriteAheadLogging(SQLiteDatabase db, boolean enabled) {
+    if (enabled) {
+      db.enableWriteAheadLogging();
+    } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      disableWriteAheadLogging(db);
+    }
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private static void disableWriteAheadLogging(SQLiteDatabase db) {
+    db.disableWriteAheadLogging();
+  }
+
+  /**
+   * Reads the settings that are in effect for the given database
+   *
+   * @param db The database
+   * @return The effective profile, settings not supported by the SQLite version are null
+   */
+  static DatabaseProfile read(SQLiteDatabase db) {
+    Builder builder = new Builder();
+
+    String journalMode = readPragma(db, "journal_mode");
+    if (journalMode != null) {
+      builder.writeAheadLogging = "wal".equalsIgnoreCase(journalMode);
+    }
+
+    Long synchronous = readLongPragma(db, "synchronous");
+    if (synchronous != null && synchronous >= 0 && synchronous < Synchronous.values().length) {
+      builder.synchronous = Synchronous.values()[synchronous.intValue()];
+    }
+
+    builder.journalSizeLimit = readLongPragma(db, "journal_size_limit");
+    builder.mmapSize = readLongPragma(db, "mmap_size");
+
+    Long cacheSize = readLongPragma(db, "cache_size");
+    builder.cacheSize = cacheSize == null ? null : cacheSize.intValue();
+
+    Long pageSize = readLongPragma(db, "page_size");
+    builder.pageSize = pageSize == null ? null : pageSize.intValue();
+
+    Long tempStore = readLongPragma(db, "temp_store");
+    if (tempStore != null && tempStore >= 0 && tempStore < TempStore.values().length) {
+      builder.tempStore = TempStore.values()[tempStore.intValue()];
+    }
+
+    return new DatabaseProfile(builder);
+  }
+
+  /**
+   * Sets a pragma. Some pragmas return the new value as result row, therefore the pragma is
+   * executed as query and not with {@link SQLiteDatabase#execSQL(String)}.
+   */
+  private static void pragma(SQLiteDatabase db, String name, Object value) {
+    Cursor cursor = db.rawQuery("PRAGMA " + name + " = " + value, null);
+    try {
+      cursor.moveToFirst();
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private static String readPragma(SQLiteDatabase db, String name) {
+    Cursor cursor = db.rawQuery("PRAGMA " + name, null);
+    try {
+      return cursor.moveToFirst() ? cursor.getString(0) : null;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private static Long readLongPragma(SQLiteDatabase db, String name) {
+    String value = readPragma(db, name);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @Override public String toString() {
+    return "DatabaseProfile[writeAheadLogging=" + writeAheadLogging
+        + ",synchronous=" + synchronous
+        + ",journalSizeLimit=" + journalSizeLimit
+        + ",mmapSize=" + mmapSize
+        + ",cacheSize=" + cacheSize
+        + ",pageSize=" + pageSize
+        + ",tempStore=" + tempStore + "]";
+  }
+
+  /**
+   * The Builder to configure and instantiate a {@link DatabaseProfile}
+   */
+  public static final class Builder {
+    private Boolean writeAheadLogging;
+    private Synchronous synchronous;
+    private Long journalSizeLimit;
+    private Long mmapSize;
+    private Integer cacheSize;
+    private Integer pageSize;
+    private TempStore tempStore;
+
+    private Builder() {
+    }
+
+    /**
+     * Enables or disables write ahead logging. With write ahead logging readers don't block the
+     * writer and the writer doesn't block readers. Disabling is only supported since API 16.
+     *
+     * @param enabled true to enable, false to disable
+     * @return the builder itself
+     */
+    public Builder writeAheadLogging(boolean enabled) {
+      this.writeAheadLogging = enabled;
+      return this;
+    }
+
+    /**
+     * Set <code>PRAGMA synchronous</code>, i.e. how often SQLite waits for data to be written to
+     * disk. {@link Synchronous#NORMAL} is safe in combination with write ahead logging.
+     *
+     * @param synchronous The synchronous mode
+     * @return the builder itself
+     */
+    public Builder synchronous(@NonNull Synchronous synchronous) {
+      if (synchronous == null) {
+        throw new NullPointerException("synchronous == null");
+      }
+      this.synchronous = synchronous;
+      return this;
+    }
+
+    /**
+     * Set <code>PRAGMA journal_size_limit</code>: the size the journal (or write ahead log) is
+     * truncated to after a transaction or checkpoint.
+     *
+     * @param bytes The limit in bytes, -1 for no limit
+     * @return the builder itself
+     */
+    public Builder journalSizeLimit(long bytes) {
+      if (bytes < -1) {
+        throw new IllegalArgumentException("Journal size limit must be -1 or greater");
+      }
+      this.journalSizeLimit = bytes;
+      return this;
+    }
+
+    /**
+     * Set <code>PRAGMA mmap_size</code>: the maximum number of bytes of the database file that
+     * are accessed with memory mapped I/O. Ignored if the SQLite version of the device doesn't
+     * support memory mapped I/O.
+     *
+     * @param bytes The size in bytes, 0 disables memory mapped I/O
+     * @return the builder itself
+     */
+    public Builder mmapSize(long bytes) {
+      if (bytes < 0) {
+        throw new IllegalArgumentException("mmap size must not be negative");
+      }
+      this.mmapSize = bytes;
+      return this;
+    }
+
+    /**
+     * Set <code>PRAGMA cache_size</code> as number of pages
+     *
+     * @param pages The number of cached pages
+     * @return the builder itself
+     */
+    public Builder cacheSizePages(int pages) {
+      if (pages < 1) {
+        throw new IllegalArgumentException("Cache size must be greater than 0");
+      }
+      this.cacheSize = pages;
+      return this;
+    }
+
+    /**
+     * Set <code>PRAGMA cache_size</code> as memory size, independent of the page size
+     *
+     * @param kib The size of the page cache in KiB
+     * @return the builder itself
+     */
+    public Builder cacheSizeKib(int kib) {
+      if (kib < 1) {
+        throw new IllegalArgumentException("Cache size must be greater than 0");
+      }
+      this.cacheSize = -kib;
+      return this;
+    }
+
+    /**
+     * Set <code>PRAGMA page_size</code>. Only has an effect if the database is created (or
+     * vacuumed).
+     *
+     * @param bytes A power of two between 512 and 65536
+     * @return the builder itself
+     */
+    public Builder pageSize(int bytes) {
+      if (bytes < 512 || bytes > 65536 || (bytes & (bytes - 1)) != 0) {
+        throw new IllegalArgumentException(
+            "Page size must be a power of two between 512 and 65536, but was " + bytes);
+      }
+      this.pageSize = bytes;
+      return this;
+    }
+
+    /**
+     * Set <code>PRAGMA temp_store</code>: where temporary tables and indices (i.e. of ORDER BY,
+     * GROUP BY and DISTINCT) are stored
+     *
+     * @param tempStore The temp store
+     * @return the builder itself
+     */
+    public Builder tempStore(@NonNull TempStore tempStore) {
+      if (tempStore == null) {
+        throw new NullPointerException("tempStore == null");
+      }
+      this.tempStore = tempStore;
+      return this;
+    }
+
+    /**
+     * Builds the profile
+     *
+     * @return The profile
+     */
+    public DatabaseProfile build() {
+      return new DatabaseProfile(this);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.SqlBrite;
+
+/**
+ * A query that has already been executed: the first call of {@link #run()} hands out the executed
+ * cursor, subsequent calls execute the query again. A canceled execution of the query (see {@link
+ * TypedQuery#cancel()}) is repeated, so that {@link #run()} never returns <code>null</code>.
+ *
+ * @author Hannes Dorfmann
+ */
+final class ExecutedQuery extends SqlBrite.Query {
+  private final SqlBrite.Query query;
+  private Cursor cursor;
+
+  ExecutedQuery(SqlBrite.Query query, Cursor cursor) {
+    this.query = query;
+    this.cursor = cursor;
+  }
+
+  @Override public synchronized Cursor run() {
+    Cursor executed = cursor;
+    if (executed != null) {
+      cursor = null;
+      return executed;
+    }
+
+    // Terminates: an execution canceled by a change is followed by one that runs to completion
+    // (see TypedQuery#supersede()), canceling on unsubscribe only affects executions in progress
+    do {
+      executed = query.run();
+    } while (executed == null);
+    return executed;
+  }
+
+  /**
+   * Closes the executed cursor if it hasn't been handed out yet. {@link #run()} executes the query
+   * again afterwards.
+   */
+  synchronized void discard() {
+    if (cursor != null) {
+      cursor.close();
+      cursor = null;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes of the result of a list query compared to its previous result (see {@link
+ * Dao.QueryBuilder#runListChanges(String, rx.functions.Func1)}). Rows are identified by their
+ * primary key. Items of rows that haven't been changed are the same (already mapped) objects as in
+ * the previous list.
+ *
+ * <p>
+ * The positions of removed items refer to the previous list, the positions of inserted items to
+ * the new list. Moved and changed items have both: the position in the previous and in the new
+ * list. Each list of changes is sorted by position.
+ * </p>
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ */
+public final class ListChanges<T> {
+
+  /**
+   * A single change of an item
+   *
+   * @param <T> The type of the item
+   */
+  public static final class Change<T> {
+    private final int fromPosition;
+    private final int toPosition;
+    private final T item;
+    private final T previousItem;
+
+    Change(int fromPosition, int toPosition, T item, T previousItem) {
+      this.fromPosition = fromPosition;
+      this.toPosition = toPosition;
+      this.item = item;
+      this.previousItem = previousItem;
+    }
+
+    /**
+     * Get the position of the item in the previous list
+     *
+     * @return The position or -1 for inserted items
+     */
+    public int getFromPosition() {
+      return fromPosition;
+    }
+
+    /**
+     * Get the position of the item in the new list
+     *
+     * @return The position or -1 for removed items
+     */
+    public int getToPosition() {
+      return toPosition;
+    }
+
+    /**
+     * Get the item. For removed items the item of the previous list, otherwise the one of the new
+     * list.
+     *
+     * @return The item
+     */
+    public T getItem() {
+      return item;
+    }
+
+    /**
+     * Get the item of the previous list of a changed item
+     *
+     * @return The previous item or null if the item hasn't been changed
+     */
+    public T getPreviousItem() {
+      return previousItem;
+    }
+
+    @Override public String toString() {
+      return "Change[" + fromPosition + " -> " + toPosition + ", " + item + "]";
+    }
+  }
+
+  private final List<T> previousList;
+  private final List<T> list;
+  private final List<Change<T>> inserted;
+  private final List<Change<T>> removed;
+  private final List<Change<T>> moved;
+  private final List<Change<T>> changed;
+
+  ListChanges(List<T> previousList, List<T> list, List<Change<T>> inserted,
+      List<Change<T>> removed, List<Change<T>> moved, List<Change<T>> changed) {
+    this.previousList = Collections.unmodifiableList(previousList);
+    this.list = Collections.unmodifiableList(list);
+    this.inserted = Collections.unmodifiableList(inserted);
+    this.removed = Collections.unmodifiableList(removed);
+    this.moved = Collections.unmodifiableList(moved);
+    this.changed = Collections.unmodifiableList(changed);
+  }
+
+  /**
+   * Get the previous list
+   *
+   * @return The previous list, empty for the first result
+   */
+  public List<T> getPreviousList() {
+    return previousList;
+  }
+
+  /**
+   * Get the new list
+   *
+   * @return The new list
+   */
+  public List<T> getList() {
+    return list;
+  }
+
+  /**
+   * Get the inserted items, sorted by their position in the new list
+   *
+   * @return The inserted items
+   */
+  public List<Change<T>> getInserted() {
+    return inserted;
+  }
+
+  /**
+   * Get the removed items, sorted by their position in the previous list
+   *
+   * @return The removed items
+   */
+  public List<Change<T>> getRemoved() {
+    return removed;
+  }
+
+  /**
+   * Get the items that have changed their position relative to the other items, sorted by their
+   * position in the new list. Items that have only been shifted by inserted or removed items are
+   * not moved.
+   *
+   * @return The moved items
+   */
+  public List<Change<T>> getMoved() {
+    return moved;
+  }
+
+  /**
+   * Get the items whose row has been changed, sorted by their position in the new list
+   *
+   * @return The changed items
+   */
+  public List<Change<T>> getChanged() {
+    return changed;
+  }
+
+  /**
+   * Checks whether or not there are any changes
+   *
+   * @return true if nothing has been inserted, removed, moved or changed
+   */
+  public boolean isEmpty() {
+    return inserted.isEmpty() && removed.isEmpty() && moved.isEmpty() && changed.isEmpty();
+  }
+
+  @Override public String toString() {
+    return String.format("ListChanges[size=%d,inserted=%d,removed=%d,moved=%d,changed=%d]",
+        list.size(), inserted.size(), removed.size(), moved.size(), changed.size());
+  }
+}
@@ -0,0 +1,106 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.SqlBrite;
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.functions.Func1;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Executes each query and emits a {@link CursorList} backed by the cursor. Each list is closed
+ * once the list emitted after it is accessed, once the second list after it is emitted or once the
+ * subscriber unsubscribes. So at most the current list and its predecessor hold an open cursor,
+ * even if the subscriber doesn't access the lists while the query is executed again and again.
+ *
+ * @author Hannes Dorfmann
+ */
+final class OperatorCursorList<T> implements Observable.Operator<CursorList<T>, SqlBrite.Query> {
+
+  private final Func1<Cursor, T> mapper;
+  private final int cacheSize;
+  private final int prefetch;
+
+  OperatorCursorList(Func1<Cursor, T> mapper, int cacheSize, int prefetch) {
+    this.mapper = mapper;
+    this.cacheSize = cacheSize;
+    this.prefetch = prefetch;
+  }
+
+  @Override public Subscriber<? super SqlBrite.Query> call(
+      final Subscriber<? super CursorList<T>> child) {
+    final CursorListSubscriber parent = new CursorListSubscriber(child);
+    child.add(Subscriptions.create(new Action0() {
+      @Override public void call() {
+        parent.closeCurrent();
+      }
+    }));
+    return parent;
+  }
+
+  private final class CursorListSubscriber extends Subscriber<SqlBrite.Query> {
+    private final Subscriber<? super CursorList<T>> child;
+    private CursorList<T> current;
+    private boolean closed;
+
+    CursorListSubscriber(Subscriber<? super CursorList<T>> child) {
+      super(child);
+      this.child = child;
+    }
+
+    @Override public void onNext(SqlBrite.Query query) {
+      CursorList<T> list;
+      try {
+        list = newList(query.run());
+      } catch (Throwable e) {
+        unsubscribe();
+        Exceptions.throwOrReport(e, this, query);
+        return;
+      }
+
+      if (list != null) {
+        child.onNext(list);
+      } else {
+        // Nothing emitted for the requested query
+        request(1);
+      }
+    }
+
+    private synchronized CursorList<T> newList(Cursor cursor) {
+      if (cursor == null) {
+        // Canceled execution
+        return null;
+      }
+      if (closed) {
+        // Unsubscribed while the query has been executed
+        cursor.close();
+        return null;
+      }
+
+      if (current != null) {
+        // Only the list replaced by the new one is kept open until the new one is accessed
+        current.closePrevious();
+      }
+      current = new CursorList<>(cursor, mapper, cacheSize, prefetch, current);
+      return current;
+    }
+
+    synchronized void closeCurrent() {
+      closed = true;
+      if (current != null) {
+        current.closeAll();
+        current = null;
+      }
+    }
+
+    @Override public void onCompleted() {
+      child.onCompleted();
+    }
+
+    @Override public void onError(Throwable e) {
+      child.onError(e);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.SqlBrite;
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Executes each query before it is emitted and drops the canceled executions (see {@link
+ * TypedQuery#cancel()}), so that the downstream subscriber never gets a query without a result.
+ * A canceled execution has been superseded by a change that causes the next execution, or the
+ * subscriber has unsubscribed. The first call of {@link SqlBrite.Query#run()} of an emitted query
+ * returns the already executed cursor (see {@link ExecutedQuery}). If that cursor hasn't been
+ * taken once the next query is emitted, the stream terminates or the subscriber unsubscribes, it
+ * is closed and the query is executed again if it is run later on.
+ *
+ * @author Hannes Dorfmann
+ */
+final class OperatorDropCanceledQuery
+    implements Observable.Operator<SqlBrite.Query, SqlBrite.Query> {
+
+  private final boolean discardOnUnsubscribe;
+
+  /**
+   * @param discardOnUnsubscribe false to keep the cursor of the last query on unsubscribe, because
+   * the subscriber runs the query after unsubscribing (i.e. after <code>take(1)</code>)
+   */
+  OperatorDropCanceledQuery(boolean discardOnUnsubscribe) {
+    this.discardOnUnsubscribe = discardOnUnsubscribe;
+  }
+
+  @Override public Subscriber<? super SqlBrite.Query> call(
+      final Subscriber<? super SqlBrite.Query> child) {
+    final DropCanceledSubscriber parent = new DropCanceledSubscriber(child);
+    if (discardOnUnsubscribe) {
+      child.add(Subscriptions.create(new Action0() {
+        @Override public void call() {
+          parent.replaceLast(null);
+        }
+      }));
+    }
+    return parent;
+  }
+
+  private final class DropCanceledSubscriber extends Subscriber<SqlBrite.Query> {
+    private final Subscriber<? super SqlBrite.Query> child;
+    private ExecutedQuery last;
+
+    DropCanceledSubscriber(Subscriber<? super SqlBrite.Query> child) {
+      super(child);
+      this.child = child;
+    }
+
+    @Override public void onNext(SqlBrite.Query query) {
+      Cursor cursor;
+      try {
+        cursor = query.run();
+      } catch (Throwable e) {
+        unsubscribe();
+        Exceptions.throwOrReport(e, this, query);
+        return;
+      }
+
+      if (cursor == null) {
+        // Canceled execution, there is no result to emit
+        request(1);
+        return;
+      }
+
+      ExecutedQuery executed = new ExecutedQuery(query, cursor);
+      replaceLast(executed);
+      if (child.isUnsubscribed()) {
+        // Not emitted, so nobody runs the query
+        replaceLast(null);
+        return;
+      }
+      child.onNext(executed);
+    }
+
+    @Override public void onCompleted() {
+      replaceLast(null);
+      child.onCompleted();
+    }
+
+    @Override public void onError(Throwable e) {
+      replaceLast(null);
+      child.onError(e);
+    }
+
+    /**
+     * Discards the cursor of the last emitted query if it hasn't been taken yet
+     */
+    void replaceLast(ExecutedQuery executed) {
+      ExecutedQuery previous;
+      synchronized (this) {
+        previous = last;
+        last = executed;
+      }
+      if (previous != null) {
+        previous.discard();
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+
+/**
+ * Delivers the queries on a worker of the given scheduler. Queries that arrive while the previous
+ * one is still being delivered (executed by the downstream subscriber) are collapsed: only the
+ * latest one is delivered afterwards.
+ *
+ * @author Hannes Dorfmann
+ */
+final class OperatorLatestQuery implements Observable.Operator<SqlBrite.Query, SqlBrite.Query> {
+
+  private final Scheduler scheduler;
+
+  OperatorLatestQuery(Scheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  @Override public Subscriber<? super SqlBrite.Query> call(
+      final Subscriber<? super SqlBrite.Query> child) {
+
+    final Scheduler.Worker worker = scheduler.createWorker();
+    final AtomicReference<SqlBrite.Query> latest = new AtomicReference<>();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final AtomicInteger wip = new AtomicInteger();
+    final AtomicBoolean done = new AtomicBoolean();
+
+    final Action0 drain = new Action0() {
+      @Override public void call() {
+        do {
+          if (child.isUnsubscribed()) {
+            return;
+          }
+
+          boolean terminated = done.get();
+          SqlBrite.Query query = latest.getAndSet(null);
+          if (query != null) {
+            child.onNext(query);
+          }
+
+          if (terminated && latest.get() == null) {
+            Throwable e = error.get();
+            if (e != null) {
+              child.onError(e);
+            } else {
+              child.onCompleted();
+            }
+            return;
+          }
+        } while (wip.decrementAndGet() > 0);
+      }
+    };
+
+    Subscriber<SqlBrite.Query> parent = new Subscriber<SqlBrite.Query>() {
+
+      private void schedule() {
+        if (wip.getAndIncrement() == 0) {
+          worker.schedule(drain);
+        }
+      }
+
+      @Override public void onNext(SqlBrite.Query query) {
+        latest.set(query);
+        schedule();
+      }
+
+      @Override public void onError(Throwable e) {
+        error.set(e);
+        done.set(true);
+        schedule();
+      }
+
+      @Override public void onCompleted() {
+        done.set(true);
+        schedule();
+      }
+    };
+
+    child.add(worker);
+    child.add(parent);
+    return parent;
+  }
+}
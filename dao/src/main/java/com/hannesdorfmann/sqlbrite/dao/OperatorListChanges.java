@@ -0,0 +1,212 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+import rx.functions.Func1;
+
+/**
+ * Executes each query and emits the {@link ListChanges} compared to the previous result. Rows are
+ * identified by the (integer) key column. For each row a digest is computed (see {@link
+ * CursorDigest}), only rows that are new or whose digest has changed are mapped, all other rows
+ * reuse the item mapped before. Results without any changes are not emitted (except the first
+ * one).
+ *
+ * <p>
+ * The changes are computed on the thread the queries are emitted on, which is the query {@link
+ * rx.Scheduler} of the {@link Dao}.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+final class OperatorListChanges<T> implements Observable.Operator<ListChanges<T>, SqlBrite.Query> {
+
+  /**
+   * A mapped row of the previous result
+   */
+  private static final class Row<T> {
+    final T item;
+    final long digest;
+    final int position;
+
+    Row(T item, long digest, int position) {
+      this.item = item;
+      this.digest = digest;
+      this.position = position;
+    }
+  }
+
+  private final String keyColumn;
+  private final Func1<Cursor, T> mapper;
+
+  OperatorListChanges(String keyColumn, Func1<Cursor, T> mapper) {
+    this.keyColumn = keyColumn;
+    this.mapper = mapper;
+  }
+
+  @Override public Subscriber<? super SqlBrite.Query> call(
+      final Subscriber<? super ListChanges<T>> child) {
+    return new Subscriber<SqlBrite.Query>(child) {
+      private Map<Long, Row<T>> previousRows = Collections.emptyMap();
+      private long[] previousKeys = new long[0];
+      private List<T> previousList = Collections.emptyList();
+      private boolean emitted;
+
+      @Override public void onNext(SqlBrite.Query query) {
+        ListChanges<T> changes;
+        try {
+          Cursor cursor = query.run();
+          if (cursor == null) {
+            request(1);
+            return;
+          }
+          try {
+            changes = diff(cursor);
+          } finally {
+            cursor.close();
+          }
+        } catch (Throwable e) {
+          unsubscribe();
+          Exceptions.throwOrReport(e, this, query);
+          return;
+        }
+
+        if (emitted && changes.isEmpty()) {
+          request(1);
+          return;
+        }
+        emitted = true;
+        child.onNext(changes);
+      }
+
+      private ListChanges<T> diff(Cursor cursor) {
+        int keyIndex = cursor.getColumnIndexOrThrow(keyColumn);
+        int columns = cursor.getColumnCount();
+        int count = cursor.getCount();
+
+        Map<Long, Row<T>> rows = new HashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+        long[] keys = new long[count];
+        List<T> list = new ArrayList<>(count);
+        List<ListChanges.Change<T>> inserted = new ArrayList<>();
+        List<ListChanges.Change<T>> removed = new ArrayList<>();
+        List<ListChanges.Change<T>> moved = new ArrayList<>();
+        List<ListChanges.Change<T>> changed = new ArrayList<>();
+
+        // Old and new positions of the rows contained in both results, in the order of the new one
+        int[] retainedFrom = new int[Math.min(count, previousKeys.length)];
+        int[] retainedTo = new int[retainedFrom.length];
+        int retained = 0;
+
+        cursor.moveToPosition(-1);
+        for (int position = 0; cursor.moveToNext(); position++) {
+          long key = cursor.getLong(keyIndex);
+          long digest = CursorDigest.row(CursorDigest.OFFSET_BASIS, cursor, columns);
+          Row<T> previous = previousRows.get(key);
+
+          T item;
+          if (previous == null) {
+            item = mapper.call(cursor);
+            inserted.add(new ListChanges.Change<T>(-1, position, item, null));
+          } else {
+            if (previous.digest == digest) {
+              item = previous.item;
+            } else {
+              item = mapper.call(cursor);
+              changed.add(
+                  new ListChanges.Change<T>(previous.position, position, item, previous.item));
+            }
+          }
+
+          // Checked before recording the row, a duplicate would overflow the retained positions
+          if (rows.put(key, new Row<T>(item, digest, position)) != null) {
+            throw new IllegalStateException(
+                "Duplicate key " + key + " in column " + keyColumn + " of the query result");
+          }
+          if (previous != null) {
+            retainedFrom[retained] = previous.position;
+            retainedTo[retained] = position;
+            retained++;
+          }
+          keys[position] = key;
+          list.add(item);
+        }
+
+        for (int position = 0; position < previousKeys.length; position++) {
+          if (!rows.containsKey(previousKeys[position])) {
+            removed.add(
+                new ListChanges.Change<T>(position, -1, previousList.get(position), null));
+          }
+        }
+
+        boolean[] stable = longestIncreasingSubsequence(retainedFrom, retained);
+        for (int i = 0; i < retained; i++) {
+          if (!stable[i]) {
+            moved.add(new ListChanges.Change<T>(retainedFrom[i], retainedTo[i],
+                list.get(retainedTo[i]), null));
+          }
+        }
+
+        ListChanges<T> changes =
+            new ListChanges<>(previousList, list, inserted, removed, moved, changed);
+        previousRows = rows;
+        previousKeys = keys;
+        previousList = list;
+        return changes;
+      }
+
+      @Override public void onCompleted() {
+        child.onCompleted();
+      }
+
+      @Override public void onError(Throwable e) {
+        child.onError(e);
+      }
+    };
+  }
+
+  /**
+   * Marks the elements of the longest strictly increasing subsequence: the retained rows that kept
+   * their order relative to each other. All other retained rows have been moved.
+   *
+   * @param values The values
+   * @param length The number of values to consider
+   * @return true for each element that is part of the subsequence
+   */
+  static boolean[] longestIncreasingSubsequence(int[] values, int length) {
+    // tails[l] = index of the smallest tail of all increasing subsequences of length l + 1
+    int[] tails = new int[length];
+    int[] predecessors = new int[length];
+    int size = 0;
+
+    for (int i = 0; i < length; i++) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (values[tails[mid]] < values[i]) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      predecessors[i] = low > 0 ? tails[low - 1] : -1;
+      tails[low] = i;
+      if (low == size) {
+        size++;
+      }
+    }
+
+    boolean[] result = new boolean[length];
+    for (int i = size > 0 ? tails[size - 1] : -1; i >= 0; i = predecessors[i]) {
+      result[i] = true;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,90 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.SqlBrite;
+import rx.Observable;
+import rx.Subscriber;
+import rx.exceptions.Exceptions;
+
+/**
+ * Executes each query and computes a digest of the rows while iterating over the cursor. If the
+ * digest equals the one of the previously emitted result, the query is not emitted at all (and
+ * hence not mapped by the downstream subscriber). Otherwise the query is emitted and the first
+ * call of {@link SqlBrite.Query#run()} returns the already executed cursor (see {@link
+ * ExecutedQuery}).
+ *
+ * <p>
+ * The digest is a 64 bit FNV-1a hash over the type and value of each column of each row (see
+ * {@link CursorDigest}).
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+final class OperatorSkipUnchangedResult
+    implements Observable.Operator<SqlBrite.Query, SqlBrite.Query> {
+
+  private final QueryStatistics statistics;
+
+  OperatorSkipUnchangedResult(QueryStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  @Override public Subscriber<? super SqlBrite.Query> call(
+      final Subscriber<? super SqlBrite.Query> child) {
+    return new Subscriber<SqlBrite.Query>(child) {
+      private boolean hasDigest;
+      private long lastDigest;
+
+      @Override public void onNext(SqlBrite.Query query) {
+        Cursor cursor;
+        long digest;
+        try {
+          cursor = query.run();
+          digest = cursor == null ? 0 : digest(cursor);
+        } catch (Throwable e) {
+          unsubscribe();
+          Exceptions.throwOrReport(e, this, query);
+          return;
+        }
+
+        if (cursor == null) {
+          // Canceled execution, there is no result to emit
+          request(1);
+          return;
+        }
+
+        boolean unchanged = hasDigest && digest == lastDigest;
+        statistics.resultDigested(unchanged);
+        if (unchanged || child.isUnsubscribed()) {
+          cursor.close();
+          if (unchanged) {
+            request(1);
+          }
+          return;
+        }
+
+        hasDigest = true;
+        lastDigest = digest;
+        cursor.moveToPosition(-1);
+        child.onNext(new ExecutedQuery(query, cursor));
+      }
+
+      private long digest(Cursor cursor) {
+        try {
+          return CursorDigest.rows(cursor);
+        } catch (RuntimeException e) {
+          cursor.close();
+          throw e;
+        }
+      }
+
+      @Override public void onCompleted() {
+        child.onCompleted();
+      }
+
+      @Override public void onError(Throwable e) {
+        child.onError(e);
+      }
+    };
+  }
+}
@@ -0,0 +1,55 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.support.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset pagination (see {@link Dao.QueryBuilder#runPage(rx.functions.Func1)}).
+ *
+ * @param <T> The type of the items
+ * @author Hannes Dorfmann
+ */
+public final class Page<T> {
+
+  private final List<T> items;
+  private final Object[] next;
+
+  Page(List<T> items, Object[] next) {
+    this.items = Collections.unmodifiableList(items);
+    this.next = next;
+  }
+
+  /**
+   * Get the items of this page
+   *
+   * @return The items
+   */
+  public List<T> getItems() {
+    return items;
+  }
+
+  /**
+   * Checks whether or not there may be a next page. Since the page is full, there may be more
+   * rows (or the next page is empty).
+   *
+   * @return true if the next page should be queried
+   */
+  public boolean hasNext() {
+    return next != null;
+  }
+
+  /**
+   * Get the cursor of the next page: the values of the sort columns of the last row of this page,
+   * to be passed to {@link com.hannesdorfmann.sqlbrite.dao.sql.select.SEEK}
+   *
+   * @return The values or null if this is the last page
+   */
+  @Nullable public Object[] getNext() {
+    return next == null ? null : next.clone();
+  }
+
+  @Override public String toString() {
+    return "Page[items=" + items.size() + ",hasNext=" + hasNext() + "]";
+  }
+}
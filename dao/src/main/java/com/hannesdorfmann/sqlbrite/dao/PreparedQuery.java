@@ -0,0 +1,135 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.support.annotation.CheckResult;
+import android.support.annotation.NonNull;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlCompileable;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlFinishedStatement;
+import com.squareup.sqlbrite.QueryObservable;
+import java.util.Collections;
+
+/**
+ * A query that is compiled only once and can be run many times with different arguments.
+ * Create it once (i.e. as a field of your {@link Dao}) with {@link Dao#prepare(SqlFinishedStatement)}
+ * and run it with {@link #run(Object...)}.
+ *
+ * <p>
+ * In contrast to {@link Dao.QueryBuilder#args(String...)} the arguments are bound with their sql
+ * type: {@link Long}, {@link Integer}, {@link Short}, {@link Byte} and {@link Boolean} as INTEGER,
+ * {@link Double} and {@link Float} as REAL, <code>byte[]</code> as BLOB and <code>null</code> as
+ * NULL. Everything else is bound as TEXT. Hence comparing an INTEGER column with an argument
+ * doesn't require a type conversion and an index on the column can be used.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public class PreparedQuery {
+
+  private final Dao dao;
+  private final String sql;
+  private final SqlCompileable.CompileableStatement statement;
+  private boolean autoUpdate = true;
+  private boolean observeColumns;
+  private RequeryPolicy requeryPolicy = RequeryPolicy.IMMEDIATE;
+  private Priority priority;
+
+  PreparedQuery(@NonNull Dao dao, @NonNull SqlFinishedStatement statement) {
+    if (statement == null) {
+      throw new NullPointerException("Statement is null!");
+    }
+
+    SqlCompileable.CompileableStatement compileableStatement = statement.asCompileableStatement();
+    this.dao = dao;
+    this.sql = compileableStatement.sql;
+    this.statement = compileableStatement;
+  }
+
+  /**
+   * Registers this query for automatically updates through SQLBrite. Per default this feature is
+   * enabled.
+   *
+   * @param autoUpdate true to enable, false to disable.
+   * @return The PreparedQuery itself
+   * @see Dao.QueryBuilder#autoUpdates(boolean)
+   */
+  public PreparedQuery autoUpdates(boolean autoUpdate) {
+    this.autoUpdate = autoUpdate;
+    return this;
+  }
+
+  /**
+   * Restricts the automatic updates of this query to changes of the columns it projects and
+   * filters on
+   *
+   * @return The PreparedQuery itself
+   * @see Dao.QueryBuilder#observeColumns()
+   */
+  public PreparedQuery observeColumns() {
+    this.observeColumns = true;
+    return this;
+  }
+
+  /**
+   * Specifies when this query is executed again after the observed tables have been changed.
+   *
+   * @param policy The policy
+   * @return The PreparedQuery itself
+   * @see Dao.QueryBuilder#requery(RequeryPolicy)
+   */
+  public PreparedQuery requery(@NonNull RequeryPolicy policy) {
+    if (policy == null) {
+      throw new NullPointerException("RequeryPolicy is null");
+    }
+    this.requeryPolicy = policy;
+    return this;
+  }
+
+  /**
+   * Set the {@link Priority} this query is executed with
+   *
+   * @param priority The priority
+   * @return The PreparedQuery itself
+   * @see Dao.QueryBuilder#priority(Priority)
+   */
+  public PreparedQuery priority(@NonNull Priority priority) {
+    if (priority == null) {
+      throw new NullPointerException("Priority is null");
+    }
+    this.priority = priority;
+    return this;
+  }
+
+  /**
+   * Get the compiled sql statement
+   *
+   * @return the sql
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * Executes the query with the given arguments and returns an {@code QueryObservable}. If the
+   * statement has been built with {@link com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression}s
+   * as well, the given arguments replace the "?" placeholders written into the statement as they
+   * are and are merged with the arguments of the expressions in order of their placeholders.
+   *
+   * @param args The arguments used to replace "?" in the query statement
+   * @return {@code QueryObservable}
+   */
+  @CheckResult public QueryObservable run(Object... args) {
+    Iterable<String> affectedTables;
+    if (!autoUpdate || statement.tables == null) {
+      affectedTables = Collections.<String>emptySet();
+    } else if (observeColumns && statement.columns != null) {
+      affectedTables = ChangeTriggers.observe(statement.tables, null, statement.columns);
+    } else {
+      affectedTables = statement.tables;
+    }
+
+    Object[] allArgs = statement.bindArgs(args);
+    QueryObservable query = dao.applyRequeryPolicy(
+        TypedQuery.createQuery(dao.db, affectedTables, sql, allArgs, true,
+            requeryPolicy != RequeryPolicy.IMMEDIATE), requeryPolicy, true);
+    return priority == null ? query : Dao.withPriority(priority, query);
+  }
+}
@@ -0,0 +1,31 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+/**
+ * The priority of queries (see {@link Dao.QueryBuilder#priority(Priority)} and {@link
+ * Dao#prioritize(Priority, rx.Observable)}) executed by the scheduler of the {@link DaoManager}.
+ * Waiting queries are executed in order of their priority, so that user visible queries don't
+ * wait for background work. To prevent starvation waiting queries are aged: a query of a lower
+ * priority that has been waiting for one aging interval (see {@link
+ * DaoManager.Builder#priorityAging(long, java.util.concurrent.TimeUnit)}) per priority level is
+ * executed before newer queries of a higher priority. Writes are always executed in the order
+ * they have been subscribed.
+ *
+ * @author Hannes Dorfmann
+ */
+public enum Priority {
+
+  /**
+   * Background work like synchronization or bulk reads
+   */
+  LOW,
+
+  /**
+   * The default priority
+   */
+  NORMAL,
+
+  /**
+   * Queries the user is waiting for
+   */
+  HIGH
+}
@@ -0,0 +1,331 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.MultipleAssignmentSubscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A {@link Scheduler} backed by a pool of threads that executes waiting work in order of its
+ * {@link Priority}. The priority of a {@link Worker} is the priority of the subscription it has
+ * been created by (see {@link #subscribe(Priority, Observable, Subscriber)}), {@link
+ * Priority#NORMAL} otherwise. Since operators like <code>observeOn()</code> and
+ * <code>subscribeOn()</code> create their worker when they get subscribed, a query subscribed
+ * with a high priority is executed with a high priority each time it's executed again.
+ *
+ * <p>
+ * Waiting work is ordered by a deadline: the time it has been queued minus one aging interval per
+ * priority level. Hence work of a lower priority is executed at the latest once it has been
+ * waiting one aging interval per priority level longer than work of a higher priority (no
+ * starvation). With an aging interval of 0 work is executed in the order it has been queued,
+ * whatever its priority. The time work has been waiting in the queue is recorded per priority by
+ * the {@link QueryStatistics}.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+final class PriorityScheduler extends Scheduler {
+
+  private static final ThreadLocal<Priority> SUBSCRIBING_PRIORITY = new ThreadLocal<>();
+
+  /**
+   * The source of the time work is queued and dequeued at
+   */
+  interface Clock {
+
+    /**
+     * The system clock
+     */
+    Clock SYSTEM = new Clock() {
+      @Override public long nanoTime() {
+        return System.nanoTime();
+      }
+    };
+
+    /**
+     * @return The current time in nanoseconds, only meaningful compared to other values returned
+     * by this clock
+     */
+    long nanoTime();
+  }
+
+  private final ThreadPoolExecutor executor;
+  private final long agingNanos;
+  private final QueryStatistics statistics;
+  private final Clock clock;
+  private final AtomicLong sequence = new AtomicLong();
+
+  /**
+   * @param name The name of the threads
+   * @param threads The number of threads
+   * @param aging The aging interval
+   * @param unit The time unit of the aging interval
+   * @param statistics Records the time work has been waiting
+   */
+  PriorityScheduler(String name, int threads, long aging, TimeUnit unit,
+      QueryStatistics statistics) {
+    this(name, threads, aging, unit, statistics, Clock.SYSTEM);
+  }
+
+  /**
+   * @param name The name of the threads
+   * @param threads The number of threads
+   * @param aging The aging interval
+   * @param unit The time unit of the aging interval
+   * @param statistics Records the time work has been waiting
+   * @param clock The clock the time work has been waiting is measured with
+   */
+  PriorityScheduler(final String name, int threads, long aging, TimeUnit unit,
+      QueryStatistics statistics, Clock clock) {
+    this.agingNanos = unit.toNanos(aging);
+    this.statistics = statistics;
+    this.clock = clock;
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override public Thread newThread(Runnable runnable) {
+        boolean single = PriorityScheduler.this.executor.getMaximumPoolSize() == 1;
+        Thread thread =
+            new Thread(runnable, single ? name : name + "-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Subscribes to the given observable. All workers of {@link PriorityScheduler}s created while
+   * subscribing (i.e. by <code>observeOn()</code> or <code>subscribeOn()</code>) get the given
+   * priority.
+   *
+   * @param priority The priority
+   * @param observable The observable to subscribe to
+   * @param subscriber The subscriber
+   */
+  static <T> void subscribe(Priority priority, Observable<T> observable,
+      Subscriber<? super T> subscriber) {
+    Priority previous = SUBSCRIBING_PRIORITY.get();
+    SUBSCRIBING_PRIORITY.set(priority);
+    try {
+      observable.unsafeSubscribe(subscriber);
+    } finally {
+      SUBSCRIBING_PRIORITY.set(previous);
+    }
+  }
+
+  /**
+   * Get the priority of the subscription in progress on the current thread
+   *
+   * @return The priority, {@link Priority#NORMAL} if no priority has been set
+   */
+  static Priority subscribingPriority() {
+    Priority priority = SUBSCRIBING_PRIORITY.get();
+    return priority == null ? Priority.NORMAL : priority;
+  }
+
+  @Override public Worker createWorker() {
+    return new PriorityWorker(subscribingPriority());
+  }
+
+  /**
+   * Changes the number of threads. Additional threads are started right away if there is work
+   * waiting, superfluous threads stop once they have finished their current work.
+   *
+   * @param threads The number of threads
+   */
+  void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads < 1");
+    }
+    synchronized (executor) {
+      if (threads > executor.getMaximumPoolSize()) {
+        executor.setMaximumPoolSize(threads);
+        executor.setCorePoolSize(threads);
+      } else {
+        executor.setCorePoolSize(threads);
+        executor.setMaximumPoolSize(threads);
+      }
+    }
+  }
+
+  /**
+   * Get the number of threads
+   *
+   * @return The number of threads
+   */
+  int getThreads() {
+    return executor.getMaximumPoolSize();
+  }
+
+  /**
+   * Stops the threads once the work already queued has been executed
+   */
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Queues the next action of a worker
+   */
+  private final class QueuedWorker implements Runnable, Comparable<QueuedWorker> {
+    private final PriorityWorker worker;
+    private final long queued;
+    private final long deadline;
+    private final long order;
+
+    QueuedWorker(PriorityWorker worker) {
+      this.worker = worker;
+      this.queued = clock.nanoTime();
+      this.deadline = queued - worker.priority.ordinal() * agingNanos;
+      this.order = sequence.getAndIncrement();
+    }
+
+    @Override public int compareTo(QueuedWorker other) {
+      // Compare the difference to be safe against overflow of nanoTime()
+      long diff = deadline - other.deadline;
+      if (diff != 0) {
+        return diff < 0 ? -1 : 1;
+      }
+      return order < other.order ? -1 : (order == other.order ? 0 : 1);
+    }
+
+    @Override public void run() {
+      statistics.queueWait(worker.priority, clock.nanoTime() - queued);
+      worker.runNext();
+    }
+  }
+
+  /**
+   * Executes its actions one after another. Only the next action of a worker waits in the queue
+   * of the executor, so that each action is dequeued according to the priority of the worker.
+   */
+  private final class PriorityWorker extends Worker {
+    final Priority priority;
+    private final CompositeSubscription subscriptions = new CompositeSubscription();
+    private final ConcurrentLinkedQueue<QueuedAction> actions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private Worker timer;
+
+    PriorityWorker(Priority priority) {
+      this.priority = priority;
+    }
+
+    @Override public Subscription schedule(Action0 action) {
+      if (isUnsubscribed()) {
+        return Subscriptions.unsubscribed();
+      }
+
+      QueuedAction queued = new QueuedAction(action);
+      subscriptions.add(queued);
+      actions.offer(queued);
+      if (wip.getAndIncrement() == 0) {
+        executor.execute(new QueuedWorker(this));
+      }
+      return queued;
+    }
+
+    @Override public Subscription schedule(final Action0 action, long delayTime, TimeUnit unit) {
+      if (delayTime <= 0) {
+        return schedule(action);
+      }
+      if (isUnsubscribed()) {
+        return Subscriptions.unsubscribed();
+      }
+
+      // Wait on a timer thread, then queue the action like any other
+      final MultipleAssignmentSubscription delayed = new MultipleAssignmentSubscription();
+      subscriptions.add(delayed);
+      delayed.set(timer().schedule(new Action0() {
+        @Override public void call() {
+          subscriptions.remove(delayed);
+          schedule(action);
+        }
+      }, delayTime, unit));
+      return delayed;
+    }
+
+    private synchronized Worker timer() {
+      if (timer == null) {
+        timer = Schedulers.computation().createWorker();
+        subscriptions.add(timer);
+      }
+      return timer;
+    }
+
+    void runNext() {
+      if (isUnsubscribed()) {
+        actions.clear();
+        return;
+      }
+
+      QueuedAction queued = actions.poll();
+      Throwable error = null;
+      try {
+        queued.run();
+      } catch (Throwable t) {
+        Exceptions.throwIfFatal(t);
+        error = t;
+      } finally {
+        subscriptions.remove(queued);
+      }
+
+      if (wip.decrementAndGet() > 0) {
+        executor.execute(new QueuedWorker(this));
+      }
+
+      if (error != null) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+      }
+    }
+
+    @Override public void unsubscribe() {
+      subscriptions.unsubscribe();
+      actions.clear();
+    }
+
+    @Override public boolean isUnsubscribed() {
+      return subscriptions.isUnsubscribed();
+    }
+  }
+
+  /**
+   * A scheduled action that can be unsubscribed before it runs
+   */
+  private static final class QueuedAction implements Subscription {
+    private final Action0 action;
+    private volatile boolean unsubscribed;
+
+    QueuedAction(Action0 action) {
+      this.action = action;
+    }
+
+    void run() {
+      if (!unsubscribed) {
+        action.call();
+      }
+    }
+
+    @Override public void unsubscribe() {
+      unsubscribed = true;
+    }
+
+    @Override public boolean isUnsubscribed() {
+      return unsubscribed;
+    }
+  }
+}
@@ -0,0 +1,523 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.BriteDatabase;
+import com.squareup.sqlbrite.BriteDatabaseBridge;
+import com.squareup.sqlbrite.QueryObservable;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Func1;
+
+/**
+ * A bounded in-memory cache of query results (see {@link Dao.QueryBuilder#cached(boolean)}) keyed
+ * by sql, arguments and observed tables. The rows of a result are copied into memory, so that
+ * subscribing to the same query again emits the cached rows immediately without querying the
+ * database. If the cache is full the least recently used result gets evicted.
+ *
+ * <p>
+ * A cached result is invalidated as soon as one of the tables observed by the query has been
+ * changed. An invalidated (stale) result is not used anymore, unless the query allows
+ * {@link Dao.QueryBuilder#staleWhileRevalidate(boolean)}: then the stale result is emitted
+ * immediately followed by the result of executing the query again.
+ * </p>
+ *
+ * <p>
+ * Changes made by the write methods of a {@link Dao} invalidate the cached results immediately.
+ * Within a transaction begun by a {@link Dao} (see {@link Dao#newTransaction()}), a {@link
+ * UnitOfWork} or a {@link WriteBehindQueue} they are invalidated again once the transaction has
+ * been ended, and results of queries observing the changed tables aren't cached until then, since
+ * a concurrent query may still read the rows as they have been before the commit.
+ * Changes made directly on the {@link BriteDatabase} invalidate the cached results when a query
+ * observing the changed tables gets notified, or immediately if the table triggers of SQLBrite are
+ * accessible (they aren't if SQLBrite has been obfuscated).
+ * </p>
+ *
+ * <p>
+ * The cache is shared by all {@link Dao}s of a {@link DaoManager} and cleared by {@link
+ * DaoManager#close()}.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public final class QueryCache {
+
+  /**
+   * A cached result
+   */
+  private static final class Entry {
+    final CursorSnapshot snapshot;
+    final long size;
+    boolean stale;
+
+    Entry(CursorSnapshot snapshot) {
+      this.snapshot = snapshot;
+      this.size = snapshot.estimateSize();
+    }
+  }
+
+  /**
+   * Executes the query again only if the cached result that has already been emitted has been
+   * invalidated in the meantime. Otherwise nothing is emitted (see
+   * {@link OperatorDropCanceledQuery})
+   */
+  private final class RevalidatingQuery extends SqlBrite.Query {
+    private final QueryKey key;
+    private final Entry entry;
+    private final SqlBrite.Query query;
+
+    RevalidatingQuery(QueryKey key, Entry entry, SqlBrite.Query query) {
+      this.key = key;
+      this.entry = entry;
+      this.query = query;
+    }
+
+    private boolean revalidated;
+
+    @Override public Cursor run() {
+      if (!revalidated) {
+        // Only the initial run may be skipped, running it again always executes the query
+        revalidated = true;
+        if (isValid(key, entry)) {
+          return null;
+        }
+      }
+      return new CachingQuery(key, query).run();
+    }
+  }
+
+  /**
+   * Emits the rows of a cached result
+   */
+  private static final class CachedQuery extends SqlBrite.Query {
+    private final CursorSnapshot snapshot;
+
+    CachedQuery(CursorSnapshot snapshot) {
+      this.snapshot = snapshot;
+    }
+
+    @Override public Cursor run() {
+      return snapshot.newCursor();
+    }
+  }
+
+  /**
+   * The triggers changed within the transactions begun by {@link #newTransaction()} on a thread
+   */
+  private static final class TransactionTriggers {
+    final Set<String> triggers = new HashSet<>();
+    int depth;
+  }
+
+  /**
+   * Executes the query and puts the result into the cache
+   */
+  private final class CachingQuery extends SqlBrite.Query {
+    private final QueryKey key;
+    private final SqlBrite.Query query;
+
+    CachingQuery(QueryKey key, SqlBrite.Query query) {
+      this.key = key;
+      this.query = query;
+    }
+
+    @Override public Cursor run() {
+      long generation = generation();
+      Cursor cursor = query.run();
+      if (cursor == null) {
+        return null;
+      }
+
+      CursorSnapshot snapshot;
+      try {
+        snapshot = new CursorSnapshot(cursor);
+      } finally {
+        cursor.close();
+      }
+
+      put(key, snapshot, generation);
+      return snapshot.newCursor();
+    }
+  }
+
+  private final BriteDatabase db;
+  private final int maxSize;
+  private final LinkedHashMap<QueryKey, Entry> entries;
+  private final ThreadLocal<TransactionTriggers> transactionTriggers = new ThreadLocal<>();
+  private final Map<String, Integer> uncommittedTriggers = new HashMap<>();
+  private final Subscription triggerSubscription;
+  private long generation;
+  private boolean closed;
+  private long estimatedSize;
+  private long hitCount;
+  private long staleHitCount;
+  private long missCount;
+  private long evictionCount;
+  private long invalidationCount;
+
+  QueryCache(BriteDatabase db, int maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("maxSize < 0");
+    }
+
+    this.db = db;
+    this.maxSize = maxSize;
+    Observable<Set<String>> triggers = maxSize == 0 ? null : BriteDatabaseBridge.getTriggers(db);
+    if (triggers != null) {
+      // Invalidate synchronously, before any query observing the changed tables runs again
+      triggerSubscription = triggers.subscribe(new Action1<Set<String>>() {
+        @Override public void call(Set<String> changed) {
+          invalidateEntries(changed);
+        }
+      });
+    } else {
+      // Only invalidated by the dao write methods and the queries observing the changed tables
+      triggerSubscription = null;
+    }
+
+    this.entries = new LinkedHashMap<QueryKey, Entry>(16, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<QueryKey, Entry> eldest) {
+        if (size() > QueryCache.this.maxSize) {
+          estimatedSize -= eldest.getValue().size;
+          evictionCount++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Wraps the given query: cached results are emitted immediately and results of executing the
+   * query are put into the cache. The queries emitted by the returned observable must be run when
+   * they are emitted (see {@link OperatorDropCanceledQuery}), a query returning null has to be
+   * dropped.
+   *
+   * @param key Identifies the query, the triggers of the key invalidate the cached result
+   * @param staleWhileRevalidate true if a stale result should be emitted before the query is
+   * executed again
+   * @param upstream The query to cache, emitting initially and whenever the triggers of the key
+   * have been changed
+   * @return The cached query
+   */
+  QueryObservable query(final QueryKey key, final boolean staleWhileRevalidate,
+      final QueryObservable upstream) {
+    if (maxSize == 0) {
+      return upstream;
+    }
+
+    return new QueryObservable(new Observable.OnSubscribe<SqlBrite.Query>() {
+      @Override public void call(Subscriber<? super SqlBrite.Query> subscriber) {
+        final Entry entry = get(key, staleWhileRevalidate);
+        final boolean valid = entry != null && !entry.stale;
+
+        Observable<SqlBrite.Query> queries =
+            upstream.map(new Func1<SqlBrite.Query, SqlBrite.Query>() {
+              private boolean initial = true;
+
+              @Override public SqlBrite.Query call(SqlBrite.Query query) {
+                if (initial) {
+                  initial = false;
+                  // A result that is still valid after subscribing makes the execution obsolete
+                  return valid ? new RevalidatingQuery(key, entry, query)
+                      : new CachingQuery(key, query);
+                }
+
+                // The observed tables have been changed (i.e. not by a dao)
+                invalidateEntries(key.triggers);
+                return new CachingQuery(key, query);
+              }
+            });
+
+        if (entry != null) {
+          queries = queries.startWith(new CachedQuery(entry.snapshot));
+        }
+
+        queries.unsafeSubscribe(subscriber);
+      }
+    });
+  }
+
+  private synchronized Entry get(QueryKey key, boolean acceptStale) {
+    Entry entry = entries.get(key);
+    if (entry == null || (entry.stale && !acceptStale)) {
+      missCount++;
+      return null;
+    }
+
+    hitCount++;
+    if (entry.stale) {
+      staleHitCount++;
+    }
+    return entry;
+  }
+
+  /**
+   * Checks if the given entry is still the valid cached result of the query
+   */
+  private synchronized boolean isValid(QueryKey key, Entry entry) {
+    return !entry.stale && entries.get(key) == entry;
+  }
+
+  private synchronized long generation() {
+    return generation;
+  }
+
+  private synchronized void put(QueryKey key, CursorSnapshot snapshot, long startGeneration) {
+    if (generation != startGeneration || closed) {
+      // Tables have been changed while the query has been executed (or the cache is closed)
+      return;
+    }
+    if (!uncommittedTriggers.isEmpty()
+        && intersects(key.triggers, uncommittedTriggers.keySet())) {
+      // The result may contain rows that are changed by a transaction in progress
+      return;
+    }
+
+    Entry entry = new Entry(snapshot);
+    Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      estimatedSize -= previous.size;
+    }
+    estimatedSize += entry.size;
+  }
+
+  /**
+   * Begins a transaction, whose changes invalidate the cached results again once the transaction
+   * has been ended. Use it instead of {@link BriteDatabase#newTransaction()} for transactions that
+   * may contain writes of a {@link Dao}.
+   *
+   * @return The transaction
+   */
+  BriteDatabase.Transaction newTransaction() {
+    final BriteDatabase.Transaction transaction = db.newTransaction();
+    if (maxSize == 0) {
+      return transaction;
+    }
+
+    TransactionTriggers current = transactionTriggers.get();
+    if (current == null) {
+      current = new TransactionTriggers();
+      transactionTriggers.set(current);
+    }
+    current.depth++;
+
+    return new BriteDatabase.Transaction() {
+      private boolean ended;
+
+      @Override public void end() {
+        if (ended) {
+          // Let SQLBrite report ending a transaction twice
+          transaction.end();
+          return;
+        }
+        ended = true;
+        try {
+          transaction.end();
+        } finally {
+          endTransaction();
+        }
+      }
+
+      @Override public void markSuccessful() {
+        transaction.markSuccessful();
+      }
+
+      @Override public boolean yieldIfContendedSafely() {
+        return transaction.yieldIfContendedSafely();
+      }
+
+      @Override public boolean yieldIfContendedSafely(long sleepAmount, TimeUnit sleepUnit) {
+        return transaction.yieldIfContendedSafely(sleepAmount, sleepUnit);
+      }
+
+      @Override public void close() {
+        end();
+      }
+    };
+  }
+
+  /**
+   * Invalidates the triggers changed within the outermost transaction of the current thread again
+   * once it has been ended (committed or rolled back)
+   */
+  private void endTransaction() {
+    TransactionTriggers current = transactionTriggers.get();
+    if (--current.depth > 0) {
+      return;
+    }
+    transactionTriggers.remove();
+
+    synchronized (this) {
+      for (String trigger : current.triggers) {
+        Integer count = uncommittedTriggers.get(trigger);
+        if (count == 1) {
+          uncommittedTriggers.remove(trigger);
+        } else {
+          uncommittedTriggers.put(trigger, count - 1);
+        }
+      }
+      invalidateEntries(current.triggers);
+    }
+  }
+
+  /**
+   * Invalidates the cached results observing one of the given tables. Called by the write methods
+   * of a {@link Dao} before the queries observing the tables get notified. Within a transaction
+   * begun by {@link #newTransaction()} the results are invalidated again once the transaction has
+   * been ended.
+   *
+   * @param changed The changed tables (and triggers, see {@link ChangeTriggers})
+   */
+  void invalidate(Set<String> changed) {
+    TransactionTriggers current = transactionTriggers.get();
+    synchronized (this) {
+      if (current != null) {
+        for (String trigger : changed) {
+          if (current.triggers.add(trigger)) {
+            Integer count = uncommittedTriggers.get(trigger);
+            uncommittedTriggers.put(trigger, count == null ? 1 : count + 1);
+          }
+        }
+      }
+      invalidateEntries(changed);
+    }
+  }
+
+  private synchronized void invalidateEntries(Set<String> changed) {
+    generation++;
+    for (Map.Entry<QueryKey, Entry> cached : entries.entrySet()) {
+      Entry entry = cached.getValue();
+      if (!entry.stale && intersects(cached.getKey().triggers, changed)) {
+        entry.stale = true;
+        invalidationCount++;
+      }
+    }
+  }
+
+  private static boolean intersects(Set<String> triggers, Set<String> changed) {
+    for (String trigger : triggers) {
+      if (changed.contains(trigger)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes all cached results and stops observing the database
+   */
+  synchronized void close() {
+    if (triggerSubscription != null) {
+      triggerSubscription.unsubscribe();
+    }
+    closed = true;
+    clear();
+  }
+
+  /**
+   * Removes all cached results
+   */
+  public synchronized void clear() {
+    entries.clear();
+    estimatedSize = 0;
+    generation++;
+  }
+
+  /**
+   * Get the maximum number of cached results. 0 if caching is disabled.
+   *
+   * @return max size
+   */
+  public int maxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get the number of cached results (including stale ones)
+   *
+   * @return size
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Get a rough estimation of the memory used by the cached results in bytes
+   *
+   * @return estimated size in bytes
+   */
+  public synchronized long estimatedSize() {
+    return estimatedSize;
+  }
+
+  /**
+   * Get the number of times a cached result has been emitted (including stale results)
+   *
+   * @return hit count
+   */
+  public synchronized long hitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Get the number of times a stale result has been emitted before executing the query again
+   *
+   * @return stale hit count
+   */
+  public synchronized long staleHitCount() {
+    return staleHitCount;
+  }
+
+  /**
+   * Get the number of times the query had to be executed because no (valid) result was cached
+   *
+   * @return miss count
+   */
+  public synchronized long missCount() {
+    return missCount;
+  }
+
+  /**
+   * Get the ratio of hits to all lookups
+   *
+   * @return hit ratio between 0 and 1
+   */
+  public synchronized double hitRatio() {
+    long lookups = hitCount + missCount;
+    return lookups == 0 ? 0 : (double) hitCount / lookups;
+  }
+
+  /**
+   * Get the number of results that have been evicted because the cache was full
+   *
+   * @return eviction count
+   */
+  public synchronized long evictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Get the number of results that have been invalidated by changes of the observed tables
+   *
+   * @return invalidation count
+   */
+  public synchronized long invalidationCount() {
+    return invalidationCount;
+  }
+
+  @Override public synchronized String toString() {
+    return String.format(
+        "QueryCache[maxSize=%d,size=%d,bytes=%d,hits=%d,staleHits=%d,misses=%d,evictions=%d,"
+            + "invalidations=%d,hitRate=%d%%]", maxSize, entries.size(), estimatedSize, hitCount,
+        staleHitCount, missCount, evictionCount, invalidationCount, (int) (100 * hitRatio()));
+  }
+}
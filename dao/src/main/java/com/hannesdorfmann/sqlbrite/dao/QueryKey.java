@@ -0,0 +1,57 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Identifies identical queries: same sql, arguments (including their type), observed tables,
+ * {@link RequeryPolicy} and whether or not unchanged results are skipped
+ *
+ * @author Hannes Dorfmann
+ */
+final class QueryKey {
+  final String sql;
+  final Object[] args;
+  final Set<String> triggers;
+  final RequeryPolicy policy;
+  final boolean skipUnchanged;
+
+  /**
+   * @param sql The sql query
+   * @param args The arguments or null
+   * @param triggers The observed tables
+   * @param policy The requery policy or null if not relevant
+   * @param skipUnchanged true if unchanged results are skipped
+   */
+  QueryKey(String sql, Object[] args, Set<String> triggers, RequeryPolicy policy,
+      boolean skipUnchanged) {
+    this.sql = sql;
+    this.args = args == null ? new Object[0] : args;
+    this.triggers = triggers;
+    this.policy = policy;
+    this.skipUnchanged = skipUnchanged;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof QueryKey)) {
+      return false;
+    }
+
+    QueryKey key = (QueryKey) o;
+    return sql.equals(key.sql) && policy == key.policy && skipUnchanged == key.skipUnchanged
+        && triggers.equals(key.triggers)
+        && Arrays.deepEquals(args, key.args);
+  }
+
+  @Override public int hashCode() {
+    int result = sql.hashCode();
+    result = 31 * result + Arrays.deepHashCode(args);
+    result = 31 * result + triggers.hashCode();
+    result = 31 * result + System.identityHashCode(policy);
+    result = 31 * result + (skipUnchanged ? 1 : 0);
+    return result;
+  }
+}
@@ -0,0 +1,120 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters about the queries executed by the {@link Dao}s of a {@link DaoManager} (see {@link
+ * DaoManager#getQueryStatistics()}).
+ *
+ * @author Hannes Dorfmann
+ */
+public final class QueryStatistics {
+
+  private final AtomicLong digestedResults = new AtomicLong();
+  private final AtomicLong unchangedResults = new AtomicLong();
+  private final AtomicLongArray queueWaitCounts = new AtomicLongArray(Priority.values().length);
+  private final AtomicLongArray queueWaitNanos = new AtomicLongArray(Priority.values().length);
+  private final AtomicLongArray maxQueueWaitNanos = new AtomicLongArray(Priority.values().length);
+
+  QueryStatistics() {
+  }
+
+  void resultDigested(boolean unchanged) {
+    digestedResults.incrementAndGet();
+    if (unchanged) {
+      unchangedResults.incrementAndGet();
+    }
+  }
+
+  void queueWait(Priority priority, long nanos) {
+    int i = priority.ordinal();
+    queueWaitCounts.incrementAndGet(i);
+    queueWaitNanos.addAndGet(i, nanos);
+    long max;
+    do {
+      max = maxQueueWaitNanos.get(i);
+    } while (nanos > max && !maxQueueWaitNanos.compareAndSet(i, max, nanos));
+  }
+
+  /**
+   * Get the number of results of queries with {@link
+   * Dao.QueryBuilder#skipUnchangedResults(boolean)} that have been compared with the previous
+   * result
+   *
+   * @return The number of compared results
+   */
+  public long digestedResultCount() {
+    return digestedResults.get();
+  }
+
+  /**
+   * Get the number of results of queries with {@link
+   * Dao.QueryBuilder#skipUnchangedResults(boolean)} that have not been emitted (and mapped)
+   * because they were equal to the previous result. This is the number of wasted re-queries
+   * avoided.
+   *
+   * @return The number of skipped results
+   */
+  public long unchangedResultCount() {
+    return unchangedResults.get();
+  }
+
+  /**
+   * Get the number of times queries or writes of the given priority have been waiting for a
+   * thread of the scheduler of the {@link DaoManager} (see {@link Priority})
+   *
+   * @param priority The priority
+   * @return The number of executions
+   */
+  public long queueWaitCount(Priority priority) {
+    return queueWaitCounts.get(priority.ordinal());
+  }
+
+  /**
+   * Get the total time queries or writes of the given priority have been waiting for a thread of
+   * the scheduler of the {@link DaoManager}
+   *
+   * @param priority The priority
+   * @param unit The time unit of the result
+   * @return The total waiting time
+   */
+  public long totalQueueWait(Priority priority, TimeUnit unit) {
+    return unit.convert(queueWaitNanos.get(priority.ordinal()), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Get the longest time a query or write of the given priority has been waiting for a thread of
+   * the scheduler of the {@link DaoManager}
+   *
+   * @param priority The priority
+   * @param unit The time unit of the result
+   * @return The maximum waiting time
+   */
+  public long maxQueueWait(Priority priority, TimeUnit unit) {
+    return unit.convert(maxQueueWaitNanos.get(priority.ordinal()), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Get the average time queries or writes of the given priority have been waiting for a thread
+   * of the scheduler of the {@link DaoManager}
+   *
+   * @param priority The priority
+   * @return The average waiting time in milliseconds
+   */
+  public double averageQueueWaitMillis(Priority priority) {
+    long count = queueWaitCount(priority);
+    return count == 0 ? 0 : queueWaitNanos.get(priority.ordinal()) / 1e6 / count;
+  }
+
+  @Override public String toString() {
+    StringBuilder waits = new StringBuilder();
+    for (Priority priority : Priority.values()) {
+      waits.append(String.format(",wait%s=%d/%.1fms/%dms", priority, queueWaitCount(priority),
+          averageQueueWaitMillis(priority), maxQueueWait(priority, TimeUnit.MILLISECONDS)));
+    }
+    return String.format("QueryStatistics[digested=%d,unchanged=%d%s]", digestedResults.get(),
+        unchangedResults.get(), waits);
+  }
+}
@@ -0,0 +1,175 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.support.annotation.NonNull;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.concurrent.TimeUnit;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Specifies when a query that observes tables (see {@link Dao.QueryBuilder#autoUpdates(boolean)})
+ * is executed again after the observed tables have been changed. Set it per query with {@link
+ * Dao.QueryBuilder#requery(RequeryPolicy)}.
+ *
+ * <ul>
+ * <li>{@link #IMMEDIATE}: Each change triggers a new execution of the query. This is the
+ * default and the behavior of SQLBrite.</li>
+ * <li>{@link #latest()}: Changes that happen while the query is executed are collapsed into
+ * exactly one more execution, once the running one is finished.</li>
+ * <li>{@link #debounce(long, TimeUnit)}: The query is executed again only if no further change
+ * happened within the given time window.</li>
+ * <li>{@link #throttle(long, TimeUnit)}: The query is executed again at most once per time
+ * window, with the latest change of the window.</li>
+ * </ul>
+ *
+ * <p>
+ * The first execution of a query is never delayed. Debounce and throttle imply {@link #latest()},
+ * so that changes during an execution result in at most one more execution.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public abstract class RequeryPolicy {
+
+  /**
+   * Each change of an observed table executes the query again
+   */
+  public static final RequeryPolicy IMMEDIATE = new RequeryPolicy() {
+    @Override Observable<SqlBrite.Query> apply(Observable<SqlBrite.Query> queries,
+        Scheduler scheduler) {
+      return queries;
+    }
+  };
+
+  private static final RequeryPolicy LATEST = new RequeryPolicy() {
+    @Override Observable<SqlBrite.Query> apply(Observable<SqlBrite.Query> queries,
+        Scheduler scheduler) {
+      return queries.lift(new OperatorLatestQuery(scheduler));
+    }
+  };
+
+  RequeryPolicy() {
+  }
+
+  /**
+   * Applies this policy
+   *
+   * @param queries The queries emitted by SQLBrite
+   * @param scheduler The scheduler the queries are executed on
+   * @return The queries to execute
+   */
+  abstract Observable<SqlBrite.Query> apply(Observable<SqlBrite.Query> queries,
+      Scheduler scheduler);
+
+  /**
+   * Changes that happen while the query is executed are dropped, except the latest one that
+   * causes exactly one more execution of the query, once the running execution is finished.
+   *
+   * @return The policy
+   */
+  public static RequeryPolicy latest() {
+    return LATEST;
+  }
+
+  /**
+   * The query is executed again only if no further change of the observed tables happened within
+   * the given time window.
+   *
+   * @param window The time window
+   * @param unit The time unit of the window
+   * @return The policy
+   */
+  public static RequeryPolicy debounce(long window, @NonNull TimeUnit unit) {
+    return debounce(window, unit, Schedulers.computation());
+  }
+
+  /**
+   * The query is executed again only if no further change of the observed tables happened within
+   * the given time window.
+   *
+   * @param window The time window
+   * @param unit The time unit of the window
+   * @param timer The scheduler used to measure the time window
+   * @return The policy
+   */
+  public static RequeryPolicy debounce(final long window, @NonNull final TimeUnit unit,
+      @NonNull final Scheduler timer) {
+    checkWindow(window, unit, timer);
+    return new TimedRequeryPolicy(new Func1<Observable<SqlBrite.Query>, Observable<SqlBrite.Query>>() {
+      @Override public Observable<SqlBrite.Query> call(Observable<SqlBrite.Query> changes) {
+        return changes.debounce(window, unit, timer);
+      }
+    });
+  }
+
+  /**
+   * The query is executed again at most once per time window with the latest change of the
+   * observed tables within this window.
+   *
+   * @param window The time window
+   * @param unit The time unit of the window
+   * @return The policy
+   */
+  public static RequeryPolicy throttle(long window, @NonNull TimeUnit unit) {
+    return throttle(window, unit, Schedulers.computation());
+  }
+
+  /**
+   * The query is executed again at most once per time window with the latest change of the
+   * observed tables within this window.
+   *
+   * @param window The time window
+   * @param unit The time unit of the window
+   * @param timer The scheduler used to measure the time window
+   * @return The policy
+   */
+  public static RequeryPolicy throttle(final long window, @NonNull final TimeUnit unit,
+      @NonNull final Scheduler timer) {
+    checkWindow(window, unit, timer);
+    return new TimedRequeryPolicy(new Func1<Observable<SqlBrite.Query>, Observable<SqlBrite.Query>>() {
+      @Override public Observable<SqlBrite.Query> call(Observable<SqlBrite.Query> changes) {
+        return changes.sample(window, unit, timer);
+      }
+    });
+  }
+
+  private static void checkWindow(long window, TimeUnit unit, Scheduler timer) {
+    if (window <= 0) {
+      throw new IllegalArgumentException("Time window must be greater than 0");
+    }
+    if (unit == null) {
+      throw new NullPointerException("TimeUnit == null");
+    }
+    if (timer == null) {
+      throw new NullPointerException("Scheduler == null");
+    }
+  }
+
+  /**
+   * Emits the first query (initial execution) immediately and applies the time based operator on
+   * the following ones (caused by changes)
+   */
+  private static final class TimedRequeryPolicy extends RequeryPolicy {
+
+    private final Func1<Observable<SqlBrite.Query>, Observable<SqlBrite.Query>> operator;
+
+    TimedRequeryPolicy(Func1<Observable<SqlBrite.Query>, Observable<SqlBrite.Query>> operator) {
+      this.operator = operator;
+    }
+
+    @Override Observable<SqlBrite.Query> apply(Observable<SqlBrite.Query> queries,
+        Scheduler scheduler) {
+      return queries.publish(
+          new Func1<Observable<SqlBrite.Query>, Observable<SqlBrite.Query>>() {
+            @Override
+            public Observable<SqlBrite.Query> call(Observable<SqlBrite.Query> shared) {
+              // Both subscribe to the shared queries before the first one is emitted, so that
+              // skip(1) drops exactly the initial execution and no change
+              return Observable.merge(shared.take(1), operator.call(shared.skip(1)));
+            }
+          }).lift(new OperatorLatestQuery(scheduler));
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.QueryObservable;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.HashMap;
+import java.util.Map;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Keeps track of the live shared queries (see {@link Dao.QueryBuilder#shared(boolean)}). Identical
+ * shared queries (same sql, arguments, observed tables and {@link RequeryPolicy}) share one
+ * underlying query: the query is executed only once per change of the observed tables, no matter
+ * how many subscribers there are. The rows are copied into memory once and each subscriber reads
+ * them with its own {@link Cursor}. A subscriber subscribing later gets the latest result
+ * immediately. The underlying query is unsubscribed once the last subscriber has unsubscribed.
+ *
+ * <p>
+ * All {@link Dao}s of a {@link DaoManager} share the same instance (see {@link
+ * DaoManager#getSharedQueries()}).
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public final class SharedQueries {
+
+  /**
+   * A live shared query
+   */
+  private final class Entry {
+    final QueryKey key;
+    final Observable<SqlBrite.Query> queries;
+    int subscribers;
+
+    Entry(QueryKey key, Observable<SqlBrite.Query> upstream) {
+      this.key = key;
+      this.queries = upstream.map(new Func1<SqlBrite.Query, SqlBrite.Query>() {
+        @Override public SqlBrite.Query call(SqlBrite.Query query) {
+          return new SnapshotQuery(query);
+        }
+      }).replay(1).refCount();
+    }
+  }
+
+  /**
+   * Executes the underlying query only once and gives each caller of {@link #run()} its own
+   * cursor on the copied rows
+   */
+  private static final class SnapshotQuery extends SqlBrite.Query {
+    private final SqlBrite.Query query;
+    private CursorSnapshot snapshot;
+    private boolean executed;
+
+    SnapshotQuery(SqlBrite.Query query) {
+      this.query = query;
+    }
+
+    @Override public synchronized Cursor run() {
+      if (!executed) {
+        Cursor cursor = query.run();
+        if (cursor != null) {
+          try {
+            snapshot = new CursorSnapshot(cursor);
+          } finally {
+            cursor.close();
+          }
+        }
+        executed = true;
+      }
+      return snapshot == null ? null : snapshot.newCursor();
+    }
+  }
+
+  private final Map<QueryKey, Entry> entries = new HashMap<>();
+
+  SharedQueries() {
+  }
+
+  /**
+   * Creates a query observable that shares the underlying query with all other identical queries
+   *
+   * @param key Identifies the query
+   * @param factory Creates the underlying query if there is no identical live query
+   * @return The query observable
+   */
+  QueryObservable query(final QueryKey key,
+      final Func0<? extends Observable<SqlBrite.Query>> factory) {
+    return new QueryObservable(new Observable.OnSubscribe<SqlBrite.Query>() {
+      @Override public void call(Subscriber<? super SqlBrite.Query> subscriber) {
+        final Entry entry;
+        synchronized (SharedQueries.this) {
+          Entry existing = entries.get(key);
+          if (existing == null) {
+            existing = new Entry(key, factory.call());
+            entries.put(key, existing);
+          }
+          existing.subscribers++;
+          entry = existing;
+        }
+
+        subscriber.add(Subscriptions.create(new Action0() {
+          @Override public void call() {
+            release(entry);
+          }
+        }));
+        entry.queries.unsafeSubscribe(subscriber);
+      }
+    });
+  }
+
+  private synchronized void release(Entry entry) {
+    entry.subscribers--;
+    if (entry.subscribers == 0 && entries.get(entry.key) == entry) {
+      entries.remove(entry.key);
+    }
+  }
+
+  /**
+   * Get the number of live shared queries (identical queries count as one)
+   *
+   * @return The number of shared queries
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Get the number of subscribers of all live shared queries
+   *
+   * @return The number of subscribers
+   */
+  public synchronized int subscriberCount() {
+    int count = 0;
+    for (Entry entry : entries.values()) {
+      count += entry.subscribers;
+    }
+    return count;
+  }
+
+  /**
+   * Get the number of subscribers of the live shared queries with the given sql (regardless of
+   * their arguments)
+   *
+   * @param sql The sql query
+   * @return The number of subscribers
+   */
+  public synchronized int subscriberCount(String sql) {
+    int count = 0;
+    for (Entry entry : entries.values()) {
+      if (entry.key.sql.equals(sql)) {
+        count += entry.subscribers;
+      }
+    }
+    return count;
+  }
+
+  @Override public synchronized String toString() {
+    return String.format("SharedQueries[queries=%d,subscribers=%d]", entries.size(),
+        subscriberCount());
+  }
+}
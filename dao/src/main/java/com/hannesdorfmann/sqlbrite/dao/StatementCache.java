@@ -0,0 +1,180 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.squareup.sqlbrite.BriteDatabase;
+import com.squareup.sqlbrite.BriteDatabaseBridge;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of compiled {@link SQLiteStatement}s keyed by their sql string, so that a sql
+ * statement has to be compiled only once. If the cache is full the least recently used statement
+ * gets evicted and closed. The cache is shared by all {@link Dao}s of a {@link DaoManager} and
+ * closed by {@link DaoManager#close()}.
+ *
+ * <p>
+ * A {@link SQLiteStatement} is not thread safe. Hence a statement is removed from the cache while
+ * it is in use and is put back into the cache once the execution is done.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public final class StatementCache {
+
+  /**
+   * A compiled statement and the database it has been compiled for
+   */
+  static final class Entry {
+    final String sql;
+    final SQLiteStatement statement;
+    final SQLiteDatabase database;
+
+    Entry(String sql, SQLiteStatement statement, SQLiteDatabase database) {
+      this.sql = sql;
+      this.statement = statement;
+      this.database = database;
+    }
+  }
+
+  private final BriteDatabase db;
+  private final int maxSize;
+  private final LinkedHashMap<String, Entry> statements;
+  private SQLiteDatabase database;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  StatementCache(BriteDatabase db, int maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("maxSize < 0");
+    }
+
+    this.db = db;
+    this.maxSize = maxSize;
+    this.statements = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        if (size() > StatementCache.this.maxSize) {
+          eldest.getValue().statement.close();
+          evictionCount++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Get the compiled statement for the given sql. The statement is compiled if it is not cached
+   * yet. You must call {@link #release(Entry)} once you are done with the statement.
+   *
+   * @param sql The sql statement
+   * @return The cache entry containing the compiled statement
+   */
+  Entry acquire(String sql) {
+    SQLiteDatabase current = BriteDatabaseBridge.getWritableDatabase(db);
+    synchronized (this) {
+      if (current != database) {
+        // Database has been closed and reopened in the meantime
+        closeStatements();
+        database = current;
+      }
+
+      Entry entry = statements.remove(sql);
+      if (entry != null) {
+        hitCount++;
+        return entry;
+      }
+      missCount++;
+    }
+
+    return new Entry(sql, current.compileStatement(sql), current);
+  }
+
+  /**
+   * Gives a statement acquired by {@link #acquire(String)} back to the cache
+   *
+   * @param entry The entry
+   */
+  void release(Entry entry) {
+    entry.statement.clearBindings();
+    synchronized (this) {
+      if (maxSize > 0 && entry.database == database && !statements.containsKey(entry.sql)) {
+        statements.put(entry.sql, entry);
+        return;
+      }
+    }
+
+    // Database has been closed or the same statement has been compiled concurrently
+    entry.statement.close();
+  }
+
+  /**
+   * Closes all cached statements
+   */
+  synchronized void close() {
+    closeStatements();
+    database = null;
+  }
+
+  private void closeStatements() {
+    Iterator<Entry> iterator = statements.values().iterator();
+    while (iterator.hasNext()) {
+      iterator.next().statement.close();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Get the maximum number of cached statements
+   *
+   * @return max size
+   */
+  public int maxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get the number of statements currently cached (and not in use)
+   *
+   * @return size
+   */
+  public synchronized int size() {
+    return statements.size();
+  }
+
+  /**
+   * Get the number of times a cached statement has been reused
+   *
+   * @return hit count
+   */
+  public synchronized long hitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Get the number of times a statement had to be compiled because it was not cached
+   *
+   * @return miss count
+   */
+  public synchronized long missCount() {
+    return missCount;
+  }
+
+  /**
+   * Get the number of statements that have been evicted (and closed) because the cache was full
+   *
+   * @return eviction count
+   */
+  public synchronized long evictionCount() {
+    return evictionCount;
+  }
+
+  @Override public synchronized String toString() {
+    long accesses = hitCount + missCount;
+    int hitPercent = accesses == 0 ? 0 : (int) (100 * hitCount / accesses);
+    return String.format("StatementCache[maxSize=%d,hits=%d,misses=%d,evictions=%d,hitRate=%d%%]",
+        maxSize, hitCount, missCount, evictionCount, hitPercent);
+  }
+}
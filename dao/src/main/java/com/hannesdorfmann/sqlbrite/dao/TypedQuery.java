@@ -0,0 +1,218 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.annotation.TargetApi;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQuery;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import com.squareup.sqlbrite.BriteDatabase;
+import com.squareup.sqlbrite.BriteDatabaseBridge;
+import com.squareup.sqlbrite.QueryObservable;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * A {@link SqlBrite.Query} that binds its arguments with their sql type instead of binding all
+ * arguments as strings (like {@link SQLiteDatabase#rawQuery(String, String[])} does). The
+ * arguments are bound by using {@link DatabaseUtils#bindObjectToProgram}:
+ * <ul>
+ * <li>{@link Long}, {@link Integer}, {@link Short} and {@link Byte} are bound as INTEGER</li>
+ * <li>{@link Boolean} is bound as INTEGER (1 or 0)</li>
+ * <li>{@link Double} and {@link Float} are bound as REAL</li>
+ * <li><code>byte[]</code> is bound as BLOB</li>
+ * <li><code>null</code> is bound as NULL</li>
+ * <li>everything else is bound as TEXT by calling {@link Object#toString()}</li>
+ * </ul>
+ *
+ * <p>
+ * On API 16 and higher the query can be canceled while it is executed (see {@link #cancel()}).
+ * A canceled execution returns <code>null</code> instead of a cursor. Such executions are dropped
+ * before the query is emitted to the subscriber (see {@link OperatorDropCanceledQuery}).
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+final class TypedQuery extends SqlBrite.Query implements SQLiteDatabase.CursorFactory {
+
+  private final BriteDatabase db;
+  private final String sql;
+  private final Object[] args;
+  private final List<Execution> executions = new ArrayList<>();
+  private boolean superseded;
+
+  TypedQuery(BriteDatabase db, String sql, Object[] args) {
+    this.db = db;
+    this.sql = sql;
+    this.args = args == null ? new Object[0] : args;
+  }
+
+  /**
+   * Creates a {@link QueryObservable} that runs the given sql with typed arguments. SQLBrite takes
+   * care of table triggers, transactions and the scheduler, only its query is replaced by a
+   * {@link TypedQuery}. Each subscriber gets its own query that is canceled if the subscriber
+   * unsubscribes while the query is executed.
+   *
+   * @param db The database
+   * @param tables The tables to observe
+   * @param sql The sql query
+   * @param args The arguments
+   * @param cancelOnUnsubscribe true to cancel the execution in progress on unsubscribe
+   * @param cancelOnChange true to cancel the execution in progress if one of the observed tables
+   * is changed, because the result is superseded by the next execution anyway (see {@link
+   * #supersede()})
+   * @return The query observable
+   */
+  static QueryObservable createQuery(final BriteDatabase db, final Iterable<String> tables,
+      final String sql, final Object[] args, final boolean cancelOnUnsubscribe,
+      final boolean cancelOnChange) {
+    final Observable<SqlBrite.Query> triggered = db.createQuery(tables, sql);
+    final Observable<Set<String>> triggers =
+        cancelOnChange && tables.iterator().hasNext() ? BriteDatabaseBridge.getTriggers(db)
+            : null;
+
+    return new QueryObservable(new Observable.OnSubscribe<SqlBrite.Query>() {
+      @Override public void call(Subscriber<? super SqlBrite.Query> subscriber) {
+        final TypedQuery query = new TypedQuery(db, sql, args);
+        if (cancelOnUnsubscribe) {
+          subscriber.add(Subscriptions.create(new Action0() {
+            @Override public void call() {
+              query.cancel();
+            }
+          }));
+        }
+
+        if (triggers != null) {
+          // Triggers are delivered synchronously by the thread that has changed the tables,
+          // while the execution in progress runs on the query scheduler
+          subscriber.add(triggers.subscribe(new Action1<Set<String>>() {
+            @Override public void call(Set<String> changed) {
+              for (String table : tables) {
+                if (changed.contains(table)) {
+                  query.supersede();
+                  return;
+                }
+              }
+            }
+          }));
+        }
+
+        triggered.map(new Func1<SqlBrite.Query, SqlBrite.Query>() {
+          @Override public SqlBrite.Query call(SqlBrite.Query ignored) {
+            return query;
+          }
+        }).unsafeSubscribe(subscriber);
+      }
+    });
+  }
+
+  @Override public Cursor run() {
+    SQLiteDatabase database = BriteDatabaseBridge.getReadableDatabase(db);
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+      BriteDatabaseBridge.log(db, "QUERY\n  sql: %s\n  args: %s", sql, Arrays.toString(args));
+      return database.rawQueryWithFactory(this, sql, null, null);
+    }
+
+    Execution execution;
+    synchronized (executions) {
+      // The execution following a superseded one runs to completion, despite further changes
+      execution = new Execution(!superseded);
+      superseded = false;
+      executions.add(execution);
+    }
+    try {
+      BriteDatabaseBridge.log(db, "QUERY\n  sql: %s\n  args: %s", sql, Arrays.toString(args));
+      Cursor cursor = execution.run(database);
+      if (cursor == null) {
+        BriteDatabaseBridge.log(db, "CANCEL QUERY\n  sql: %s", sql);
+      }
+      return cursor;
+    } finally {
+      synchronized (executions) {
+        executions.remove(execution);
+      }
+    }
+  }
+
+  /**
+   * Cancels the executions of this query in progress. They return <code>null</code> instead of a
+   * cursor. Executions started afterwards are not affected. Has no effect below API 16.
+   */
+  void cancel() {
+    synchronized (executions) {
+      for (Execution execution : executions) {
+        execution.cancel();
+      }
+    }
+  }
+
+  /**
+   * Cancels the executions of this query in progress because an observed table has been changed,
+   * except an execution that follows a superseded one. Otherwise changes that happen faster than
+   * the query is executed would cancel every execution and no result would be emitted at all.
+   * Has no effect below API 16.
+   */
+  void supersede() {
+    synchronized (executions) {
+      for (Execution execution : executions) {
+        if (execution.supersedable) {
+          execution.cancel();
+          superseded = true;
+        }
+      }
+    }
+  }
+
+  @Override public Cursor newCursor(SQLiteDatabase database, SQLiteCursorDriver masterQuery,
+      String editTable, SQLiteQuery query) {
+    for (int i = 0; i < args.length; i++) {
+      DatabaseUtils.bindObjectToProgram(query, i + 1, args[i]);
+    }
+    return new SQLiteCursor(masterQuery, editTable, query);
+  }
+
+  /**
+   * An execution of the query that can be canceled until the first window of its cursor has been
+   * filled, i.e. while SQLite executes the query
+   */
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN) private final class Execution {
+    private final CancellationSignal signal = new CancellationSignal();
+    final boolean supersedable;
+
+    Execution(boolean supersedable) {
+      this.supersedable = supersedable;
+    }
+
+    Cursor run(SQLiteDatabase database) {
+      Cursor cursor = null;
+      try {
+        cursor = database.rawQueryWithFactory(TypedQuery.this, sql, null, null, signal);
+        // Runs the query: steps through the result and fills the first cursor window
+        cursor.getCount();
+        return cursor;
+      } catch (OperationCanceledException e) {
+        if (cursor != null) {
+          cursor.close();
+        }
+        return null;
+      }
+    }
+
+    void cancel() {
+      signal.cancel();
+    }
+  }
+}
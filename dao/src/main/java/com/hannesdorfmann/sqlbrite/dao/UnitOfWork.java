@@ -0,0 +1,103 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import com.squareup.sqlbrite.BriteDatabase;
+import com.squareup.sqlbrite.BriteDatabaseBridge;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A unit of work spans the changes of multiple {@link Dao}s of the same {@link DaoManager} in a
+ * single database transaction. The tables changed within the unit of work are collected and the
+ * queries observing them are notified only once, when the unit of work is committed, with the
+ * deduplicated set of all changed tables. No notification is sent if the unit of work is rolled
+ * back.
+ *
+ * <pre>
+ * UnitOfWork work = daoManager.newUnitOfWork();
+ * try {
+ *   customerDao.insert(customer).toBlocking().first();
+ *   addressDao.insert(address).toBlocking().first();
+ *   work.markSuccessful();
+ * } finally {
+ *   work.end();
+ * }
+ * </pre>
+ *
+ * <p>
+ * Like a SQLBrite transaction a unit of work is bound to the thread that has created it. Changes
+ * executed on another thread (i.e. by subscribing on another scheduler) are not part of it.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ * @see DaoManager#newUnitOfWork()
+ * @see DaoManager#runInTransaction(rx.functions.Func0)
+ */
+public final class UnitOfWork implements Closeable {
+
+  private final BriteDatabase db;
+  private final BriteDatabase.Transaction transaction;
+  private final Set<String> changedTables = new LinkedHashSet<>();
+  private boolean successful;
+  private boolean ended;
+
+  UnitOfWork(BriteDatabase db, QueryCache queryCache) {
+    this.db = db;
+    this.transaction = queryCache.newTransaction();
+  }
+
+  /**
+   * Marks this unit of work as successful. The changes are committed when calling {@link #end()}.
+   */
+  public void markSuccessful() {
+    successful = true;
+    transaction.markSuccessful();
+  }
+
+  /**
+   * Get the tables that have been changed within this unit of work so far. Changes of a nested
+   * transaction are taken into account once the nested transaction has been ended.
+   *
+   * @return The changed tables
+   */
+  public Set<String> getChangedTables() {
+    if (!ended) {
+      Set<String> tables = BriteDatabaseBridge.getTransactionTables(db);
+      if (tables != null) {
+        for (String table : tables) {
+          if (ChangeTriggers.isTable(table)) {
+            changedTables.add(table);
+          }
+        }
+      }
+    }
+    return Collections.unmodifiableSet(changedTables);
+  }
+
+  /**
+   * Ends this unit of work. The changes are committed (and the queries observing the changed
+   * tables notified) if {@link #markSuccessful()} has been called before, otherwise all changes
+   * are rolled back.
+   */
+  public void end() {
+    if (ended) {
+      return;
+    }
+
+    getChangedTables();
+    ended = true;
+    transaction.end();
+
+    if (!successful) {
+      changedTables.clear();
+    }
+  }
+
+  /**
+   * Same as {@link #end()}
+   */
+  @Override public void close() {
+    end();
+  }
+}
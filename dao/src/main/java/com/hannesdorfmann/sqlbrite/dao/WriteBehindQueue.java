@@ -0,0 +1,291 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.support.annotation.NonNull;
+import com.squareup.sqlbrite.BriteDatabase;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import rx.Observable;
+import rx.Scheduler;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.subjects.ReplaySubject;
+
+/**
+ * Executes writes asynchronously ("write behind"): {@link #enqueue(Observable)} returns
+ * immediately and the queued writes are committed as a group within one transaction, either once
+ * {@code maxBatchSize} writes are queued or {@code maxDelay} after the first write has been
+ * queued, whatever comes first. Since all writes of a group are committed by one transaction,
+ * queries observing the changed tables get notified only once per group. Create a queue with
+ * {@link DaoManager#newWriteBehindQueue(int, int, long, TimeUnit)}.
+ *
+ * <pre>
+ * Observable&lt;Long&gt; id = queue.enqueue(eventDao.insert(event));
+ * </pre>
+ *
+ * <p>
+ * The returned observable emits the result of the write after the group has been committed (or
+ * the error, if the write or the commit failed), no matter if or when it is subscribed. A write
+ * that fails doesn't affect the other writes of its group. The writes are executed on the write
+ * scheduler (see {@link DaoManager.Builder#writeScheduler(Scheduler)}) within the transaction,
+ * so a write must be executed synchronously by the subscribing thread, like the insert, update
+ * and delete observables of a {@link Dao} are.
+ * </p>
+ *
+ * <p>
+ * The queue is bounded: if {@code capacity} writes are queued, {@link #enqueue(Observable)} blocks
+ * and commits the queued writes on the calling thread before the write is queued. Queued writes
+ * are not durable until they have been committed. Call {@link #flush()} to commit them, i.e.
+ * before the app goes to background. {@link DaoManager#close()} flushes all queues.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public final class WriteBehindQueue {
+
+  /**
+   * A queued write
+   */
+  private static final class Write<T> {
+    final Observable<T> write;
+    final ReplaySubject<T> result = ReplaySubject.create();
+    List<T> values;
+    Throwable error;
+
+    Write(Observable<T> write) {
+      this.write = write;
+    }
+
+    void execute() {
+      try {
+        values = write.toList().toBlocking().single();
+      } catch (Throwable t) {
+        Exceptions.throwIfFatal(t);
+        error = t;
+      }
+    }
+
+    void publish(Throwable commitError) {
+      Throwable e = commitError != null ? commitError : error;
+      if (e != null) {
+        result.onError(e);
+        return;
+      }
+      for (T value : values) {
+        result.onNext(value);
+      }
+      result.onCompleted();
+    }
+  }
+
+  private final QueryCache queryCache;
+  private final Scheduler.Worker worker;
+  private final int capacity;
+  private final int maxBatchSize;
+  private final long maxDelay;
+  private final TimeUnit unit;
+  private final Object flushLock = new Object();
+  private final ArrayDeque<Write<?>> queue = new ArrayDeque<>();
+  private boolean flushScheduled;
+  private boolean closed;
+  private long writeCount;
+  private long failedWriteCount;
+  private long flushCount;
+
+  private final Action0 flushAction = new Action0() {
+    @Override public void call() {
+      flush();
+    }
+  };
+
+  private final Action0 delayedFlushAction = new Action0() {
+    @Override public void call() {
+      synchronized (WriteBehindQueue.this) {
+        flushScheduled = false;
+      }
+      flush();
+    }
+  };
+
+  WriteBehindQueue(QueryCache queryCache, Scheduler scheduler, int capacity, int maxBatchSize,
+      long maxDelay, TimeUnit unit) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be greater than 0");
+    }
+    if (maxBatchSize < 1 || maxBatchSize > capacity) {
+      throw new IllegalArgumentException(
+          "Max batch size must be greater than 0 and not greater than the capacity");
+    }
+    if (maxDelay < 0) {
+      throw new IllegalArgumentException("Max delay must not be negative");
+    }
+    if (unit == null) {
+      throw new NullPointerException("unit == null");
+    }
+
+    this.queryCache = queryCache;
+    this.worker = scheduler.createWorker();
+    this.capacity = capacity;
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelay = maxDelay;
+    this.unit = unit;
+  }
+
+  /**
+   * Queues the given write. Blocks and commits the queued writes on the calling thread if the
+   * queue is full.
+   *
+   * @param write The write, like the observable returned by {@link Dao#insert(String,
+   * android.content.ContentValues)}. It must not be subscribed.
+   * @return An observable emitting the result of the write once it has been committed
+   */
+  public <T> Observable<T> enqueue(@NonNull Observable<T> write) {
+    if (write == null) {
+      throw new NullPointerException("write == null");
+    }
+
+    Write<T> queued = new Write<>(write);
+    while (true) {
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("WriteBehindQueue has been closed");
+        }
+
+        if (queue.size() < capacity) {
+          queue.add(queued);
+          if (queue.size() == maxBatchSize) {
+            worker.schedule(flushAction);
+          } else if (!flushScheduled) {
+            flushScheduled = true;
+            worker.schedule(delayedFlushAction, maxDelay, unit);
+          }
+          return queued.result.asObservable();
+        }
+      }
+
+      // Queue is full: commit the queued writes on this thread
+      flush();
+    }
+  }
+
+  /**
+   * Commits all queued writes on the calling thread. Blocks until all writes queued before have
+   * been committed.
+   */
+  public void flush() {
+    synchronized (flushLock) {
+      while (true) {
+        List<Write<?>> group;
+        synchronized (this) {
+          if (queue.isEmpty()) {
+            return;
+          }
+          group = new ArrayList<>(Math.min(queue.size(), maxBatchSize));
+          while (group.size() < maxBatchSize && !queue.isEmpty()) {
+            group.add(queue.poll());
+          }
+        }
+        commit(group);
+      }
+    }
+  }
+
+  /**
+   * Executes the writes within one transaction and publishes the results after the commit
+   */
+  private void commit(List<Write<?>> group) {
+    Throwable commitError = null;
+    try {
+      BriteDatabase.Transaction transaction = queryCache.newTransaction();
+      try {
+        for (Write<?> write : group) {
+          write.execute();
+        }
+        transaction.markSuccessful();
+      } finally {
+        transaction.end();
+      }
+    } catch (RuntimeException e) {
+      commitError = e;
+    }
+
+    synchronized (this) {
+      for (Write<?> write : group) {
+        if (commitError == null && write.error == null) {
+          writeCount++;
+        } else {
+          failedWriteCount++;
+        }
+      }
+      if (commitError == null) {
+        flushCount++;
+      }
+    }
+
+    for (Write<?> write : group) {
+      write.publish(commitError);
+    }
+  }
+
+  /**
+   * Commits all queued writes and rejects further writes
+   */
+  void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    flush();
+    worker.unsubscribe();
+  }
+
+  /**
+   * Get the maximum number of queued writes
+   *
+   * @return capacity
+   */
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the number of writes waiting to be committed
+   *
+   * @return size
+   */
+  public synchronized int size() {
+    return queue.size();
+  }
+
+  /**
+   * Get the number of writes that have been committed
+   *
+   * @return write count
+   */
+  public synchronized long writeCount() {
+    return writeCount;
+  }
+
+  /**
+   * Get the number of writes that have failed
+   *
+   * @return failed write count
+   */
+  public synchronized long failedWriteCount() {
+    return failedWriteCount;
+  }
+
+  /**
+   * Get the number of committed groups, i.e. transactions
+   *
+   * @return flush count
+   */
+  public synchronized long flushCount() {
+    return flushCount;
+  }
+
+  @Override public synchronized String toString() {
+    return String.format("WriteBehindQueue[capacity=%d,size=%d,writes=%d,failed=%d,flushes=%d]",
+        capacity, queue.size(), writeCount, failedWriteCount, flushCount);
+  }
+}
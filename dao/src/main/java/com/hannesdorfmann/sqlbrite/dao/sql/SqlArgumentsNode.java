@@ -0,0 +1,17 @@
+package com.hannesdorfmann.sqlbrite.dao.sql;
+
+/**
+ * A {@link SqlNode} that contains "?" placeholders and the arguments that replace them. The
+ * arguments of all nodes are collected in the same order as the nodes appear in the sql string.
+ *
+ * @author Hannes Dorfmann
+ */
+public interface SqlArgumentsNode extends SqlNode {
+
+  /**
+   * Get the arguments of this node. <b>Do not modify the returned array</b>
+   *
+   * @return The arguments, an empty array if this node has no arguments
+   */
+  Object[] getArguments();
+}
@@ -0,0 +1,124 @@
+package com.hannesdorfmann.sqlbrite.dao.sql;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Extracts the columns referenced by a sql fragment. Each identifier in the fragment is treated as
+ * column name, so the result may contain more names than columns (like keywords or table names),
+ * but never less. A fragment containing <code>*</code> (except <code>COUNT(*)</code>) references
+ * unknown columns.
+ *
+ * <p>
+ * This class is used internally by {@link SqlColumnsNode}s and is not part of the public api.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public final class SqlColumns {
+
+  private SqlColumns() {
+  }
+
+  /**
+   * Get the columns referenced by the given sql fragment
+   *
+   * @param sql The sql fragment
+   * @return The lower case column names or null if the columns are not known
+   */
+  public static Set<String> parse(String sql) {
+    if (sql == null) {
+      return Collections.emptySet();
+    }
+
+    Set<String> columns = new HashSet<>();
+    int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+
+      if (c == '\'') {
+        // String literal
+        i = skipQuoted(sql, i, '\'');
+      } else if (c == '"' || c == '`' || c == '[') {
+        // Quoted identifier
+        int end = skipQuoted(sql, i, c == '[' ? ']' : c);
+        columns.add(sql.substring(i + 1, Math.max(i + 1, end - 1)).toLowerCase(Locale.US));
+        i = end;
+      } else if (Character.isLetter(c) || c == '_') {
+        int start = i;
+        while (i < length && isIdentifierPart(sql.charAt(i))) {
+          i++;
+        }
+        columns.add(sql.substring(start, i).toLowerCase(Locale.US));
+      } else if (Character.isDigit(c)) {
+        // Number literal
+        while (i < length && (isIdentifierPart(sql.charAt(i)) || sql.charAt(i) == '.')) {
+          i++;
+        }
+      } else if (c == '*') {
+        if (!isCountAll(sql, i)) {
+          return null;
+        }
+        i++;
+      } else {
+        i++;
+      }
+    }
+
+    return columns;
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  /**
+   * Get the index after the closing quote
+   */
+  private static int skipQuoted(String sql, int start, char quote) {
+    int i = start + 1;
+    while (i < sql.length()) {
+      if (sql.charAt(i) == quote) {
+        if (quote != ']' && i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+          // Escaped quote
+          i += 2;
+          continue;
+        }
+        return i + 1;
+      }
+      i++;
+    }
+    return sql.length();
+  }
+
+  /**
+   * Checks if the <code>*</code> at the given index is part of <code>COUNT(*)</code>
+   */
+  private static boolean isCountAll(String sql, int star) {
+    int before = star - 1;
+    while (before >= 0 && Character.isWhitespace(sql.charAt(before))) {
+      before--;
+    }
+    if (before < 0 || sql.charAt(before) != '(') {
+      return false;
+    }
+
+    int after = star + 1;
+    while (after < sql.length() && Character.isWhitespace(sql.charAt(after))) {
+      after++;
+    }
+    if (after >= sql.length() || sql.charAt(after) != ')') {
+      return false;
+    }
+
+    before--;
+    while (before >= 0 && Character.isWhitespace(sql.charAt(before))) {
+      before--;
+    }
+    return before >= 4 && sql.regionMatches(true, before - 4, "COUNT", 0, 5)
+        && (before - 5 < 0 || !isIdentifierPart(sql.charAt(before - 5)));
+  }
+}
@@ -0,0 +1,22 @@
+package com.hannesdorfmann.sqlbrite.dao.sql;
+
+import java.util.Set;
+
+/**
+ * A {@link SqlNode} that knows the columns it projects or filters on. If all nodes of a statement
+ * are {@link SqlColumnsNode}s the columns are collected while compiling the statement (see {@link
+ * SqlCompileable.CompileableStatement#columns}), so that a query is executed again only if one of
+ * these columns has been changed.
+ *
+ * @author Hannes Dorfmann
+ */
+public interface SqlColumnsNode extends SqlNode {
+
+  /**
+   * Get the (lower case) names of the columns referenced by this node
+   *
+   * @return The columns, an empty set if this node doesn't reference columns or null if the
+   * columns are not known (like <code>SELECT *</code>)
+   */
+  Set<String> getReferencedColumns();
+}
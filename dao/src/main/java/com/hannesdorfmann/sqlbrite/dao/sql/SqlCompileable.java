@@ -11,12 +11,86 @@ import java.util.Set;
 public interface SqlCompileable {
 
   class CompileableStatement {
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final int[] NO_PLACEHOLDERS = new int[0];
+
     public String sql;
     public Set<String> tables;
 
+    /**
+     * The arguments replacing the "?" placeholders in the sql string (see {@link
+     * SqlArgumentsNode}). Never null.
+     */
+    public Object[] args;
+
+    /**
+     * The (lower case) columns the statement projects or filters on (see {@link SqlColumnsNode}) or
+     * null if not known. Might contain more names than columns, but never less.
+     */
+    public Set<String> columns;
+
+    /**
+     * The "?" placeholders written into the sql string as they are (like in <code>WHERE("id =
+     * ?")</code>) instead of being replaced by {@link #args}. Each entry is the number of {@link
+     * #args} preceding such a placeholder in the sql string, in ascending order. Never null.
+     */
+    public int[] rawPlaceholders;
+
     public CompileableStatement(String sql, Set<String> tables) {
+      this(sql, tables, NO_ARGS);
+    }
+
+    public CompileableStatement(String sql, Set<String> tables, Object[] args) {
+      this(sql, tables, args, null);
+    }
+
+    public CompileableStatement(String sql, Set<String> tables, Object[] args,
+        Set<String> columns) {
+      this(sql, tables, args, columns, null);
+    }
+
+    public CompileableStatement(String sql, Set<String> tables, Object[] args,
+        Set<String> columns, int[] rawPlaceholders) {
       this.sql = sql;
       this.tables = tables;
+      this.args = args == null ? NO_ARGS : args;
+      this.columns = columns;
+      this.rawPlaceholders = rawPlaceholders == null ? NO_PLACEHOLDERS : rawPlaceholders;
+    }
+
+    /**
+     * Merges the given arguments for the raw placeholders (see {@link #rawPlaceholders}) with the
+     * arguments of the statement, in the order the placeholders appear in the sql string.
+     * Arguments exceeding the raw placeholders are appended.
+     *
+     * @param rawArgs The arguments replacing the raw placeholders or null
+     * @return All arguments in order of the placeholders
+     */
+    public Object[] bindArgs(Object[] rawArgs) {
+      if (rawArgs == null || rawArgs.length == 0) {
+        return args;
+      }
+
+      Object[] all = new Object[args.length + rawArgs.length];
+      int arg = 0;
+      int raw = 0;
+      int i = 0;
+      for (int preceding : rawPlaceholders) {
+        if (raw == rawArgs.length) {
+          break;
+        }
+        while (arg < preceding) {
+          all[i++] = args[arg++];
+        }
+        all[i++] = rawArgs[raw++];
+      }
+      while (arg < args.length) {
+        all[i++] = args[arg++];
+      }
+      while (raw < rawArgs.length) {
+        all[i++] = rawArgs[raw++];
+      }
+      return all;
     }
   }
 
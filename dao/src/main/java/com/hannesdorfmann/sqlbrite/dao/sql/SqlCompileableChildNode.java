@@ -1,36 +1,138 @@
 package com.hannesdorfmann.sqlbrite.dao.sql;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+/**
+ * The abstract implementation of a {@link SqlCompileable} {@link SqlChildNode}. Since the nodes
+ * are immutable the sql string and the affected tables are compiled only once, when {@link
+ * #asCompileableStatement()} is called the first time. Hence you can keep a statement as
+ * <code>static final</code> constant and reuse it for each query.
+ *
+ * @author Hannes Dorfmann
+ */
 public abstract class SqlCompileableChildNode extends SqlChildNode implements SqlCompileable {
 
+  private volatile CompileableStatement compiled;
+
   public SqlCompileableChildNode(SqlNode previous) {
     super(previous);
   }
 
   @Override public CompileableStatement asCompileableStatement() {
+    CompileableStatement statement = compiled;
+    if (statement == null) {
+      statement = compile();
+      compiled = statement;
+    }
+    return statement;
+  }
 
-    StringBuilder builder = new StringBuilder(getSql());
+  /**
+   * Compiles the chain of {@link SqlNode}s ending with this node. This method is called only once.
+   *
+   * @return The compiled statement
+   */
+  protected CompileableStatement compile() {
 
-    Set<String> affectedTables = new HashSet<>();
-    Set<String> tables = getAffectedTables();
-    if (tables != null) {
-      affectedTables.addAll(tables);
+    int count = 0;
+    for (SqlNode node = this; node != null; node = node.getPrevious()) {
+      count++;
     }
 
-    SqlNode pre = previous;
+    SqlNode[] nodes = new SqlNode[count];
+    for (SqlNode node = this; node != null; node = node.getPrevious()) {
+      nodes[--count] = node;
+    }
 
-    // iterate over the SqlNodes
-    while (pre != null) {
-      tables = pre.getAffectedTables();
+    // Build the sql string front-to-back, starting at the root node
+    StringBuilder builder = new StringBuilder(32 * nodes.length);
+    Set<String> affectedTables = new HashSet<>();
+    List<Object> args = null;
+    List<Integer> rawPlaceholders = null;
+    Set<String> columns = new HashSet<>();
+    for (SqlNode node : nodes) {
+      int start = builder.length();
+      node.buildSql(builder);
+      Set<String> tables = node.getAffectedTables();
       if (tables != null) {
         affectedTables.addAll(tables);
       }
-      pre.buildSql(builder);
-      pre = pre.getPrevious();
+
+      // Arguments are collected in the same order as the placeholders appear in the sql
+      Object[] nodeArgs =
+          node instanceof SqlArgumentsNode ? ((SqlArgumentsNode) node).getArguments() : null;
+      if (nodeArgs != null && nodeArgs.length > 0) {
+        if (args == null) {
+          args = new ArrayList<>(nodeArgs.length);
+        }
+        Collections.addAll(args, nodeArgs);
+      } else {
+        // The placeholders of a node without arguments are bound with the query arguments
+        int preceding = args == null ? 0 : args.size();
+        for (int i = nextPlaceholder(builder, start); i >= 0; i = nextPlaceholder(builder, i + 1)) {
+          if (rawPlaceholders == null) {
+            rawPlaceholders = new ArrayList<>();
+          }
+          rawPlaceholders.add(preceding);
+        }
+      }
+
+      // The columns are only known if each node knows its columns
+      if (columns != null) {
+        Set<String> nodeColumns = node instanceof SqlColumnsNode
+            ? ((SqlColumnsNode) node).getReferencedColumns() : null;
+        if (nodeColumns == null) {
+          columns = null;
+        } else {
+          columns.addAll(nodeColumns);
+        }
+      }
     }
 
-    return new CompileableStatement(builder.toString(), affectedTables);
+    return new CompileableStatement(builder.toString(),
+        Collections.unmodifiableSet(affectedTables), args == null ? null : args.toArray(),
+        columns == null ? null : Collections.unmodifiableSet(columns), toArray(rawPlaceholders));
+  }
+
+  /**
+   * Finds the next "?" placeholder of the given sql string, skipping quoted strings and
+   * identifiers
+   *
+   * @param sql The sql string
+   * @param from The index to start at, which must not be within quotes
+   * @return The index of the placeholder or -1 if there is none
+   */
+  static int nextPlaceholder(CharSequence sql, int from) {
+    char quote = 0;
+    for (int i = from; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '[') {
+        quote = ']';
+      } else if (c == '?') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static int[] toArray(List<Integer> list) {
+    if (list == null) {
+      return null;
+    }
+    int[] array = new int[list.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    return array;
   }
 }
@@ -1,21 +1,92 @@
 package com.hannesdorfmann.sqlbrite.dao.sql;
 
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 
 /**
- * The abstract implementation of a {@link SqlExecuteCompileable}
+ * The abstract implementation of a {@link SqlExecuteCompileable}. Statements executed this way
+ * are schema statements (like <code>CREATE VIEW ... AS SELECT ...</code>) that SQLite doesn't allow
+ * to have bound parameters, so the arguments (see {@link SqlArgumentsNode}) are inlined as sql
+ * literals instead of being bound.
  *
  * @author Hannes Dorfmann
  */
 public abstract class SqlExecuteCompileableChildNode extends SqlCompileableChildNode
     implements SqlExecuteCompileable {
 
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
   public SqlExecuteCompileableChildNode(SqlNode previous) {
     super(previous);
   }
 
   @Override public void execute(SQLiteDatabase database) throws SQLException {
-    database.execSQL(asCompileableStatement().sql);
+    CompileableStatement statement = asCompileableStatement();
+    database.execSQL(inlineArguments(statement.sql, statement.args));
+  }
+
+  /**
+   * Replaces the "?" placeholders of the given sql string (except the ones within quotes) by the
+   * given arguments as sql literals
+   *
+   * @param sql The sql string
+   * @param args The arguments in order of the placeholders
+   * @return The sql string without placeholders
+   * @throws IllegalArgumentException if the number of placeholders doesn't match the number of
+   * arguments or an argument has no sql literal
+   */
+  static String inlineArguments(String sql, Object[] args) {
+    if (args.length == 0) {
+      return sql;
+    }
+
+    StringBuilder builder = new StringBuilder(sql.length() + args.length * 8);
+    int arg = 0;
+    int start = 0;
+    for (int i = nextPlaceholder(sql, 0); i >= 0; i = nextPlaceholder(sql, start)) {
+      if (arg == args.length) {
+        throw new IllegalArgumentException(
+            "More placeholders than arguments (" + args.length + ") in " + sql);
+      }
+      builder.append(sql, start, i);
+      appendLiteral(builder, args[arg++]);
+      start = i + 1;
+    }
+    builder.append(sql, start, sql.length());
+
+    if (arg != args.length) {
+      throw new IllegalArgumentException(
+          "Less placeholders (" + arg + ") than arguments (" + args.length + ") in " + sql);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Appends the argument as sql literal of the same type it would be bound as
+   */
+  private static void appendLiteral(StringBuilder builder, Object arg) {
+    if (arg == null) {
+      builder.append("NULL");
+    } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short
+        || arg instanceof Byte) {
+      builder.append(((Number) arg).longValue());
+    } else if (arg instanceof Double || arg instanceof Float) {
+      double value = ((Number) arg).doubleValue();
+      if (Double.isNaN(value) || Double.isInfinite(value)) {
+        throw new IllegalArgumentException(value + " can't be used as sql literal");
+      }
+      builder.append(value);
+    } else if (arg instanceof Boolean) {
+      builder.append((Boolean) arg ? 1 : 0);
+    } else if (arg instanceof byte[]) {
+      builder.append("X'");
+      for (byte b : (byte[]) arg) {
+        builder.append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+      }
+      builder.append('\'');
+    } else {
+      builder.append(DatabaseUtils.sqlEscapeString(arg.toString()));
+    }
   }
 }
@@ -11,7 +11,8 @@ import java.util.Set;
 public interface SqlNode {
 
   /**
-   * This method will be called to build the sql string recursively
+   * This method will be called to build the sql string. The nodes are visited front-to-back,
+   * starting at the root node, so this node has to append its sql to the given builder.
    *
    * @param builder string builder
    */
@@ -10,7 +10,7 @@ import java.util.Set;
 public abstract class SqlRootNode implements SqlNode {
 
   @Override public void buildSql(StringBuilder builder) {
-    builder.insert(0, getSql());
+    builder.append(getSql());
   }
 
   @Override public SqlNode getPrevious() {
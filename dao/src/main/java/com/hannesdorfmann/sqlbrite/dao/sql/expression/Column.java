@@ -0,0 +1,180 @@
+package com.hannesdorfmann.sqlbrite.dao.sql.expression;
+
+import android.support.annotation.NonNull;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * A database table column used to build an {@link Expression}. Each comparison with a value
+ * creates a "?" placeholder and collects the value as argument:
+ * <code>col("id").eq(42)</code> becomes <code>id = ?</code> with the argument <code>42</code>.
+ *
+ * <p>
+ * The arguments are bound with their sql type (see {@link com.hannesdorfmann.sqlbrite.dao.PreparedQuery}).
+ * {@link Date} is bound as INTEGER (time in milli seconds) like the ObjectMapper stores it.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public final class Column {
+
+  private final String name;
+
+  private Column(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Creates a new column
+   *
+   * @param name The column name, can be qualified with the table name like
+   * <code>table.column</code>
+   * @return The column
+   */
+  public static Column col(@NonNull String name) {
+    if (name == null || name.length() == 0) {
+      throw new NullPointerException("Column name is null or empty");
+    }
+    return new Column(name);
+  }
+
+  /**
+   * <code>column = ?</code> or <code>column IS NULL</code> if the value is null
+   */
+  public Expression eq(Object value) {
+    return value == null ? isNull() : compare(" = ", value);
+  }
+
+  /**
+   * <code>column = otherColumn</code>, typically used in ON clauses. Since <code>eq(null)</code>
+   * resolves to this method, null is handled like {@link #eq(Object)} does.
+   */
+  public Expression eq(Column other) {
+    if (other == null) {
+      return isNull();
+    }
+    return new Expression(name + " = " + other.name, Expression.NO_ARGS, null);
+  }
+
+  /**
+   * <code>column != ?</code> or <code>column IS NOT NULL</code> if the value is null
+   */
+  public Expression notEq(Object value) {
+    return value == null ? isNotNull() : compare(" != ", value);
+  }
+
+  /**
+   * <code>column &lt; ?</code>
+   */
+  public Expression lt(@NonNull Object value) {
+    return compare(" < ", value);
+  }
+
+  /**
+   * <code>column &lt;= ?</code>
+   */
+  public Expression lte(@NonNull Object value) {
+    return compare(" <= ", value);
+  }
+
+  /**
+   * <code>column &gt; ?</code>
+   */
+  public Expression gt(@NonNull Object value) {
+    return compare(" > ", value);
+  }
+
+  /**
+   * <code>column &gt;= ?</code>
+   */
+  public Expression gte(@NonNull Object value) {
+    return compare(" >= ", value);
+  }
+
+  /**
+   * <code>column LIKE ?</code>
+   *
+   * @param pattern The pattern like <code>"Hannes%"</code>
+   */
+  public Expression like(@NonNull String pattern) {
+    return compare(" LIKE ", pattern);
+  }
+
+  /**
+   * <code>column BETWEEN ? AND ?</code>
+   */
+  public Expression between(@NonNull Object from, @NonNull Object to) {
+    return new Expression(name + " BETWEEN ? AND ?",
+        new Object[] { toArgument(from), toArgument(to) }, null);
+  }
+
+  /**
+   * <code>column IN (?, ?, ...)</code>. Please note that SQLite allows at most 999 arguments per
+   * statement.
+   */
+  public Expression in(@NonNull Object... values) {
+    if (values == null) {
+      throw new NullPointerException("values == null");
+    }
+
+    StringBuilder sql = new StringBuilder(name.length() + 6 + values.length * 3);
+    sql.append(name).append(" IN (");
+    Object[] args = new Object[values.length];
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append('?');
+      args[i] = toArgument(values[i]);
+    }
+    sql.append(')');
+
+    return new Expression(sql.toString(), args, null);
+  }
+
+  /**
+   * <code>column IN (?, ?, ...)</code>. Please note that SQLite allows at most 999 arguments per
+   * statement.
+   */
+  public Expression in(@NonNull Collection<?> values) {
+    if (values == null) {
+      throw new NullPointerException("values == null");
+    }
+    return in(values.toArray());
+  }
+
+  /**
+   * <code>column IS NULL</code>
+   */
+  public Expression isNull() {
+    return new Expression(name + " IS NULL", Expression.NO_ARGS, null);
+  }
+
+  /**
+   * <code>column IS NOT NULL</code>
+   */
+  public Expression isNotNull() {
+    return new Expression(name + " IS NOT NULL", Expression.NO_ARGS, null);
+  }
+
+  private Expression compare(String operator, Object value) {
+    if (value == null) {
+      throw new NullPointerException("Value for " + name + operator + "? is null");
+    }
+    return new Expression(name + operator + "?", new Object[] { toArgument(value) }, null);
+  }
+
+  /**
+   * Converts a value to the argument that is bound to the statement
+   */
+  static Object toArgument(Object value) {
+    if (value instanceof Date) {
+      return ((Date) value).getTime();
+    }
+    return value;
+  }
+
+  @Override public String toString() {
+    return name;
+  }
+}
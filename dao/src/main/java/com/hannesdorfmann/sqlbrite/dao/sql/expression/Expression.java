@@ -0,0 +1,138 @@
+package com.hannesdorfmann.sqlbrite.dao.sql.expression;
+
+import android.support.annotation.NonNull;
+
+/**
+ * A sql expression (condition) like <code>age > ? AND name = ?</code> used in WHERE, HAVING and
+ * ON clauses. Values are never inlined into the sql string. Instead a "?" placeholder is used and
+ * the value is collected as argument, so that structurally identical queries share the same sql
+ * string (and hence the same compiled statement).
+ *
+ * <p>
+ * Use {@link Column#col(String)} to create expressions:
+ * <code>col("age").gt(18).and(col("name").like("H%"))</code>
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public class Expression {
+
+  private static final String AND = "AND";
+  private static final String OR = "OR";
+
+  static final Object[] NO_ARGS = new Object[0];
+
+  private final String sql;
+  private final Object[] args;
+  private final String operator;
+
+  Expression(String sql, Object[] args, String operator) {
+    this.sql = sql;
+    this.args = args;
+    this.operator = operator;
+  }
+
+  /**
+   * Creates an expression from a sql string containing "?" placeholders. Use this for conditions
+   * that can't be expressed with {@link Column}
+   *
+   * @param sql The sql expression like <code>lower(name) = ?</code>
+   * @param args The arguments replacing the placeholders
+   * @return The expression
+   */
+  public static Expression of(@NonNull String sql, Object... args) {
+    if (sql == null) {
+      throw new NullPointerException("sql == null");
+    }
+
+    Object[] values = args == null ? NO_ARGS : new Object[args.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = Column.toArgument(args[i]);
+    }
+
+    // Unknown sql, so treat it as compound expression to wrap it in parentheses if combined
+    return new Expression(sql, values, "");
+  }
+
+  /**
+   * Combines this expression and the given one with AND
+   *
+   * @param other The other expression
+   * @return <code>this AND other</code>
+   */
+  public Expression and(@NonNull Expression other) {
+    return combine(AND, other);
+  }
+
+  /**
+   * Combines this expression and the given one with OR
+   *
+   * @param other The other expression
+   * @return <code>this OR other</code>
+   */
+  public Expression or(@NonNull Expression other) {
+    return combine(OR, other);
+  }
+
+  /**
+   * Negates this expression
+   *
+   * @return <code>NOT (this)</code>
+   */
+  public Expression not() {
+    return new Expression("NOT (" + sql + ")", args, null);
+  }
+
+  private Expression combine(String operator, Expression other) {
+    if (other == null) {
+      throw new NullPointerException("Expression is null");
+    }
+
+    Object[] combinedArgs;
+    if (other.args.length == 0) {
+      combinedArgs = args;
+    } else if (args.length == 0) {
+      combinedArgs = other.args;
+    } else {
+      combinedArgs = new Object[args.length + other.args.length];
+      System.arraycopy(args, 0, combinedArgs, 0, args.length);
+      System.arraycopy(other.args, 0, combinedArgs, args.length, other.args.length);
+    }
+
+    String combinedSql =
+        operand(this, operator) + " " + operator + " " + operand(other, operator);
+    return new Expression(combinedSql, combinedArgs, operator);
+  }
+
+  /**
+   * Wraps a compound expression in parentheses, unless it's combined with the same operator
+   */
+  private static String operand(Expression expression, String operator) {
+    if (expression.operator == null || expression.operator.equals(operator)) {
+      return expression.sql;
+    }
+    return "(" + expression.sql + ")";
+  }
+
+  /**
+   * Get the sql string with "?" placeholders
+   *
+   * @return the sql
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * Get the arguments replacing the "?" placeholders. <b>Do not modify the returned array</b>
+   *
+   * @return the arguments
+   */
+  public Object[] getArgs() {
+    return args;
+  }
+
+  @Override public String toString() {
+    return sql;
+  }
+}
@@ -1,7 +1,9 @@
 package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlChildNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
 import java.util.Collections;
 import java.util.Set;
 
@@ -10,7 +12,7 @@ import java.util.Set;
  *
  * @author Hannes Dorfmann
  */
-public class CROSS_JOIN extends SqlChildNode {
+public class CROSS_JOIN extends SqlChildNode implements SqlColumnsNode {
 
   private final String sql;
   private final Set<String> affectedTables;
@@ -25,6 +27,10 @@ public class CROSS_JOIN extends SqlChildNode {
     return sql;
   }
 
+  @Override public Set<String> getReferencedColumns() {
+    return Collections.emptySet();
+  }
+
   /**
    * The ON part.
    *
@@ -36,9 +42,18 @@ public class CROSS_JOIN extends SqlChildNode {
     return new ON(this, columns);
   }
 
+  /**
+   * The ON part built from an {@link Expression}, like <code>col("table1.col1").eq(col("table2.col1"))</code>
+   *
+   * @param condition The join condition
+   * @return {@link ON}
+   */
+  public ON ON(Expression condition) {
+    return new ON(this, condition);
+  }
+
   @Override public Set<String> getAffectedTables() {
     return affectedTables;
   }
 }
 
-
@@ -1,8 +1,10 @@
 package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
 import android.support.annotation.NonNull;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlCursorCompileableChildNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -12,7 +14,8 @@ import java.util.Set;
  *
  * @author Hannes Dorfmann
  */
-public class FROM extends SqlCursorCompileableChildNode implements SqlCompileableSelectChildNode {
+public class FROM extends SqlCursorCompileableChildNode
+    implements SqlCompileableSelectChildNode, SqlColumnsNode {
 
   private final String sql;
   private final Set<String> affectedTables;
@@ -50,6 +53,10 @@ public class FROM extends SqlCursorCompileableChildNode implements SqlCompileabl
     return sql;
   }
 
+  @Override public Set<String> getReferencedColumns() {
+    return Collections.emptySet();
+  }
+
   @Override public Set<String> getAffectedTables() {
     return affectedTables;
   }
@@ -64,17 +71,16 @@ public class FROM extends SqlCursorCompileableChildNode implements SqlCompileabl
     return new WHERE(this, condition);
   }
 
-  // TODO find a better String formater lib
-  /*
-   * Adds a SQL WHERE clause
-   * @param condition The where clause that will be formatted with String.forma() so you can use %s if you want to
-   * @param args The argument used in String.format() to format the condition
-   * @return WHERE
-
-  public WHERE WHERE(String condition, Object ... args){
-    return new WHERE(this, String.format(condition, args));
+  /**
+   * Adds a SQL WHERE clause built from an {@link Expression}. Values are not inlined but bound as
+   * arguments.
+   *
+   * @param condition The where clause condition
+   * @return {@link WHERE}
+   */
+  public WHERE WHERE(Expression condition) {
+    return new WHERE(this, condition);
   }
-  */
 
   /**
    * Adds a SQL ORDER BY
@@ -106,6 +112,17 @@ public class FROM extends SqlCursorCompileableChildNode implements SqlCompileabl
     return new HAVING(this, having);
   }
 
+  /**
+   * Adds a SQL HAVING clause built from an {@link Expression}. Values are not inlined but bound
+   * as arguments.
+   *
+   * @param having The having criteria
+   * @return {@link HAVING}
+   */
+  public HAVING HAVING(Expression having) {
+    return new HAVING(this, having);
+  }
+
   /**
    * Adds a SQL LIMIT clause
    *
@@ -116,6 +133,30 @@ public class FROM extends SqlCursorCompileableChildNode implements SqlCompileabl
     return new LIMIT(this, limit);
   }
 
+  /**
+   * Adds a SQL LIMIT clause
+   *
+   * @param limit the maximum number of rows
+   * @return {@link LIMIT}
+   */
+  public LIMIT LIMIT(int limit) {
+    return new LIMIT(this, limit);
+  }
+
+  /**
+   * Selects a page of a keyset pagination: the rows after the given values of the sort columns,
+   * ordered by the given {@link Keyset} and limited to the page size
+   *
+   * @param keyset The sort order
+   * @param after The values of the sort columns of the last row of the previous page (see {@link
+   * Keyset#getColumns()}) or null for the first page
+   * @param pageSize The maximum number of rows of the page
+   * @return {@link SEEK}
+   */
+  public SEEK SEEK(Keyset keyset, Object[] after, int pageSize) {
+    return new SEEK(this, keyset, after, pageSize);
+  }
+
   /**
    * Add a NATURAL LEFT OUTER JOIN
    *
@@ -1,7 +1,11 @@
 package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumns;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlCursorCompileableChildNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
+import java.util.Set;
 
 /**
  * Adds a GROUP BY
@@ -9,7 +13,7 @@ import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
  * @author Hannes Dorfmann
  */
 public class GROUP_BY extends SqlCursorCompileableChildNode
-    implements SqlCompileableSelectChildNode {
+    implements SqlCompileableSelectChildNode, SqlColumnsNode {
 
   private final String groupBy;
 
@@ -22,6 +26,10 @@ public class GROUP_BY extends SqlCursorCompileableChildNode
     return " GROUP BY " + groupBy;
   }
 
+  @Override public Set<String> getReferencedColumns() {
+    return SqlColumns.parse(groupBy);
+  }
+
   /**
    * Adds a SQL ORDER BY
    *
@@ -42,6 +50,17 @@ public class GROUP_BY extends SqlCursorCompileableChildNode
     return new HAVING(this, having);
   }
 
+  /**
+   * Adds a SQL HAVING clause built from an {@link Expression}. Values are not inlined but bound
+   * as arguments.
+   *
+   * @param having The having criteria
+   * @return {@link HAVING}
+   */
+  public HAVING HAVING(Expression having) {
+    return new HAVING(this, having);
+  }
+
   /**
    * Adds a SQL LIMIT clause
    *
@@ -51,4 +70,14 @@ public class GROUP_BY extends SqlCursorCompileableChildNode
   public LIMIT LIMIT(String limit) {
     return new LIMIT(this, limit);
   }
+
+  /**
+   * Adds a SQL LIMIT clause
+   *
+   * @param limit the maximum number of rows
+   * @return {@link LIMIT}
+   */
+  public LIMIT LIMIT(int limit) {
+    return new LIMIT(this, limit);
+  }
 }
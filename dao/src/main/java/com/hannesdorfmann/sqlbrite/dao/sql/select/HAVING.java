@@ -1,26 +1,50 @@
 package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlArgumentsNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumns;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlCursorCompileableChildNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
+import java.util.Set;
 
 /**
  * The SQL HAVING clause
  *
  * @author Hannes Dorfmann
  */
-public class HAVING extends SqlCursorCompileableChildNode implements SqlCompileableSelectChildNode {
+public class HAVING extends SqlCursorCompileableChildNode
+    implements SqlCompileableSelectChildNode, SqlArgumentsNode, SqlColumnsNode {
+
+  private static final Object[] NO_ARGS = new Object[0];
 
   private final String having;
+  private final Object[] args;
 
   public HAVING(SqlNode previous, String having) {
     super(previous);
     this.having = having;
+    this.args = NO_ARGS;
+  }
+
+  public HAVING(SqlNode previous, Expression having) {
+    super(previous);
+    this.having = having.getSql();
+    this.args = having.getArgs();
   }
 
   @Override public String getSql() {
     return " HAVING " + having;
   }
 
+  @Override public Set<String> getReferencedColumns() {
+    return SqlColumns.parse(having);
+  }
+
+  @Override public Object[] getArguments() {
+    return args;
+  }
+
   /**
    * Adds a ORDER BY
    *
@@ -40,4 +64,14 @@ public class HAVING extends SqlCursorCompileableChildNode implements SqlCompilea
   public LIMIT LIMIT(String limit) {
     return new LIMIT(this, limit);
   }
+
+  /**
+   * Adds a SQL LIMIT clause
+   *
+   * @param limit the maximum number of rows
+   * @return {@link LIMIT}
+   */
+  public LIMIT LIMIT(int limit) {
+    return new LIMIT(this, limit);
+  }
 }
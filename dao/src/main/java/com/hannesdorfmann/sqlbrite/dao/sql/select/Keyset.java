@@ -0,0 +1,172 @@
+package com.hannesdorfmann.sqlbrite.dao.sql.select;
+
+import android.support.annotation.NonNull;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Column;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Defines the sort order of a keyset (seek) pagination (see {@link SEEK}). The rows are ordered
+ * by the sort columns and finally by the primary key, so that the order is unique even if
+ * several rows have the same values in the sort columns. Instead of skipping rows with OFFSET
+ * (which reads and discards all skipped rows) the next page is selected by comparing the sort
+ * columns with the values of the last row of the previous page, which can use an index on the sort
+ * columns.
+ *
+ * <p>
+ * The sort columns and the primary key must not contain NULL values and must be part of the
+ * result (use the name of the column in the result, like <code>name</code> instead of
+ * <code>u.name</code> if the name is unique).
+ * </p>
+ *
+ * <p>
+ * A keyset is immutable, so you can keep it as <code>static final</code> constant:
+ * <code>new Keyset("id").asc("lastname").desc("age")</code>
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public final class Keyset {
+
+  private final String[] columns;
+  private final boolean[] descending;
+
+  /**
+   * Creates a keyset ordered by the primary key in ascending order
+   *
+   * @param primaryKey The primary key column
+   */
+  public Keyset(@NonNull String primaryKey) {
+    this(primaryKey, false);
+  }
+
+  /**
+   * Creates a keyset ordered by the primary key
+   *
+   * @param primaryKey The primary key column
+   * @param descending true to order the primary key descending
+   */
+  public Keyset(@NonNull String primaryKey, boolean descending) {
+    if (primaryKey == null) {
+      throw new NullPointerException("Primary key is null");
+    }
+    this.columns = new String[] { primaryKey };
+    this.descending = new boolean[] { descending };
+  }
+
+  private Keyset(Keyset keyset, String column, boolean descending) {
+    if (column == null) {
+      throw new NullPointerException("Column is null");
+    }
+
+    // The primary key stays the last column
+    int size = keyset.columns.length;
+    this.columns = Arrays.copyOf(keyset.columns, size + 1);
+    this.descending = Arrays.copyOf(keyset.descending, size + 1);
+    this.columns[size] = keyset.columns[size - 1];
+    this.descending[size] = keyset.descending[size - 1];
+    this.columns[size - 1] = column;
+    this.descending[size - 1] = descending;
+  }
+
+  /**
+   * Adds a sort column in ascending order. The rows are ordered by the sort columns in the order
+   * they have been added, the primary key is always the last one.
+   *
+   * @param column The column
+   * @return A new keyset with the additional sort column
+   */
+  public Keyset asc(@NonNull String column) {
+    return new Keyset(this, column, false);
+  }
+
+  /**
+   * Adds a sort column in descending order. The rows are ordered by the sort columns in the order
+   * they have been added, the primary key is always the last one.
+   *
+   * @param column The column
+   * @return A new keyset with the additional sort column
+   */
+  public Keyset desc(@NonNull String column) {
+    return new Keyset(this, column, true);
+  }
+
+  /**
+   * Get the sort columns including the primary key as last column. The values of a page cursor
+   * are in the same order.
+   *
+   * @return The columns
+   */
+  public List<String> getColumns() {
+    return Collections.unmodifiableList(Arrays.asList(columns));
+  }
+
+  /**
+   * Get the ORDER BY criteria, like <code>lastname ASC, age DESC, id ASC</code>
+   *
+   * @return The order criteria
+   */
+  public String getOrderBy() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(columns[i]).append(descending[i] ? " DESC" : " ASC");
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Get the condition selecting the rows after the row with the given values of the sort columns.
+   * This is the row value comparison <code>(a, b, id) > (?, ?, ?)</code> (respecting the sort
+   * direction of each column) expanded to <code>a >= ? AND (a > ? OR (a = ? AND (b > ? OR (b = ?
+   * AND id > ?))))</code>, since row values are not supported by the SQLite versions of older
+   * Android releases. The leading <code>a >= ?</code> allows SQLite to use an index on the first
+   * sort column.
+   *
+   * @param after The values of the sort columns (see {@link #getColumns()}) of the last row of
+   * the previous page
+   * @return The condition
+   */
+  public Expression after(@NonNull Object[] after) {
+    if (after == null) {
+      throw new NullPointerException("Values are null");
+    }
+    if (after.length != columns.length) {
+      throw new IllegalArgumentException(
+          "Expected " + columns.length + " values for " + getColumns() + " but got "
+              + after.length);
+    }
+    for (int i = 0; i < after.length; i++) {
+      if (after[i] == null) {
+        throw new IllegalArgumentException(
+            "Keyset pagination doesn't support NULL values, but the value of " + columns[i]
+                + " is null");
+      }
+    }
+
+    int last = columns.length - 1;
+    Expression condition = next(last, after[last]);
+    for (int i = last - 1; i >= 0; i--) {
+      condition = next(i, after[i]).or(Column.col(columns[i]).eq(after[i]).and(condition));
+    }
+
+    if (last > 0) {
+      Column first = Column.col(columns[0]);
+      condition = (descending[0] ? first.lte(after[0]) : first.gte(after[0])).and(condition);
+    }
+    return condition;
+  }
+
+  private Expression next(int i, Object value) {
+    Column column = Column.col(columns[i]);
+    return descending[i] ? column.lt(value) : column.gt(value);
+  }
+
+  @Override public String toString() {
+    return "Keyset[" + getOrderBy() + "]";
+  }
+}
@@ -1,14 +1,18 @@
 package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumns;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlCursorCompileableChildNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import java.util.Set;
 
 /**
  * Add a LIMIT to SQL
  *
  * @author Hannes Dorfmann
  */
-public class LIMIT extends SqlCursorCompileableChildNode implements SqlCompileableSelectChildNode {
+public class LIMIT extends SqlCursorCompileableChildNode
+    implements SqlCompileableSelectChildNode, SqlColumnsNode {
 
   private final String limit;
 
@@ -17,7 +21,29 @@ public class LIMIT extends SqlCursorCompileableChildNode implements SqlCompileab
     this.limit = limit;
   }
 
+  public LIMIT(SqlNode previous, int limit) {
+    super(previous);
+    if (limit < 0) {
+      throw new IllegalArgumentException("Limit must not be negative");
+    }
+    this.limit = Integer.toString(limit);
+  }
+
   @Override public String getSql() {
     return " LIMIT " + limit;
   }
+
+  @Override public Set<String> getReferencedColumns() {
+    return SqlColumns.parse(limit);
+  }
+
+  /**
+   * Adds an OFFSET clause
+   *
+   * @param offset The number of rows to skip
+   * @return {@link OFFSET}
+   */
+  public OFFSET OFFSET(int offset) {
+    return new OFFSET(this, offset);
+  }
 }
@@ -2,6 +2,7 @@ package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlCursorCompileableChildNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
 import java.util.Collections;
 import java.util.Set;
 
@@ -39,6 +40,17 @@ public class NATURAL_LEFT_JOIN extends SqlCursorCompileableChildNode {
     return new WHERE(this, condition);
   }
 
+  /**
+   * Adds a SQL WHERE clause built from an {@link Expression}. Values are not inlined but bound as
+   * arguments.
+   *
+   * @param condition The where clause condition
+   * @return {@link WHERE}
+   */
+  public WHERE WHERE(Expression condition) {
+    return new WHERE(this, condition);
+  }
+
   /**
    * Adds a SQL ORDER BY
    *
@@ -69,6 +81,17 @@ public class NATURAL_LEFT_JOIN extends SqlCursorCompileableChildNode {
     return new HAVING(this, having);
   }
 
+  /**
+   * Adds a SQL HAVING clause built from an {@link Expression}. Values are not inlined but bound
+   * as arguments.
+   *
+   * @param having The having criteria
+   * @return {@link HAVING}
+   */
+  public HAVING HAVING(Expression having) {
+    return new HAVING(this, having);
+  }
+
   /**
    * Adds a SQL LIMIT clause
    *
@@ -79,6 +102,30 @@ public class NATURAL_LEFT_JOIN extends SqlCursorCompileableChildNode {
     return new LIMIT(this, limit);
   }
 
+  /**
+   * Adds a SQL LIMIT clause
+   *
+   * @param limit the maximum number of rows
+   * @return {@link LIMIT}
+   */
+  public LIMIT LIMIT(int limit) {
+    return new LIMIT(this, limit);
+  }
+
+  /**
+   * Selects a page of a keyset pagination: the rows after the given values of the sort columns,
+   * ordered by the given {@link Keyset} and limited to the page size
+   *
+   * @param keyset The sort order
+   * @param after The values of the sort columns of the last row of the previous page (see {@link
+   * Keyset#getColumns()}) or null for the first page
+   * @param pageSize The maximum number of rows of the page
+   * @return {@link SEEK}
+   */
+  public SEEK SEEK(Keyset keyset, Object[] after, int pageSize) {
+    return new SEEK(this, keyset, after, pageSize);
+  }
+
   /**
    * Add a NATURAL LEFT OUTER JOIN
    *
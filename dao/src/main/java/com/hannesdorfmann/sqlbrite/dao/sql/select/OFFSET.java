@@ -0,0 +1,35 @@
+package com.hannesdorfmann.sqlbrite.dao.sql.select;
+
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlCursorCompileableChildNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Adds an OFFSET to a LIMIT. Note that SQLite reads and discards all skipped rows, so consider a
+ * keyset pagination (see {@link SEEK}) for deep pages.
+ *
+ * @author Hannes Dorfmann
+ */
+public class OFFSET extends SqlCursorCompileableChildNode
+    implements SqlCompileableSelectChildNode, SqlColumnsNode {
+
+  private final int offset;
+
+  public OFFSET(SqlNode previous, int offset) {
+    super(previous);
+    if (offset < 0) {
+      throw new IllegalArgumentException("Offset must not be negative");
+    }
+    this.offset = offset;
+  }
+
+  @Override public String getSql() {
+    return " OFFSET " + offset;
+  }
+
+  @Override public Set<String> getReferencedColumns() {
+    return Collections.emptySet();
+  }
+}
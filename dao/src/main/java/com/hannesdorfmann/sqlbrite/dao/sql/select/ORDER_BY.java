@@ -1,7 +1,10 @@
 package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumns;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlCursorCompileableChildNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import java.util.Set;
 
 /**
  * The SQL ORDER BY
@@ -9,7 +12,7 @@ import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
  * @author Hannes Dorfmann
  */
 public class ORDER_BY extends SqlCursorCompileableChildNode
-    implements SqlCompileableSelectChildNode {
+    implements SqlCompileableSelectChildNode, SqlColumnsNode {
 
   private final String order;
 
@@ -22,6 +25,10 @@ public class ORDER_BY extends SqlCursorCompileableChildNode
     return " ORDER BY " + order;
   }
 
+  @Override public Set<String> getReferencedColumns() {
+    return SqlColumns.parse(order);
+  }
+
   /**
    * Adds a new LIMIT clause
    *
@@ -31,4 +38,14 @@ public class ORDER_BY extends SqlCursorCompileableChildNode
   public LIMIT LIMIT(String limit) {
     return new LIMIT(this, limit);
   }
+
+  /**
+   * Adds a SQL LIMIT clause
+   *
+   * @param limit the maximum number of rows
+   * @return {@link LIMIT}
+   */
+  public LIMIT LIMIT(int limit) {
+    return new LIMIT(this, limit);
+  }
 }
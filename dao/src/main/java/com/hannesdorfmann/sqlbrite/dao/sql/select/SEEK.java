@@ -0,0 +1,106 @@
+package com.hannesdorfmann.sqlbrite.dao.sql.select;
+
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlArgumentsNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumns;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlCursorCompileableChildNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Selects one page of a keyset (seek) pagination: adds the condition selecting the rows after the
+ * last row of the previous page (see {@link Keyset#after(Object[])}) to the WHERE clause, orders
+ * the rows by the {@link Keyset} and limits the result to the page size. Use {@code
+ * Dao.QueryBuilder#runPage(Func1)} to get the page together with the cursor of the next page.
+ *
+ * @author Hannes Dorfmann
+ */
+public class SEEK extends SqlCursorCompileableChildNode
+    implements SqlCompileableSelectChildNode, SqlArgumentsNode, SqlColumnsNode {
+
+  private static final Object[] NO_ARGS = new Object[0];
+
+  private final Keyset keyset;
+  private final Expression condition;
+  private final int pageSize;
+
+  /**
+   * @param previous The previous node
+   * @param keyset The sort order
+   * @param after The values of the sort columns of the last row of the previous page or null for
+   * the first page
+   * @param pageSize The maximum number of rows of the page
+   */
+  public SEEK(SqlNode previous, Keyset keyset, Object[] after, int pageSize) {
+    super(previous);
+    if (keyset == null) {
+      throw new NullPointerException("Keyset is null");
+    }
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be greater than 0");
+    }
+    this.keyset = keyset;
+    this.condition = after == null ? null : keyset.after(after);
+    this.pageSize = pageSize;
+  }
+
+  @Override public void buildSql(StringBuilder builder) {
+    if (condition != null && previous instanceof WHERE) {
+      // Wrap the previous condition, so that an OR in it doesn't take precedence over AND
+      String previousCondition = ((WHERE) previous).getCondition();
+      builder.insert(builder.length() - previousCondition.length(), '(');
+      builder.append(')');
+    }
+    super.buildSql(builder);
+  }
+
+  @Override public String getSql() {
+    StringBuilder builder = new StringBuilder();
+    if (condition != null) {
+      builder.append(previous instanceof WHERE ? " AND (" : " WHERE (")
+          .append(condition.getSql())
+          .append(')');
+    }
+    return builder.append(" ORDER BY ")
+        .append(keyset.getOrderBy())
+        .append(" LIMIT ")
+        .append(pageSize)
+        .toString();
+  }
+
+  @Override public Object[] getArguments() {
+    return condition == null ? NO_ARGS : condition.getArgs();
+  }
+
+  @Override public Set<String> getReferencedColumns() {
+    Set<String> columns = new HashSet<>();
+    for (String column : keyset.getColumns()) {
+      Set<String> parsed = SqlColumns.parse(column);
+      if (parsed == null) {
+        return null;
+      }
+      columns.addAll(parsed);
+    }
+    return columns;
+  }
+
+  /**
+   * Get the keyset defining the sort order
+   *
+   * @return The keyset
+   */
+  public Keyset getKeyset() {
+    return keyset;
+  }
+
+  /**
+   * Get the maximum number of rows of the page
+   *
+   * @return The page size
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+}
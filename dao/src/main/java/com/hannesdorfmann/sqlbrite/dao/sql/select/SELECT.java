@@ -1,14 +1,17 @@
 package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
 import android.support.annotation.NonNull;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumns;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlRootNode;
+import java.util.Set;
 
 /**
  * This is a really simple wrapper
  *
  * @author Hannes Dorfmann
  */
-public class SELECT extends SqlRootNode {
+public class SELECT extends SqlRootNode implements SqlColumnsNode {
 
   private final String sql;
 
@@ -41,6 +44,10 @@ public class SELECT extends SqlRootNode {
     return sql;
   }
 
+  @Override public Set<String> getReferencedColumns() {
+    return SqlColumns.parse(sql);
+  }
+
   /**
    * The sql FROM part to declare the table
    *
@@ -1,26 +1,54 @@
 package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlArgumentsNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumns;
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlColumnsNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlCursorCompileableChildNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
+import java.util.Set;
 
 /**
  * A simple SQL WHERE condition
  *
  * @author Hannes Dorfmann
  */
-public class WHERE extends SqlCursorCompileableChildNode implements SqlCompileableSelectChildNode {
+public class WHERE extends SqlCursorCompileableChildNode
+    implements SqlCompileableSelectChildNode, SqlArgumentsNode, SqlColumnsNode {
+
+  private static final Object[] NO_ARGS = new Object[0];
 
   private final String condition;
+  private final Object[] args;
 
   public WHERE(SqlNode previous, String condition) {
     super(previous);
     this.condition = condition;
+    this.args = NO_ARGS;
+  }
+
+  public WHERE(SqlNode previous, Expression condition) {
+    super(previous);
+    this.condition = condition.getSql();
+    this.args = condition.getArgs();
   }
 
   @Override public String getSql() {
     return " WHERE " + condition;
   }
 
+  @Override public Set<String> getReferencedColumns() {
+    return SqlColumns.parse(condition);
+  }
+
+  @Override public Object[] getArguments() {
+    return args;
+  }
+
+  String getCondition() {
+    return condition;
+  }
+
   /**
    * Add an SQL ORDER BY statement
    */
@@ -42,10 +70,45 @@ public class WHERE extends SqlCursorCompileableChildNode implements SqlCompileab
     return new HAVING(this, having);
   }
 
+  /**
+   * Adds a SQL HAVING clause built from an {@link Expression}. Values are not inlined but bound
+   * as arguments.
+   *
+   * @param having The having criteria
+   * @return {@link HAVING}
+   */
+  public HAVING HAVING(Expression having) {
+    return new HAVING(this, having);
+  }
+
   /**
    * Adds a SQL LIMIT clause
    */
   public LIMIT LIMIT(String limit) {
     return new LIMIT(this, limit);
   }
+
+  /**
+   * Adds a SQL LIMIT clause
+   *
+   * @param limit the maximum number of rows
+   * @return {@link LIMIT}
+   */
+  public LIMIT LIMIT(int limit) {
+    return new LIMIT(this, limit);
+  }
+
+  /**
+   * Selects a page of a keyset pagination: the rows after the given values of the sort columns,
+   * ordered by the given {@link Keyset} and limited to the page size
+   *
+   * @param keyset The sort order
+   * @param after The values of the sort columns of the last row of the previous page (see {@link
+   * Keyset#getColumns()}) or null for the first page
+   * @param pageSize The maximum number of rows of the page
+   * @return {@link SEEK}
+   */
+  public SEEK SEEK(Keyset keyset, Object[] after, int pageSize) {
+    return new SEEK(this, keyset, after, pageSize);
+  }
 }
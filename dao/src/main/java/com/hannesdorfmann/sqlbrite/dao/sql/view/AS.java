@@ -3,6 +3,7 @@ package com.hannesdorfmann.sqlbrite.dao.sql.view;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlExecuteCompileableChildNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.SqlNode;
 import com.hannesdorfmann.sqlbrite.dao.sql.select.SqlCompileableSelectChildNode;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -25,8 +26,8 @@ public class AS extends SqlExecuteCompileableChildNode {
     return " AS ";
   }
 
-  @Override public CompileableStatement asCompileableStatement() {
-    CompileableStatement superCompileableStatement = super.asCompileableStatement();
+  @Override protected CompileableStatement compile() {
+    CompileableStatement superCompileableStatement = super.compile();
     CompileableStatement selectChildCompileableStatement = selectChild.asCompileableStatement();
 
     Set<String> affectedTabels = new HashSet<>();
@@ -38,8 +39,29 @@ public class AS extends SqlExecuteCompileableChildNode {
       affectedTabels.addAll(selectChildCompileableStatement.tables);
     }
 
+    Object[] args = superCompileableStatement.args;
+    if (selectChildCompileableStatement.args.length > 0) {
+      args = new Object[superCompileableStatement.args.length
+          + selectChildCompileableStatement.args.length];
+      System.arraycopy(superCompileableStatement.args, 0, args, 0,
+          superCompileableStatement.args.length);
+      System.arraycopy(selectChildCompileableStatement.args, 0, args,
+          superCompileableStatement.args.length, selectChildCompileableStatement.args.length);
+    }
+
+    // The raw placeholders of the select follow all arguments of the preceding nodes
+    int[] superRaw = superCompileableStatement.rawPlaceholders;
+    int[] selectRaw = selectChildCompileableStatement.rawPlaceholders;
+    int[] rawPlaceholders = new int[superRaw.length + selectRaw.length];
+    System.arraycopy(superRaw, 0, rawPlaceholders, 0, superRaw.length);
+    for (int i = 0; i < selectRaw.length; i++) {
+      rawPlaceholders[superRaw.length + i] =
+          superCompileableStatement.args.length + selectRaw[i];
+    }
+
     return new CompileableStatement(
         superCompileableStatement.sql + selectChildCompileableStatement.sql,
-        affectedTabels.isEmpty() ? null : affectedTabels);
+        affectedTabels.isEmpty() ? null : Collections.unmodifiableSet(affectedTabels), args, null,
+        rawPlaceholders);
   }
 }
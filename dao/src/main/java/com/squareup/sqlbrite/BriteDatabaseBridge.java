@@ -0,0 +1,98 @@
+package com.squareup.sqlbrite;
+
+import android.database.sqlite.SQLiteDatabase;
+import java.lang.reflect.Field;
+import java.util.Set;
+import rx.Observable;
+
+/**
+ * Gives access to package private methods of {@link BriteDatabase}. This allows to execute
+ * compiled statements directly on the underlying {@link SQLiteDatabase} and still notify the
+ * queries observing the affected tables (respecting SQLBrite's transaction handling).
+ *
+ * <p>
+ * This class is used internally and is not part of the public api.
+ * </p>
+ *
+ * @author Hannes Dorfmann
+ */
+public final class BriteDatabaseBridge {
+
+  private BriteDatabaseBridge() {
+  }
+
+  /**
+   * Get the readable {@link SQLiteDatabase} wrapped by the given {@link BriteDatabase}
+   *
+   * @param db The brite database
+   * @return The readable database
+   */
+  public static SQLiteDatabase getReadableDatabase(BriteDatabase db) {
+    return db.getReadableDatabase();
+  }
+
+  /**
+   * Get the writable {@link SQLiteDatabase} wrapped by the given {@link BriteDatabase}
+   *
+   * @param db The brite database
+   * @return The writable database
+   */
+  public static SQLiteDatabase getWritableDatabase(BriteDatabase db) {
+    return db.getWriteableDatabase();
+  }
+
+  /**
+   * Notifies all queries observing one of the given tables. If a transaction is in progress the
+   * notification is sent when the transaction has been committed.
+   *
+   * @param db The brite database
+   * @param tables The tables that have been changed
+   */
+  public static void sendTableTrigger(BriteDatabase db, Set<String> tables) {
+    db.sendTableTrigger(tables);
+  }
+
+  /**
+   * Get the stream of table triggers sent by the given {@link BriteDatabase}. Triggers are
+   * delivered synchronously on the thread that has changed the tables (after the transaction has
+   * been committed).
+   *
+   * @param db The brite database
+   * @return The triggers or null if the triggers are not accessible
+   */
+  @SuppressWarnings("unchecked")
+  public static Observable<Set<String>> getTriggers(BriteDatabase db) {
+    try {
+      Field field = BriteDatabase.class.getDeclaredField("triggers");
+      field.setAccessible(true);
+      return (Observable<Set<String>>) field.get(db);
+    } catch (Exception e) {
+      // i.e. field renamed by a newer version of SQLBrite or obfuscation
+      return null;
+    }
+  }
+
+  /**
+   * Get the tables that have been changed within the transaction of the current thread. The
+   * queries observing these tables get notified when the transaction is committed.
+   *
+   * @param db The brite database
+   * @return The changed tables or null if there is no transaction in progress
+   */
+  public static Set<String> getTransactionTables(BriteDatabase db) {
+    return db.transactions.get();
+  }
+
+  /**
+   * Logs the given message with the logger of the {@link BriteDatabase} if logging is enabled.
+   *
+   * @param db The brite database
+   * @param message The message format
+   * @param args The message format arguments
+   */
+  public static void log(BriteDatabase db, String message, Object... args) {
+    if (db.logging) {
+      db.log(message, args);
+    }
+  }
+}
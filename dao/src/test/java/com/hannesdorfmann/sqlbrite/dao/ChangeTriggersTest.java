@@ -0,0 +1,89 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class ChangeTriggersTest {
+
+  @Test public void parseSingleRowId() {
+    Assert.assertArrayEquals(new long[] { 42 },
+        ChangeTriggers.parseRowIds("id", "id = ?", new String[] { "42" }));
+    Assert.assertArrayEquals(new long[] { 42 },
+        ChangeTriggers.parseRowIds("id", "  user.id=? ", new String[] { "42" }));
+    Assert.assertArrayEquals(new long[] { 7 },
+        ChangeTriggers.parseRowIds("id", "id = 7", null));
+    Assert.assertArrayEquals(new long[] { 3 },
+        ChangeTriggers.parseRowIds(null, "rowid = ?", new String[] { "3" }));
+  }
+
+  @Test public void parseRowIdsInList() {
+    Assert.assertArrayEquals(new long[] { 1, 2, 3 },
+        ChangeTriggers.parseRowIds("id", "id IN (?, ?,?)", new String[] { "1", "2", "3" }));
+    Assert.assertArrayEquals(new long[] { 1 },
+        ChangeTriggers.parseRowIds("id", "id in (?)", new String[] { "1" }));
+  }
+
+  @Test public void unknownRowIds() {
+    Assert.assertNull(ChangeTriggers.parseRowIds("id", null, null));
+    Assert.assertNull(ChangeTriggers.parseRowIds(null, "id = ?", new String[] { "1" }));
+    Assert.assertNull(ChangeTriggers.parseRowIds("id", "name = ?", new String[] { "1" }));
+    Assert.assertNull(ChangeTriggers.parseRowIds("id", "id = ?", new String[] { "abc" }));
+    Assert.assertNull(ChangeTriggers.parseRowIds("id", "id = ?", new String[] { "1", "2" }));
+    Assert.assertNull(ChangeTriggers.parseRowIds("id", "id > ?", new String[] { "1" }));
+    Assert.assertNull(
+        ChangeTriggers.parseRowIds("id", "id = ? OR id = ?", new String[] { "1", "2" }));
+    Assert.assertNull(ChangeTriggers.parseRowIds("id", "id IN (?, ?)", new String[] { "1" }));
+  }
+
+  @Test public void insertTriggers() {
+    Assert.assertNull(ChangeTriggers.inserted("t", new long[] { -1, -1 }, false));
+    Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("t", "t@*", "t#1", "t#2")),
+        ChangeTriggers.inserted("t", new long[] { 1, -1, 2 }, false));
+    Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("t", "t@*", "t#1", "t#*")),
+        ChangeTriggers.inserted("t", new long[] { 1 }, true));
+  }
+
+  @Test public void changeTriggers() {
+    Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("t", "t#*", "t@*")),
+        ChangeTriggers.changed("t", null, null));
+    Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("t", "t#1", "t@name")),
+        ChangeTriggers.changed("t", new long[] { 1 }, Arrays.asList("Name")));
+  }
+
+  @Test public void observeTriggers() {
+    Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("t")),
+        ChangeTriggers.observe(Arrays.asList("t"), null, null));
+    Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("t@*", "t@name")),
+        ChangeTriggers.observe(Arrays.asList("t"), null, Collections.singleton("name")));
+    Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("t#*", "t#1", "u@*", "u@name")),
+        ChangeTriggers.observe(Arrays.asList("t", "u"),
+            Collections.singletonMap("t", new long[] { 1 }), Collections.singleton("name")));
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void observeRowsOfUnknownTable() {
+    ChangeTriggers.observe(Arrays.asList("t"), Collections.singletonMap("u", new long[] { 1 }),
+        null);
+  }
+
+  @Test public void updatedColumns() {
+    Assert.assertEquals(Arrays.asList("name", "age"),
+        ChangeTriggers.updatedColumns("UPDATE t SET name = ?, age=? WHERE id = ?"));
+    Assert.assertEquals(Arrays.asList("name"),
+        ChangeTriggers.updatedColumns("update or replace t set name = ?"));
+    Assert.assertNull(ChangeTriggers.updatedColumns("UPDATE t SET age = age + 1"));
+    Assert.assertNull(ChangeTriggers.updatedColumns("DELETE FROM t"));
+  }
+
+  @Test public void replaces() {
+    Assert.assertTrue(ChangeTriggers.replaces("INSERT OR REPLACE INTO t (a) VALUES (?)"));
+    Assert.assertTrue(ChangeTriggers.replaces("replace into t (a) VALUES (?)"));
+    Assert.assertFalse(ChangeTriggers.replaces("INSERT INTO t (a) VALUES (?)"));
+    Assert.assertFalse(ChangeTriggers.replaces("INSERT INTO replace_log (a) VALUES (?)"));
+  }
+}
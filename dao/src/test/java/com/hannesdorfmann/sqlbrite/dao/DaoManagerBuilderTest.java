@@ -1,6 +1,7 @@
 package com.hannesdorfmann.sqlbrite.dao;
 
 import android.content.Context;
+import com.squareup.sqlbrite.BriteDatabaseBridge;
 import junit.framework.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -53,8 +54,109 @@ public class DaoManagerBuilderTest {
     }
   }
 
-  @Test public void minimalBuilder() {
-    DaoManager.with(context).databaseName("foo").version(1).add(new UserDao()).build();
+  @Test public void minimalBuilder() throws Exception {
+    DaoManager manager =
+        DaoManager.with(context).databaseName("foo").version(1).add(new UserDao()).build();
+    manager.close();
+  }
+
+  @Test public void profileAppliedOnOpen() throws Exception {
+    DatabaseProfile profile = DatabaseProfile.WRITE_HEAVY.newBuilder()
+        .synchronous(DatabaseProfile.Synchronous.FULL)
+        .journalSizeLimit(1024 * 1024)
+        .cacheSizeKib(1024)
+        .tempStore(DatabaseProfile.TempStore.MEMORY)
+        .build();
+
+    DaoManager manager = DaoManager.with(context)
+        .databaseName("profile.db")
+        .version(1)
+        .add(new UserDao())
+        .profile(profile)
+        .build();
+
+    Assert.assertSame(profile, manager.getProfile());
+    Assert.assertNull(manager.getEffectiveProfile());
+
+    BriteDatabaseBridge.getReadableDatabase(manager.getDatabase());
+
+    DatabaseProfile effective = manager.getEffectiveProfile();
+    Assert.assertNotNull(effective);
+    Assert.assertEquals(Boolean.TRUE, effective.getWriteAheadLogging());
+    Assert.assertEquals(DatabaseProfile.Synchronous.FULL, effective.getSynchronous());
+    Assert.assertEquals(Long.valueOf(1024 * 1024), effective.getJournalSizeLimit());
+    Assert.assertEquals(Integer.valueOf(-1024), effective.getCacheSize());
+    Assert.assertEquals(Integer.valueOf(4096), effective.getPageSize());
+    Assert.assertEquals(DatabaseProfile.TempStore.MEMORY, effective.getTempStore());
+    manager.close();
+  }
+
+  @Test public void readerPoolSizedByEffectiveProfile() throws Exception {
+    DaoManager manager = DaoManager.with(context)
+        .databaseName("readers.db")
+        .version(1)
+        .add(new UserDao())
+        .build();
+    Assert.assertEquals(1, manager.getReaderScheduler().getThreads());
+    manager.close();
+
+    manager = DaoManager.with(context)
+        .databaseName("walReaders.db")
+        .version(1)
+        .add(new UserDao())
+        .profile(DatabaseProfile.READ_HEAVY)
+        .build();
+    int walPoolSize = DaoManager.readerPoolSize(true);
+    Assert.assertTrue(walPoolSize > 1);
+    Assert.assertEquals(walPoolSize, manager.getReaderScheduler().getThreads());
+
+    BriteDatabaseBridge.getReadableDatabase(manager.getDatabase());
+    Assert.assertEquals(Boolean.TRUE, manager.getEffectiveProfile().getWriteAheadLogging());
+    Assert.assertEquals(walPoolSize, manager.getReaderScheduler().getThreads());
+    manager.close();
+
+    // Without write ahead logging in effect the pool shrinks to one thread
+    manager = DaoManager.with(context)
+        .databaseName("walOff.db")
+        .version(1)
+        .add(new UserDao())
+        .profile(DatabaseProfile.READ_HEAVY.newBuilder().writeAheadLogging(false).build())
+        .build();
+    BriteDatabaseBridge.getReadableDatabase(manager.getDatabase());
+    Assert.assertEquals(1, manager.getReaderScheduler().getThreads());
+    manager.close();
+
+    manager = DaoManager.with(context)
+        .databaseName("explicitReaders.db")
+        .version(1)
+        .add(new UserDao())
+        .readerPoolSize(3)
+        .build();
+    BriteDatabaseBridge.getReadableDatabase(manager.getDatabase());
+    Assert.assertEquals(3, manager.getReaderScheduler().getThreads());
+    manager.close();
+  }
+
+  @Test public void invalidProfileSettings() {
+    try {
+      DatabaseProfile.builder().pageSize(1000);
+      Assert.fail("Exception expected");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Page size must be a power of two between 512 and 65536, but was 1000",
+          e.getMessage());
+    }
+
+    try {
+      DatabaseProfile.builder().cacheSizeKib(0);
+      Assert.fail("Exception expected");
+    } catch (IllegalArgumentException e) {
+      Assert.assertEquals("Cache size must be greater than 0", e.getMessage());
+    }
+
+    DatabaseProfile profile = DatabaseProfile.LOW_MEMORY.newBuilder().cacheSizePages(100).build();
+    Assert.assertEquals(Integer.valueOf(100), profile.getCacheSize());
+    Assert.assertEquals(DatabaseProfile.TempStore.FILE, profile.getTempStore());
+    Assert.assertNull(profile.getWriteAheadLogging());
   }
 
 }
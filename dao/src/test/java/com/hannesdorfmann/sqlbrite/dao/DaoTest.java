@@ -1,15 +1,43 @@
 package com.hannesdorfmann.sqlbrite.dao;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import com.squareup.sqlbrite.BriteDatabase;
+import com.squareup.sqlbrite.QueryObservable;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(RobolectricTestRunner.class) @Config(manifest = Config.NONE) public class DaoTest {
 
@@ -22,6 +50,10 @@ import static org.junit.Assert.assertEquals;
     manager = DaoManager.with(c).databaseName("test.db").version(1).add(userDao).build();
   }
 
+  @After public void close() throws Exception {
+    manager.close();
+  }
+
   @Test public void testDao() throws Exception {
     for (int i = 0; i < 10; i++) {
       String name = "Name" + i;
@@ -44,4 +76,1145 @@ import static org.junit.Assert.assertEquals;
       assertEquals(qUser.weight, u.weight, 0.1);
     }
   }
+
+  @Test public void insertAndUpdateWithStatement() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      User u = new User();
+      u.setName("Name" + i);
+      u.setAge(i);
+      u.setWeight(i + 0.5);
+      u.setBlob(i % 2 == 0 ? null : Integer.toString(i).getBytes("UTF-8"));
+
+      userDao.insertWithStatement(u);
+
+      User qUser = userDao.getById(u.id);
+      assertEquals(u.name, qUser.name);
+      assertEquals(u.age, qUser.age);
+      assertEquals(u.weight, qUser.weight, 0.1);
+      assertArrayEquals(u.blob, qUser.blob);
+
+      u.setName("Updated" + i);
+      u.setAge(i + 100);
+      assertEquals(1, userDao.updateWithStatement(u));
+
+      qUser = userDao.getById(u.id);
+      assertEquals("Updated" + i, qUser.name);
+      assertEquals(i + 100, qUser.age);
+    }
+  }
+
+  @Test public void insertAllInChunks() throws Exception {
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("insertAll.db")
+        .version(1)
+        .add(dao)
+        .insertChunkSize(500)
+        .scheduler(Schedulers.immediate())
+        .build();
+
+    final List<Integer> counts = new ArrayList<>();
+    Subscription subscription = dao.observeCount().subscribe(new Action1<Integer>() {
+      @Override public void call(Integer count) {
+        counts.add(count);
+      }
+    });
+
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < 1200; i++) {
+      User u = new User();
+      u.setName("Name" + i);
+      u.setAge(i);
+      u.setWeight(i);
+      users.add(u);
+    }
+
+    long[] ids = dao.insertAll(users);
+    assertEquals(1200, ids.length);
+    assertEquals(Arrays.asList(0, 500, 1000, 1200), counts);
+
+    long[] statementIds = dao.insertAllWithStatement(users);
+    assertEquals(1200, statementIds.length);
+    assertEquals(Arrays.asList(0, 500, 1000, 1200, 1700, 2200, 2400), counts);
+
+    subscription.unsubscribe();
+
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals("Name" + i, dao.getById(ids[i]).name);
+      assertEquals("Name" + i, dao.getById(statementIds[i]).name);
+    }
+
+    manager.close();
+  }
+
+  @Test public void cacheCompiledStatements() throws Exception {
+    StatementCache cache = manager.getStatementCache();
+    assertEquals(DaoManager.DEFAULT_STATEMENT_CACHE_SIZE, cache.maxSize());
+
+    User u = userDao.insert("Name", 1, 1, null);
+    assertEquals(0, cache.hitCount());
+    assertEquals(1, cache.missCount());
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(1, userDao.updateName(u.id, "Name" + i));
+      assertEquals("Name" + i, userDao.getById(u.id).name);
+    }
+    assertEquals(9, cache.hitCount());
+    assertEquals(2, cache.missCount());
+    assertEquals(2, cache.size());
+
+    assertEquals(1, userDao.delete(u.id));
+    assertEquals(0, userDao.delete(u.id));
+    assertEquals(10, cache.hitCount());
+    assertEquals(3, cache.missCount());
+    assertEquals(0, cache.evictionCount());
+
+    manager.close();
+    assertEquals(0, cache.size());
+  }
+
+  @Test public void evictLeastRecentlyUsedStatement() throws Exception {
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("statementCache.db")
+        .version(1)
+        .add(dao)
+        .statementCacheSize(1)
+        .build();
+    StatementCache cache = manager.getStatementCache();
+
+    User u = dao.insert("Name", 1, 1, null);
+    dao.updateName(u.id, "Updated");
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.evictionCount());
+
+    dao.updateName(u.id, "Updated again");
+    assertEquals(1, cache.hitCount());
+
+    dao.insert("Other", 2, 2, null);
+    assertEquals(2, cache.evictionCount());
+    assertEquals("Updated again", dao.getById(u.id).name);
+
+    manager.close();
+  }
+
+  @Test public void preparedQueryWithTypedArgs() throws Exception {
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("prepared.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .build();
+
+    byte[] blob = { 1, 2, 3 };
+    User withBlob = dao.insert("A", 1, 1, blob);
+    User withoutBlob = dao.insert("B", 2, 2, null);
+
+    assertEquals(Arrays.asList(withBlob.id), dao.getIdsByBlob(blob));
+    assertEquals(Arrays.asList(withoutBlob.id), dao.getIdsByBlob(null));
+
+    final List<String> names = new ArrayList<>();
+    Subscription subscription =
+        dao.observeByIdPrepared(withBlob.id).subscribe(new Action1<User>() {
+          @Override public void call(User user) {
+            names.add(user.name);
+          }
+        });
+
+    dao.updateName(withBlob.id, "Updated");
+    subscription.unsubscribe();
+
+    assertEquals(Arrays.asList("A", "Updated"), names);
+
+    manager.close();
+  }
+
+  @Test public void queryWithExpression() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      userDao.insert("Name" + (i % 2), i, i, null);
+    }
+
+    List<User> users = userDao.getOlderThan(5, "Name0", "Foo");
+    assertEquals(2, users.size());
+    assertEquals(6, users.get(0).age);
+    assertEquals(8, users.get(1).age);
+  }
+
+  @Test public void viewWithExpressionArguments() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      userDao.insert(i == 8 ? "O'Brien" : "Name" + i, i, i, null);
+    }
+
+    // Views can't have bound parameters, the arguments are inlined
+    userDao.createViewOlderThan("olderView", 5, "O'Brien");
+    Cursor cursor = userDao.db.query("SELECT name FROM olderView ORDER BY name");
+    try {
+      List<String> names = new ArrayList<>();
+      while (cursor.moveToNext()) {
+        names.add(cursor.getString(0));
+      }
+      assertEquals(Arrays.asList("Name6", "Name7", "Name9"), names);
+    } finally {
+      cursor.close();
+    }
+  }
+
+  @Test public void observeRowsOnlyRequeriesOnRelevantChanges() throws Exception {
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("rows.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .build();
+
+    User a = dao.insert("A", 1, 1, null);
+    User b = dao.insert("B", 2, 2, null);
+
+    final List<String> names = new ArrayList<>();
+    Subscription subscription = dao.observeById(a.id).subscribe(new Action1<User>() {
+      @Override public void call(User user) {
+        names.add(user.name);
+      }
+    });
+
+    // Other rows
+    dao.updateName(b.id, "B2");
+    dao.insert("C", 3, 3, null);
+    dao.delete(b.id);
+    assertEquals(Arrays.asList("A"), names);
+
+    // Observed row
+    dao.updateName(a.id, "A2");
+    assertEquals(Arrays.asList("A", "A2"), names);
+
+    // Unknown rows
+    a.setName("A3");
+    dao.updateWithStatement(a);
+    assertEquals(Arrays.asList("A", "A2", "A3"), names);
+
+    subscription.unsubscribe();
+
+    manager.close();
+  }
+
+  @Test public void onlyRequeryIfObservedColumnsChanged() throws Exception {
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("columns.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .build();
+
+    final List<Integer> counts = new ArrayList<>();
+    Subscription subscription = dao.observeCountOfIds().subscribe(new Action1<Integer>() {
+      @Override public void call(Integer count) {
+        counts.add(count);
+      }
+    });
+    final List<Integer> tableCounts = new ArrayList<>();
+    Subscription tableSubscription = dao.observeCount().subscribe(new Action1<Integer>() {
+      @Override public void call(Integer count) {
+        tableCounts.add(count);
+      }
+    });
+
+    User user = dao.insert("A", 1, 1, null);
+    assertEquals(Arrays.asList(0, 1), counts);
+
+    // Column not selected by the query
+    dao.updateName(user.id, "B");
+    user.setAge(2);
+    dao.updateWithStatement(user);
+    assertEquals(Arrays.asList(0, 1), counts);
+
+    // Without observeColumns() the table is observed, including writes not made by the Dao
+    dao.updateAgesDirectly(3);
+    assertEquals(Arrays.asList(0, 1, 1, 1, 1), tableCounts);
+
+    dao.delete(user.id);
+    assertEquals(Arrays.asList(0, 1, 0), counts);
+    assertEquals(Arrays.asList(0, 1, 1, 1, 1, 0), tableCounts);
+
+    subscription.unsubscribe();
+    tableSubscription.unsubscribe();
+
+    manager.close();
+  }
+
+  @Test public void shareIdenticalQueries() throws Exception {
+    final List<String> queries = new ArrayList<>();
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("shared.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .logging(true)
+        .logger(new SqlBrite.Logger() {
+          @Override public void log(String message) {
+            if (message.startsWith("QUERY")) {
+              queries.add(message);
+            }
+          }
+        })
+        .build();
+
+    User a = dao.insert("A", 1, 1, null);
+    User b = dao.insert("B", 2, 2, null);
+
+    final List<String> names = new ArrayList<>();
+    Action1<User> collectName = new Action1<User>() {
+      @Override public void call(User user) {
+        names.add(user.name);
+      }
+    };
+
+    Subscription first = dao.observeByIdShared(a.id).subscribe(collectName);
+    Subscription second = dao.observeByIdShared(a.id).subscribe(collectName);
+    Subscription other = dao.observeByIdShared(b.id).subscribe(collectName);
+    assertEquals(Arrays.asList("A", "A", "B"), names);
+    assertEquals(2, queries.size());
+    assertEquals(2, manager.getSharedQueries().size());
+    assertEquals(3, manager.getSharedQueries().subscriberCount());
+
+    names.clear();
+    queries.clear();
+    dao.updateName(a.id, "A2");
+    assertEquals(Arrays.asList("A2", "A2", "B"), names);
+    assertEquals(2, queries.size());
+
+    first.unsubscribe();
+    other.unsubscribe();
+    assertEquals(1, manager.getSharedQueries().subscriberCount());
+    second.unsubscribe();
+    assertEquals(0, manager.getSharedQueries().size());
+    assertEquals(0, manager.getSharedQueries().subscriberCount());
+
+    manager.close();
+  }
+
+  @Test public void cacheQueryResults() throws Exception {
+    final List<String> queries = new ArrayList<>();
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("cached.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .queryCacheSize(1)
+        .logging(true)
+        .logger(new SqlBrite.Logger() {
+          @Override public void log(String message) {
+            if (message.startsWith("QUERY")) {
+              queries.add(message);
+            }
+          }
+        })
+        .build();
+    QueryCache cache = manager.getQueryCache();
+
+    User a = dao.insert("A", 1, 1, null);
+    User b = dao.insert("B", 2, 2, null);
+
+    assertEquals("A", dao.observeByIdCached(a.id, false).toBlocking().first().name);
+    assertEquals(1, queries.size());
+    assertEquals(1, cache.missCount());
+    assertEquals(1, cache.size());
+    assertTrue(cache.estimatedSize() > 0);
+
+    // Cached
+    assertEquals("A", dao.observeByIdCached(a.id, false).toBlocking().first().name);
+    assertEquals(1, queries.size());
+    assertEquals(1, cache.hitCount());
+
+    // Invalidated
+    dao.updateName(a.id, "A2");
+    assertEquals(1, cache.invalidationCount());
+    assertEquals("A2", dao.observeByIdCached(a.id, false).toBlocking().first().name);
+    assertEquals(2, queries.size());
+
+    // Stale while revalidate
+    dao.updateName(a.id, "A3");
+    final List<String> names = new ArrayList<>();
+    Subscription subscription = dao.observeByIdCached(a.id, true).subscribe(new Action1<User>() {
+      @Override public void call(User user) {
+        names.add(user.name);
+      }
+    });
+    subscription.unsubscribe();
+    assertEquals(Arrays.asList("A2", "A3"), names);
+    assertEquals(1, cache.staleHitCount());
+
+    // Evicted
+    dao.observeByIdCached(b.id, false).toBlocking().first();
+    assertEquals(1, cache.evictionCount());
+    assertEquals(1, cache.size());
+
+    manager.close();
+  }
+
+  /**
+   * Queries the name of the first row through the given cache
+   */
+  private static Observable<String> cachedNames(QueryCache cache, QueryKey key,
+      QueryObservable upstream) {
+    return cache.query(key, false, upstream).lift(new OperatorDropCanceledQuery(true))
+        .map(new Func1<SqlBrite.Query, String>() {
+          @Override public String call(SqlBrite.Query query) {
+            Cursor cursor = query.run();
+            try {
+              cursor.moveToFirst();
+              return cursor.getString(0);
+            } finally {
+              cursor.close();
+            }
+          }
+        });
+  }
+
+  @Test public void cachedResultRevalidatedAfterSubscribing() throws Exception {
+    // Without a database the table triggers of SQLBrite aren't accessible
+    final QueryCache cache = new QueryCache(null, 1);
+    final QueryKey key = new QueryKey("SELECT name FROM " + UserDao.TABLE, new Object[0],
+        Collections.singleton(UserDao.TABLE), null, false);
+    final String[] name = { "A" };
+    final int[] executions = { 0 };
+    final SqlBrite.Query query = new SqlBrite.Query() {
+      @Override public Cursor run() {
+        executions[0]++;
+        MatrixCursor cursor = new MatrixCursor(new String[] { "name" });
+        cursor.addRow(new Object[] { name[0] });
+        return cursor;
+      }
+    };
+    final PublishSubject<SqlBrite.Query> triggers = PublishSubject.create();
+    final QueryObservable upstream =
+        new QueryObservable(new Observable.OnSubscribe<SqlBrite.Query>() {
+          @Override public void call(Subscriber<? super SqlBrite.Query> subscriber) {
+            triggers.unsafeSubscribe(subscriber);
+          }
+        });
+    Func0<Observable<String>> names = new Func0<Observable<String>>() {
+      @Override public Observable<String> call() {
+        return cachedNames(cache, key, upstream);
+      }
+    };
+
+    TestSubscriber<String> first = new TestSubscriber<>();
+    names.call().subscribe(first);
+    triggers.onNext(query);
+    first.assertValues("A");
+    first.unsubscribe();
+    assertEquals(1, executions[0]);
+
+    // Still valid when the query is emitted initially: not executed again
+    TestSubscriber<String> valid = new TestSubscriber<>();
+    names.call().subscribe(valid);
+    triggers.onNext(query);
+    valid.assertValues("A");
+    valid.unsubscribe();
+    assertEquals(1, executions[0]);
+
+    // Changed by a dao after the lookup, before the query is emitted initially
+    TestSubscriber<String> changed = new TestSubscriber<>();
+    names.call().subscribe(changed);
+    name[0] = "B";
+    cache.invalidate(Collections.singleton(UserDao.TABLE));
+    triggers.onNext(query);
+    changed.assertValues("A", "B");
+    assertEquals(2, executions[0]);
+
+    // Changed while observed, without a dao
+    name[0] = "C";
+    triggers.onNext(query);
+    changed.assertValues("A", "B", "C");
+    changed.unsubscribe();
+    assertEquals(2, cache.invalidationCount());
+
+    cache.close();
+  }
+
+  @Test public void cachedResultsNotStoredBeforeCommit() throws Exception {
+    QueryCache cache = new QueryCache(manager.getDatabase(), 1);
+    QueryKey key = new QueryKey("SELECT name FROM " + UserDao.TABLE, new Object[0],
+        Collections.singleton(UserDao.TABLE), null, false);
+    final String[] name = { "A" };
+    final SqlBrite.Query query = new SqlBrite.Query() {
+      @Override public Cursor run() {
+        MatrixCursor cursor = new MatrixCursor(new String[] { "name" });
+        cursor.addRow(new Object[] { name[0] });
+        return cursor;
+      }
+    };
+    QueryObservable upstream = new QueryObservable(new Observable.OnSubscribe<SqlBrite.Query>() {
+      @Override public void call(Subscriber<? super SqlBrite.Query> subscriber) {
+        subscriber.onNext(query);
+      }
+    });
+
+    // Changed by a dao within a transaction: a concurrent query still reads the old rows
+    BriteDatabase.Transaction transaction = cache.newTransaction();
+    cache.invalidate(Collections.singleton(UserDao.TABLE));
+    assertEquals("A", cachedNames(cache, key, upstream).toBlocking().first());
+    assertEquals(0, cache.size());
+
+    name[0] = "B";
+    transaction.markSuccessful();
+    transaction.end();
+    assertEquals("B", cachedNames(cache, key, upstream).toBlocking().first());
+    assertEquals(1, cache.size());
+    assertEquals("B", cachedNames(cache, key, upstream).toBlocking().first());
+    assertEquals(1, cache.hitCount());
+
+    cache.close();
+  }
+
+  @Test public void skipUnchangedResults() throws Exception {
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("skipUnchanged.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .build();
+    QueryStatistics statistics = manager.getQueryStatistics();
+
+    User a = dao.insert("A", 1, 1, null);
+    User b = dao.insert("B", 5, 2, null);
+
+    final List<List<String>> emitted = new ArrayList<>();
+    Subscription subscription = dao.observeOlderThan(2).subscribe(new Action1<List<User>>() {
+      @Override public void call(List<User> users) {
+        List<String> names = new ArrayList<>();
+        for (User user : users) {
+          names.add(user.name);
+        }
+        emitted.add(names);
+      }
+    });
+
+    // Changes a row that is not part of the result
+    dao.updateName(a.id, "A2");
+    assertEquals(1, emitted.size());
+
+    dao.updateName(b.id, "B2");
+    assertEquals(2, emitted.size());
+    assertEquals(Arrays.asList("B2"), emitted.get(1));
+
+    // Sets the same value again
+    dao.updateName(b.id, "B2");
+    assertEquals(2, emitted.size());
+
+    subscription.unsubscribe();
+    assertEquals(4, statistics.digestedResultCount());
+    assertEquals(2, statistics.unchangedResultCount());
+
+    manager.close();
+  }
+
+  @Test public void emitListChanges() throws Exception {
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("listChanges.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .build();
+
+    User a = dao.insert("A", 1, 1, null);
+    User b = dao.insert("B", 2, 2, null);
+    User c = dao.insert("C", 3, 3, null);
+
+    final List<ListChanges<User>> emitted = new ArrayList<>();
+    Subscription subscription =
+        dao.observeChangesOrderedByName().subscribe(new Action1<ListChanges<User>>() {
+          @Override public void call(ListChanges<User> changes) {
+            emitted.add(changes);
+          }
+        });
+
+    assertEquals(1, emitted.size());
+    ListChanges<User> changes = emitted.get(0);
+    assertEquals(3, changes.getInserted().size());
+    assertEquals(2, changes.getInserted().get(2).getToPosition());
+    assertTrue(changes.getPreviousList().isEmpty());
+    User mappedA = changes.getList().get(0);
+
+    // B -> D changes the order: A, C, D
+    dao.updateName(b.id, "D");
+    assertEquals(2, emitted.size());
+    changes = emitted.get(1);
+    assertTrue(changes.getInserted().isEmpty());
+    assertTrue(changes.getRemoved().isEmpty());
+    assertEquals(1, changes.getChanged().size());
+    ListChanges.Change<User> changed = changes.getChanged().get(0);
+    assertEquals("B", changed.getPreviousItem().name);
+    assertEquals("D", changed.getItem().name);
+    assertEquals(1, changed.getFromPosition());
+    assertEquals(2, changed.getToPosition());
+    assertEquals(1, changes.getMoved().size());
+    // Unchanged rows are not mapped again
+    assertSame(mappedA, changes.getList().get(0));
+
+    dao.insert("E", 4, 4, null);
+    changes = emitted.get(2);
+    assertEquals(1, changes.getInserted().size());
+    assertEquals(3, changes.getInserted().get(0).getToPosition());
+    assertTrue(changes.getMoved().isEmpty());
+    assertTrue(changes.getChanged().isEmpty());
+
+    dao.delete(a.id);
+    changes = emitted.get(3);
+    assertEquals(1, changes.getRemoved().size());
+    assertEquals(0, changes.getRemoved().get(0).getFromPosition());
+    assertSame(mappedA, changes.getRemoved().get(0).getItem());
+    assertTrue(changes.getMoved().isEmpty());
+    assertEquals(3, changes.getList().size());
+
+    // No changes, no emission
+    dao.updateName(c.id, "C");
+    assertEquals(4, emitted.size());
+
+    subscription.unsubscribe();
+    manager.close();
+  }
+
+  @Test public void listChangesRejectDuplicateKeys() throws Exception {
+    TestSubscriber<ListChanges<Long>> subscriber = new TestSubscriber<>();
+    Observable.just(idQuery(1), idQuery(1, 1))
+        .lift(new OperatorListChanges<>("id", new Func1<Cursor, Long>() {
+          @Override public Long call(Cursor cursor) {
+            return cursor.getLong(0);
+          }
+        }))
+        .subscribe(subscriber);
+
+    // More rows than in the previous result, all of them retained
+    assertEquals(1, subscriber.getOnNextEvents().size());
+    subscriber.assertError(IllegalStateException.class);
+  }
+
+  /**
+   * A query of a single id column with the given values
+   */
+  private static SqlBrite.Query idQuery(final long... ids) {
+    return new SqlBrite.Query() {
+      @Override public Cursor run() {
+        MatrixCursor cursor = new MatrixCursor(new String[] { "id" });
+        for (long id : ids) {
+          cursor.addRow(new Object[] { id });
+        }
+        return cursor;
+      }
+    };
+  }
+
+  @Test public void keysetPagination() throws Exception {
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("keyset.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .build();
+
+    User d = dao.insert("D", 1, 1, null);
+    User b1 = dao.insert("B", 2, 2, null);
+    User a = dao.insert("A", 3, 3, null);
+    User b2 = dao.insert("B", 4, 4, null);
+    User c = dao.insert("C", 5, 5, null);
+
+    List<Long> ids = new ArrayList<>();
+    Object[] next = null;
+    int pages = 0;
+    do {
+      Page<User> page = dao.getPageOrderedByName(next, 2);
+      for (User user : page.getItems()) {
+        ids.add(user.id);
+      }
+      next = page.getNext();
+      pages++;
+    } while (next != null);
+
+    assertEquals(3, pages);
+    assertEquals(Arrays.asList(a.id, b1.id, b2.id, c.id, d.id), ids);
+
+    // The argument of the raw WHERE placeholder precedes the arguments of the keyset
+    ids.clear();
+    for (User user : dao.getPageOlderThan(1, new Object[] { "A", a.id }, 10).getItems()) {
+      ids.add(user.id);
+    }
+    assertEquals(Arrays.asList(b1.id, b2.id, c.id), ids);
+    manager.close();
+  }
+
+  @Test public void streamRowsWithBackpressure() throws Exception {
+    final UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("stream.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .build();
+
+    for (int i = 0; i < 10; i++) {
+      dao.insert("User" + i, i, i, null);
+    }
+
+    final List<Cursor> cursors = new ArrayList<>();
+    TestSubscriber<User> subscriber = new TestSubscriber<>(3);
+    dao.streamAll(new Func1<Cursor, User>() {
+      @Override public User call(Cursor cursor) {
+        cursors.add(cursor);
+        return dao.MAPPER.call(cursor);
+      }
+    }).subscribe(subscriber);
+
+    // Only the requested rows are mapped
+    assertEquals(3, subscriber.getOnNextEvents().size());
+    assertEquals(3, cursors.size());
+    assertEquals("User2", subscriber.getOnNextEvents().get(2).name);
+    assertFalse(cursors.get(0).isClosed());
+
+    subscriber.requestMore(2);
+    assertEquals(5, subscriber.getOnNextEvents().size());
+    assertEquals("User4", subscriber.getOnNextEvents().get(4).name);
+
+    subscriber.unsubscribe();
+    assertTrue(cursors.get(0).isClosed());
+
+    TestSubscriber<List<User>> chunks = new TestSubscriber<>();
+    dao.streamAllChunks(4).subscribe(chunks);
+    chunks.assertNoErrors();
+    chunks.assertCompleted();
+    assertEquals(3, chunks.getOnNextEvents().size());
+    assertEquals(4, chunks.getOnNextEvents().get(1).size());
+    assertEquals(2, chunks.getOnNextEvents().get(2).size());
+    assertEquals("User9", chunks.getOnNextEvents().get(2).get(1).name);
+
+    manager.close();
+  }
+
+  @Test public void lazyListMapsRowsOnAccess() throws Exception {
+    UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("lazyList.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .build();
+
+    for (int i = 0; i < 100; i++) {
+      dao.insert("User" + i, i, i, null);
+    }
+
+    final List<CursorList<User>> lists = new ArrayList<>();
+    Subscription subscription =
+        dao.observeAllLazy(5, 2).subscribe(new Action1<CursorList<User>>() {
+          @Override public void call(CursorList<User> users) {
+            lists.add(users);
+          }
+        });
+
+    CursorList<User> first = lists.get(0);
+    assertEquals(100, first.size());
+    assertEquals(0, first.mappedRowCount());
+
+    // Maps the accessed row and prefetches 2 rows in scroll direction
+    assertEquals("User50", first.get(50).name);
+    assertEquals(3, first.mappedRowCount());
+    assertEquals("User51", first.get(51).name);
+    assertEquals(4, first.mappedRowCount());
+
+    // Scrolling backwards prefetches backwards
+    assertEquals("User49", first.get(49).name);
+    assertEquals(7, first.mappedRowCount());
+    assertEquals("User48", first.get(48).name);
+    assertEquals(8, first.mappedRowCount());
+
+    // The first list is closed once the next one is accessed
+    dao.updateName(1, "Updated");
+    assertEquals(2, lists.size());
+    CursorList<User> second = lists.get(1);
+    assertFalse(first.isClosed());
+    assertEquals("Updated", second.get(0).name);
+    assertTrue(first.isClosed());
+    assertFalse(second.isClosed());
+
+    // Lists that are never accessed are closed once the second list after them is emitted
+    dao.updateName(1, "Updated2");
+    dao.updateName(1, "Updated3");
+    assertEquals(4, lists.size());
+    assertTrue(second.isClosed());
+    assertFalse(lists.get(2).isClosed());
+    assertFalse(lists.get(3).isClosed());
+
+    subscription.unsubscribe();
+    assertTrue(lists.get(2).isClosed());
+    assertTrue(lists.get(3).isClosed());
+    manager.close();
+  }
+
+  @Test public void batchLookupsById() throws Exception {
+    UserDao dao = new UserDao();
+    TestScheduler scheduler = new TestScheduler();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("batchLoader.db")
+        .version(1)
+        .add(dao)
+        .scheduler(scheduler)
+        .build();
+    BatchLoader<User> loader = dao.getLoader();
+
+    User a = dao.insert("A", 1, 1, null);
+    User b = dao.insert("B", 2, 2, null);
+
+    TestSubscriber<User> first = new TestSubscriber<>();
+    TestSubscriber<User> second = new TestSubscriber<>();
+    TestSubscriber<User> again = new TestSubscriber<>();
+    TestSubscriber<User> missing = new TestSubscriber<>();
+    dao.loadById(a.id).subscribe(first);
+    dao.loadById(b.id).subscribe(second);
+    dao.loadById(a.id).subscribe(again);
+    dao.loadById(12345).subscribe(missing);
+    assertTrue(first.getOnNextEvents().isEmpty());
+
+    scheduler.triggerActions();
+    assertEquals("A", first.getOnNextEvents().get(0).name);
+    assertEquals("B", second.getOnNextEvents().get(0).name);
+    assertEquals("A", again.getOnNextEvents().get(0).name);
+    first.assertCompleted();
+    missing.assertNoValues();
+    missing.assertCompleted();
+    assertEquals(4, loader.loadCount());
+    assertEquals(1, loader.batchCount());
+    assertEquals(1, loader.queryCount());
+
+    // Large batches: chunked IN lists and a temporary table
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < BatchLoader.TEMP_TABLE_THRESHOLD; i++) {
+      User user = new User();
+      user.name = "User" + i;
+      users.add(user);
+    }
+    long[] ids = dao.insertAll(users);
+
+    List<TestSubscriber<User>> chunked = new ArrayList<>();
+    for (int i = 0; i < BatchLoader.MAX_HOST_PARAMETERS + 1; i++) {
+      TestSubscriber<User> subscriber = new TestSubscriber<>();
+      dao.loadById(ids[i]).subscribe(subscriber);
+      chunked.add(subscriber);
+    }
+    scheduler.triggerActions();
+    assertEquals(3, loader.queryCount());
+    assertEquals(ids[BatchLoader.MAX_HOST_PARAMETERS],
+        chunked.get(BatchLoader.MAX_HOST_PARAMETERS).getOnNextEvents().get(0).id);
+
+    TestSubscriber<User> last = new TestSubscriber<>();
+    dao.loadById(a.id).subscribe(new TestSubscriber<User>());
+    for (long id : ids) {
+      dao.loadById(id).subscribe(id == ids[ids.length - 1] ? last : new TestSubscriber<User>());
+    }
+    scheduler.triggerActions();
+    // Loaded by the writer thread, without blocking the query scheduler
+    last.awaitTerminalEvent(5, TimeUnit.SECONDS);
+    assertEquals(4, loader.queryCount());
+    assertEquals(ids[ids.length - 1], last.getOnNextEvents().get(0).id);
+    assertEquals("SqlBrite-Writer", last.getLastSeenThread().getName());
+    last.assertCompleted();
+
+    // A temporary table within a transaction of the caller doesn't roll it back
+    User c;
+    BriteDatabase.Transaction transaction = dao.newTransaction();
+    try {
+      c = dao.insert("C", 3, 3, null);
+      TestSubscriber<User> inTransaction = new TestSubscriber<>();
+      dao.loadById(c.id).subscribe(inTransaction);
+      for (long id : ids) {
+        dao.loadById(id).subscribe(new TestSubscriber<User>());
+      }
+      scheduler.triggerActions();
+      assertEquals("C", inTransaction.getOnNextEvents().get(0).name);
+      transaction.markSuccessful();
+    } finally {
+      transaction.end();
+    }
+    TestSubscriber<User> committed = new TestSubscriber<>();
+    dao.loadById(c.id).subscribe(committed);
+    scheduler.triggerActions();
+    assertEquals("C", committed.getOnNextEvents().get(0).name);
+
+    manager.close();
+  }
+
+  @Test public void writesOnDedicatedWriterThread() throws Exception {
+    // Per default a dedicated writer thread executes all writes
+    String writer = userDao.insertDeferred("Writer", 1).map(new Func1<Long, String>() {
+      @Override public String call(Long id) {
+        return Thread.currentThread().getName();
+      }
+    }).toBlocking().first();
+    assertEquals("SqlBrite-Writer", writer);
+  }
+
+  @Test public void writesOnWriteScheduler() throws Exception {
+    TestScheduler writeScheduler = new TestScheduler();
+    final UserDao userDao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("writeScheduler.db")
+        .version(1)
+        .add(userDao)
+        .scheduler(Schedulers.immediate())
+        .writeScheduler(writeScheduler)
+        .build();
+
+    TestSubscriber<Integer> counts = new TestSubscriber<>();
+    userDao.observeCount().subscribe(counts);
+    counts.assertValue(0);
+
+    TestSubscriber<Long> first = new TestSubscriber<>();
+    TestSubscriber<Long> second = new TestSubscriber<>();
+    userDao.insertDeferred("First", 1).subscribe(first);
+    userDao.insertDeferred("Second", 2).subscribe(second);
+    first.assertNoValues();
+    second.assertNoValues();
+    counts.assertValue(0);
+
+    writeScheduler.triggerActions();
+    first.assertValue(1L);
+    second.assertValue(2L);
+    counts.assertValues(0, 1, 2);
+
+    // Within a transaction writes are executed by the thread running the transaction
+    long id = manager.runInTransaction(new Func0<Long>() {
+      @Override public Long call() {
+        return userDao.insertDeferred("Third", 3).toBlocking().first();
+      }
+    });
+    assertEquals(3, id);
+    counts.assertValues(0, 1, 2, 3);
+
+    counts.unsubscribe();
+    manager.close();
+  }
+
+  @Test public void writeBehindQueueCommitsGroups() throws Exception {
+    TestScheduler writeScheduler = new TestScheduler();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("writeBehind.db")
+        .version(1)
+        .add(userDao)
+        .scheduler(Schedulers.immediate())
+        .writeScheduler(writeScheduler)
+        .build();
+
+    WriteBehindQueue queue = manager.newWriteBehindQueue(5, 3, 100, TimeUnit.MILLISECONDS);
+
+    TestSubscriber<Integer> counts = new TestSubscriber<>();
+    userDao.observeCount().subscribe(counts);
+    counts.assertValue(0);
+
+    // Committed after the max delay, one notification for both writes
+    TestSubscriber<Long> first = new TestSubscriber<>();
+    queue.enqueue(userDao.insertDeferred("First", 1)).subscribe(first);
+    Observable<Long> second = queue.enqueue(userDao.insertDeferred("Second", 2));
+    assertEquals(2, queue.size());
+    first.assertNoValues();
+    writeScheduler.advanceTimeBy(99, TimeUnit.MILLISECONDS);
+    counts.assertValue(0);
+    writeScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+    counts.assertValues(0, 2);
+    first.assertValue(1L);
+    first.assertCompleted();
+    assertEquals(2L, (long) second.toBlocking().single());
+
+    // Committed as soon as max batch size writes are queued
+    for (int i = 0; i < 3; i++) {
+      queue.enqueue(userDao.insertDeferred("Batch" + i, i));
+    }
+    writeScheduler.triggerActions();
+    counts.assertValues(0, 2, 5);
+
+    // A full queue is committed on the calling thread
+    for (int i = 0; i < 6; i++) {
+      queue.enqueue(userDao.insertDeferred("Full" + i, i));
+    }
+    counts.assertValues(0, 2, 5, 8, 10);
+    assertEquals(1, queue.size());
+
+    // A failing write doesn't affect the other writes of the group
+    TestSubscriber<Long> failing = new TestSubscriber<>();
+    queue.enqueue(Observable.<Long>error(new IllegalStateException("failed"))).subscribe(failing);
+    queue.flush();
+    failing.assertError(IllegalStateException.class);
+    counts.assertValues(0, 2, 5, 8, 10, 11);
+    assertEquals(0, queue.size());
+    assertEquals(11, queue.writeCount());
+    assertEquals(1, queue.failedWriteCount());
+    assertEquals(5, queue.flushCount());
+
+    // Closing the manager commits the queued writes
+    queue.enqueue(userDao.insertDeferred("Last", 1));
+    counts.unsubscribe();
+    manager.close();
+    assertEquals(12, queue.writeCount());
+    try {
+      queue.enqueue(userDao.insertDeferred("Closed", 1));
+      fail("Exception expected");
+    } catch (IllegalStateException e) {
+      assertEquals("WriteBehindQueue has been closed", e.getMessage());
+    }
+  }
+
+  @Test public void prioritizedQueriesAndWrites() throws Exception {
+    QueryStatistics statistics = manager.getQueryStatistics();
+    assertEquals(0, statistics.queueWaitCount(Priority.HIGH));
+    assertEquals(0, statistics.queueWaitCount(Priority.LOW));
+
+    long id = userDao.insertWithPriority("Low", 1, Priority.LOW);
+    assertEquals(1, statistics.queueWaitCount(Priority.LOW));
+
+    assertEquals(1, (int) userDao.observeCount(Priority.HIGH).toBlocking().first());
+    assertTrue(statistics.queueWaitCount(Priority.HIGH) >= 1);
+    assertEquals(1, statistics.queueWaitCount(Priority.LOW));
+    assertEquals(1, id);
+  }
+
+  @Test public void writesKeepOrderWhateverTheirPriority() throws Exception {
+    // Occupy the writer thread, so that both writes are waiting at the same time
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    userDao.insertDeferred("Blocker", 1).subscribe(new Action1<Long>() {
+      @Override public void call(Long id) {
+        started.countDown();
+        try {
+          blocked.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    TestSubscriber<Long> insert = new TestSubscriber<>();
+    userDao.insertDeferred("Low", 2, Priority.LOW).subscribe(insert);
+    TestSubscriber<Integer> delete = new TestSubscriber<>();
+    userDao.deleteDeferred("Low").subscribe(delete);
+    blocked.countDown();
+
+    insert.awaitTerminalEvent(5, TimeUnit.SECONDS);
+    delete.awaitTerminalEvent(5, TimeUnit.SECONDS);
+    insert.assertNoErrors();
+    delete.assertValue(1);
+    assertEquals(1, (int) userDao.observeCount().toBlocking().first());
+  }
+
+  @Test public void changesDuringThrottledQueryDontCancelEveryExecution() throws Exception {
+    final int maxWrites = 10;
+    final AtomicInteger writes = new AtomicInteger(-1);
+    final UserDao dao = new UserDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("supersede.db")
+        .version(1)
+        .add(dao)
+        .scheduler(Schedulers.immediate())
+        .logging(true)
+        .logger(new SqlBrite.Logger() {
+          @Override public void log(String message) {
+            // Each execution of the query changes the table while it is in flight
+            if (message.startsWith("QUERY") && writes.get() >= 0 && writes.get() < maxWrites) {
+              dao.updateAgesDirectly(writes.incrementAndGet());
+            }
+          }
+        })
+        .build();
+    dao.insert("A", 1, 1, null);
+
+    final AtomicInteger writesOnResult = new AtomicInteger();
+    final CountDownLatch requeried = new CountDownLatch(2);
+    Subscription subscription =
+        dao.observeCount(RequeryPolicy.throttle(10, TimeUnit.MILLISECONDS))
+            .subscribe(new Action1<Integer>() {
+              @Override public void call(Integer count) {
+                writesOnResult.set(writes.get());
+                requeried.countDown();
+              }
+            });
+
+    // Starts the writes with the first requery
+    writes.set(0);
+    dao.updateAgesDirectly(0);
+
+    // A result is emitted while the writes go on
+    assertTrue(requeried.await(5, TimeUnit.SECONDS));
+    assertTrue(writesOnResult.get() < maxWrites);
+
+    subscription.unsubscribe();
+    manager.close();
+  }
+
+  @Test public void unitOfWorkNotifiesOnceOnCommit() throws Exception {
+    final UserDao userDao = new UserDao();
+    final TagDao tagDao = new TagDao();
+    DaoManager manager = DaoManager.with(RuntimeEnvironment.application)
+        .databaseName("unitOfWork.db")
+        .version(1)
+        .add(userDao)
+        .add(tagDao)
+        .scheduler(Schedulers.immediate())
+        .build();
+
+    final List<Integer> counts = new ArrayList<>();
+    Subscription subscription = tagDao.observeUserTagCount().subscribe(new Action1<Integer>() {
+      @Override public void call(Integer count) {
+        counts.add(count);
+      }
+    });
+
+    UnitOfWork work = manager.newUnitOfWork();
+    try {
+      for (int i = 0; i < 3; i++) {
+        User user = userDao.insert("Name" + i, i, i, null);
+        tagDao.insert(user.id, "a");
+        tagDao.insert(user.id, "b");
+        userDao.updateName(user.id, "Updated" + i);
+      }
+      assertEquals(Arrays.asList(0), counts);
+      assertEquals(new HashSet<>(Arrays.asList(UserDao.TABLE, TagDao.TABLE)),
+          work.getChangedTables());
+      work.markSuccessful();
+    } finally {
+      work.end();
+    }
+    assertEquals(Arrays.asList(0, 6), counts);
+
+    // Rollback: no notification at all
+    try {
+      manager.runInTransaction(new Func0<Void>() {
+        @Override public Void call() {
+          User user = userDao.insert("Rollback", 1, 1, null);
+          tagDao.insert(user.id, "c");
+          throw new IllegalStateException("rollback");
+        }
+      });
+    } catch (IllegalStateException e) {
+      assertEquals("rollback", e.getMessage());
+    }
+    assertEquals(Arrays.asList(0, 6), counts);
+
+    long tagId = manager.runInTransaction(new Func0<Long>() {
+      @Override public Long call() {
+        User user = userDao.insert("Committed", 1, 1, null);
+        return tagDao.insert(user.id, "d");
+      }
+    });
+    assertEquals(7, tagId);
+    assertEquals(Arrays.asList(0, 6, 7), counts);
+
+    subscription.unsubscribe();
+    manager.close();
+  }
 }
@@ -0,0 +1,128 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.SqlBrite;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import org.junit.Test;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class OperatorDropCanceledQueryTest {
+
+  /**
+   * Returns the given cursors one after another, <code>null</code> for a canceled execution
+   */
+  private static class TestQuery extends SqlBrite.Query {
+    final LinkedList<Cursor> cursors;
+
+    TestQuery(Cursor... cursors) {
+      this.cursors = new LinkedList<>(Arrays.asList(cursors));
+    }
+
+    @Override public Cursor run() {
+      return cursors.isEmpty() ? null : cursors.poll();
+    }
+  }
+
+  private final PublishSubject<SqlBrite.Query> queries = PublishSubject.create();
+  private final TestSubscriber<SqlBrite.Query> subscriber = new TestSubscriber<>();
+  private final Set<Cursor> closed = new HashSet<>();
+
+  /**
+   * Creates a cursor that only records that it has been closed
+   */
+  private Cursor cursor() {
+    return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(),
+        new Class<?>[] { Cursor.class }, new InvocationHandler() {
+          @Override public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("close")) {
+              closed.add((Cursor) proxy);
+            } else if (method.getName().equals("hashCode")) {
+              return System.identityHashCode(proxy);
+            } else if (method.getName().equals("equals")) {
+              return proxy == args[0];
+            }
+            return null;
+          }
+        });
+  }
+
+  @Test public void canceledExecutionsAreDropped() {
+    queries.lift(new OperatorDropCanceledQuery(true)).subscribe(subscriber);
+    Cursor cursor = cursor();
+
+    queries.onNext(new TestQuery());
+    subscriber.assertNoValues();
+
+    queries.onNext(new TestQuery(cursor));
+    subscriber.assertValueCount(1);
+    assertSame(cursor, subscriber.getOnNextEvents().get(0).run());
+  }
+
+  @Test public void rerunsAfterTheExecutedCursor() {
+    queries.lift(new OperatorDropCanceledQuery(true)).subscribe(subscriber);
+    Cursor first = cursor();
+    Cursor second = cursor();
+
+    // The second execution is canceled and repeated by run()
+    queries.onNext(new TestQuery(first, null, second));
+    SqlBrite.Query query = subscriber.getOnNextEvents().get(0);
+    assertSame(first, query.run());
+    assertSame(second, query.run());
+  }
+
+  @Test public void supersededCursorIsClosed() {
+    queries.lift(new OperatorDropCanceledQuery(true)).subscribe(subscriber);
+    Cursor first = cursor();
+    Cursor second = cursor();
+
+    queries.onNext(new TestQuery(first));
+    queries.onNext(new TestQuery(second));
+    assertEquals(2, subscriber.getOnNextEvents().size());
+    assertTrue(closed.contains(first));
+    assertFalse(closed.contains(second));
+  }
+
+  @Test public void cursorNotRunIsClosedOnUnsubscribe() {
+    queries.lift(new OperatorDropCanceledQuery(true)).subscribe(subscriber);
+    Cursor cursor = cursor();
+
+    queries.onNext(new TestQuery(cursor));
+    subscriber.assertValueCount(1);
+    subscriber.unsubscribe();
+    assertTrue(closed.contains(cursor));
+  }
+
+  @Test public void cursorNotRunIsClosedOnTermination() {
+    queries.lift(new OperatorDropCanceledQuery(true)).subscribe(subscriber);
+    Cursor cursor = cursor();
+
+    queries.onNext(new TestQuery(cursor));
+    queries.onCompleted();
+    assertTrue(closed.contains(cursor));
+  }
+
+  @Test public void cursorIsKeptOnUnsubscribeIfRunAfterwards() {
+    queries.lift(new OperatorDropCanceledQuery(false)).subscribe(subscriber);
+    Cursor cursor = cursor();
+
+    queries.onNext(new TestQuery(cursor));
+    subscriber.unsubscribe();
+    assertFalse(closed.contains(cursor));
+    assertSame(cursor, subscriber.getOnNextEvents().get(0).run());
+  }
+}
@@ -0,0 +1,173 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.observers.TestSubscriber;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class PrioritySchedulerTest {
+
+  private PriorityScheduler scheduler;
+  private final QueryStatistics statistics = new QueryStatistics();
+  private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+  private final Semaphore executions = new Semaphore(0);
+  private final TestClock clock = new TestClock();
+
+  /**
+   * A clock that only moves when it's told to
+   */
+  private static final class TestClock implements PriorityScheduler.Clock {
+    private volatile long now;
+
+    void advance(long time, TimeUnit unit) {
+      now += unit.toNanos(time);
+    }
+
+    @Override public long nanoTime() {
+      return now;
+    }
+  }
+
+  @After public void shutdown() {
+    scheduler.shutdown();
+  }
+
+  /**
+   * Creates a worker within a subscription with the given priority
+   */
+  private Scheduler.Worker worker(Priority priority) {
+    final Scheduler.Worker[] worker = new Scheduler.Worker[1];
+    PriorityScheduler.subscribe(priority, Observable.create(new Observable.OnSubscribe<Object>() {
+      @Override public void call(Subscriber<? super Object> subscriber) {
+        worker[0] = scheduler.createWorker();
+      }
+    }), new TestSubscriber<Object>());
+    return worker[0];
+  }
+
+  private Action0 record(final String name) {
+    return new Action0() {
+      @Override public void call() {
+        executed.add(name);
+        executions.release();
+      }
+    };
+  }
+
+  /**
+   * Occupies the single thread of the scheduler until the returned latch is counted down
+   */
+  private CountDownLatch block() throws InterruptedException {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    scheduler.createWorker().schedule(new Action0() {
+      @Override public void call() {
+        started.countDown();
+        try {
+          blocked.await();
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    started.await();
+    return blocked;
+  }
+
+  private void awaitExecuted(int count) throws InterruptedException {
+    Assert.assertTrue(executions.tryAcquire(count, 5, TimeUnit.SECONDS));
+    Assert.assertEquals(count, executed.size());
+  }
+
+  @Test public void executesInOrderOfPriority() throws Exception {
+    scheduler = new PriorityScheduler("test", 1, 1, TimeUnit.HOURS, statistics, clock);
+
+    CountDownLatch blocked = block();
+    worker(Priority.LOW).schedule(record("low"));
+    clock.advance(10, TimeUnit.MILLISECONDS);
+    worker(Priority.NORMAL).schedule(record("normal"));
+    clock.advance(10, TimeUnit.MILLISECONDS);
+    Scheduler.Worker high = worker(Priority.HIGH);
+    high.schedule(record("high1"));
+    high.schedule(record("high2"));
+    clock.advance(80, TimeUnit.MILLISECONDS);
+    blocked.countDown();
+
+    awaitExecuted(4);
+    Assert.assertEquals(Arrays.asList("high1", "high2", "normal", "low"), executed);
+    Assert.assertEquals(2, statistics.queueWaitCount(Priority.HIGH));
+    Assert.assertEquals(2, statistics.queueWaitCount(Priority.NORMAL));
+    Assert.assertEquals(1, statistics.queueWaitCount(Priority.LOW));
+    Assert.assertEquals(80, statistics.maxQueueWait(Priority.HIGH, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(90, statistics.maxQueueWait(Priority.NORMAL, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(100, statistics.maxQueueWait(Priority.LOW, TimeUnit.MILLISECONDS));
+  }
+
+  @Test public void agedLowPriorityWorkIsNotStarved() throws Exception {
+    scheduler = new PriorityScheduler("test", 1, 50, TimeUnit.MILLISECONDS, statistics, clock);
+
+    CountDownLatch blocked = block();
+    worker(Priority.LOW).schedule(record("low"));
+    clock.advance(200, TimeUnit.MILLISECONDS);
+    worker(Priority.HIGH).schedule(record("high"));
+    blocked.countDown();
+
+    awaitExecuted(2);
+    Assert.assertEquals(Arrays.asList("low", "high"), executed);
+  }
+
+  @Test public void withoutAgingInOrderOfQueueing() throws Exception {
+    scheduler = new PriorityScheduler("test", 1, 0, TimeUnit.MILLISECONDS, statistics, clock);
+
+    CountDownLatch blocked = block();
+    worker(Priority.LOW).schedule(record("low"));
+    worker(Priority.NORMAL).schedule(record("normal"));
+    worker(Priority.HIGH).schedule(record("high"));
+    blocked.countDown();
+
+    awaitExecuted(3);
+    Assert.assertEquals(Arrays.asList("low", "normal", "high"), executed);
+    Assert.assertEquals(1, statistics.queueWaitCount(Priority.LOW));
+    Assert.assertEquals(1, statistics.queueWaitCount(Priority.HIGH));
+  }
+
+  @Test public void additionalThreadsExecuteWaitingWork() throws Exception {
+    scheduler = new PriorityScheduler("test", 1, 0, TimeUnit.MILLISECONDS, statistics, clock);
+
+    CountDownLatch blocked = block();
+    worker(Priority.NORMAL).schedule(record("waiting"));
+    scheduler.setThreads(2);
+    Assert.assertEquals(2, scheduler.getThreads());
+
+    awaitExecuted(1);
+    blocked.countDown();
+  }
+
+  @Test public void unsubscribedActionsAreSkipped() throws Exception {
+    scheduler = new PriorityScheduler("test", 1, 1, TimeUnit.HOURS, statistics, clock);
+
+    CountDownLatch blocked = block();
+    Scheduler.Worker worker = worker(Priority.NORMAL);
+    worker.schedule(record("first"));
+    worker.schedule(record("second")).unsubscribe();
+    worker.schedule(record("third"));
+    blocked.countDown();
+
+    awaitExecuted(2);
+    Assert.assertEquals(Arrays.asList("first", "third"), executed);
+  }
+}
@@ -0,0 +1,155 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.database.Cursor;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import rx.functions.Action1;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+
+public class RequeryPolicyTest {
+
+  private static class TestQuery extends SqlBrite.Query {
+    final int id;
+
+    TestQuery(int id) {
+      this.id = id;
+    }
+
+    @Override public Cursor run() {
+      return null;
+    }
+  }
+
+  private final PublishSubject<SqlBrite.Query> triggers = PublishSubject.create();
+  private final List<Integer> executed = new ArrayList<>();
+  private final Action1<SqlBrite.Query> recorder = new Action1<SqlBrite.Query>() {
+    @Override public void call(SqlBrite.Query query) {
+      executed.add(((TestQuery) query).id);
+    }
+  };
+
+  @Test public void immediate() {
+    RequeryPolicy.IMMEDIATE.apply(triggers, Schedulers.immediate()).subscribe(recorder);
+    for (int i = 0; i < 4; i++) {
+      triggers.onNext(new TestQuery(i));
+    }
+    assertEquals(Arrays.asList(0, 1, 2, 3), executed);
+  }
+
+  @Test public void latestCollapsesChangesDuringExecution() {
+    RequeryPolicy.latest()
+        .apply(triggers, Schedulers.immediate())
+        .subscribe(new Action1<SqlBrite.Query>() {
+          @Override public void call(SqlBrite.Query query) {
+            recorder.call(query);
+            if (executed.size() == 1) {
+              // Changes while the first query is executed
+              triggers.onNext(new TestQuery(1));
+              triggers.onNext(new TestQuery(2));
+              triggers.onNext(new TestQuery(3));
+            }
+          }
+        });
+
+    triggers.onNext(new TestQuery(0));
+    assertEquals(Arrays.asList(0, 3), executed);
+  }
+
+  @Test public void latestCollapsesQueuedChanges() {
+    TestScheduler scheduler = new TestScheduler();
+    RequeryPolicy.latest().apply(triggers, scheduler).subscribe(recorder);
+
+    triggers.onNext(new TestQuery(0));
+    triggers.onNext(new TestQuery(1));
+    triggers.onNext(new TestQuery(2));
+    scheduler.triggerActions();
+    assertEquals(Arrays.asList(2), executed);
+
+    triggers.onNext(new TestQuery(3));
+    scheduler.triggerActions();
+    assertEquals(Arrays.asList(2, 3), executed);
+  }
+
+  @Test public void debounce() {
+    TestScheduler timer = new TestScheduler();
+    RequeryPolicy.debounce(100, TimeUnit.MILLISECONDS, timer)
+        .apply(triggers, Schedulers.immediate())
+        .subscribe(recorder);
+
+    triggers.onNext(new TestQuery(0));
+    assertEquals(Arrays.asList(0), executed);
+
+    triggers.onNext(new TestQuery(1));
+    timer.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+    triggers.onNext(new TestQuery(2));
+    timer.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+    assertEquals(Arrays.asList(0), executed);
+
+    timer.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+    assertEquals(Arrays.asList(0, 2), executed);
+  }
+
+  @Test public void debounceSingleChange() {
+    TestScheduler timer = new TestScheduler();
+    RequeryPolicy.debounce(100, TimeUnit.MILLISECONDS, timer)
+        .apply(triggers, Schedulers.immediate())
+        .subscribe(recorder);
+
+    triggers.onNext(new TestQuery(0));
+    triggers.onNext(new TestQuery(1));
+    assertEquals(Arrays.asList(0), executed);
+
+    timer.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+    assertEquals(Arrays.asList(0, 1), executed);
+  }
+
+  @Test public void throttleSingleChange() {
+    TestScheduler timer = new TestScheduler();
+    RequeryPolicy.throttle(100, TimeUnit.MILLISECONDS, timer)
+        .apply(triggers, Schedulers.immediate())
+        .subscribe(recorder);
+
+    triggers.onNext(new TestQuery(0));
+    triggers.onNext(new TestQuery(1));
+    assertEquals(Arrays.asList(0), executed);
+
+    timer.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+    assertEquals(Arrays.asList(0, 1), executed);
+  }
+
+  @Test public void throttle() {
+    TestScheduler timer = new TestScheduler();
+    RequeryPolicy.throttle(100, TimeUnit.MILLISECONDS, timer)
+        .apply(triggers, Schedulers.immediate())
+        .subscribe(recorder);
+
+    triggers.onNext(new TestQuery(0));
+    assertEquals(Arrays.asList(0), executed);
+
+    triggers.onNext(new TestQuery(1));
+    triggers.onNext(new TestQuery(2));
+    timer.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+    triggers.onNext(new TestQuery(3));
+    timer.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+    assertEquals(Arrays.asList(0, 3), executed);
+
+    triggers.onNext(new TestQuery(4));
+    timer.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+    assertEquals(Arrays.asList(0, 3, 4), executed);
+
+    timer.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+    assertEquals(Arrays.asList(0, 3, 4), executed);
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void invalidWindow() {
+    RequeryPolicy.debounce(0, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,53 @@
+package com.hannesdorfmann.sqlbrite.dao;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import com.squareup.sqlbrite.SqlBrite;
+import rx.Observable;
+import rx.functions.Func1;
+
+/**
+ * A second simple dao just for unit testing changes spanning multiple daos
+ *
+ * @author Hannes Dorfmann
+ */
+public class TagDao extends Dao {
+
+  static final String TABLE = "tag";
+  static final String COL_USER_ID = "user_id";
+  static final String COL_TAG = "tag";
+
+  @Override public void createTable(SQLiteDatabase db) {
+    CREATE_TABLE(TABLE, COL_USER_ID + " INTEGER", COL_TAG + " TEXT").execute(db);
+  }
+
+  @Override public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+  }
+
+  public long insert(long userId, String tag) {
+    ContentValues cv = new ContentValues(2);
+    cv.put(COL_USER_ID, userId);
+    cv.put(COL_TAG, tag);
+    return insert(TABLE, cv).toBlocking().first();
+  }
+
+  /**
+   * Observes the number of tags of all users
+   */
+  public Observable<Integer> observeUserTagCount() {
+    return query(SELECT("*").FROM(UserDao.TABLE).INNER_JOIN(TABLE)
+        .ON(col(UserDao.TABLE + "." + UserDao.COL_ID).eq(col(TABLE + "." + COL_USER_ID))))
+        .run()
+        .map(new Func1<SqlBrite.Query, Integer>() {
+          @Override public Integer call(SqlBrite.Query query) {
+            Cursor cursor = query.run();
+            try {
+              return cursor.getCount();
+            } finally {
+              cursor.close();
+            }
+          }
+        });
+  }
+}
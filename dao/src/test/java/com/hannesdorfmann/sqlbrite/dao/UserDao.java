@@ -3,17 +3,97 @@ package com.hannesdorfmann.sqlbrite.dao;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.hannesdorfmann.sqlbrite.dao.sql.select.Keyset;
+import com.squareup.sqlbrite.BriteDatabaseBridge;
+import com.squareup.sqlbrite.SqlBrite;
+import java.util.ArrayList;
+import java.util.List;
+import rx.Observable;
+import rx.functions.Action2;
 import rx.functions.Func1;
 
 public class UserDao extends Dao {
 
-  private final String TABLE = "test";
-  private final String COL_ID = "id";
+  static final String TABLE = "test";
+  static final String COL_ID = "id";
   private final String COL_NAME = "name";
   private final String COL_AGE = "age";
   private final String COL_WEIGHT = "weight";
   private final String COL_BLOB = "blob";
 
+  private final String INSERT_SQL =
+      "INSERT INTO " + TABLE + " (" + COL_NAME + ", " + COL_AGE + ", " + COL_WEIGHT + ", "
+          + COL_BLOB + ") VALUES (?, ?, ?, ?)";
+
+  private final String UPDATE_SQL =
+      "UPDATE " + TABLE + " SET " + COL_NAME + " = ?, " + COL_AGE + " = ?, " + COL_WEIGHT
+          + " = ?, " + COL_BLOB + " = ? WHERE " + COL_ID + " = ?";
+
+  private final Action2<SQLiteStatement, User> BINDER = new Action2<SQLiteStatement, User>() {
+    @Override public void call(SQLiteStatement statement, User user) {
+      statement.bindString(1, user.name);
+      statement.bindLong(2, user.age);
+      statement.bindDouble(3, user.weight);
+      if (user.blob == null) {
+        statement.bindNull(4);
+      } else {
+        statement.bindBlob(4, user.blob);
+      }
+      statement.bindLong(5, user.id);
+    }
+  };
+
+  private final Action2<SQLiteStatement, User> INSERT_BINDER = new Action2<SQLiteStatement, User>() {
+    @Override public void call(SQLiteStatement statement, User user) {
+      statement.bindString(1, user.name);
+      statement.bindLong(2, user.age);
+      statement.bindDouble(3, user.weight);
+      if (user.blob == null) {
+        statement.bindNull(4);
+      } else {
+        statement.bindBlob(4, user.blob);
+      }
+    }
+  };
+
+  private final PreparedQuery BY_ID = prepare(
+      SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE).WHERE(COL_ID + " = ?"));
+
+  private final PreparedQuery BY_BLOB = prepare(SELECT(COL_ID).FROM(TABLE).WHERE(COL_BLOB + " IS ?"));
+
+  private final Keyset BY_NAME = new Keyset(COL_ID).asc(COL_NAME);
+
+  final Func1<Cursor, User> MAPPER = new Func1<Cursor, User>() {
+    @Override public User call(Cursor c) {
+      User user = new User();
+      user.setId(c.getLong(0));
+      user.setAge(c.getInt(1));
+      user.setBlob(c.getBlob(2));
+      user.setName(c.getString(3));
+      user.setWeight(c.getDouble(4));
+      return user;
+    }
+  };
+
+  private static final Func1<SqlBrite.Query, Integer> COUNT = new Func1<SqlBrite.Query, Integer>() {
+    @Override public Integer call(SqlBrite.Query query) {
+      Cursor cursor = query.run();
+      try {
+        return cursor.getCount();
+      } finally {
+        cursor.close();
+      }
+    }
+  };
+
+  private final BatchLoader<User> LOADER = batchLoader(TABLE, COL_ID,
+      new String[] { COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT }, MAPPER);
+
+  public UserDao() {
+    trackRowChanges(TABLE, COL_ID);
+  }
+
   @Override public void createTable(SQLiteDatabase db) {
 
     CREATE_TABLE(TABLE, COL_ID + " INTEGER PRIMARY KEY autoincrement",
@@ -54,6 +134,138 @@ public class UserDao extends Dao {
     return u;
   }
 
+  /**
+   * Insert a {@link User} once the returned observable is subscribed
+   */
+  public Observable<Long> insertDeferred(String name, int age) {
+    ContentValues cv = new ContentValues(3);
+    cv.put(COL_NAME, name);
+    cv.put(COL_AGE, age);
+    cv.put(COL_WEIGHT, age);
+    return insert(TABLE, cv);
+  }
+
+  /**
+   * Insert a {@link User} with the given priority
+   */
+  public long insertWithPriority(String name, int age, Priority priority) {
+    return prioritize(priority, insertDeferred(name, age)).toBlocking().first();
+  }
+
+  /**
+   * Insert a {@link User} with the given priority once the returned observable is subscribed
+   */
+  public Observable<Long> insertDeferred(String name, int age, Priority priority) {
+    return prioritize(priority, insertDeferred(name, age));
+  }
+
+  /**
+   * Insert {@link User} by using a compiled statement
+   */
+  public User insertWithStatement(User user) {
+    user.setId(insert(TABLE, INSERT_SQL, INSERT_BINDER, user).toBlocking().first());
+    return user;
+  }
+
+  /**
+   * Update {@link User} by using a compiled statement
+   */
+  public int updateWithStatement(User user) {
+    return update(TABLE, UPDATE_SQL, BINDER, user).toBlocking().first();
+  }
+
+  /**
+   * Update the name of a {@link User} by using {@link ContentValues}
+   */
+  public int updateName(long id, String name) {
+    ContentValues cv = new ContentValues(1);
+    cv.put(COL_NAME, name);
+    return update(TABLE, cv, COL_ID + " = ?", Long.toString(id)).toBlocking().first();
+  }
+
+  /**
+   * Delete a {@link User}
+   */
+  public int delete(long id) {
+    return delete(TABLE, COL_ID + " = ?", Long.toString(id)).toBlocking().first();
+  }
+
+  /**
+   * Delete the {@link User}s with the given name once the returned observable is subscribed
+   */
+  public Observable<Integer> deleteDeferred(String name) {
+    return delete(TABLE, COL_NAME + " = ?", name);
+  }
+
+  /**
+   * Insert many {@link User}s by using {@link ContentValues}
+   */
+  public long[] insertAll(List<User> users) {
+    List<ContentValues> rows = new ArrayList<>(users.size());
+    for (User user : users) {
+      ContentValues cv = new ContentValues(4);
+      cv.put(COL_NAME, user.name);
+      cv.put(COL_AGE, user.age);
+      cv.put(COL_WEIGHT, user.weight);
+      cv.put(COL_BLOB, user.blob);
+      rows.add(cv);
+    }
+
+    return insertAll(TABLE, rows, SQLiteDatabase.CONFLICT_NONE).toBlocking().first();
+  }
+
+  /**
+   * Insert many {@link User}s by using a compiled statement
+   */
+  public long[] insertAllWithStatement(List<User> users) {
+    return insertAll(TABLE, INSERT_SQL, INSERT_BINDER, users).toBlocking().first();
+  }
+
+  /**
+   * Creates a view of the users older than the given age, except the ones with the given name
+   */
+  public void createViewOlderThan(String view, int age, String exceptName) {
+    CREATE_VIEW(view)
+        .AS(SELECT(COL_ID, COL_NAME).FROM(TABLE)
+            .WHERE(col(COL_AGE).gt(age).and(col(COL_NAME).notEq(exceptName))))
+        .execute(BriteDatabaseBridge.getWritableDatabase(db));
+  }
+
+  /**
+   * Observes the number of users
+   */
+  public Observable<Integer> observeCount() {
+    return observeCount(Priority.NORMAL);
+  }
+
+  /**
+   * Observes the number of users with the given priority
+   */
+  public Observable<Integer> observeCount(Priority priority) {
+    return query(SELECT(COL_ID).FROM(TABLE)).priority(priority).run().map(COUNT);
+  }
+
+  /**
+   * Observes the number of users, executed again as specified by the given policy
+   */
+  public Observable<Integer> observeCount(RequeryPolicy policy) {
+    return query(SELECT(COL_ID).FROM(TABLE)).requery(policy).run().map(COUNT);
+  }
+
+  /**
+   * Observes the number of users, executed again only if the id column has been changed
+   */
+  public Observable<Integer> observeCountOfIds() {
+    return query(SELECT(COL_ID).FROM(TABLE)).observeColumns().run().map(COUNT);
+  }
+
+  /**
+   * Updates the age of all users directly on the database, which notifies the table only
+   */
+  public void updateAgesDirectly(int age) {
+    db.executeAndTrigger(TABLE, "UPDATE " + TABLE + " SET " + COL_AGE + " = " + age);
+  }
+
   public User getById(long id) {
 
     return query(
@@ -77,4 +289,131 @@ public class UserDao extends Dao {
         .toBlocking()
         .first();
   }
+
+  /**
+   * Observes a {@link User} by using a {@link PreparedQuery}
+   */
+  public Observable<User> observeByIdPrepared(long id) {
+    return BY_ID.run(id).mapToOne(MAPPER);
+  }
+
+  /**
+   * Observes a {@link User}, the query is only executed again if this user has been changed
+   */
+  public Observable<User> observeById(long id) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .WHERE(col(COL_ID).eq(id))).observeRows(TABLE, id).run().mapToOne(MAPPER);
+  }
+
+  /**
+   * Observes a {@link User}, identical queries share the same execution
+   */
+  public Observable<User> observeByIdShared(long id) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .WHERE(col(COL_ID).eq(id))).shared(true).run().mapToOne(MAPPER);
+  }
+
+  /**
+   * Observes a {@link User}, the result is cached
+   */
+  public Observable<User> observeByIdCached(long id, boolean staleWhileRevalidate) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .WHERE(col(COL_ID).eq(id))).cached(true)
+        .staleWhileRevalidate(staleWhileRevalidate)
+        .run()
+        .mapToOne(MAPPER);
+  }
+
+  /**
+   * Observes all {@link User}s older than the given age, unchanged results are skipped
+   */
+  public Observable<List<User>> observeOlderThan(int age) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .WHERE(col(COL_AGE).gt(age))
+        .ORDER_BY(COL_AGE)).skipUnchangedResults(true).run().mapToList(MAPPER);
+  }
+
+  /**
+   * Observes the changes of the list of all {@link User}s ordered by name
+   */
+  public Observable<ListChanges<User>> observeChangesOrderedByName() {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .ORDER_BY(COL_NAME)).runListChanges(COL_ID, MAPPER);
+  }
+
+  /**
+   * Get a page of {@link User}s ordered by name
+   */
+  public Page<User> getPageOrderedByName(Object[] after, int pageSize) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .SEEK(BY_NAME, after, pageSize)).runPage(MAPPER).toBlocking().first();
+  }
+
+  /**
+   * Get a page of the {@link User}s older than the given age ordered by name
+   */
+  public Page<User> getPageOlderThan(int age, Object[] after, int pageSize) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .WHERE(COL_AGE + " > ?")
+        .SEEK(BY_NAME, after, pageSize)).args(Integer.toString(age))
+        .runPage(MAPPER)
+        .toBlocking()
+        .first();
+  }
+
+  /**
+   * Streams all {@link User}s ordered by id
+   */
+  public Observable<User> streamAll(Func1<Cursor, User> mapper) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .ORDER_BY(COL_ID)).runRows(mapper);
+  }
+
+  /**
+   * Streams all {@link User}s ordered by id in chunks
+   */
+  public Observable<List<User>> streamAllChunks(int chunkSize) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .ORDER_BY(COL_ID)).runChunks(MAPPER, chunkSize);
+  }
+
+  /**
+   * Observes all {@link User}s ordered by id as lazy list
+   */
+  public Observable<CursorList<User>> observeAllLazy(int cacheSize, int prefetch) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .ORDER_BY(COL_ID)).runLazyList(MAPPER, cacheSize, prefetch);
+  }
+
+  /**
+   * Loads a {@link User} by id, batched with other lookups
+   */
+  public Observable<User> loadById(long id) {
+    return LOADER.load(id);
+  }
+
+  BatchLoader<User> getLoader() {
+    return LOADER;
+  }
+
+  /**
+   * Get the ids of all {@link User}s with the given blob by using a {@link PreparedQuery}
+   */
+  public List<Long> getIdsByBlob(byte[] blob) {
+    return BY_BLOB.run((Object) blob).mapToList(new Func1<Cursor, Long>() {
+      @Override public Long call(Cursor cursor) {
+        return cursor.getLong(0);
+      }
+    }).toBlocking().first();
+  }
+
+  /**
+   * Get all {@link User}s older than the given age with one of the given names by using an
+   * expression
+   */
+  public List<User> getOlderThan(int age, String... names) {
+    return query(SELECT(COL_ID, COL_AGE, COL_BLOB, COL_NAME, COL_WEIGHT).FROM(TABLE)
+        .WHERE(col(COL_AGE).gt(age).and(col(COL_NAME).in((Object[]) names)))
+        .ORDER_BY(COL_AGE)).run().mapToList(MAPPER).toBlocking().first();
+  }
 }
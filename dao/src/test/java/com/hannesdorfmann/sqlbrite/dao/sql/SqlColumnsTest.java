@@ -0,0 +1,28 @@
+package com.hannesdorfmann.sqlbrite.dao.sql;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class SqlColumnsTest {
+
+  @Test public void parseIdentifiers() {
+    Assert.assertEquals(new HashSet<>(Arrays.asList("a", "t", "b", "and", "c")),
+        SqlColumns.parse("a = ? AND t.B > 12.5 AND \"C\" = 'x''y z'"));
+  }
+
+  @Test public void countAll() {
+    Assert.assertEquals(new HashSet<>(Arrays.asList("count")), SqlColumns.parse("COUNT ( * )"));
+  }
+
+  @Test public void unknownColumns() {
+    Assert.assertNull(SqlColumns.parse("*"));
+    Assert.assertNull(SqlColumns.parse("t.*"));
+    Assert.assertNull(SqlColumns.parse("a * 2"));
+    Assert.assertNull(SqlColumns.parse("max(*)"));
+  }
+}
@@ -0,0 +1,37 @@
+package com.hannesdorfmann.sqlbrite.dao.sql;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SqlExecuteCompileableChildNodeTest {
+
+  @Test public void withoutArguments() {
+    String sql = "CREATE VIEW v AS SELECT * FROM t";
+    assertSame(sql, SqlExecuteCompileableChildNode.inlineArguments(sql, new Object[0]));
+  }
+
+  @Test public void inlinesLiterals() {
+    assertEquals("SELECT * FROM t WHERE a = 1 AND b = 2.5 AND c IS NULL AND d = 0 AND e = X'0AFF'",
+        SqlExecuteCompileableChildNode.inlineArguments(
+            "SELECT * FROM t WHERE a = ? AND b = ? AND c IS ? AND d = ? AND e = ?",
+            new Object[] { 1L, 2.5, null, false, new byte[] { 10, -1 } }));
+  }
+
+  @Test public void skipsQuotedPlaceholders() {
+    assertEquals("SELECT '?', \"?\", [?] FROM t WHERE a = 7",
+        SqlExecuteCompileableChildNode.inlineArguments(
+            "SELECT '?', \"?\", [?] FROM t WHERE a = ?", new Object[] { 7 }));
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void moreArgumentsThanPlaceholders() {
+    SqlExecuteCompileableChildNode.inlineArguments("SELECT * FROM t WHERE a = ?",
+        new Object[] { 1, 2 });
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void morePlaceholdersThanArguments() {
+    SqlExecuteCompileableChildNode.inlineArguments("SELECT * FROM t WHERE a = ? AND b = ?",
+        new Object[] { 1 });
+  }
+}
@@ -0,0 +1,64 @@
+package com.hannesdorfmann.sqlbrite.dao.sql.expression;
+
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Test;
+
+import static com.hannesdorfmann.sqlbrite.dao.sql.expression.Column.col;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ExpressionTest {
+
+  @Test public void comparisons() {
+    assertEquals("id = ?", col("id").eq(1).getSql());
+    assertEquals("id != ?", col("id").notEq(1).getSql());
+    assertEquals("id < ?", col("id").lt(1).getSql());
+    assertEquals("id <= ?", col("id").lte(1).getSql());
+    assertEquals("id > ?", col("id").gt(1).getSql());
+    assertEquals("id >= ?", col("id").gte(1).getSql());
+    assertEquals("name LIKE ?", col("name").like("H%").getSql());
+    assertEquals("id BETWEEN ? AND ?", col("id").between(1, 5).getSql());
+    assertEquals("id IS NULL", col("id").eq(null).getSql());
+    assertEquals("id IS NOT NULL", col("id").notEq(null).getSql());
+    assertEquals("a.id = b.id", col("a.id").eq(col("b.id")).getSql());
+
+    assertArrayEquals(new Object[] { 1, 5 }, col("id").between(1, 5).getArgs());
+    assertArrayEquals(new Object[] {}, col("id").isNull().getArgs());
+  }
+
+  @Test public void valuesAreNeverInlined() {
+    assertEquals(col("id").eq(1).getSql(), col("id").eq(2).getSql());
+    assertEquals(col("name").like("a").getSql(), col("name").like("b").getSql());
+  }
+
+  @Test public void in() {
+    Expression in = col("id").in(1L, 2L, 3L);
+    assertEquals("id IN (?, ?, ?)", in.getSql());
+    assertArrayEquals(new Object[] { 1L, 2L, 3L }, in.getArgs());
+
+    assertEquals("id IN (?, ?)", col("id").in(Arrays.asList("a", "b")).getSql());
+  }
+
+  @Test public void andOr() {
+    Expression expression =
+        col("a").eq(1).and(col("b").eq(2)).and(col("c").eq(3).or(col("d").eq(4)));
+
+    assertEquals("a = ? AND b = ? AND (c = ? OR d = ?)", expression.getSql());
+    assertArrayEquals(new Object[] { 1, 2, 3, 4 }, expression.getArgs());
+
+    assertEquals("(a = ? AND b = ?) OR c IS NULL",
+        col("a").eq(1).and(col("b").eq(2)).or(col("c").isNull()).getSql());
+    assertEquals("NOT (a = ? OR b = ?)", col("a").eq(1).or(col("b").eq(2)).not().getSql());
+  }
+
+  @Test public void rawExpression() {
+    Expression expression = Expression.of("lower(name) = ?", "hannes").and(col("age").gt(18));
+    assertEquals("(lower(name) = ?) AND age > ?", expression.getSql());
+    assertArrayEquals(new Object[] { "hannes", 18 }, expression.getArgs());
+  }
+
+  @Test public void dateIsBoundAsLong() {
+    assertArrayEquals(new Object[] { 1234L }, col("date").eq(new Date(1234)).getArgs());
+  }
+}
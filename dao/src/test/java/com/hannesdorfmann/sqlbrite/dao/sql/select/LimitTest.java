@@ -14,4 +14,19 @@ public class LimitTest {
       assertEquals(" LIMIT " + limit, new LIMIT(null, limit).asCompileableStatement().sql);
     }
   }
+
+  @Test public void typedLimitAndOffset() {
+    assertEquals("SELECT a FROM t LIMIT 20 OFFSET 4000",
+        new SELECT("a").FROM("t").LIMIT(20).OFFSET(4000).asCompileableStatement().sql);
+    assertEquals("SELECT a FROM t ORDER BY a LIMIT 5",
+        new SELECT("a").FROM("t").ORDER_BY("a").LIMIT(5).asCompileableStatement().sql);
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void negativeLimit() {
+    new SELECT("a").FROM("t").LIMIT(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void negativeOffset() {
+    new SELECT("a").FROM("t").LIMIT(1).OFFSET(-1);
+  }
 }
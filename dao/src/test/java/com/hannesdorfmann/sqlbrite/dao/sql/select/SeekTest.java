@@ -0,0 +1,95 @@
+package com.hannesdorfmann.sqlbrite.dao.sql.select;
+
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlCompileable;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static com.hannesdorfmann.sqlbrite.dao.sql.expression.Column.col;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SeekTest {
+
+  private static final Keyset KEYSET = new Keyset("id").asc("name").desc("age");
+
+  @Test public void keysetOrder() {
+    assertEquals(Arrays.asList("name", "age", "id"), KEYSET.getColumns());
+    assertEquals("name ASC, age DESC, id ASC", KEYSET.getOrderBy());
+    assertEquals("id DESC", new Keyset("id", true).getOrderBy());
+  }
+
+  @Test public void keysetCondition() {
+    Expression after = KEYSET.after(new Object[] { "B", 5L, 3L });
+    assertEquals("name >= ? AND (name > ? OR (name = ? AND (age < ? OR (age = ? AND id > ?))))",
+        after.getSql());
+    assertArrayEquals(new Object[] { "B", "B", "B", 5L, 5L, 3L }, after.getArgs());
+
+    assertEquals("id > ?", new Keyset("id").after(new Object[] { 1L }).getSql());
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void wrongNumberOfValues() {
+    KEYSET.after(new Object[] { "B", 5L });
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void nullValue() {
+    KEYSET.after(new Object[] { "B", null, 3L });
+  }
+
+  @Test public void firstPage() {
+    SqlCompileable.CompileableStatement compiled =
+        new SELECT("id", "name", "age").FROM("user").SEEK(KEYSET, null, 20)
+            .asCompileableStatement();
+
+    assertEquals("SELECT id, name, age FROM user ORDER BY name ASC, age DESC, id ASC LIMIT 20",
+        compiled.sql);
+    assertEquals(0, compiled.args.length);
+  }
+
+  @Test public void nextPage() {
+    SqlCompileable.CompileableStatement compiled =
+        new SELECT("id", "name", "age").FROM("user").SEEK(new Keyset("id").asc("name"),
+            new Object[] { "B", 3L }, 20).asCompileableStatement();
+
+    assertEquals("SELECT id, name, age FROM user WHERE (name >= ? AND (name > ? OR"
+        + " (name = ? AND id > ?))) ORDER BY name ASC, id ASC LIMIT 20", compiled.sql);
+    assertArrayEquals(new Object[] { "B", "B", "B", 3L }, compiled.args);
+    assertTrue(compiled.columns.containsAll(Arrays.asList("id", "name", "age")));
+  }
+
+  @Test public void nextPageAfterWhere() {
+    SqlCompileable.CompileableStatement compiled = new SELECT("id", "name").FROM("user")
+        .WHERE(col("age").gt(18).or(col("admin").eq(1)))
+        .SEEK(new Keyset("id"), new Object[] { 7L }, 10)
+        .asCompileableStatement();
+
+    assertEquals("SELECT id, name FROM user WHERE (age > ? OR admin = ?) AND (id > ?)"
+        + " ORDER BY id ASC LIMIT 10", compiled.sql);
+    assertArrayEquals(new Object[] { 18, 1, 7L }, compiled.args);
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void invalidPageSize() {
+    new SELECT("id").FROM("user").SEEK(KEYSET, null, 0);
+  }
+
+  @Test public void rawPlaceholdersInOrder() {
+    SqlCompileable.CompileableStatement compiled =
+        new SELECT("id", "name").FROM("user").WHERE("age > ?").SEEK(new Keyset("id").asc("name"),
+            new Object[] { "B", 3L }, 20).asCompileableStatement();
+
+    assertArrayEquals(new int[] { 0 }, compiled.rawPlaceholders);
+    assertArrayEquals(new Object[] { "30", "B", "B", "B", 3L },
+        compiled.bindArgs(new Object[] { "30" }));
+  }
+
+  @Test public void rawPlaceholdersAfterExpression() {
+    SqlCompileable.CompileableStatement compiled =
+        new SELECT("id", "name").FROM("user").WHERE(col("age").gt(5)).GROUP_BY("name")
+            .HAVING("count(*) > ?").asCompileableStatement();
+
+    assertArrayEquals(new int[] { 1 }, compiled.rawPlaceholders);
+    assertArrayEquals(new Object[] { 5, "2" }, compiled.bindArgs(new Object[] { "2" }));
+    assertArrayEquals(new Object[] { 5 }, compiled.bindArgs(null));
+  }
+}
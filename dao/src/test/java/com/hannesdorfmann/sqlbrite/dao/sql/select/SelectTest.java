@@ -1,8 +1,18 @@
 package com.hannesdorfmann.sqlbrite.dao.sql.select;
 
+import com.hannesdorfmann.sqlbrite.dao.sql.SqlCompileable;
+import com.hannesdorfmann.sqlbrite.dao.sql.expression.Expression;
+import java.util.Arrays;
+import java.util.HashSet;
 import org.junit.Test;
 
+import static com.hannesdorfmann.sqlbrite.dao.sql.expression.Column.col;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class SelectTest {
 
@@ -555,4 +565,59 @@ public class SelectTest {
       assertEquals(sql, genSql);
     }
   }
+
+  @Test public void compileOnlyOnce() {
+    LIMIT limit = new SELECT("a", "b").FROM("table1")
+        .INNER_JOIN("table2")
+        .ON("table1.a = table2.a")
+        .WHERE("b = ?")
+        .LIMIT("10");
+
+    SqlCompileable.CompileableStatement compiled = limit.asCompileableStatement();
+    assertEquals(
+        "SELECT a, b FROM table1 INNER JOIN table2 ON table1.a = table2.a WHERE b = ? LIMIT 10",
+        compiled.sql);
+    assertEquals(new HashSet<>(Arrays.asList("table1", "table2")), compiled.tables);
+    assertSame(compiled, limit.asCompileableStatement());
+  }
+
+  @Test(expected = UnsupportedOperationException.class) public void compiledTablesAreImmutable() {
+    new SELECT("a").FROM("table1").asCompileableStatement().tables.add("table2");
+  }
+
+  @Test public void collectArgumentsInOrder() {
+    SqlCompileable.CompileableStatement compiled = new SELECT("a", "count(*)").FROM("table1")
+        .INNER_JOIN("table2")
+        .ON(col("table1.a").eq(col("table2.a")).and(col("table2.b").gt(1)))
+        .WHERE(col("table1.c").in("x", "y"))
+        .GROUP_BY("a")
+        .HAVING(Expression.of("count(*) > ?", 2))
+        .asCompileableStatement();
+
+    assertEquals("SELECT a, count(*) FROM table1 INNER JOIN table2"
+        + " ON table1.a = table2.a AND table2.b > ?"
+        + " WHERE table1.c IN (?, ?) GROUP BY a HAVING count(*) > ?", compiled.sql);
+    assertArrayEquals(new Object[] { 1, "x", "y", 2 }, compiled.args);
+  }
+
+  @Test public void collectReferencedColumns() {
+    SqlCompileable.CompileableStatement compiled = new SELECT("a", "COUNT(*)").FROM("table1")
+        .INNER_JOIN("table2")
+        .ON(col("table1.b").eq(col("table2.b")))
+        .WHERE(col("C").gt(1))
+        .ORDER_BY("d DESC")
+        .asCompileableStatement();
+
+    assertTrue(compiled.columns.containsAll(Arrays.asList("a", "b", "c", "d")));
+    assertFalse(compiled.columns.contains("e"));
+  }
+
+  @Test public void unknownReferencedColumns() {
+    assertNull(new SELECT("*").FROM("table1").asCompileableStatement().columns);
+    assertNull(new SELECT("table1.*").FROM("table1").WHERE("a = 1").asCompileableStatement()
+        .columns);
+    assertNull(
+        new SELECT("a").FROM("table1").NATURAL_INNER_JOIN("table2").asCompileableStatement()
+            .columns);
+  }
 }
@@ -0,0 +1,72 @@
+package com.hannesdorfmann.sqlbrite.objectmapper.processor.test;
+
+import android.database.Cursor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import rx.functions.Func1;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class CursorMapperTest {
+
+  private static final String[] COLUMNS = {
+      DefaultFieldClass.COL_STRING, DefaultFieldClass.COL_INT, DefaultFieldClass.COL_LONG,
+      DefaultFieldClass.COL_SHORT, DefaultFieldClass.COL_FLOAT, DefaultFieldClass.COL_DOUBLE,
+      DefaultFieldClass.COL_BOOLEAN, DefaultFieldClass.COL_BYTE, DefaultFieldClass.COL_DATE
+  };
+
+  private Cursor mockCursor(String[] columnNames) {
+    Cursor cursor = Mockito.mock(Cursor.class);
+    Mockito.doReturn(columnNames).when(cursor).getColumnNames();
+    for (int i = 0; i < COLUMNS.length; i++) {
+      Mockito.doReturn(i).when(cursor).getColumnIndexOrThrow(COLUMNS[i]);
+    }
+    return cursor;
+  }
+
+  @Test public void resolveIndexesOncePerCursor() {
+    Cursor cursor = mockCursor(null);
+    Func1<Cursor, PublicFieldClass> mapper = new PublicFieldClassMapper.CursorMapper();
+
+    Mockito.doReturn("a").when(cursor).getString(0);
+    Assert.assertEquals("a", mapper.call(cursor).aString);
+
+    Mockito.doReturn("b").when(cursor).getString(0);
+    Assert.assertEquals("b", mapper.call(cursor).aString);
+
+    Mockito.doReturn("c").when(cursor).getString(0);
+    Assert.assertEquals("c", mapper.call(cursor).aString);
+
+    Mockito.verify(cursor, Mockito.times(1))
+        .getColumnIndexOrThrow(DefaultFieldClass.COL_STRING);
+  }
+
+  @Test public void reuseIndexesForCursorWithSameColumns() {
+    Cursor first = mockCursor(COLUMNS.clone());
+    Cursor second = mockCursor(COLUMNS.clone());
+    Func1<Cursor, PublicFieldClass> mapper = new PublicFieldClassMapper.CursorMapper();
+
+    mapper.call(first);
+    mapper.call(second);
+
+    Mockito.doReturn(123).when(second).getInt(1);
+    Assert.assertEquals(123, mapper.call(second).anInt);
+
+    Mockito.verify(first, Mockito.times(1)).getColumnIndexOrThrow(DefaultFieldClass.COL_INT);
+    Mockito.verify(second, Mockito.never()).getColumnIndexOrThrow(DefaultFieldClass.COL_INT);
+  }
+
+  @Test public void resolveIndexesAgainForCursorWithOtherColumns() {
+    Cursor first = mockCursor(COLUMNS.clone());
+    Cursor second = mockCursor(new String[] { DefaultFieldClass.COL_INT });
+    Func1<Cursor, PublicFieldClass> mapper = new PublicFieldClassMapper.CursorMapper();
+
+    mapper.call(first);
+    mapper.call(second);
+
+    Mockito.verify(first, Mockito.times(1)).getColumnIndexOrThrow(DefaultFieldClass.COL_INT);
+    Mockito.verify(second, Mockito.times(1)).getColumnIndexOrThrow(DefaultFieldClass.COL_INT);
+  }
+}
@@ -0,0 +1,62 @@
+package com.hannesdorfmann.sqlbrite.objectmapper.processor.test;
+
+import android.database.Cursor;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class ProjectionMapperTest {
+
+  @Test public void projectionContainsAllColumns() {
+    List<String> projection = Arrays.asList(PublicFieldClassMapper.PROJECTION);
+
+    Assert.assertEquals(9, projection.size());
+    Assert.assertTrue(projection.containsAll(
+        Arrays.asList(PublicFieldClass.COL_STRING, PublicFieldClass.COL_INT,
+            PublicFieldClass.COL_LONG, PublicFieldClass.COL_SHORT, PublicFieldClass.COL_FLOAT,
+            PublicFieldClass.COL_DOUBLE, PublicFieldClass.COL_BOOLEAN, PublicFieldClass.COL_BYTE,
+            PublicFieldClass.COL_DATE)));
+  }
+
+  @Test public void mapByPosition() {
+    List<String> projection = Arrays.asList(PublicFieldClassMapper.PROJECTION);
+    Cursor cursor = Mockito.mock(Cursor.class);
+
+    byte[] bytes = { 1, 0, 1 };
+    long timestamp = 123456789;
+    Mockito.doReturn("aString")
+        .when(cursor)
+        .getString(projection.indexOf(PublicFieldClass.COL_STRING));
+    Mockito.doReturn(123).when(cursor).getInt(projection.indexOf(PublicFieldClass.COL_INT));
+    Mockito.doReturn(456L).when(cursor).getLong(projection.indexOf(PublicFieldClass.COL_LONG));
+    Mockito.doReturn(Short.MAX_VALUE)
+        .when(cursor)
+        .getShort(projection.indexOf(PublicFieldClass.COL_SHORT));
+    Mockito.doReturn(1.2f).when(cursor).getFloat(projection.indexOf(PublicFieldClass.COL_FLOAT));
+    Mockito.doReturn(1.3).when(cursor).getDouble(projection.indexOf(PublicFieldClass.COL_DOUBLE));
+    Mockito.doReturn(1).when(cursor).getInt(projection.indexOf(PublicFieldClass.COL_BOOLEAN));
+    Mockito.doReturn(bytes).when(cursor).getBlob(projection.indexOf(PublicFieldClass.COL_BYTE));
+    Mockito.doReturn(timestamp).when(cursor).getLong(projection.indexOf(PublicFieldClass.COL_DATE));
+
+    PublicFieldClass model = PublicFieldClassMapper.PROJECTION_MAPPER.call(cursor);
+
+    Assert.assertEquals("aString", model.aString);
+    Assert.assertEquals(123, model.anInt);
+    Assert.assertEquals(456L, model.aLong);
+    Assert.assertEquals(Short.MAX_VALUE, model.aShort);
+    Assert.assertEquals(1.2f, model.aFloat, 0);
+    Assert.assertEquals(1.3, model.aDouble, 0);
+    Assert.assertEquals(true, model.aBool);
+    Assert.assertEquals(bytes, model.bytes);
+    Assert.assertEquals(timestamp, model.aDate.getTime());
+
+    Mockito.verify(cursor, Mockito.never()).getColumnIndex(Matchers.anyString());
+    Mockito.verify(cursor, Mockito.never()).getColumnIndexOrThrow(Matchers.anyString());
+  }
+}
@@ -0,0 +1,45 @@
+package com.hannesdorfmann.sqlbrite.objectmapper.processor.test;
+
+import android.database.sqlite.SQLiteDatabase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Hannes Dorfmann
+ */
+public class StatementSqlTest {
+
+  private String columns() {
+    StringBuilder builder = new StringBuilder();
+    for (String column : PublicSetterClassMapper.PROJECTION) {
+      if (builder.length() > 0) {
+        builder.append(", ");
+      }
+      builder.append(column);
+    }
+    return builder.toString();
+  }
+
+  @Test public void insertSql() {
+    String columns = columns();
+    Assert.assertEquals(
+        "INSERT INTO foo (" + columns + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+        PublicSetterClassMapper.insertSql("foo"));
+
+    Assert.assertEquals(
+        "INSERT OR REPLACE INTO foo (" + columns + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+        PublicSetterClassMapper.insertSql("foo", SQLiteDatabase.CONFLICT_REPLACE));
+
+    Assert.assertEquals(PublicSetterClassMapper.insertSql("foo"),
+        PublicSetterClassMapper.insertSql("foo", SQLiteDatabase.CONFLICT_NONE));
+  }
+
+  @Test public void updateSql() {
+    String columns = columns().replace(", ", " = ?, ") + " = ?";
+
+    Assert.assertEquals("UPDATE foo SET " + columns,
+        PublicSetterClassMapper.updateSql("foo", null));
+    Assert.assertEquals("UPDATE foo SET " + columns + " WHERE aLong = ?",
+        PublicSetterClassMapper.updateSql("foo", "aLong = ?"));
+  }
+}
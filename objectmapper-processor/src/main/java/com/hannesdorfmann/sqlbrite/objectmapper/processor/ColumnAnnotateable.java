@@ -21,6 +21,17 @@ public interface ColumnAnnotateable {
   void generateAssignStatement(CodeBlock.Builder builder, String objectVarName,
       String cursorVarName, String indexVarName);
 
+  /**
+   * Generate the code for binding the value of the object to a SQLiteStatement
+   *
+   * @param builder the {@link CodeBlock.Builder}
+   * @param statementVarName The variable name of the SQLiteStatement
+   * @param objectVarName The variable name of the object from which you should read the value
+   * @param indexVarName The variable name of the bind index (1 based)
+   */
+  void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName);
+
   /**
    * Genereate the ContentValues Builder
    *
@@ -60,4 +71,12 @@ public interface ColumnAnnotateable {
    * @return true if exception should be thrown, otherwise false
    */
   boolean isThrowOnColumnIndexNotFound();
+
+  /**
+   * Can the value of this column be read from an object, either directly from the field or by
+   * calling a getter method. This is required to bind an object to a SQLiteStatement.
+   *
+   * @return true if the value is readable, otherwise false
+   */
+  boolean isReadable();
 }
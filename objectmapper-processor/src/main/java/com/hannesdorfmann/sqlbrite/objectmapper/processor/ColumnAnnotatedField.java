@@ -109,6 +109,11 @@ public class ColumnAnnotatedField implements ColumnAnnotateable {
     codeGenerator.generateAssignStatement(builder, objectVarName, cursorVarName, indexVarName);
   }
 
+  @Override public void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName) {
+    codeGenerator.generateBindStatement(builder, statementVarName, objectVarName, indexVarName);
+  }
+
   @Override public void generateContentValuesBuilderMethod(TypeSpec.Builder builder,
       TypeName type, String contentValuesVarName) {
     codeGenerator.generateContentValuesBuilderMethod(builder, type,
@@ -123,4 +128,8 @@ public class ColumnAnnotatedField implements ColumnAnnotateable {
     return throwOnColumnIndexNotFound;
   }
 
+  @Override public boolean isReadable() {
+    return true;
+  }
+
 }
@@ -17,6 +17,7 @@ import javax.lang.model.element.VariableElement;
 public class ColumnAnnotatedMethod implements ColumnAnnotateable {
 
   private ExecutableElement method;
+  private ExecutableElement getter;
   private String columnName;
   private CodeGenerator codeGenerator;
   private boolean throwOnColumnIndexNotFound;
@@ -76,10 +77,42 @@ public class ColumnAnnotatedMethod implements ColumnAnnotateable {
     return method;
   }
 
+  /**
+   * Get the getter method that returns the value set by this setter method
+   *
+   * @return The getter method or null, if no getter method has been found
+   */
+  public ExecutableElement getGetter() {
+    return getter;
+  }
+
+  /**
+   * Set the getter method that returns the value set by this setter method
+   *
+   * @param getter The getter method
+   */
+  public void setGetter(ExecutableElement getter) {
+    this.getter = getter;
+  }
+
+  /**
+   * Get the name of the getter method
+   *
+   * @return The name of the getter method or null, if no getter method has been found
+   */
+  public String getGetterName() {
+    return getter == null ? null : getter.getSimpleName().toString();
+  }
+
   public VariableElement getParameter() {
     return method.getParameters().get(0);
   }
 
+  @Override public void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName) {
+    codeGenerator.generateBindStatement(builder, statementVarName, objectVarName, indexVarName);
+  }
+
   @Override public void generateContentValuesBuilderMethod(TypeSpec.Builder builder, TypeName type,
       String contentValuesVarName) {
     codeGenerator.generateContentValuesBuilderMethod(builder, type, contentValuesVarName);
@@ -88,4 +121,8 @@ public class ColumnAnnotatedMethod implements ColumnAnnotateable {
   @Override public boolean isThrowOnColumnIndexNotFound() {
     return throwOnColumnIndexNotFound;
   }
+
+  @Override public boolean isReadable() {
+    return getter != null;
+  }
 }
@@ -3,6 +3,7 @@ package com.hannesdorfmann.sqlbrite.objectmapper.processor;
 import com.hannesdorfmann.sqlbrite.objectmapper.annotation.Column;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -27,7 +28,7 @@ import javax.lang.model.util.Types;
 public class ObjectMappableAnnotatedClass {
 
   private TypeElement typeElement;
-  private Map<String, ColumnAnnotateable> columnAnnotatedElementsMap = new HashMap<>();
+  private Map<String, ColumnAnnotateable> columnAnnotatedElementsMap = new LinkedHashMap<>();
   private Messager messager;
 
   public ObjectMappableAnnotatedClass(Messager messager, TypeElement typeElement)
@@ -78,6 +79,7 @@ public class ObjectMappableAnnotatedClass {
 
     Set<VariableElement> annotatedFields = new LinkedHashSet<>();
     Map<String, ExecutableElement> possibleSetterFields = new HashMap<>();
+    Map<String, ExecutableElement> possibleGetters = new HashMap<>();
 
 
     do {
@@ -107,6 +109,12 @@ public class ObjectMappableAnnotatedClass {
             }
           }
 
+          // Save possible getters
+          String propertyName = getPropertyNameOfGetter(methodElement);
+          if (propertyName != null && !possibleGetters.containsKey(propertyName)) {
+            possibleGetters.put(propertyName, methodElement);
+          }
+
           // Is it an annotated setter?
           if (annotation != null) {
 
@@ -250,6 +258,86 @@ public class ObjectMappableAnnotatedClass {
         columnAnnotatedElementsMap.put(field.getColumnName(), field);
       }
     }
+
+    // Find the getters of setter methods to be able to read the values
+    for (ColumnAnnotateable e : columnAnnotatedElementsMap.values()) {
+      if (e instanceof ColumnAnnotatedMethod) {
+        ColumnAnnotatedMethod method = (ColumnAnnotatedMethod) e;
+        String setterName = method.getMethodName();
+        if (!setterName.startsWith("set") || setterName.length() == 3) {
+          continue;
+        }
+
+        ExecutableElement getter = possibleGetters.get(setterName.substring(3).toLowerCase());
+        if (getter == null || !isGetterForSetter(typeUtils, getter, method.getMethod())) {
+          getter = possibleGetters.get(
+              HungarianNotation.removeNotationFromSetterAndSetPrefix(setterName).toLowerCase());
+        }
+
+        if (getter != null && isGetterForSetter(typeUtils, getter, method.getMethod())) {
+          method.setGetter(getter);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the name of the property (lower case) a method is a public getter for, like
+   * <code>getFoo()</code> or <code>isFoo()</code>.
+   *
+   * @param method The method to check
+   * @return The lower case property name or null, if the given method is not a getter
+   */
+  private String getPropertyNameOfGetter(ExecutableElement method) {
+
+    if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers()
+        .contains(Modifier.STATIC) || !method.getParameters().isEmpty()
+        || method.getReturnType().getKind() == TypeKind.VOID) {
+      return null;
+    }
+
+    String name = method.getSimpleName().toString();
+    if (name.startsWith("get") && name.length() > 3) {
+      return name.substring(3).toLowerCase();
+    }
+
+    if (name.startsWith("is") && name.length() > 2) {
+      return name.substring(2).toLowerCase();
+    }
+
+    return null;
+  }
+
+  /**
+   * Checks if the getter returns a value that can be stored in the same column as the value set by
+   * the setter
+   *
+   * @param typeUtils The type utils
+   * @param getter The getter method
+   * @param setter The setter method
+   * @return true if getter works for the given setter, otherwise false
+   */
+  private boolean isGetterForSetter(Types typeUtils, ExecutableElement getter,
+      ExecutableElement setter) {
+    TypeMirror returnType = getter.getReturnType();
+    TypeMirror parameterType = setter.getParameters().get(0).asType();
+
+    if (typeUtils.isSameType(returnType, parameterType)) {
+      return true;
+    }
+
+    // int, long and short are stored as INTEGER, float and double as REAL
+    return (isIntegerKind(returnType.getKind()) && isIntegerKind(parameterType.getKind())) || (
+        isRealKind(returnType.getKind())
+            && isRealKind(parameterType.getKind()));
+  }
+
+  private boolean isIntegerKind(TypeKind kind) {
+    return kind == TypeKind.INT || kind == TypeKind.LONG || kind == TypeKind.SHORT;
+  }
+
+  private boolean isRealKind(TypeKind kind) {
+    return kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE;
   }
 
   /**
@@ -307,7 +395,23 @@ public class ObjectMappableAnnotatedClass {
   }
 
   /**
-   * Get the Elements annotated with {@link Column}
+   * Checks if the values of all {@link Column} annotated elements can be read from an object
+   *
+   * @return true if all values are readable, otherwise false
+   * @see ColumnAnnotateable#isReadable()
+   */
+  public boolean isReadable() {
+    for (ColumnAnnotateable e : columnAnnotatedElementsMap.values()) {
+      if (!e.isReadable()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the Elements annotated with {@link Column}. The order of the elements is stable (order of
+   * declaration) and therefore can be used to generate a projection.
    *
    * @return annotated elements
    */
@@ -2,6 +2,8 @@ package com.hannesdorfmann.sqlbrite.objectmapper.processor;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import com.google.auto.service.AutoService;
 import com.hannesdorfmann.sqlbrite.objectmapper.annotation.Column;
 import com.hannesdorfmann.sqlbrite.objectmapper.annotation.ObjectMappable;
@@ -14,6 +16,8 @@ import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -33,10 +37,14 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
+import rx.functions.Action2;
 import rx.functions.Func1;
 
 @AutoService(Processor.class) public class ObjectMappableProcessor extends AbstractProcessor {
 
+  private static final String CURSOR_MAPPER_CLASS_NAME = "CursorMapper";
+  private static final String COLUMN_INDEXES_CLASS_NAME = "ColumnIndexes";
+
   private Elements elements;
   private Types types;
   private Messager messager;
@@ -148,18 +156,31 @@ import rx.functions.Func1;
 
       // Generate the mapper class
       String mapperClassName = clazz.getSimpleClassName() + "Mapper";
-      TypeSpec mapperClass = TypeSpec.classBuilder(mapperClassName)
+      TypeSpec.Builder mapperClass = TypeSpec.classBuilder(mapperClassName)
           .addJavadoc("Generated class to work with Cursors and ContentValues for $T\n",
               ClassName.get(clazz.getElement()))
           .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
           .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
           .addField(generateRxMappingMethod(clazz))
+          .addField(generateProjectionField(clazz))
+          .addField(generateProjectionMappingMethod(clazz))
+          .addType(generateCursorMapperClass(clazz, mapperClassName))
+          .addType(generateColumnIndexesClass(clazz, mapperClassName))
           .addMethod(generateContentValuesMethod(clazz, mapperClassName, "ContentValuesBuilder"))
           .addType(
-              generateContentValuesBuilderClass(clazz, mapperClassName, "ContentValuesBuilder"))
-          .build();
+              generateContentValuesBuilderClass(clazz, mapperClassName, "ContentValuesBuilder"));
+
+      if (clazz.isReadable()) {
+        generateStatementBindingCode(mapperClass, clazz);
+      } else {
+        messager.printMessage(Diagnostic.Kind.NOTE, String.format(
+            "No SQLiteStatement binding code generated for %s, because not all @%s values are "
+                + "readable. Add a public getter method for each @%s annotated setter method.",
+            clazz.getQualifiedClassName(), Column.class.getSimpleName(),
+            Column.class.getSimpleName()), clazz.getElement());
+      }
 
-      JavaFile.builder(packageName, mapperClass).build().writeTo(filer);
+      JavaFile.builder(packageName, mapperClass.build()).build().writeTo(filer);
     }
   }
 
@@ -171,59 +192,217 @@ import rx.functions.Func1;
    */
   private FieldSpec generateRxMappingMethod(ObjectMappableAnnotatedClass clazz) {
 
+    TypeName elementType = ClassName.get(clazz.getElement().asType());
+
+    ParameterizedTypeName fieldType =
+        ParameterizedTypeName.get(ClassName.get(Func1.class), ClassName.get(Cursor.class),
+            elementType);
+
+    return FieldSpec.builder(fieldType, "MAPPER", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .initializer("new $L()", CURSOR_MAPPER_CLASS_NAME)
+        .build();
+  }
+
+  /**
+   * Generates the <code>PROJECTION</code> field containing all columns in a fixed order
+   *
+   * @param clazz The {@link ObjectMappableAnnotatedClass}
+   * @return FieldSpec
+   */
+  private FieldSpec generateProjectionField(ObjectMappableAnnotatedClass clazz) {
+
+    CodeBlock.Builder initializer = CodeBlock.builder().add("{");
+    boolean first = true;
+    for (ColumnAnnotateable e : clazz.getColumnAnnotatedElements()) {
+      initializer.add(first ? "$S" : ", $S", e.getColumnName());
+      first = false;
+    }
+    initializer.add("}");
+
+    return FieldSpec.builder(String[].class, "PROJECTION", Modifier.PUBLIC, Modifier.STATIC,
+        Modifier.FINAL)
+        .addJavadoc("All columns of {@link $T} in the order {@link #PROJECTION_MAPPER} reads them.\n",
+            ClassName.get(clazz.getElement()))
+        .addJavadoc("Use it as projection of a query like <code>SELECT(PROJECTION)</code>.\n")
+        .addJavadoc("Don't modify this array.\n")
+        .initializer(initializer.build())
+        .build();
+  }
+
+  /**
+   * Generates the <code>PROJECTION_MAPPER</code> field that reads the columns by their position in
+   * <code>PROJECTION</code> and therefore doesn't have to look up any column index.
+   *
+   * @param clazz The {@link ObjectMappableAnnotatedClass}
+   * @return FieldSpec
+   */
+  private FieldSpec generateProjectionMappingMethod(ObjectMappableAnnotatedClass clazz) {
+
     String objectVarName = "item";
     String cursorVarName = "cursor";
 
     TypeName elementType = ClassName.get(clazz.getElement().asType());
 
-    // new Func1<Cursor, ListsItem>()
-
     CodeBlock.Builder initBlockBuilder = CodeBlock.builder()
-        .add("new $L<$L, $L>() {\n", Func1.class.getSimpleName(), Cursor.class.getSimpleName(),
-            elementType)
+        .add("new $T<$T, $T>() {\n", Func1.class, Cursor.class, elementType)
         .indent()
-        .add("@Override public $L call($L cursor) {\n", elementType, Cursor.class.getSimpleName())
-        .indent();
-
-    // assign the columns indexes
-    generateColumnIndexCode(initBlockBuilder, clazz.getColumnAnnotatedElements(), cursorVarName);
-
-    // Instantiate element
-    initBlockBuilder.addStatement("$T $L = new $T()", elementType, objectVarName, elementType);
+        .add("@Override public $T call($T $L) {\n", elementType, Cursor.class, cursorVarName)
+        .indent()
+        .addStatement("$T $L = new $T()", elementType, objectVarName, elementType);
 
-    // read cursor into element variable
+    int index = 0;
     for (ColumnAnnotateable e : clazz.getColumnAnnotatedElements()) {
-      String indexVaName = e.getColumnName() + "Index";
-      initBlockBuilder.beginControlFlow("if ($L >= 0)", indexVaName);
-      e.generateAssignStatement(initBlockBuilder, objectVarName, cursorVarName, indexVaName);
-      initBlockBuilder.endControlFlow();
+      e.generateAssignStatement(initBlockBuilder, objectVarName, cursorVarName,
+          Integer.toString(index++));
     }
 
     initBlockBuilder.addStatement("return $L", objectVarName)
         .unindent()
         .add("}\n") // end call () method
         .unindent()
-        .add("}") // end anonymous class
-        .build();
+        .add("}"); // end anonymous class
 
     ParameterizedTypeName fieldType =
         ParameterizedTypeName.get(ClassName.get(Func1.class), ClassName.get(Cursor.class),
             elementType);
 
-    return FieldSpec.builder(fieldType, "MAPPER", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+    return FieldSpec.builder(fieldType, "PROJECTION_MAPPER", Modifier.PUBLIC, Modifier.STATIC,
+        Modifier.FINAL)
+        .addJavadoc("Maps a Cursor row to {@link $T} by reading the columns by position.\n",
+            elementType)
+        .addJavadoc("Only use it for queries that select exactly the columns of\n")
+        .addJavadoc("{@link #PROJECTION} in the same order.\n")
         .initializer(initBlockBuilder.build())
         .build();
   }
 
-  private void generateColumnIndexCode(CodeBlock.Builder builder,
+  /**
+   * Generates the class that holds the resolved column indexes of a certain {@link Cursor}. The
+   * indexes are resolved in the constructor. If the previously resolved indexes belong to a Cursor
+   * with the same column names (i.e. a re-query of the same query) they are copied instead of
+   * being looked up again.
+   *
+   * @param clazz The {@link ObjectMappableAnnotatedClass}
+   * @param mapperClassName The simple name of the generated mapper class
+   * @return TypeSpec
+   */
+  private TypeSpec generateColumnIndexesClass(ObjectMappableAnnotatedClass clazz,
+      String mapperClassName) {
+
+    String cursorVarName = "cursor";
+    String previousVarName = "previous";
+    ParameterizedTypeName cursorRefType =
+        ParameterizedTypeName.get(ClassName.get(WeakReference.class), ClassName.get(Cursor.class));
+
+    TypeSpec.Builder builder = TypeSpec.classBuilder(COLUMN_INDEXES_CLASS_NAME)
+        .addJavadoc("The column indexes of a certain {@link $T}\n", Cursor.class)
+        .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        .addField(cursorRefType, cursorVarName, Modifier.FINAL)
+        .addField(String[].class, "columnNames", Modifier.FINAL);
+
+    for (ColumnAnnotateable e : clazz.getColumnAnnotatedElements()) {
+      builder.addField(int.class, e.getColumnName() + "Index", Modifier.FINAL);
+    }
+
+    MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+        .addParameter(Cursor.class, cursorVarName)
+        .addParameter(ClassName.get(getPackageName(clazz), mapperClassName, COLUMN_INDEXES_CLASS_NAME), previousVarName)
+        .addStatement("this.$L = new $T($L)", cursorVarName, cursorRefType, cursorVarName)
+        .addStatement("this.columnNames = $L.getColumnNames()", cursorVarName)
+        .beginControlFlow(
+            "if ($L != null && columnNames != null && $T.equals(columnNames, $L.columnNames))",
+            previousVarName, Arrays.class, previousVarName);
+
+    for (ColumnAnnotateable e : clazz.getColumnAnnotatedElements()) {
+      constructor.addStatement("this.$LIndex = $L.$LIndex", e.getColumnName(), previousVarName,
+          e.getColumnName());
+    }
+
+    constructor.nextControlFlow("else");
+    generateColumnIndexCode(constructor, clazz.getColumnAnnotatedElements(), cursorVarName);
+    constructor.endControlFlow();
+
+    return builder.addMethod(constructor.build()).build();
+  }
+
+  /**
+   * Generates the {@link Func1} implementation that maps a Cursor row to an object. The column
+   * indexes are resolved only once per Cursor and not for each row again.
+   *
+   * @param clazz The {@link ObjectMappableAnnotatedClass}
+   * @param mapperClassName The simple name of the generated mapper class
+   * @return TypeSpec
+   */
+  private TypeSpec generateCursorMapperClass(ObjectMappableAnnotatedClass clazz,
+      String mapperClassName) {
+
+    String objectVarName = "item";
+    String cursorVarName = "cursor";
+    String indexesVarName = "indexes";
+
+    TypeName elementType = ClassName.get(clazz.getElement().asType());
+    ClassName indexesType = ClassName.get(getPackageName(clazz), mapperClassName, COLUMN_INDEXES_CLASS_NAME);
+
+    MethodSpec indexesFor = MethodSpec.methodBuilder("indexesFor")
+        .addModifiers(Modifier.PRIVATE)
+        .addParameter(Cursor.class, cursorVarName)
+        .returns(indexesType)
+        .addStatement("$T current = $L", indexesType, indexesVarName)
+        .beginControlFlow("if (current != null && current.cursor.get() == $L)", cursorVarName)
+        .addStatement("return current")
+        .endControlFlow()
+        .addStatement("$T resolved = new $T($L, current)", indexesType, indexesType,
+            cursorVarName)
+        .addStatement("$L = resolved", indexesVarName)
+        .addStatement("return resolved")
+        .build();
+
+    MethodSpec.Builder call = MethodSpec.methodBuilder("call")
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .addParameter(Cursor.class, cursorVarName)
+        .returns(elementType)
+        .addStatement("$T $L = indexesFor($L)", indexesType, indexesVarName, cursorVarName)
+        .addStatement("$T $L = new $T()", elementType, objectVarName, elementType);
+
+    // read cursor into element variable
+    for (ColumnAnnotateable e : clazz.getColumnAnnotatedElements()) {
+      String indexVarName = indexesVarName + "." + e.getColumnName() + "Index";
+      call.beginControlFlow("if ($L >= 0)", indexVarName);
+      CodeBlock.Builder assignment = CodeBlock.builder();
+      e.generateAssignStatement(assignment, objectVarName, cursorVarName, indexVarName);
+      call.addCode(assignment.build());
+      call.endControlFlow();
+    }
+
+    call.addStatement("return $L", objectVarName);
+
+    return TypeSpec.classBuilder(CURSOR_MAPPER_CLASS_NAME)
+        .addJavadoc("Maps the current row of a {@link $T} to a {@link $T}.\n", Cursor.class,
+            elementType)
+        .addJavadoc("The column indexes are resolved only once per Cursor and reused for all rows.\n")
+        .addJavadoc("They are also reused for the next Cursor if it has the same columns, i.e. if\n")
+        .addJavadoc("the same query has been executed again.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+        .addSuperinterface(
+            ParameterizedTypeName.get(ClassName.get(Func1.class), ClassName.get(Cursor.class),
+                elementType))
+        .addField(FieldSpec.builder(indexesType, indexesVarName, Modifier.PRIVATE,
+            Modifier.VOLATILE).build())
+        .addMethod(indexesFor)
+        .addMethod(call.build())
+        .build();
+  }
+
+  private void generateColumnIndexCode(MethodSpec.Builder builder,
       Collection<ColumnAnnotateable> elements, String cursorVarName) {
 
     for (ColumnAnnotateable e : elements) {
       if (e.isThrowOnColumnIndexNotFound()) {
-        builder.addStatement("int $LIndex = $L.getColumnIndexOrThrow($S)", e.getColumnName(),
+        builder.addStatement("this.$LIndex = $L.getColumnIndexOrThrow($S)", e.getColumnName(),
             cursorVarName, e.getColumnName());
       } else {
-        builder.addStatement("int $LIndex = $L.getColumnIndex($S)", e.getColumnName(),
+        builder.addStatement("this.$LIndex = $L.getColumnIndex($S)", e.getColumnName(),
             cursorVarName, e.getColumnName());
       }
     }
@@ -260,6 +439,181 @@ import rx.functions.Func1;
     builder.endControlFlow();
   }
 
+  /**
+   * Generates the precomputed INSERT / UPDATE sql statements and the code to bind an object to a
+   * {@link SQLiteStatement} compiled from this sql statements.
+   *
+   * @param builder The builder of the mapper class
+   * @param clazz The {@link ObjectMappableAnnotatedClass}
+   */
+  private void generateStatementBindingCode(TypeSpec.Builder builder,
+      ObjectMappableAnnotatedClass clazz) {
+
+    String statementVarName = "statement";
+    String objectVarName = "item";
+    String tableVarName = "table";
+    TypeName elementType = ClassName.get(clazz.getElement().asType());
+    ParameterizedTypeName binderType =
+        ParameterizedTypeName.get(ClassName.get(Action2.class), ClassName.get(SQLiteStatement.class),
+            elementType);
+
+    StringBuilder columns = new StringBuilder();
+    StringBuilder placeholders = new StringBuilder();
+    StringBuilder updateColumns = new StringBuilder();
+    for (ColumnAnnotateable e : clazz.getColumnAnnotatedElements()) {
+      if (columns.length() > 0) {
+        columns.append(", ");
+        placeholders.append(", ");
+        updateColumns.append(", ");
+      }
+      columns.append(e.getColumnName());
+      placeholders.append('?');
+      updateColumns.append(e.getColumnName()).append(" = ?");
+    }
+
+    builder.addField(FieldSpec.builder(String.class, "INSERT_COLUMNS", Modifier.PRIVATE,
+        Modifier.STATIC, Modifier.FINAL)
+        .initializer("$S", " (" + columns + ") VALUES (" + placeholders + ")")
+        .build());
+
+    builder.addField(FieldSpec.builder(String.class, "UPDATE_COLUMNS", Modifier.PRIVATE,
+        Modifier.STATIC, Modifier.FINAL).initializer("$S", " SET " + updateColumns).build());
+
+    builder.addField(FieldSpec.builder(String[].class, "CONFLICT_VALUES", Modifier.PRIVATE,
+        Modifier.STATIC, Modifier.FINAL)
+        .initializer("{$S, $S, $S, $S, $S, $S}", "", " OR ROLLBACK", " OR ABORT", " OR FAIL",
+            " OR IGNORE", " OR REPLACE")
+        .build());
+
+    builder.addMethod(MethodSpec.methodBuilder("insertSql")
+        .addJavadoc("Get the sql statement to insert a {@link $T} into the given table. The\n",
+            elementType)
+        .addJavadoc("values can be bound with {@link #bindInsert($T, $T)}.\n", SQLiteStatement.class,
+            elementType)
+        .addJavadoc("@param $L The name of the table\n", tableVarName)
+        .addJavadoc("@return The INSERT sql statement\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(String.class, tableVarName)
+        .returns(String.class)
+        .addStatement("return $S + $L + INSERT_COLUMNS", "INSERT INTO ", tableVarName)
+        .build());
+
+    builder.addMethod(MethodSpec.methodBuilder("insertSql")
+        .addJavadoc("Get the sql statement to insert a {@link $T} into the given table. The\n",
+            elementType)
+        .addJavadoc("values can be bound with {@link #bindInsert($T, $T)}.\n", SQLiteStatement.class,
+            elementType)
+        .addJavadoc("@param $L The name of the table\n", tableVarName)
+        .addJavadoc("@param conflictAlgorithm One of the <code>CONFLICT_</code> constants of\n")
+        .addJavadoc("{@link $T}\n", SQLiteDatabase.class)
+        .addJavadoc("@return The INSERT sql statement\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(String.class, tableVarName)
+        .addParameter(int.class, "conflictAlgorithm")
+        .returns(String.class)
+        .addStatement("return $S + CONFLICT_VALUES[conflictAlgorithm] + $S + $L + INSERT_COLUMNS",
+            "INSERT", " INTO ", tableVarName)
+        .build());
+
+    builder.addMethod(MethodSpec.methodBuilder("updateSql")
+        .addJavadoc("Get the sql statement to update all columns of the rows matching the where\n")
+        .addJavadoc("clause. The values can be bound with {@link #bindUpdate($T, $T, String...)}.\n",
+            SQLiteStatement.class, elementType)
+        .addJavadoc("@param $L The name of the table\n", tableVarName)
+        .addJavadoc("@param whereClause The where clause (without WHERE keyword) or null to update\n")
+        .addJavadoc("all rows\n")
+        .addJavadoc("@return The UPDATE sql statement\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(String.class, tableVarName)
+        .addParameter(String.class, "whereClause")
+        .returns(String.class)
+        .beginControlFlow("if (whereClause == null || whereClause.length() == 0)")
+        .addStatement("return $S + $L + UPDATE_COLUMNS", "UPDATE ", tableVarName)
+        .endControlFlow()
+        .addStatement("return $S + $L + UPDATE_COLUMNS + $S + whereClause", "UPDATE ",
+            tableVarName, " WHERE ")
+        .build());
+
+    // bind insert
+    CodeBlock.Builder bindCode = CodeBlock.builder();
+    int index = 1;
+    for (ColumnAnnotateable e : clazz.getColumnAnnotatedElements()) {
+      e.generateBindStatement(bindCode, statementVarName, objectVarName, Integer.toString(index++));
+    }
+
+    builder.addMethod(MethodSpec.methodBuilder("bindInsert")
+        .addJavadoc("Binds the values of the given {@link $T} to a statement compiled from\n",
+            elementType)
+        .addJavadoc("{@link #insertSql(String)}\n")
+        .addJavadoc("@param $L The compiled statement\n", statementVarName)
+        .addJavadoc("@param $L The object to bind\n", objectVarName)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(SQLiteStatement.class, statementVarName)
+        .addParameter(elementType, objectVarName)
+        .addCode(bindCode.build())
+        .build());
+
+    builder.addMethod(MethodSpec.methodBuilder("bindUpdate")
+        .addJavadoc("Binds the values of the given {@link $T} to a statement compiled from\n",
+            elementType)
+        .addJavadoc("{@link #updateSql(String, String)}\n")
+        .addJavadoc("@param $L The compiled statement\n", statementVarName)
+        .addJavadoc("@param $L The object to bind\n", objectVarName)
+        .addJavadoc("@param whereArgs The arguments of the where clause\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(SQLiteStatement.class, statementVarName)
+        .addParameter(elementType, objectVarName)
+        .addParameter(String[].class, "whereArgs")
+        .varargs()
+        .addStatement("bindInsert($L, $L)", statementVarName, objectVarName)
+        .beginControlFlow("if (whereArgs != null)")
+        .beginControlFlow("for (int i = 0; i < whereArgs.length; i++)")
+        .addStatement("$L.bindString($L + i, whereArgs[i])", statementVarName, index)
+        .endControlFlow()
+        .endControlFlow()
+        .build());
+
+    TypeSpec insertBinder = TypeSpec.anonymousClassBuilder("")
+        .addSuperinterface(binderType)
+        .addMethod(MethodSpec.methodBuilder("call")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(SQLiteStatement.class, statementVarName)
+            .addParameter(elementType, objectVarName)
+            .addStatement("bindInsert($L, $L)", statementVarName, objectVarName)
+            .build())
+        .build();
+
+    builder.addField(FieldSpec.builder(binderType, "INSERT_BINDER", Modifier.PUBLIC,
+        Modifier.STATIC, Modifier.FINAL)
+        .addJavadoc("Binds a {@link $T} to a statement compiled from {@link #insertSql(String)}\n",
+            elementType)
+        .initializer("$L", insertBinder)
+        .build());
+
+    TypeSpec updateBinder = TypeSpec.anonymousClassBuilder("")
+        .addSuperinterface(binderType)
+        .addMethod(MethodSpec.methodBuilder("call")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(SQLiteStatement.class, statementVarName)
+            .addParameter(elementType, objectVarName)
+            .addStatement("bindUpdate($L, $L, whereArgs)", statementVarName, objectVarName)
+            .build())
+        .build();
+
+    builder.addMethod(MethodSpec.methodBuilder("updateBinder")
+        .addJavadoc("Get a binder for a statement compiled from {@link #updateSql(String, String)}\n")
+        .addJavadoc("@param whereArgs The arguments of the where clause\n")
+        .addJavadoc("@return The binder\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(String[].class, "whereArgs", Modifier.FINAL)
+        .varargs()
+        .returns(binderType)
+        .addStatement("return $L", updateBinder)
+        .build());
+  }
+
   /**
    * Generates the ContentValues Builder Class
    *
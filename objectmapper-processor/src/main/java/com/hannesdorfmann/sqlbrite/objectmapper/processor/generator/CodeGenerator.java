@@ -23,6 +23,17 @@ public interface CodeGenerator {
   void generateAssignStatement(CodeBlock.Builder builder, String objectVarName,
       String cursorVarName, String indexVarName);
 
+  /**
+   * Generate the code for binding the value of the object to a SQLiteStatement
+   *
+   * @param builder the {@link CodeBlock.Builder}
+   * @param statementVarName The variable name of the SQLiteStatement
+   * @param objectVarName The variable name of the object from which you should read the value
+   * @param indexVarName The variable name of the bind index (1 based)
+   */
+  void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName);
+
   void generateContentValuesBuilderMethod(TypeSpec.Builder builder, TypeName type,
       String contentValuesVarName);
 }
@@ -27,6 +27,12 @@ public class BooleanFieldCodeGenerator implements CodeGenerator {
         cursorVarName, indexVarName);
   }
 
+  @Override public void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName) {
+    builder.addStatement("$L.bindLong($L, $L.$L ? 1 : 0)", statementVarName, indexVarName,
+        objectVarName, field.getFieldName());
+  }
+
   @Override public void generateContentValuesBuilderMethod(TypeSpec.Builder builder, TypeName type,
       String contentValuesVarName) {
 
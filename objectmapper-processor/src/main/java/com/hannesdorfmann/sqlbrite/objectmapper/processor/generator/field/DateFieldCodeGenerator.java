@@ -27,6 +27,17 @@ public class DateFieldCodeGenerator implements CodeGenerator {
         field.getFieldName(), cursorVarName, indexVarName);
   }
 
+  @Override public void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName) {
+
+    builder.beginControlFlow("if ($L.$L == null)", objectVarName, field.getFieldName())
+        .addStatement("$L.bindNull($L)", statementVarName, indexVarName)
+        .nextControlFlow("else")
+        .addStatement("$L.bindLong($L, $L.$L.getTime())", statementVarName, indexVarName,
+            objectVarName, field.getFieldName())
+        .endControlFlow();
+  }
+
   @Override public void generateContentValuesBuilderMethod(TypeSpec.Builder builder, TypeName type,
       String contentValuesVarName) {
 
@@ -23,19 +23,19 @@ public class FieldCodeFactory {
     switch (element.asType().getKind()) {
 
       case INT:
-        return new FieldCodeGenerator(field, "getInt");
+        return new FieldCodeGenerator(field, "getInt", "bindLong");
 
       case FLOAT:
-        return new FieldCodeGenerator(field, "getFloat");
+        return new FieldCodeGenerator(field, "getFloat", "bindDouble");
 
       case DOUBLE:
-        return new FieldCodeGenerator(field, "getDouble");
+        return new FieldCodeGenerator(field, "getDouble", "bindDouble");
 
       case LONG:
-        return new FieldCodeGenerator(field, "getLong");
+        return new FieldCodeGenerator(field, "getLong", "bindLong");
 
       case SHORT:
-        return new FieldCodeGenerator(field, "getShort");
+        return new FieldCodeGenerator(field, "getShort", "bindLong");
 
       case BOOLEAN:
         return new BooleanFieldCodeGenerator(field);
@@ -43,14 +43,14 @@ public class FieldCodeFactory {
       case ARRAY:
         ArrayType arrayType = (ArrayType) element.asType();
         if (arrayType.getComponentType().getKind() == TypeKind.BYTE) {
-          return new FieldCodeGenerator(field, "getBlob");
+          return new FieldCodeGenerator(field, "getBlob", "bindBlob");
         }
         break;
 
       case DECLARED:
         String varType = element.asType().toString();
         if (varType.equals(String.class.getCanonicalName())) {
-          return new FieldCodeGenerator(field, "getString");
+          return new FieldCodeGenerator(field, "getString", "bindString");
         }
 
         if (varType.equals(Date.class.getCanonicalName())) {
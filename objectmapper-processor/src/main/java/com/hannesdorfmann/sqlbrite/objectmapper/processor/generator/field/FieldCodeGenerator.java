@@ -16,10 +16,13 @@ import javax.lang.model.element.Modifier;
 public class FieldCodeGenerator implements CodeGenerator {
 
   protected String cursorMethodName;
+  protected String statementMethodName;
   protected ColumnAnnotatedField field;
 
-  public FieldCodeGenerator(ColumnAnnotatedField field, String cursorMethodName) {
+  public FieldCodeGenerator(ColumnAnnotatedField field, String cursorMethodName,
+      String statementMethodName) {
     this.cursorMethodName = cursorMethodName;
+    this.statementMethodName = statementMethodName;
     this.field = field;
   }
 
@@ -29,6 +32,22 @@ public class FieldCodeGenerator implements CodeGenerator {
         cursorMethodName, indexVarName);
   }
 
+  @Override public void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName) {
+
+    if (field.getField().asType().getKind().isPrimitive()) {
+      builder.addStatement("$L.$L($L, $L.$L)", statementVarName, statementMethodName, indexVarName,
+          objectVarName, field.getFieldName());
+    } else {
+      builder.beginControlFlow("if ($L.$L == null)", objectVarName, field.getFieldName())
+          .addStatement("$L.bindNull($L)", statementVarName, indexVarName)
+          .nextControlFlow("else")
+          .addStatement("$L.$L($L, $L.$L)", statementVarName, statementMethodName, indexVarName,
+              objectVarName, field.getFieldName())
+          .endControlFlow();
+    }
+  }
+
   @Override public void generateContentValuesBuilderMethod(TypeSpec.Builder builder, TypeName type,
       String contentValuesVarName) {
 
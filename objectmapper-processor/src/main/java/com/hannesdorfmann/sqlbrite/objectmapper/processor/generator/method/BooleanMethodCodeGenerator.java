@@ -30,6 +30,12 @@ public class BooleanMethodCodeGenerator implements CodeGenerator {
         cursorVarName, indexVarName);
   }
 
+  @Override public void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName) {
+    builder.addStatement("$L.bindLong($L, $L.$L() ? 1 : 0)", statementVarName, indexVarName,
+        objectVarName, method.getGetterName());
+  }
+
   @Override public void generateContentValuesBuilderMethod(TypeSpec.Builder builder, TypeName type,
       String contentValuesVarName) {
 
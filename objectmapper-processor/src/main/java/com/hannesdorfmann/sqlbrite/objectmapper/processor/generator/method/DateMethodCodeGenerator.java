@@ -29,6 +29,20 @@ public class DateMethodCodeGenerator implements CodeGenerator {
   }
 
 
+  @Override public void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName) {
+
+    String valueVarName = method.getColumnName() + "Value";
+    builder.addStatement("$T $L = $L.$L()", TypeName.get(method.getGetter().getReturnType()),
+        valueVarName, objectVarName, method.getGetterName())
+        .beginControlFlow("if ($L == null)", valueVarName)
+        .addStatement("$L.bindNull($L)", statementVarName, indexVarName)
+        .nextControlFlow("else")
+        .addStatement("$L.bindLong($L, $L.getTime())", statementVarName, indexVarName,
+            valueVarName)
+        .endControlFlow();
+  }
+
   @Override public void generateContentValuesBuilderMethod(TypeSpec.Builder builder,
       TypeName type, String contentValuesVarName) {
 
@@ -25,33 +25,33 @@ public class MethodCodeFactory {
     switch (parameter.getKind()) {
 
       case INT:
-        return new MethodCodeGenerator(method, "getInt");
+        return new MethodCodeGenerator(method, "getInt", "bindLong");
 
       case FLOAT:
-        return new MethodCodeGenerator(method, "getFloat");
+        return new MethodCodeGenerator(method, "getFloat", "bindDouble");
 
       case DOUBLE:
-        return new MethodCodeGenerator(method, "getDouble");
+        return new MethodCodeGenerator(method, "getDouble", "bindDouble");
 
       case LONG:
-        return new MethodCodeGenerator(method, "getLong");
+        return new MethodCodeGenerator(method, "getLong", "bindLong");
 
       case SHORT:
-        return new MethodCodeGenerator(method, "getShort");
+        return new MethodCodeGenerator(method, "getShort", "bindLong");
 
       case BOOLEAN:
         return new BooleanMethodCodeGenerator(method);
       case ARRAY:
         ArrayType parameterArrayType = (ArrayType) parameter;
         if (parameterArrayType.getComponentType().getKind() == TypeKind.BYTE) {
-          return new MethodCodeGenerator(method, "getBlob");
+          return new MethodCodeGenerator(method, "getBlob", "bindBlob");
         }
         break;
 
       case DECLARED:
         String parameterType = parameter.toString();
         if (parameterType.equals(String.class.getCanonicalName())) {
-          return new MethodCodeGenerator(method, "getString");
+          return new MethodCodeGenerator(method, "getString", "bindString");
         }
 
         if (parameterType.equals(Date.class.getCanonicalName())) {
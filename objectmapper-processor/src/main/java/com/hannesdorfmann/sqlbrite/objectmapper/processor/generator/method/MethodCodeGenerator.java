@@ -19,10 +19,13 @@ public class MethodCodeGenerator implements CodeGenerator {
 
   protected ColumnAnnotatedMethod method;
   protected String cursorMethodName;
+  protected String statementMethodName;
 
-  public MethodCodeGenerator(ColumnAnnotatedMethod method, String cursorMethodName) {
+  public MethodCodeGenerator(ColumnAnnotatedMethod method, String cursorMethodName,
+      String statementMethodName) {
     this.method = method;
     this.cursorMethodName = cursorMethodName;
+    this.statementMethodName = statementMethodName;
   }
 
   @Override public void generateAssignStatement(CodeBlock.Builder builder, String objectVarName,
@@ -32,6 +35,25 @@ public class MethodCodeGenerator implements CodeGenerator {
         cursorVarName, cursorMethodName, indexVarName);
   }
 
+  @Override public void generateBindStatement(CodeBlock.Builder builder, String statementVarName,
+      String objectVarName, String indexVarName) {
+
+    if (method.getGetter().getReturnType().getKind().isPrimitive()) {
+      builder.addStatement("$L.$L($L, $L.$L())", statementVarName, statementMethodName,
+          indexVarName, objectVarName, method.getGetterName());
+    } else {
+      String valueVarName = method.getColumnName() + "Value";
+      builder.addStatement("$T $L = $L.$L()", TypeName.get(method.getGetter().getReturnType()),
+          valueVarName, objectVarName, method.getGetterName())
+          .beginControlFlow("if ($L == null)", valueVarName)
+          .addStatement("$L.bindNull($L)", statementVarName, indexVarName)
+          .nextControlFlow("else")
+          .addStatement("$L.$L($L, $L)", statementVarName, statementMethodName, indexVarName,
+              valueVarName)
+          .endControlFlow();
+    }
+  }
+
   @Override public void generateContentValuesBuilderMethod(TypeSpec.Builder builder, TypeName type,
       String contentValuesVarName) {
 
@@ -1,6 +1,5 @@
 package com.hannesdorfmann.sqlbritedao.sample.model;
 
-import android.content.ContentValues;
 import android.database.sqlite.SQLiteDatabase;
 import com.hannesdorfmann.sqlbrite.dao.Dao;
 import com.hannesdorfmann.sqlbritedao.sample.model.customer.Customer;
@@ -13,6 +12,8 @@ import rx.Observable;
  */
 public class CustomerDao extends Dao {
 
+  private static final String INSERT_SQL = CustomerMapper.insertSql(Customer.TABLE_NAME);
+
   @Override public void createTable(SQLiteDatabase database) {
 
     CREATE_TABLE(Customer.TABLE_NAME, Customer.COL_ID + " INTEGER PRIMARY KEY NOT NULL",
@@ -25,18 +26,12 @@ public class CustomerDao extends Dao {
   }
 
   public Observable<List<Customer>> getCustomers() {
-    return query(SELECT(Customer.COL_ID, Customer.COL_FIRSTNAME, Customer.COL_LASTNAME,
-        Customer.COL_ADULT).FROM(Customer.TABLE_NAME)).run().mapToList(CustomerMapper.MAPPER);
+    return query(SELECT(CustomerMapper.PROJECTION).FROM(Customer.TABLE_NAME)).run()
+        .mapToList(CustomerMapper.PROJECTION_MAPPER);
   }
 
   public Observable<Long> insert(int id, String firstname, String lastname, boolean adult) {
-    ContentValues values = CustomerMapper.contentValues()
-        .id(id)
-        .firstname(firstname)
-        .lastname(lastname)
-        .adult(adult)
-        .build();
-
-    return insert(Customer.TABLE_NAME, values);
+    return insert(Customer.TABLE_NAME, INSERT_SQL, CustomerMapper.INSERT_BINDER,
+        new Customer(id, firstname, lastname, adult));
   }
-}
\ No newline at end of file
+}